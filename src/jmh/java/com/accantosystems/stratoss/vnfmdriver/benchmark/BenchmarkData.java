@@ -0,0 +1,118 @@
+package com.accantosystems.stratoss.vnfmdriver.benchmark;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.TEST_DL_NO_AUTH;
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadFileIntoString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.GenericExecutionRequestPropertyValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Realistic test data shared by the benchmarks
+ */
+final class BenchmarkData {
+
+    static final String[] DEFAULT_SCRIPTS = { "ChangeCurrentVnfPkgRequest", "ChangeExtVnfConnectivityRequest", "ChangeVnfFlavourRequest", "CreateVnfRequest", "HealVnfRequest",
+                                              "InstantiateVnfRequest", "OperateVnfRequest-Start", "OperateVnfRequest-Stop", "ScaleVnfRequest", "ScaleVnfToLevelRequest",
+                                              "TerminateVnfRequest", "VnfInstance" };
+
+    private BenchmarkData() {}
+
+    static ObjectMapper createObjectMapper() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return objectMapper;
+    }
+
+    /**
+     * Creates a request with the kind of properties used to instantiate a VNF with a single external virtual link and VIM connection
+     */
+    static ExecutionRequest createExecutionRequest() {
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Install");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+        put(executionRequest, "vnfdId", "fa2343af-2a81-4e84-a667-e40662e5ed93");
+        put(executionRequest, "vnfInstanceId", "0000-0002-0000-0001");
+        put(executionRequest, "vnfInstanceName", "HelloWorld1");
+        put(executionRequest, "vnfInstanceDescription", "A VNF used for benchmarking");
+        put(executionRequest, "vnfPkgId", "316aa140-c99a-4a08-b8f5-8e2cb73c83e8");
+        put(executionRequest, "flavourId", "default");
+        put(executionRequest, "instantiationLevelId", "1");
+        put(executionRequest, "scaleType", "SCALE_OUT");
+        put(executionRequest, "scaleAspectId", "aspect1");
+        put(executionRequest, "numberOfSteps", 1);
+        put(executionRequest, "cause", "Benchmark");
+        put(executionRequest, "additionalParams.vnfPkgId", "316aa140-c99a-4a08-b8f5-8e2cb73c83e8");
+        put(executionRequest, "additionalParams.enableMonitoring", true);
+        put(executionRequest, "additionalParams.replicas", 3);
+        put(executionRequest, "extVirtualLinks.0.id", "45672c22-7c12-49ed-8a4f-e4532b3026fb");
+        put(executionRequest, "extVirtualLinks.0.vimConnectionId", "f03a29d5-1fc6-11e9-83ea-fa163e045578");
+        put(executionRequest, "extVirtualLinks.0.resourceId", "45672c22-5r54-49ed-8a4f-e4532b3026fb");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpdId", "SERVICES_ExtCp");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.cpInstanceId", "cpInstanceId111");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.linkPortId", "linkPortId222");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.layerProtocol", "IP_OVER_ETHERNET");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.ipOverEthernet.macAddress", "fa:16:3e:23:fd:d7");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.ipOverEthernet.ipAddresses.0.type", "IPV4");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.ipOverEthernet.ipAddresses.0.fixedAddresses.0", "131.160.162.32");
+        put(executionRequest, "extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.ipOverEthernet.ipAddresses.0.subnetId", "subnet1");
+        put(executionRequest, "extVirtualLinks.0.extLinkPorts.0.id", "extLinkPort1");
+        put(executionRequest, "extVirtualLinks.0.extLinkPorts.0.resourceHandle.vimConnectionId", "47772c22-7c12-49ed-8a4f-e7625b3026fb");
+        put(executionRequest, "extVirtualLinks.0.extLinkPorts.0.resourceHandle.resourceId", "45672c22-5r54-49ed-8a4f-e4532b3026fb");
+        put(executionRequest, "vimConnectionInfo.vim1.vimId", "vim1");
+        put(executionRequest, "vimConnectionInfo.vim1.vimType", "ETSINFV.OPENSTACK_KEYSTONE.V_3");
+        put(executionRequest, "vimConnectionInfo.vim1.interfaceInfo.endpoint", "https://openstack:5000/v3");
+        put(executionRequest, "vimConnectionInfo.vim1.accessInfo.projectId", "cab32f669c18404d8bed0fae6bf088aa");
+        put(executionRequest, "vimConnectionInfo.vim1.accessInfo.username", "admin");
+        put(executionRequest, "vimConnectionInfo.vim1.accessInfo.password", "secret");
+        put(executionRequest, "scaleInfo.0.aspectId", "aspect1");
+        put(executionRequest, "scaleInfo.0.scaleLevel", 2);
+        return executionRequest;
+    }
+
+    /**
+     * Creates a Base64 encoded driverFiles archive, similar to those found in resource packages: the VNFD, a full set of scripts and some larger (incompressible) files
+     */
+    static String createDriverFiles(final int additionalFileCount, final int additionalFileSize) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final Random random = new Random(1);
+        try (ZipOutputStream zos = new ZipOutputStream(outputStream)) {
+            for (int i = 0; i < additionalFileCount; i++) {
+                final byte[] contents = new byte[additionalFileSize];
+                random.nextBytes(contents);
+                addEntry(zos, String.format("files/image-%d.bin", i), contents);
+            }
+            for (String script : DEFAULT_SCRIPTS) {
+                try (InputStream inputStream = BenchmarkData.class.getResourceAsStream("/scripts/3.5.1/" + script + ".js")) {
+                    addEntry(zos, "scripts/" + script + ".js", IOUtils.toByteArray(inputStream));
+                }
+            }
+            addEntry(zos, "vnfd.yaml", loadFileIntoString("examples/example-vnfd.yaml").getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    }
+
+    private static void addEntry(final ZipOutputStream zos, final String name, final byte[] contents) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(contents);
+        zos.closeEntry();
+    }
+
+    private static void put(final ExecutionRequest executionRequest, final String name, final Object value) {
+        executionRequest.getResourceProperties().put(name, new GenericExecutionRequestPropertyValue(value));
+    }
+
+}
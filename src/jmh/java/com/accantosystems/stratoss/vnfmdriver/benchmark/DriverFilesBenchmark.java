@@ -0,0 +1,96 @@
+package com.accantosystems.stratoss.vnfmdriver.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.service.DriverFilesService;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Reading the driverFiles from a request body, followed by a lookup of a script and the VNFD (as done for each request message), from driverFiles archives of increasing size.
+ * Run with -prof gc to compare the memory allocated for each request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class DriverFilesBenchmark {
+
+    /**
+     * Number of 64KB files added to the archive alongside the scripts and VNFD (32 takes the archive over the default memory threshold)
+     */
+    @Param({ "0", "4", "32" })
+    public int additionalFiles;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] requestBody;
+    private DriverFilesService driverFilesService;
+
+    @Setup
+    public void setUp() throws IOException {
+        requestBody = ("{\"lifecycleName\":\"Install\",\"driverFiles\":\"" + BenchmarkData.createDriverFiles(additionalFiles, 64 * 1024) + "\"}").getBytes(StandardCharsets.UTF_8);
+        driverFilesService = new DriverFilesService(new VNFMDriverProperties(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * Baseline, with the driverFiles read into a String and decoded for each lookup
+     */
+    @Benchmark
+    public void fileUtils(final Blackhole blackhole) throws IOException {
+        final String driverFiles = objectMapper.readValue(requestBody, StringDriverFilesRequest.class).driverFiles;
+        blackhole.consume(getFileFromLifecycleScripts(driverFiles, "scripts/InstantiateVnfRequest.js"));
+        blackhole.consume(getFileFromLifecycleScripts(driverFiles, "vnfd.yaml"));
+    }
+
+    @Benchmark
+    public void driverFilesService(final Blackhole blackhole) throws IOException {
+        final ExecutionRequest executionRequest = objectMapper.readValue(requestBody, ExecutionRequest.class);
+        try {
+            blackhole.consume(driverFilesService.getFile(executionRequest.getDriverFiles(), "scripts/InstantiateVnfRequest.js"));
+            blackhole.consume(driverFilesService.getFile(executionRequest.getDriverFiles(), "vnfd.yaml"));
+        } finally {
+            executionRequest.getDriverFiles().close();
+        }
+    }
+
+    /**
+     * The lookup previously done for each request, decoding and scanning the whole archive
+     */
+    private static String getFileFromLifecycleScripts(final String lifecycleScripts, final String filename) throws IOException {
+        final byte[] decodedByteArray = Base64.getDecoder().decode(lifecycleScripts);
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(decodedByteArray))) {
+            ZipEntry entry = zis.getNextEntry();
+            while (entry != null) {
+                if (filename.equalsIgnoreCase(entry.getName())) {
+                    return IOUtils.toString(zis, Charset.defaultCharset());
+                }
+                entry = zis.getNextEntry();
+            }
+        }
+        return null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class StringDriverFilesRequest {
+        public String driverFiles;
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.accantosystems.stratoss.vnfmdriver.benchmark;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.GenericExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.KeyExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.PropertyType;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Deserialization of ExecutionRequests (and hence ExecutionRequestPropertyValueDeserializer) with increasing numbers of resource properties. The deserializeWithTree benchmark is
+ * the previous implementation, which read each property value into a JsonNode before converting it. Run with -Djmh.args="-prof gc" to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class ExecutionRequestDeserializationBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int propertyCount;
+
+    private ObjectReader executionRequestReader;
+    private ObjectReader treeExecutionRequestReader;
+    private byte[] executionRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = BenchmarkData.createObjectMapper();
+        executionRequestReader = objectMapper.readerFor(ExecutionRequest.class);
+        treeExecutionRequestReader = BenchmarkData.createObjectMapper()
+                                                  .addMixIn(ExecutionRequestPropertyValue.class, TreeDeserializerMixIn.class)
+                                                  .readerFor(ExecutionRequest.class);
+
+        final ObjectNode root = objectMapper.createObjectNode();
+        root.put("lifecycleName", "Install");
+        final ObjectNode resourceProperties = root.putObject("resourceProperties");
+        for (int i = 0; i < propertyCount; i++) {
+            final ObjectNode property = resourceProperties.putObject(String.format("additionalParams.property%d", i));
+            // A mix of the property types seen in real requests, with the type given both before and after the value
+            switch (i % 4) {
+                case 0:
+                    property.put("type", "string").put("value", "value-" + i);
+                    break;
+                case 1:
+                    property.put("value", i).put("type", "integer");
+                    break;
+                case 2:
+                    property.put("type", "boolean").put("value", i % 3 == 0);
+                    break;
+                default:
+                    property.put("type", "key").put("keyName", "key-" + i).put("privateKey", "private-" + i).put("publicKey", "public-" + i);
+                    break;
+            }
+        }
+        executionRequest = objectMapper.writeValueAsBytes(root);
+    }
+
+    @Benchmark
+    public ExecutionRequest deserialize() throws IOException {
+        return executionRequestReader.readValue(executionRequest);
+    }
+
+    @Benchmark
+    public ExecutionRequest deserializeWithTree() throws IOException {
+        return treeExecutionRequestReader.readValue(executionRequest);
+    }
+
+    @JsonDeserialize(using = TreeExecutionRequestPropertyValueDeserializer.class)
+    private static abstract class TreeDeserializerMixIn {}
+
+    public static class TreeExecutionRequestPropertyValueDeserializer extends StdDeserializer<ExecutionRequestPropertyValue> {
+
+        public TreeExecutionRequestPropertyValueDeserializer() {
+            super(ExecutionRequestPropertyValue.class);
+        }
+
+        @Override
+        public ExecutionRequestPropertyValue deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            final ObjectMapper mapper = (ObjectMapper) jp.getCodec();
+            final JsonNode root = mapper.readTree(jp);
+            final String type = root.has("type") ? root.get("type").asText() : null;
+            if (Objects.equals(type, PropertyType.KEY.getValue())) {
+                return mapper.treeToValue(root, KeyExecutionRequestPropertyValue.class);
+            } else {
+                return mapper.treeToValue(root, GenericExecutionRequestPropertyValue.class);
+            }
+        }
+    }
+
+}
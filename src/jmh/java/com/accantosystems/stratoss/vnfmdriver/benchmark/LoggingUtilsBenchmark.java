@@ -0,0 +1,96 @@
+package com.accantosystems.stratoss.vnfmdriver.benchmark;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadFileIntoString;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.accantosystems.stratoss.common.utils.LoggingUtils;
+import com.accantosystems.stratoss.vnfmdriver.model.MessageDirection;
+import com.accantosystems.stratoss.vnfmdriver.model.MessageType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+
+/**
+ * Logging of a typical request message with its protocol metadata (the log events are encoded as JSON, as they are in Kubernetes, then discarded).
+ * The mdcWithObjectMapper benchmark is the previous implementation, which put the fields in the MDC and created an ObjectMapper for each message. Run with
+ * -Djmh.args="-prof gc" to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class LoggingUtilsBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingUtils.class);
+
+    private String message;
+    private Map<String, Object> protocolMetadata;
+    private String requestId;
+
+    @Setup
+    public void setUp() throws IOException {
+        message = loadFileIntoString("examples/InstantiateVnfRequest.json");
+        protocolMetadata = new HashMap<>();
+        protocolMetadata.put("uri", "https://vnfm:8080/vnflcm/v2/vnf_instances/cc3d9824-8267-4b1c-8456-3f1cdd94d620/instantiate");
+        protocolMetadata.put("method", "POST");
+        protocolMetadata.put("status_code", 202);
+        requestId = UUID.randomUUID().toString();
+
+        final ch.qos.logback.classic.Logger logbackLogger = (ch.qos.logback.classic.Logger) logger;
+        final LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(logbackLogger.getLoggerContext());
+        encoder.start();
+        final OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(logbackLogger.getLoggerContext());
+        appender.setEncoder(encoder);
+        appender.setOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        appender.start();
+        logbackLogger.addAppender(appender);
+        logbackLogger.setAdditive(false);
+    }
+
+    @Benchmark
+    public void logEnabledMDC() {
+        LoggingUtils.logEnabledMDC(message, MessageType.REQUEST, MessageDirection.SENT, requestId, "application/json", "http", protocolMetadata, requestId);
+    }
+
+    @Benchmark
+    public void mdcWithObjectMapper() throws JsonProcessingException {
+        try {
+            MDC.put("message_direction", MessageDirection.SENT.toString());
+            MDC.put("tracectx.externalrequestid", requestId);
+            MDC.put("content_type", "application/json");
+            MDC.put("protocol", "http".toLowerCase());
+            MDC.put("protocol_metadata", new ObjectMapper().writeValueAsString(protocolMetadata));
+            MDC.put("message_type", MessageType.REQUEST.toString());
+            MDC.put("tracectx.driverrequestid", requestId);
+
+            logger.info(message);
+        } finally {
+            MDC.remove("message_direction");
+            MDC.remove("tracectx.externalrequestid");
+            MDC.remove("content_type");
+            MDC.remove("protocol");
+            MDC.remove("protocol_metadata");
+            MDC.remove("message_type");
+            MDC.remove("tracectx.driverrequestid");
+        }
+    }
+
+}
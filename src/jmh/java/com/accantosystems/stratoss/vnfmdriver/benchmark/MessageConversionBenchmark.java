@@ -0,0 +1,95 @@
+package com.accantosystems.stratoss.vnfmdriver.benchmark;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadFileIntoString;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.service.DriverFilesService;
+import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionException;
+import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionService;
+import com.accantosystems.stratoss.vnfmdriver.service.impl.JavaMessageConversionServiceImpl;
+import com.accantosystems.stratoss.vnfmdriver.service.impl.JavascriptMessageConversionServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Generation of each of the built-in request messages, and parsing of the VnfInstance response, using the default scripts (javascript) or the Java generators (java)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class MessageConversionBenchmark {
+
+    @Param({ "ChangeCurrentVnfPkgRequest", "ChangeExtVnfConnectivityRequest", "ChangeVnfFlavourRequest", "CreateVnfRequest", "HealVnfRequest", "InstantiateVnfRequest",
+             "OperateVnfRequest-Start", "OperateVnfRequest-Stop", "ScaleVnfRequest", "ScaleVnfToLevelRequest", "TerminateVnfRequest" })
+    public String messageType;
+
+    @Param({ "javascript", "java" })
+    public String implementation;
+
+    private MessageConversionService messageConversionService;
+    private ExecutionRequest executionRequest;
+
+    @Setup
+    public void setUp() {
+        messageConversionService = createMessageConversionService(implementation);
+        executionRequest = BenchmarkData.createExecutionRequest();
+    }
+
+    @Benchmark
+    public String generateMessage() throws MessageConversionException {
+        return messageConversionService.generateMessageFromRequest(messageType, executionRequest);
+    }
+
+    static MessageConversionService createMessageConversionService(final String implementation) {
+        final ObjectMapper objectMapper = BenchmarkData.createObjectMapper();
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        final DriverFilesService driverFilesService = new DriverFilesService(properties, new SimpleMeterRegistry());
+        final JavascriptMessageConversionServiceImpl javascriptMessageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper, driverFilesService, properties,
+                                                                                                                                    new SimpleMeterRegistry());
+        if ("java".equals(implementation)) {
+            return new JavaMessageConversionServiceImpl(javascriptMessageConversionService, driverFilesService, properties);
+        }
+        return javascriptMessageConversionService;
+    }
+
+    /**
+     * Parsing of the VnfInstance response (which is always done by a script)
+     */
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    @Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+    @State(Scope.Benchmark)
+    public static class Extract {
+
+        private MessageConversionService messageConversionService;
+        private ExecutionRequest executionRequest;
+        private String vnfInstance;
+
+        @Setup
+        public void setUp() throws IOException {
+            messageConversionService = createMessageConversionService("javascript");
+            executionRequest = BenchmarkData.createExecutionRequest();
+            vnfInstance = loadFileIntoString("examples/VnfInstance.json");
+        }
+
+        @Benchmark
+        public Map<String, Object> extractProperties() throws MessageConversionException {
+            return messageConversionService.extractPropertiesFromMessage("VnfInstance", executionRequest, vnfInstance);
+        }
+
+    }
+
+}
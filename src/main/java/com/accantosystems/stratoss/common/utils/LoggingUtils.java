@@ -1,16 +1,19 @@
 package com.accantosystems.stratoss.common.utils;
 
+import java.io.IOException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
 
-import com.accantosystems.stratoss.vnfmdriver.driver.SOL003ResponseException;
 import com.accantosystems.stratoss.vnfmdriver.model.MessageDirection;
 import com.accantosystems.stratoss.vnfmdriver.model.MessageType;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import net.logstash.logback.argument.StructuredArgument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -38,6 +41,11 @@ public class LoggingUtils {
 
     private static final String LOG_DRIVER_REQUEST_ID ="tracectx.driverrequestid";
 
+    private static final int MAX_LOGGED_MESSAGE_LENGTH = 16 * 1024;
+
+    // ObjectWriters are immutable and thread-safe, so one is shared by every log event
+    private static final ObjectWriter PROTOCOL_METADATA_WRITER = new ObjectMapper().writerFor(new TypeReference<Map<String, Object>>() {});
+
     public static Map<String, String> getContextMapFromHttpHeaders(HttpServletRequest servletRequest) {
         final Map<String, String> loggingContext = new HashMap<>();
         final Enumeration<String> headerNames = servletRequest.getHeaderNames();
@@ -61,31 +69,33 @@ public class LoggingUtils {
 
         return loggingContext;
     }
+    /**
+     * Logs a message sent to or received from an external system at INFO, along with fields describing it (message_direction, message_type, protocol_metadata etc.) for
+     * structured (Logstash) logging.
+     * <p>
+     * The fields are passed as a structured argument rather than through the MDC, and only written out (with protocol_metadata serialised) when the event is encoded, so
+     * nothing is done at all if INFO is disabled. Callers should check {@link #isMessageLoggingEnabled()} first, so they don't build the message and metadata for nothing.
+     * Messages longer than {@value #MAX_LOGGED_MESSAGE_LENGTH} characters are truncated unless DEBUG is enabled for this class.
+     */
     public static void logEnabledMDC(String message, MessageType messageType, MessageDirection messageDirection, String externalRequestId, String contentType, String protocol, Map<String,Object> protocolMetadata,String driverRequestId){
-        try{
-            MDC.put(LOG_MESSAGE_DIRECTION_KEY, messageDirection.toString());
-            MDC.put(LOG_EXTERNAL_REQUEST_ID_KEY, externalRequestId);
-            MDC.put(LOG_CONTENT_TYPE_KEY, contentType);
-            MDC.put(LOG_PROTOCOL_KEY, protocol.toLowerCase());
-            ObjectMapper jsonMapper = new ObjectMapper();
-            try {
-                MDC.put(LOG_PROTOCOL_METADATA_KEY, jsonMapper.writeValueAsString(protocolMetadata));
-            } catch (JsonProcessingException e) {
-                throw  new SOL003ResponseException("Error in parsing protocol_metadata "+ protocolMetadata, e);
-            }
-            MDC.put(LOG_MSG_TYP_KEY,messageType.toString());
-            MDC.put(LOG_DRIVER_REQUEST_ID,driverRequestId);
-
-            logger.info(message);
-        }finally{
-            MDC.remove(LOG_MESSAGE_DIRECTION_KEY);
-            MDC.remove(LOG_EXTERNAL_REQUEST_ID_KEY);
-            MDC.remove(LOG_CONTENT_TYPE_KEY);
-            MDC.remove(LOG_PROTOCOL_KEY);
-            MDC.remove(LOG_PROTOCOL_METADATA_KEY);
-            MDC.remove(LOG_MSG_TYP_KEY);
-            MDC.remove(LOG_DRIVER_REQUEST_ID);
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        logger.info("{}", truncate(message), new MessageFields(messageType, messageDirection, externalRequestId, contentType, protocol, protocolMetadata, driverRequestId));
+    }
+
+    /**
+     * @return true if messages passed to {@link #logEnabledMDC} will be logged
+     */
+    public static boolean isMessageLoggingEnabled() {
+        return logger.isInfoEnabled();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_LOGGED_MESSAGE_LENGTH || logger.isDebugEnabled()) {
+            return message;
         }
+        return message.substring(0, MAX_LOGGED_MESSAGE_LENGTH) + "... [" + (message.length() - MAX_LOGGED_MESSAGE_LENGTH) + " characters not logged]";
     }
 
     public static void setHttpHeadersFromMDC(final HttpHeaders httpHeaders) {
@@ -107,4 +117,52 @@ public class LoggingUtils {
                 .forEach(k -> MDC.put(k, context.get(k)));
     }
 
+    /**
+     * Fields describing a logged message, written directly to the JSON log event by the Logstash encoder
+     */
+    private static class MessageFields implements StructuredArgument {
+
+        private final MessageType messageType;
+        private final MessageDirection messageDirection;
+        private final String externalRequestId;
+        private final String contentType;
+        private final String protocol;
+        private final Map<String, Object> protocolMetadata;
+        private final String driverRequestId;
+
+        private MessageFields(MessageType messageType, MessageDirection messageDirection, String externalRequestId, String contentType, String protocol,
+                              Map<String, Object> protocolMetadata, String driverRequestId) {
+            this.messageType = messageType;
+            this.messageDirection = messageDirection;
+            this.externalRequestId = externalRequestId;
+            this.contentType = contentType;
+            this.protocol = protocol;
+            this.protocolMetadata = protocolMetadata;
+            this.driverRequestId = driverRequestId;
+        }
+
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            writeField(generator, LOG_MESSAGE_DIRECTION_KEY, messageDirection);
+            writeField(generator, LOG_EXTERNAL_REQUEST_ID_KEY, externalRequestId);
+            writeField(generator, LOG_CONTENT_TYPE_KEY, contentType);
+            writeField(generator, LOG_PROTOCOL_KEY, protocol != null ? protocol.toLowerCase() : null);
+            // written as a string (rather than an object) as it always has been, so that the field has the same type in every log event
+            writeField(generator, LOG_PROTOCOL_METADATA_KEY, PROTOCOL_METADATA_WRITER.writeValueAsString(protocolMetadata));
+            writeField(generator, LOG_MSG_TYP_KEY, messageType);
+            writeField(generator, LOG_DRIVER_REQUEST_ID, driverRequestId);
+        }
+
+        private static void writeField(JsonGenerator generator, String fieldName, Object value) throws IOException {
+            if (value != null) {
+                generator.writeStringField(fieldName, value.toString());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s=%s, %s=%s, %s=%s", LOG_MESSAGE_DIRECTION_KEY, messageDirection, LOG_MSG_TYP_KEY, messageType, LOG_EXTERNAL_REQUEST_ID_KEY, externalRequestId);
+        }
+    }
+
 }
@@ -1,16 +1,23 @@
 package com.accantosystems.stratoss.vnfmdriver.config;
 
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration("AsyncConfiguration")
@@ -34,9 +41,67 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Executor used to call the VNFM when lifecycles are executed in async mode. Virtual threads are used where available, as these calls spend almost all of their time
+     * blocked on I/O.
+     */
+    @Bean(name = "lifecycleExecutor")
+    public AsyncTaskExecutor getLifecycleExecutor() {
+        final VNFMDriverProperties.Execution execution = properties.getExecution();
+        final ExecutorService virtualThreadExecutor = execution.isVirtualThreads() ? createVirtualThreadExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            logger.info("Creating Lifecycle Executor using virtual threads");
+            ConcurrentTaskExecutor executor = new ConcurrentTaskExecutor(virtualThreadExecutor);
+            executor.setTaskDecorator(mdcTaskDecorator());
+            return executor;
+        }
+
+        logger.info("Creating Lifecycle Executor ({} max threads)", execution.getMaxThreads());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(execution.getMaxThreads());
+        executor.setMaxPoolSize(execution.getMaxThreads());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(execution.getQueueCapacity());
+        executor.setThreadNamePrefix("lifecycleExecutor");
+        executor.setTaskDecorator(mdcTaskDecorator());
+
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
     }
 
+    /**
+     * Looked up reflectively so the driver can still be built and run on Java 11
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads are not available on Java {}, using platform threads", System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    /**
+     * Carries the logging context (transaction ids etc.) of the submitting thread over to the task
+     */
+    private static TaskDecorator mdcTaskDecorator() {
+        return task -> {
+            final Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+            return () -> {
+                if (loggingContext != null) {
+                    MDC.setContextMap(loggingContext);
+                }
+                try {
+                    task.run();
+                } finally {
+                    MDC.clear();
+                }
+            };
+        };
+    }
+
 }
@@ -1,48 +1,149 @@
 package com.accantosystems.stratoss.vnfmdriver.config;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
-import org.apache.commons.io.IOUtils;
+import org.springframework.web.util.WebUtils;
 
+/**
+ * Captures the request body as it is read (e.g. by Jackson when deserialising a @RequestBody), so that it can be logged afterwards without reading it again.
+ * <p>
+ * The body is captured as bytes into a single buffer, sized from the Content-Length where it's given, with nothing decoded until {@link #getCapturedBody()} is called. Only the
+ * first captureLimit bytes are captured, the remainder of a larger body streams straight through.
+ */
 public class BufferedRequestWrapper extends HttpServletRequestWrapper {
 
-    private final String requestBody;
+    private static final int INITIAL_BUFFER_SIZE = 8192;
 
-    BufferedRequestWrapper(HttpServletRequest request) throws IOException {
+    private final int captureLimit;
+    private byte[] buffer = new byte[0];
+    private int count;
+    private long bodyLength;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    BufferedRequestWrapper(HttpServletRequest request, int captureLimit) {
         super(request);
-        requestBody = IOUtils.toString(request.getReader());
+        this.captureLimit = captureLimit;
     }
 
-    @Override public ServletInputStream getInputStream() {
-        return new ServletInputStream() {
-            final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(requestBody.getBytes());
+    /**
+     * @return the wrapper around the request (or any request it wraps), or null if the body isn't being captured
+     */
+    public static BufferedRequestWrapper of(ServletRequest request) {
+        return WebUtils.getNativeRequest(request, BufferedRequestWrapper.class);
+    }
 
-            @Override public int read() {
-                return byteArrayInputStream.read();
-            }
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new CapturingInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
 
-            @Override public boolean isFinished() {
-                return byteArrayInputStream.available() == 0;
-            }
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), getCharset()));
+        }
+        return reader;
+    }
+
+    /**
+     * @return the body read so far, decoded using the request character encoding (UTF-8 if none is given), with a note of its full length if it was too large to capture
+     */
+    public String getCapturedBody() {
+        final String capturedBody = new String(buffer, 0, count, getCharset());
+        if (bodyLength > count) {
+            return capturedBody + String.format("... [%s bytes in total]", bodyLength);
+        }
+        return capturedBody;
+    }
+
+    private Charset getCharset() {
+        final String characterEncoding = getCharacterEncoding();
+        if (characterEncoding == null) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(characterEncoding);
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
 
-            @Override public boolean isReady() {
-                return true;
+    private void capture(byte[] bytes, int offset, int length) {
+        bodyLength += length;
+        final int capturedLength = Math.min(length, captureLimit - count);
+        if (capturedLength <= 0) {
+            return;
+        }
+        if (count + capturedLength > buffer.length) {
+            final int contentLength = getContentLength();
+            final int requiredSize = Math.max(count + capturedLength, contentLength > 0 ? contentLength : Math.max(buffer.length * 2, INITIAL_BUFFER_SIZE));
+            buffer = Arrays.copyOf(buffer, Math.min(requiredSize, captureLimit));
+        }
+        System.arraycopy(bytes, offset, buffer, count, capturedLength);
+        count += capturedLength;
+    }
+
+    private class CapturingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+        private final byte[] singleByte = new byte[1];
+
+        private CapturingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = delegate.read();
+            if (b >= 0) {
+                singleByte[0] = (byte) b;
+                capture(singleByte, 0, 1);
             }
+            return b;
+        }
 
-            @Override public void setReadListener(final ReadListener listener) {
-                throw new UnsupportedOperationException("Not implemented");
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            final int bytesRead = delegate.read(bytes, offset, length);
+            if (bytesRead > 0) {
+                capture(bytes, offset, bytesRead);
             }
-        };
-    }
+            return bytesRead;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
 
-    @Override public BufferedReader getReader() {
-        return new BufferedReader(new InputStreamReader(this.getInputStream()));
+        @Override
+        public void setReadListener(ReadListener listener) {
+            delegate.setReadListener(listener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
     }
-}
\ No newline at end of file
+
+}
@@ -13,10 +13,13 @@ import org.springframework.kafka.core.KafkaTemplate;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFLifecycleManagementDriver;
 import com.accantosystems.stratoss.vnfmdriver.service.ExternalMessagingService;
 import com.accantosystems.stratoss.vnfmdriver.service.LcmOpOccPollingService;
+import com.accantosystems.stratoss.vnfmdriver.service.LifecycleCompletionTracker;
 import com.accantosystems.stratoss.vnfmdriver.service.impl.KafkaExternalMessagingServiceImpl;
 import com.accantosystems.stratoss.vnfmdriver.service.impl.LoggingExternalMessagingServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration("KafkaConfiguration")
 public class KafkaConfiguration {
 
@@ -29,14 +32,17 @@ public class KafkaConfiguration {
 
         @Bean
         @Primary
-        public ExternalMessagingService getKafkaEMS(VNFMDriverProperties properties, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+        public ExternalMessagingService getKafkaEMS(VNFMDriverProperties properties, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                                                    MeterRegistry meterRegistry) {
             logger.info("Creating Kafka EMS Bus Connector");
-            return new KafkaExternalMessagingServiceImpl(properties, kafkaTemplate, objectMapper);
+            return new KafkaExternalMessagingServiceImpl(properties, kafkaTemplate, objectMapper, meterRegistry);
         }
 
         @Bean
-        public LcmOpOccPollingService lcmOpOccPollingService(VNFLifecycleManagementDriver driver, ExternalMessagingService externalMessagingService, ObjectMapper objectMapper) {
-            return new LcmOpOccPollingService(driver, externalMessagingService, objectMapper);
+        public LcmOpOccPollingService lcmOpOccPollingService(VNFLifecycleManagementDriver driver, ExternalMessagingService externalMessagingService, ObjectMapper objectMapper,
+                                                             LifecycleCompletionTracker lifecycleCompletionTracker, VNFMDriverProperties properties,
+                                                             MeterRegistry meterRegistry) {
+            return new LcmOpOccPollingService(driver, externalMessagingService, objectMapper, lifecycleCompletionTracker, properties, meterRegistry);
         }
     }
 
@@ -18,13 +18,19 @@ import com.accantosystems.stratoss.common.utils.LoggingUtils;
 @Component("TransactionIdFilter")
 public class TransactionIdFilter implements Filter {
 
+    private final VNFMDriverProperties properties;
+
+    public TransactionIdFilter(VNFMDriverProperties properties) {
+        this.properties = properties;
+    }
+
     @Override public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
         try {
             if (!StringUtils.isEmpty(request.getContentType()) && request.getContentType().contains(MediaType.MULTIPART_FORM_DATA_VALUE)) {
                 // for a request of content type "multipart/form-data" getInputStream has already been called by previous filter so do not read it again and just continue the filter chain.
                 chain.doFilter(request, response);
             } else {
-                BufferedRequestWrapper bufferedRequest = new BufferedRequestWrapper((HttpServletRequest) request);
+                BufferedRequestWrapper bufferedRequest = new BufferedRequestWrapper((HttpServletRequest) request, properties.getLogging().getRequestBodyCaptureMaxSize());
                 Map<String, String> loggingContext = LoggingUtils.getContextMapFromHttpHeaders(bufferedRequest);
                 LoggingUtils.populateMDCFromContextMap(loggingContext);
                 HttpServletResponse bufferedResponse = (HttpServletResponse) response;
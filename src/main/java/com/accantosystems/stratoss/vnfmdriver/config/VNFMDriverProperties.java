@@ -4,7 +4,9 @@ import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.etsi.sol003.lifecyclemanagement.LcmOperationType;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ResourceManagerDeploymentLocation;
 
@@ -19,10 +21,16 @@ import com.accantosystems.stratoss.vnfmdriver.model.alm.ResourceManagerDeploymen
 public class VNFMDriverProperties {
 
     private final Async async = new Async();
+    private final Execution execution = new Execution();
+    private final DelayedResponses delayedResponses = new DelayedResponses();
     private final Topics topics = new Topics();
     private final Logging logging = new Logging();
     private final PackageManagement packageManagement = new PackageManagement();
     private final Grant grant = new Grant();
+    private final MessageConversion messageConversion = new MessageConversion();
+    private final RestConnectionPool restConnectionPool = new RestConnectionPool();
+    private final LcmOpOccPolling lcmOpOccPolling = new LcmOpOccPolling();
+    private final LifecycleCompletion lifecycleCompletion = new LifecycleCompletion();
     private Duration executionResponseDelay = Duration.ofSeconds(5);
     private Duration lcmOpOccPollingDelay = Duration.ofSeconds(10);
     private Duration restConnectTimeout = Duration.ofSeconds(10);
@@ -32,6 +40,14 @@ public class VNFMDriverProperties {
         return async;
     }
 
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public DelayedResponses getDelayedResponses() {
+        return delayedResponses;
+    }
+
     public Topics getTopics() {
         return topics;
     }
@@ -48,6 +64,22 @@ public class VNFMDriverProperties {
         return grant;
     }
 
+    public MessageConversion getMessageConversion() {
+        return messageConversion;
+    }
+
+    public RestConnectionPool getRestConnectionPool() {
+        return restConnectionPool;
+    }
+
+    public LcmOpOccPolling getLcmOpOccPolling() {
+        return lcmOpOccPolling;
+    }
+
+    public LifecycleCompletion getLifecycleCompletion() {
+        return lifecycleCompletion;
+    }
+
     public Duration getExecutionResponseDelay() {
         return executionResponseDelay;
     }
@@ -110,9 +142,121 @@ public class VNFMDriverProperties {
         }
     }
 
+    /**
+     * Settings for executing lifecycle requests. In async mode the request thread is released while the VNFM is called, with the response completed from the lifecycle
+     * executor instead. The lifecycle executor uses virtual threads when the JVM supports them, otherwise a bounded pool of platform threads.
+     * <p>
+     * Requests which wait longer than the queue timeout for the lifecycle executor are rejected (with a 503) without calling the VNFM. The async request timeout defaults to the
+     * queue timeout plus the rest connection pool lease timeout and the rest connect and read timeouts, allowed twice over to cover an OAuth2 access token request, (and the
+     * timeout margin), so a request is not timed out while the VNFM could still act on it.
+     */
+    public static class Execution {
+        private boolean async;
+        private boolean virtualThreads = true;
+        private int maxThreads = 200;
+        private int queueCapacity = 10000;
+        private Duration queueTimeout = Duration.ofSeconds(30);
+        private Duration timeoutMargin = Duration.ofSeconds(30);
+        private Duration requestTimeout;
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public int getMaxThreads() {
+            return maxThreads;
+        }
+
+        public void setMaxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+
+        public Duration getTimeoutMargin() {
+            return timeoutMargin;
+        }
+
+        public void setTimeoutMargin(Duration timeoutMargin) {
+            this.timeoutMargin = timeoutMargin;
+        }
+
+        /**
+         * @return the configured async request timeout, or null if it should be derived from the other timeouts
+         */
+        public Duration getRequestTimeout() {
+            return requestTimeout;
+        }
+
+        public void setRequestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+        }
+    }
+
+    /**
+     * Settings for ExecutionAsyncResponses which are sent after the executionResponseDelay. Once maxPending responses are waiting, synchronous lifecycles are rejected (with a 503)
+     * until some have been sent.
+     */
+    public static class DelayedResponses {
+        private int maxPending = 10000;
+        private int publisherThreads = 2;
+        private Duration drainTimeout = Duration.ofSeconds(10);
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int getPublisherThreads() {
+            return publisherThreads;
+        }
+
+        public void setPublisherThreads(int publisherThreads) {
+            this.publisherThreads = publisherThreads;
+        }
+
+        public Duration getDrainTimeout() {
+            return drainTimeout;
+        }
+
+        public void setDrainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+        }
+    }
+
     public static class Topics {
         private String lifecycleResponsesTopic;
         private String lcmOpOccPollingTopic;
+        private String delayedExecutionResponsesTopic;
 
         public String getLifecycleResponsesTopic() {
             return lifecycleResponsesTopic;
@@ -129,10 +273,20 @@ public class VNFMDriverProperties {
         public void setLcmOpOccPollingTopic(String lcmOpOccPollingTopic) {
             this.lcmOpOccPollingTopic = lcmOpOccPollingTopic;
         }
+
+        public String getDelayedExecutionResponsesTopic() {
+            return delayedExecutionResponsesTopic;
+        }
+
+        public void setDelayedExecutionResponsesTopic(String delayedExecutionResponsesTopic) {
+            this.delayedExecutionResponsesTopic = delayedExecutionResponsesTopic;
+        }
     }
 
     public static class Logging {
         private int loggingRequestInterceptMaxBodySize = 10000000;
+        // Maximum number of bytes of each incoming request body captured for logging, the remainder of larger bodies isn't held in memory
+        private int requestBodyCaptureMaxSize = 1024 * 1024;
 
         public int getLoggingRequestInterceptMaxBodySize() {
             return loggingRequestInterceptMaxBodySize;
@@ -141,6 +295,254 @@ public class VNFMDriverProperties {
         public void setLoggingRequestInterceptMaxBodySize(int loggingRequestInterceptMaxBodySize) {
             this.loggingRequestInterceptMaxBodySize = loggingRequestInterceptMaxBodySize;
         }
+
+        public int getRequestBodyCaptureMaxSize() {
+            return requestBodyCaptureMaxSize;
+        }
+
+        public void setRequestBodyCaptureMaxSize(int requestBodyCaptureMaxSize) {
+            this.requestBodyCaptureMaxSize = requestBodyCaptureMaxSize;
+        }
+    }
+
+    public static class MessageConversion {
+        private boolean javaGeneratorsEnabled = true;
+        private int compiledScriptCacheSize = 256;
+        private DataSize driverFilesCacheSize = DataSize.ofMegabytes(64);
+        private DataSize driverFilesMemoryThreshold = DataSize.ofMegabytes(1);
+        // Number of parsed VNFDs to cache
+        private int vnfdCacheSize = 64;
+
+        public boolean isJavaGeneratorsEnabled() {
+            return javaGeneratorsEnabled;
+        }
+
+        public void setJavaGeneratorsEnabled(boolean javaGeneratorsEnabled) {
+            this.javaGeneratorsEnabled = javaGeneratorsEnabled;
+        }
+
+        public int getCompiledScriptCacheSize() {
+            return compiledScriptCacheSize;
+        }
+
+        public void setCompiledScriptCacheSize(int compiledScriptCacheSize) {
+            this.compiledScriptCacheSize = compiledScriptCacheSize;
+        }
+
+        public DataSize getDriverFilesCacheSize() {
+            return driverFilesCacheSize;
+        }
+
+        public void setDriverFilesCacheSize(DataSize driverFilesCacheSize) {
+            this.driverFilesCacheSize = driverFilesCacheSize;
+        }
+
+        public DataSize getDriverFilesMemoryThreshold() {
+            return driverFilesMemoryThreshold;
+        }
+
+        public void setDriverFilesMemoryThreshold(DataSize driverFilesMemoryThreshold) {
+            this.driverFilesMemoryThreshold = driverFilesMemoryThreshold;
+        }
+
+        public int getVnfdCacheSize() {
+            return vnfdCacheSize;
+        }
+
+        public void setVnfdCacheSize(int vnfdCacheSize) {
+            this.vnfdCacheSize = vnfdCacheSize;
+        }
+    }
+
+    /**
+     * Settings for polling the state of LcmOpOccs. The first poll happens after lcmOpOccPollingDelay (or the delay configured for the operation type, once known), with the delay
+     * between subsequent polls increasing by the backoff multiplier up to the maximum delay. Failed polls are retried with the same backoff, until maxPollFailures in a row have
+     * failed (when the polling request is handed back to Kafka). Once a request has been handed back maxFailedHandbacks times, polling gives up and the execution is reported
+     * as failed.
+     * <p>
+     * In batch mode, LcmOpOccs for the same deployment location that are due to be polled within the batch window are retrieved in a single filtered query.
+     */
+    public static class LcmOpOccPolling {
+        private int maxInFlight = 1000;
+        private int maxPollFailures = 5;
+        private int maxFailedHandbacks = 3;
+        private int threads = 4;
+        private double backoffMultiplier = 1.5;
+        private Duration maxDelay = Duration.ofSeconds(60);
+        private double jitter = 0.2;
+        private final Map<LcmOperationType, Duration> operationDelays = new HashMap<>();
+        private boolean batchEnabled;
+        private int batchSize = 50;
+        private Duration batchWindow = Duration.ofSeconds(5);
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getMaxPollFailures() {
+            return maxPollFailures;
+        }
+
+        public void setMaxPollFailures(int maxPollFailures) {
+            this.maxPollFailures = maxPollFailures;
+        }
+
+        public int getMaxFailedHandbacks() {
+            return maxFailedHandbacks;
+        }
+
+        public void setMaxFailedHandbacks(int maxFailedHandbacks) {
+            this.maxFailedHandbacks = maxFailedHandbacks;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public double getBackoffMultiplier() {
+            return backoffMultiplier;
+        }
+
+        public void setBackoffMultiplier(double backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(double jitter) {
+            this.jitter = jitter;
+        }
+
+        public Map<LcmOperationType, Duration> getOperationDelays() {
+            return operationDelays;
+        }
+
+        public boolean isBatchEnabled() {
+            return batchEnabled;
+        }
+
+        public void setBatchEnabled(boolean batchEnabled) {
+            this.batchEnabled = batchEnabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBatchWindow() {
+            return batchWindow;
+        }
+
+        public void setBatchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+        }
+    }
+
+    /**
+     * Settings for tracking asynchronous lifecycles from the point they are accepted by the VNFM until their final notification, so the time taken can be recorded. Lifecycles
+     * which haven't completed after timeToLive are no longer tracked.
+     */
+    public static class LifecycleCompletion {
+        private Duration timeToLive = Duration.ofHours(24);
+        private long maxSize = 10000;
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Connection pool settings for the HTTP clients used to call VNFMs, package repositories and grant providers. Each deployment location (or server) has its own pool.
+     */
+    public static class RestConnectionPool {
+        private int maxTotal = 200;
+        private int maxPerRoute = 50;
+        private Duration leaseTimeout = Duration.ofSeconds(10);
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration timeToLive = Duration.ofMinutes(5);
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public void setMaxPerRoute(int maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+        }
+
+        public Duration getLeaseTimeout() {
+            return leaseTimeout;
+        }
+
+        public void setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public Duration getValidateAfterInactivity() {
+            return validateAfterInactivity;
+        }
+
+        public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+        }
     }
 
     public static class PackageManagement {
@@ -153,6 +555,28 @@ public class VNFMDriverProperties {
         private String vnfPkgInfoSuffix = ".pkgInfo";
         private String vnfPkgSuffix = ".zip";
         private final Map<String, String> authenticationProperties = new HashMap<>();
+        private final PackageCache packageCache = new PackageCache();
+        private final PackageIndex packageIndex = new PackageIndex();
+        private final RepositoryDownloads repositoryDownloads = new RepositoryDownloads();
+        /**
+         * Maximum number of VnfPkgInfo records cached against the checksum of the repository asset they were read from
+         */
+        private int vnfPkgInfoCacheSize = 1000;
+        /**
+         * Maximum number of VnfPkgInfo records returned by a query, further records being returned by following the nextpage_opaque_marker link. Queries are not paged unless this
+         * is set (to a value greater than 0).
+         */
+        private int pageSize;
+        /**
+         * Package content and stored artifacts at least this size are handed to the servlet container to send directly from the file (where supported), rather than being copied
+         * through the application
+         */
+        private DataSize sendfileThreshold = DataSize.ofKilobytes(48);
+        /**
+         * Maximum total size (in bytes, unless a unit such as MB is given) of the VNFD zips cached against package checksums. Not to be confused with
+         * messageConversion.vnfdCacheSize, which is a number of parsed VNFDs.
+         */
+        private DataSize vnfdCacheMaxWeight = DataSize.ofMegabytes(32);
 
         public boolean isEnabled() {
             return enabled;
@@ -222,9 +646,168 @@ public class VNFMDriverProperties {
             return authenticationProperties;
         }
 
+        public PackageCache getPackageCache() {
+            return packageCache;
+        }
+
+        public PackageIndex getPackageIndex() {
+            return packageIndex;
+        }
+
+        public RepositoryDownloads getRepositoryDownloads() {
+            return repositoryDownloads;
+        }
+
+        public int getVnfPkgInfoCacheSize() {
+            return vnfPkgInfoCacheSize;
+        }
+
+        public void setVnfPkgInfoCacheSize(int vnfPkgInfoCacheSize) {
+            this.vnfPkgInfoCacheSize = vnfPkgInfoCacheSize;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public DataSize getSendfileThreshold() {
+            return sendfileThreshold;
+        }
+
+        public void setSendfileThreshold(DataSize sendfileThreshold) {
+            this.sendfileThreshold = sendfileThreshold;
+        }
+
+        public DataSize getVnfdCacheMaxWeight() {
+            return vnfdCacheMaxWeight;
+        }
+
+        public void setVnfdCacheMaxWeight(DataSize vnfdCacheMaxWeight) {
+            this.vnfdCacheMaxWeight = vnfdCacheMaxWeight;
+        }
+
         public enum RepositoryType {
             NEXUS
         }
+
+        /**
+         * Settings for the on-disk cache of VNF packages, keyed by the checksum reported by the repository. Least recently used packages are removed once the total size of the
+         * cache exceeds maxSize. Packages still being read are not removed until releaseGracePeriod after the last request reading them has completed (the servlet container may
+         * still be sending them).
+         * <p>
+         * The repository asset found for each VNF package id is remembered for assetLookupTtl, so a cached package can be read without any requests to the repository. A package
+         * replaced in the repository under the same id may still be served from the cache until then.
+         */
+        public static class PackageCache {
+            private boolean enabled = true;
+            private String directory = System.getProperty("java.io.tmpdir") + "/vnfmdriver/packages";
+            private DataSize maxSize = DataSize.ofGigabytes(2);
+            private Duration releaseGracePeriod = Duration.ofMinutes(1);
+            private Duration assetLookupTtl = Duration.ofMinutes(5);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public Duration getReleaseGracePeriod() {
+                return releaseGracePeriod;
+            }
+
+            public void setReleaseGracePeriod(Duration releaseGracePeriod) {
+                this.releaseGracePeriod = releaseGracePeriod;
+            }
+
+            public Duration getAssetLookupTtl() {
+                return assetLookupTtl;
+            }
+
+            public void setAssetLookupTtl(Duration assetLookupTtl) {
+                this.assetLookupTtl = assetLookupTtl;
+            }
+        }
+
+        /**
+         * Settings for the in-memory index of VnfPkgInfo records, which is rebuilt from the repository every refreshInterval so that package queries don't need to search the
+         * repository
+         */
+        public static class PackageIndex {
+            private boolean enabled = true;
+            private Duration refreshInterval = Duration.ofMinutes(1);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(Duration refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+        }
+
+        /**
+         * Settings for downloading VnfPkgInfo records from the repository, which happens in parallel with fetching further pages of search results. No more than maxPerHost
+         * records are downloaded from any one host at a time.
+         */
+        public static class RepositoryDownloads {
+            private int threads = 8;
+            private int maxPerHost = 4;
+            private int queueCapacity = 1000;
+
+            public int getThreads() {
+                return threads;
+            }
+
+            public void setThreads(int threads) {
+                this.threads = threads;
+            }
+
+            public int getMaxPerHost() {
+                return maxPerHost;
+            }
+
+            public void setMaxPerHost(int maxPerHost) {
+                this.maxPerHost = maxPerHost;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
     }
 
     public static class Grant {
@@ -232,6 +815,8 @@ public class VNFMDriverProperties {
         private boolean automatic;
 
         private final Provider provider = new Provider();
+        private final Store store = new Store();
+        private final Polling polling = new Polling();
 
         public boolean isAutomatic() {
             return automatic;
@@ -245,6 +830,91 @@ public class VNFMDriverProperties {
             return provider;
         }
 
+        public Store getStore() {
+            return store;
+        }
+
+        public Polling getPolling() {
+            return polling;
+        }
+
+        /**
+         * Settings for the store of grants, from which VNFM polls for a grant are answered. Grants are held for timeToLive after they are requested.
+         */
+        public static class Store {
+            private Duration timeToLive = Duration.ofHours(24);
+            private long maxSize = 10000;
+
+            public Duration getTimeToLive() {
+                return timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+
+            public long getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(long maxSize) {
+                this.maxSize = maxSize;
+            }
+        }
+
+        /**
+         * Settings for polling the grant provider for decisions on grants it didn't make immediately. The first poll is made after initialDelay, and the delay is multiplied by
+         * backoffMultiplier after each poll, up to maxDelay. If longPollTimeout is set, a VNFM read of a grant awaiting a decision waits up to that long for the decision
+         * before returning 202 Accepted (capped at 90% of the async request timeout, so the request itself is never timed out first).
+         */
+        public static class Polling {
+            private Duration initialDelay = Duration.ofSeconds(1);
+            private Duration maxDelay = Duration.ofSeconds(30);
+            private double backoffMultiplier = 2.0;
+            private int threads = 2;
+            private Duration longPollTimeout = Duration.ZERO;
+
+            public Duration getInitialDelay() {
+                return initialDelay;
+            }
+
+            public void setInitialDelay(Duration initialDelay) {
+                this.initialDelay = initialDelay;
+            }
+
+            public Duration getMaxDelay() {
+                return maxDelay;
+            }
+
+            public void setMaxDelay(Duration maxDelay) {
+                this.maxDelay = maxDelay;
+            }
+
+            public double getBackoffMultiplier() {
+                return backoffMultiplier;
+            }
+
+            public void setBackoffMultiplier(double backoffMultiplier) {
+                this.backoffMultiplier = backoffMultiplier;
+            }
+
+            public int getThreads() {
+                return threads;
+            }
+
+            public void setThreads(int threads) {
+                this.threads = threads;
+            }
+
+            public Duration getLongPollTimeout() {
+                return longPollTimeout;
+            }
+
+            public void setLongPollTimeout(Duration longPollTimeout) {
+                this.longPollTimeout = longPollTimeout;
+            }
+        }
+
         public static class Provider {
             private String url;
             private final Authentication authentication = new Authentication();
@@ -5,16 +5,24 @@ import org.springframework.context.annotation.Configuration;
 
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageRepositoryDriver;
 import com.accantosystems.stratoss.vnfmdriver.driver.impl.NexusVNFPackageRepositoryDriver;
+import com.accantosystems.stratoss.vnfmdriver.driver.impl.VNFPackageCache;
+import com.accantosystems.stratoss.vnfmdriver.driver.impl.VnfPkgInfoIndex;
 import com.accantosystems.stratoss.vnfmdriver.service.AuthenticatedRestTemplateService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration("VNFPackageRepositoryConfiguration")
 public class VNFPackageRepositoryConfiguration {
 
     @Bean
-    public VNFPackageRepositoryDriver getPackageRepositoryDriver(VNFMDriverProperties vnfmDriverProperties, AuthenticatedRestTemplateService authenticatedRestTemplateService, ObjectMapper objectMapper) {
+    public VNFPackageRepositoryDriver getPackageRepositoryDriver(VNFMDriverProperties vnfmDriverProperties, AuthenticatedRestTemplateService authenticatedRestTemplateService, ObjectMapper objectMapper,
+                                                                 MeterRegistry meterRegistry) {
         if (vnfmDriverProperties.getPackageManagement().getRepositoryType() == VNFMDriverProperties.PackageManagement.RepositoryType.NEXUS) {
-            return new NexusVNFPackageRepositoryDriver(vnfmDriverProperties, authenticatedRestTemplateService, objectMapper);
+            final VNFMDriverProperties.PackageManagement.PackageCache packageCacheProperties = vnfmDriverProperties.getPackageManagement().getPackageCache();
+            final VNFPackageCache vnfPackageCache = packageCacheProperties.isEnabled() ? new VNFPackageCache(packageCacheProperties, meterRegistry) : null;
+            final VnfPkgInfoIndex vnfPkgInfoIndex = vnfmDriverProperties.getPackageManagement().getPackageIndex().isEnabled() ? new VnfPkgInfoIndex(meterRegistry) : null;
+            return new NexusVNFPackageRepositoryDriver(vnfmDriverProperties, authenticatedRestTemplateService, objectMapper, vnfPackageCache, vnfPkgInfoIndex, meterRegistry);
         } else {
             throw new IllegalStateException(String.format("Invalid VNF package repository type [%s] configured", vnfmDriverProperties.getPackageManagement().getRepositoryType()));
         }
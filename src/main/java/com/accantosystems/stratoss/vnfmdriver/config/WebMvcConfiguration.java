@@ -0,0 +1,46 @@
+package com.accantosystems.stratoss.vnfmdriver.config;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration("WebMvcConfiguration")
+public class WebMvcConfiguration implements WebMvcConfigurer {
+
+    private final static Logger logger = LoggerFactory.getLogger(WebMvcConfiguration.class);
+
+    private final VNFMDriverProperties properties;
+
+    @Autowired
+    public WebMvcConfiguration(VNFMDriverProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Async lifecycle requests must not be timed out (leading the ALM to retry) while the VNFM could still be acting on them, so the timeout covers the time allowed to wait for
+     * the lifecycle executor, a pooled connection and (for OAuth2 deployment locations) an access token as well as the time allowed for the VNFM to respond, rather than using the
+     * container default
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        final Duration asyncRequestTimeout = getAsyncRequestTimeout(properties);
+        logger.info("Setting async request timeout to {}", asyncRequestTimeout);
+        configurer.setDefaultTimeout(asyncRequestTimeout.toMillis());
+    }
+
+    public static Duration getAsyncRequestTimeout(VNFMDriverProperties properties) {
+        final VNFMDriverProperties.Execution execution = properties.getExecution();
+        if (execution.getRequestTimeout() != null) {
+            return execution.getRequestTimeout();
+        }
+        final Duration vnfmRequestTimeout = properties.getRestConnectionPool().getLeaseTimeout().plus(properties.getRestConnectTimeout()).plus(properties.getRestReadTimeout());
+        // The authentication type is set per deployment location, so an OAuth2 token request (made through the same connection pool) is always allowed for
+        return execution.getQueueTimeout().plus(vnfmRequestTimeout.multipliedBy(2)).plus(execution.getTimeoutMargin());
+    }
+
+}
@@ -4,6 +4,7 @@ import static com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverConstants.
 
 import java.net.URI;
 import java.util.Arrays;
+import javax.annotation.PreDestroy;
 
 import org.etsi.sol003.granting.Grant;
 import org.etsi.sol003.granting.GrantRequest;
@@ -25,6 +26,8 @@ import com.accantosystems.stratoss.vnfmdriver.model.GrantCreationResponse;
 import com.accantosystems.stratoss.vnfmdriver.service.GrantRejectedException;
 import com.accantosystems.stratoss.vnfmdriver.utils.DynamicSslCertificateHttpRequestFactory;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * Driver implementing the ETSI SOL003 Grant interface
  */
@@ -39,10 +42,12 @@ public class GrantDriver {
     private final static String LOCATION_HEADER_PATH = API_CONTEXT_ROOT + API_PATH_GRANTS + "/";
 
     private final VNFMDriverProperties vnfmDriverProperties;
+    private final DynamicSslCertificateHttpRequestFactory requestFactory;
     private final RestTemplate authenticatedRestTemplate;
 
-    public GrantDriver(VNFMDriverProperties vnfmDriverProperties, RestTemplateBuilder restTemplateBuilder, GrantResponseErrorHandler grantResponseErrorHandler) {
+    public GrantDriver(VNFMDriverProperties vnfmDriverProperties, RestTemplateBuilder restTemplateBuilder, GrantResponseErrorHandler grantResponseErrorHandler, MeterRegistry meterRegistry) {
         this.vnfmDriverProperties = vnfmDriverProperties;
+        this.requestFactory = new DynamicSslCertificateHttpRequestFactory(vnfmDriverProperties.getRestConnectionPool(), meterRegistry, "grant-provider");
         this.authenticatedRestTemplate = getAuthenticatedRestTemplate(vnfmDriverProperties, restTemplateBuilder, grantResponseErrorHandler);
     }
 
@@ -152,6 +157,11 @@ public class GrantDriver {
         return authenticatedRestTemplate;
     }
 
+    @PreDestroy
+    public void closeConnectionPool() throws Exception {
+        requestFactory.destroy();
+    }
+
     private RestTemplate getAuthenticatedRestTemplate(VNFMDriverProperties vnfmDriverProperties, RestTemplateBuilder restTemplateBuilder, GrantResponseErrorHandler grantResponseErrorHandler) {
         RestTemplateBuilder customRestTemplateBuilder = configureRestTemplateBuilder(restTemplateBuilder, grantResponseErrorHandler);
 
@@ -213,7 +223,7 @@ public class GrantDriver {
 
     private RestTemplateBuilder configureRestTemplateBuilder(RestTemplateBuilder restTemplateBuilder, GrantResponseErrorHandler grantResponseErrorHandler) {
         RestTemplateBuilder customRestTemplateBuilder = restTemplateBuilder.errorHandler(grantResponseErrorHandler)
-                .requestFactory(DynamicSslCertificateHttpRequestFactory.class)
+                .requestFactory(() -> requestFactory)
                 .setConnectTimeout(vnfmDriverProperties.getRestConnectTimeout())
                 .setReadTimeout(vnfmDriverProperties.getRestReadTimeout());
         logger.info("Initialising RestTemplate configuration");
@@ -3,10 +3,18 @@ package com.accantosystems.stratoss.vnfmdriver.driver;
 import static com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverConstants.VNFM_SERVER_URL;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import com.accantosystems.stratoss.common.utils.LoggingUtils;
 import com.accantosystems.stratoss.vnfmdriver.model.MessageDirection;
@@ -15,12 +23,17 @@ import org.etsi.sol003.lifecyclemanagement.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.http.Outcome;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ResourceManagerDeploymentLocation;
 import com.accantosystems.stratoss.vnfmdriver.service.AuthenticatedRestTemplateService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 /**
  * Driver implementing the ETSI SOL003 Lifecycle Management interface
  * <p>
@@ -74,12 +87,18 @@ public class VNFLifecycleManagementDriver {
     private final static String API_PREFIX_VNF_INSTANCES = "/vnf_instances";
     private final static String API_PREFIX_OP_OCCURRENCES = "/vnf_lcm_op_occs";
     private final static String API_PREFIX_SUBSCRIPTIONS = "/subscriptions";
+    private final static Pattern LINK_HEADER_PATTERN = Pattern.compile("<([^>]*)>([^<]*)");
+    private final static Pattern NEXT_RELATION_PATTERN = Pattern.compile("rel\\s*=\\s*(\"next\"|next(?![\\w-]))", Pattern.CASE_INSENSITIVE);
+    private final static String VNFM_REQUESTS_TIMER_NAME = "vnfmdriver.vnfm.requests";
+    private final static String NO_STATUS = "NONE";
 
     private final AuthenticatedRestTemplateService authenticatedRestTemplateService;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
-    public VNFLifecycleManagementDriver(AuthenticatedRestTemplateService authenticatedRestTemplateService) {
+    public VNFLifecycleManagementDriver(AuthenticatedRestTemplateService authenticatedRestTemplateService, MeterRegistry meterRegistry) {
         this.authenticatedRestTemplateService = authenticatedRestTemplateService;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -103,9 +122,14 @@ public class VNFLifecycleManagementDriver {
         headers.setContentType(MediaType.APPLICATION_JSON);
         final HttpEntity<String> requestEntity = new HttpEntity<>(createVnfRequest, headers);
         UUID uuid = UUID.randomUUID();
-        LoggingUtils.logEnabledMDC(createVnfRequest, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,driverrequestid);
-        final ResponseEntity<String> responseEntity = authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.POST, requestEntity, String.class);
-        LoggingUtils.logEnabledMDC(responseEntity.getBody(), MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),driverrequestid);
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(createVnfRequest, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,driverrequestid);
+        }
+        final ResponseEntity<String> responseEntity = exchange(deploymentLocation, "createVnfInstance",
+                                                               () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.POST, requestEntity, String.class));
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(responseEntity.getBody(), MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),driverrequestid);
+        }
         // "Location" header also includes URI of the created instance
         checkResponseEntityMatches(responseEntity, HttpStatus.CREATED, true);
         return responseEntity.getBody();
@@ -133,9 +157,14 @@ public class VNFLifecycleManagementDriver {
         final Map<String, String> uriVariables = new HashMap<>();
         uriVariables.put("vnfInstanceId", vnfInstanceId);
         UUID uuid = UUID.randomUUID();
-        LoggingUtils.logEnabledMDC(null, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,driverrequestid);
-        final ResponseEntity<Void> responseEntity = authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.DELETE, requestEntity, Void.class, uriVariables);
-        LoggingUtils.logEnabledMDC(null, MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),driverrequestid);
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(null, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,driverrequestid);
+        }
+        final ResponseEntity<Void> responseEntity = exchange(deploymentLocation, "deleteVnfInstance",
+                                                             () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.DELETE, requestEntity, Void.class, uriVariables));
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(null, MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),driverrequestid);
+        }
         checkResponseEntityMatches(responseEntity, HttpStatus.NO_CONTENT, false);
     }
 
@@ -355,8 +384,11 @@ public class VNFLifecycleManagementDriver {
         final HttpHeaders headers = getHttpHeaders(deploymentLocation);
         final HttpEntity<String> requestEntity = new HttpEntity<>(operationRequest, headers);
         UUID uuid = UUID.randomUUID();
-        LoggingUtils.logEnabledMDC(operationRequest, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,null);
-        final ResponseEntity<String> responseEntity = authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.POST, requestEntity, String.class);
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(operationRequest, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,null);
+        }
+        final ResponseEntity<String> responseEntity = exchange(deploymentLocation, operationName,
+                                                               () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.POST, requestEntity, String.class));
         checkResponseEntityMatches(responseEntity, HttpStatus.ACCEPTED, false);
         // "Location" header contains URI of the created VnfLcmOpOcc record
         final URI location = responseEntity.getHeaders().getLocation();
@@ -365,7 +397,9 @@ public class VNFLifecycleManagementDriver {
         }
         // Return the VnfLcmOpOccId, which is the last part of the path
         final String requestId = location.getPath().substring(location.getPath().lastIndexOf("/") + 1);
-        LoggingUtils.logEnabledMDC(responseEntity.getBody(),MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(responseEntity.getBody(),MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        }
         return requestId;
     }
 
@@ -391,7 +425,69 @@ public class VNFLifecycleManagementDriver {
      * @throws SOL003ResponseException if there are any errors performing the query
      */
     public List<VnfLcmOpOcc> queryAllLifecycleOperationOccurrences(final ResourceManagerDeploymentLocation deploymentLocation) throws SOL003ResponseException {
-        throw new UnsupportedOperationException("Not implemented yet");
+        return queryAllLifecycleOperationOccurrences(deploymentLocation, null);
+    }
+
+    /**
+     * Performs a query to retrieve VNF lifecycle operation occurrence records matching an attribute-based filter
+     *
+     * <ul>
+     *     <li>Sends HTTP GET request to /vnf_lcm_op_occs?filter=&lt;filter&gt;</li>
+     *     <li>Gets 200 OK response with an array of {@link VnfLcmOpOcc} records as the response body</li>
+     *     <li>If the VNFM pages the results, follows the "next" Link header until all pages have been retrieved</li>
+     * </ul>
+     *
+     * @param deploymentLocation deployment location
+     * @param filter             attribute-based filter expression, e.g. (eq,operationState,PROCESSING), or null to retrieve all records
+     * @return list of matching {@link VnfLcmOpOcc} records
+     * @throws SOL003ResponseException if there are any errors performing the query
+     */
+    public List<VnfLcmOpOcc> queryAllLifecycleOperationOccurrences(final ResourceManagerDeploymentLocation deploymentLocation, final String filter) throws SOL003ResponseException {
+        final String url = deploymentLocation.getProperties().get(VNFM_SERVER_URL) + API_CONTEXT_ROOT + API_PREFIX_OP_OCCURRENCES;
+        final UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromHttpUrl(url);
+        if (filter != null) {
+            uriBuilder.queryParam("filter", "{filter}");
+        }
+        final HttpHeaders headers = getHttpHeaders(deploymentLocation);
+        final HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
+        final List<VnfLcmOpOcc> vnfLcmOpOccs = new ArrayList<>();
+
+        URI pageUri = uriBuilder.encode().buildAndExpand(filter).toUri();
+        while (pageUri != null) {
+            UUID uuid = UUID.randomUUID();
+            if (LoggingUtils.isMessageLoggingEnabled()) {
+                LoggingUtils.logEnabledMDC(null, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(pageUri.toString()) ,uuid.toString());
+            }
+            final URI requestUri = pageUri;
+            final ResponseEntity<VnfLcmOpOcc[]> responseEntity = exchange(deploymentLocation, "queryLifecycleOperationOccurrences",
+                                                                          () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(requestUri, HttpMethod.GET, requestEntity, VnfLcmOpOcc[].class));
+            if (LoggingUtils.isMessageLoggingEnabled()) {
+                LoggingUtils.logEnabledMDC(Arrays.toString(responseEntity.getBody()), MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(pageUri.toString(),responseEntity),uuid.toString());
+            }
+            checkResponseEntityMatches(responseEntity, HttpStatus.OK, true);
+            vnfLcmOpOccs.addAll(Arrays.asList(responseEntity.getBody()));
+            pageUri = getNextPageUri(pageUri, responseEntity.getHeaders());
+        }
+        return vnfLcmOpOccs;
+    }
+
+    /**
+     * Retrieves a number of VNF lifecycle operation occurrence records in a single query
+     *
+     * <ul>
+     *     <li>Sends HTTP GET request to /vnf_lcm_op_occs?filter=(in,id,&lt;vnfLcmOpOccId&gt;,...)</li>
+     *     <li>Gets 200 OK response with an array of {@link VnfLcmOpOcc} records as the response body</li>
+     * </ul>
+     *
+     * @param deploymentLocation deployment location
+     * @param vnfLcmOpOccIds     Identifiers for the {@link VnfLcmOpOcc} records
+     * @return matching {@link VnfLcmOpOcc} records (any identifiers not known to the VNFM are omitted)
+     * @throws SOL003ResponseException if there are any errors performing the query
+     */
+    public List<VnfLcmOpOcc> queryLifecycleOperationOccurrences(final ResourceManagerDeploymentLocation deploymentLocation, final Collection<String> vnfLcmOpOccIds)
+            throws SOL003ResponseException {
+        final String filter = vnfLcmOpOccIds.stream().map(VNFLifecycleManagementDriver::quoteFilterValue).collect(Collectors.joining(",", "(in,id,", ")"));
+        return queryAllLifecycleOperationOccurrences(deploymentLocation, filter);
     }
 
     /**
@@ -408,7 +504,22 @@ public class VNFLifecycleManagementDriver {
      * @throws SOL003ResponseException if there are any errors performing the query
      */
     public VnfLcmOpOcc queryLifecycleOperationOccurrence(final ResourceManagerDeploymentLocation deploymentLocation, final String vnfLcmOpOccId) throws SOL003ResponseException {
-        throw new UnsupportedOperationException("Not implemented yet");
+        final String url = deploymentLocation.getProperties().get(VNFM_SERVER_URL) + API_CONTEXT_ROOT + API_PREFIX_OP_OCCURRENCES + "/{vnfLcmOpOccId}";
+        final HttpHeaders headers = getHttpHeaders(deploymentLocation);
+        final HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
+        final Map<String, String> uriVariables = new HashMap<>();
+        uriVariables.put("vnfLcmOpOccId", vnfLcmOpOccId);
+        UUID uuid = UUID.randomUUID();
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(null, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,uuid.toString());
+        }
+        final ResponseEntity<VnfLcmOpOcc> responseEntity = exchange(deploymentLocation, "queryLifecycleOperationOccurrence",
+                                                                    () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.GET, requestEntity, VnfLcmOpOcc.class, uriVariables));
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(String.valueOf(responseEntity.getBody()), MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        }
+        checkResponseEntityMatches(responseEntity, HttpStatus.OK, true);
+        return responseEntity.getBody();
     }
 
     /**
@@ -431,10 +542,15 @@ public class VNFLifecycleManagementDriver {
         final HttpHeaders headers = getHttpHeaders(deploymentLocation);
         final HttpEntity<LccnSubscriptionRequest> requestEntity = new HttpEntity<>(lccnSubscriptionRequest, headers);
         UUID uuid = UUID.randomUUID();
-        LoggingUtils.logEnabledMDC(lccnSubscriptionRequest.toString(),MessageType.REQUEST, MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,uuid.toString());
-        final ResponseEntity<LccnSubscription> responseEntity = authenticatedRestTemplateService.getRestTemplate(deploymentLocation)
-                .exchange(url, HttpMethod.POST, requestEntity, LccnSubscription.class);
-        LoggingUtils.logEnabledMDC(responseEntity.getBody().toString(),MessageType.RESPONSE, MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(lccnSubscriptionRequest.toString(),MessageType.REQUEST, MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,uuid.toString());
+        }
+        final ResponseEntity<LccnSubscription> responseEntity = exchange(deploymentLocation, "createLifecycleSubscription",
+                                                                         () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation)
+                                                                                                               .exchange(url, HttpMethod.POST, requestEntity, LccnSubscription.class));
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(responseEntity.getBody().toString(),MessageType.RESPONSE, MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        }
         // "Location" header also includes URI of the created instance
         checkResponseEntityMatches(responseEntity, HttpStatus.CREATED, true);
         return responseEntity.getBody();
@@ -492,12 +608,50 @@ public class VNFLifecycleManagementDriver {
         final Map<String, String> uriVariables = new HashMap<>();
         uriVariables.put("subscriptionId", subscriptionId);
         UUID uuid = UUID.randomUUID();
-        LoggingUtils.logEnabledMDC(null, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,uuid.toString());
-        final ResponseEntity<Void> responseEntity = authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.DELETE, requestEntity, Void.class, uriVariables);
-        LoggingUtils.logEnabledMDC(null, MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(null, MessageType.REQUEST,MessageDirection.SENT, uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getRequestProtocolMetaData(url) ,uuid.toString());
+        }
+        final ResponseEntity<Void> responseEntity = exchange(deploymentLocation, "deleteLifecycleSubscription",
+                                                             () -> authenticatedRestTemplateService.getRestTemplate(deploymentLocation).exchange(url, HttpMethod.DELETE, requestEntity, Void.class, uriVariables));
+        if (LoggingUtils.isMessageLoggingEnabled()) {
+            LoggingUtils.logEnabledMDC(null, MessageType.RESPONSE,MessageDirection.RECEIVED,uuid.toString(),MediaType.APPLICATION_JSON.toString(), "http",getProtocolMetaData(url,responseEntity),uuid.toString());
+        }
         checkResponseEntityMatches(responseEntity, HttpStatus.NO_CONTENT, false);
     }
 
+    /**
+     * Performs a request to the VNFM, recording the round trip time against the deployment location, operation and HTTP status. Requests which fail without a response from the
+     * VNFM (e.g. connection failures) are recorded with a status of NONE.
+     *
+     * @param deploymentLocation deployment location
+     * @param operation          name of the operation being performed
+     * @param request            performs the request
+     * @return response from the VNFM
+     */
+    private <T> ResponseEntity<T> exchange(final ResourceManagerDeploymentLocation deploymentLocation, final String operation, final Supplier<ResponseEntity<T>> request) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        int status = SOL003ResponseException.DEFAULT_STATUS_VALUE;
+        try {
+            final ResponseEntity<T> responseEntity = request.get();
+            status = responseEntity.getStatusCodeValue();
+            return responseEntity;
+        } catch (SOL003ResponseException e) {
+            if (e.getProblemDetails() != null && e.getProblemDetails().getStatus() != null) {
+                status = e.getProblemDetails().getStatus();
+            }
+            throw e;
+        } finally {
+            final boolean hasStatus = status != SOL003ResponseException.DEFAULT_STATUS_VALUE;
+            sample.stop(Timer.builder(VNFM_REQUESTS_TIMER_NAME)
+                             .tag("location", String.valueOf(deploymentLocation.getName()))
+                             .tag("operation", operation)
+                             .tag("status", hasStatus ? String.valueOf(status) : NO_STATUS)
+                             .tag("outcome", hasStatus ? Outcome.forStatus(status).name() : Outcome.UNKNOWN.name())
+                             .description("Round trip time of requests to the VNFM")
+                             .register(meterRegistry));
+        }
+    }
+
     /**
      * Creates HTTP headers, populating the content type (as application/json)
      *
@@ -533,22 +687,56 @@ public class VNFLifecycleManagementDriver {
         }
     }
 
-    Map<String,Object> getProtocolMetaData(String url,ResponseEntity responseEntity){
-
-        Map<String,Object> protocolMetadata=new HashMap<>();
+    /**
+     * Finds the URI of the next page of results from the Link header (as described in ETSI GS NFV-SOL 013), if present
+     *
+     * @param currentUri URI of the current page, used to resolve relative links
+     * @param headers    response headers
+     * @return URI of the next page, or null if this is the last page
+     */
+    static URI getNextPageUri(final URI currentUri, final HttpHeaders headers) {
+        final List<String> links = headers.get(HttpHeaders.LINK);
+        if (links == null) {
+            return null;
+        }
+        for (String link : links) {
+            final Matcher matcher = LINK_HEADER_PATTERN.matcher(link);
+            while (matcher.find()) {
+                if (NEXT_RELATION_PATTERN.matcher(matcher.group(2)).find()) {
+                    final URI nextUri = currentUri.resolve(matcher.group(1).trim());
+                    return nextUri.equals(currentUri) ? null : nextUri;
+                }
+            }
+        }
+        return null;
+    }
 
-        protocolMetadata.put("status",responseEntity.getStatusCode());
-        protocolMetadata.put("status_code",responseEntity.getStatusCodeValue());
-        protocolMetadata.put("url",url);
+    /**
+     * Quotes a value for use in an attribute-based filter, if it contains any characters with special meaning (as described in ETSI GS NFV-SOL 013)
+     */
+    static String quoteFilterValue(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf(')') < 0 && value.indexOf('\'') < 0) {
+            return value;
+        }
+        return "'" + value.replace("'", "''") + "'";
+    }
 
+    Map<String,Object> getProtocolMetaData(String url,ResponseEntity responseEntity){
+        // ordered, so the fields are always logged in the same order
+        final Map<String,Object> protocolMetadata = new LinkedHashMap<>();
+        protocolMetadata.put("status", responseEntity.getStatusCode());
+        protocolMetadata.put("status_code", responseEntity.getStatusCodeValue());
+        if (url != null) {
+            protocolMetadata.put("url", url);
+        }
         return protocolMetadata;
-
     }
 
     Map<String,Object> getRequestProtocolMetaData(String url){
-
-        Map<String,Object> protocolMetadata=new HashMap<>();
-        protocolMetadata.put("url",url);
+        final Map<String,Object> protocolMetadata = new LinkedHashMap<>();
+        if (url != null) {
+            protocolMetadata.put("url", url);
+        }
         return protocolMetadata;
     }
 
@@ -11,6 +11,11 @@ public interface VNFPackageRepositoryDriver {
 
     List<VnfPkgInfo> queryAllVnfPkgInfos(String groupName);
 
+    /**
+     * Returns the VnfPkgInfo records in the given group (or all groups, if not set) which match the given provider and product name (where set)
+     */
+    List<VnfPkgInfo> queryVnfPkgInfos(String groupName, String vnfProvider, String vnfProductName);
+
     VnfPkgInfo getVnfPkgInfo(String vnfPackageId) throws VNFPackageNotFoundException;
 
 }
@@ -2,13 +2,31 @@ package com.accantosystems.stratoss.vnfmdriver.driver.impl;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 
 import org.apache.logging.log4j.util.Strings;
+import org.etsi.sol003.packagemanagement.Checksum;
 import org.etsi.sol003.packagemanagement.VnfPkgInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +37,7 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
@@ -31,10 +50,16 @@ import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageRepositoryDriver;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageRepositoryException;
 import com.accantosystems.stratoss.vnfmdriver.service.AuthenticatedRestTemplateService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sonatype.nexus.AssetInformation;
 import com.sonatype.nexus.ComponentInformation;
 import com.sonatype.nexus.PaginatedResults;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
 public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriver {
 
     private static final String COMPONENT_SEARCH_URL = "/service/rest/v1/search";
@@ -44,23 +69,134 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
     private final VNFMDriverProperties vnfmDriverProperties;
     private final AuthenticatedRestTemplateService authenticatedRestTemplateService;
     private final ObjectMapper objectMapper;
-    private final Map<String, VnfPkgInfo> localVnfPkgInfoCache = new ConcurrentHashMap<>();
+    // VnfPkgInfo records, keyed by the MD5 sum of the asset they were read from
+    private final Cache<String, VnfPkgInfo> localVnfPkgInfoCache;
+    private final VNFPackageCache vnfPackageCache;
+    // Package assets found by searching the repository, keyed by VNF package id, so packages in the package cache can be found without searching again
+    private final Cache<String, AssetInformation> vnfPackageAssetCache;
+    private final VnfPkgInfoIndex vnfPkgInfoIndex;
+    private final ScheduledExecutorService indexRefreshScheduler;
+    private final Duration indexRefreshInterval;
+    private final Lock indexRefreshLock = new ReentrantLock();
+    // Downloads VnfPkgInfo records while further pages of search results are fetched
+    private final ThreadPoolExecutor downloadExecutor;
+    private final Map<String, Semaphore> hostDownloadPermits = new ConcurrentHashMap<>();
+    private final int maxDownloadsPerHost;
+    private final Timer pageTimer;
+    private final Timer assetTimer;
 
-    @Autowired
     public NexusVNFPackageRepositoryDriver(VNFMDriverProperties vnfmDriverProperties, AuthenticatedRestTemplateService authenticatedRestTemplateService, ObjectMapper objectMapper) {
+        this(vnfmDriverProperties, authenticatedRestTemplateService, objectMapper, null, null, Metrics.globalRegistry);
+    }
+
+    public NexusVNFPackageRepositoryDriver(VNFMDriverProperties vnfmDriverProperties, AuthenticatedRestTemplateService authenticatedRestTemplateService, ObjectMapper objectMapper,
+                                           VNFPackageCache vnfPackageCache) {
+        this(vnfmDriverProperties, authenticatedRestTemplateService, objectMapper, vnfPackageCache, null, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public NexusVNFPackageRepositoryDriver(VNFMDriverProperties vnfmDriverProperties, AuthenticatedRestTemplateService authenticatedRestTemplateService, ObjectMapper objectMapper,
+                                           VNFPackageCache vnfPackageCache, VnfPkgInfoIndex vnfPkgInfoIndex, MeterRegistry meterRegistry) {
         this.vnfmDriverProperties = vnfmDriverProperties;
         this.authenticatedRestTemplateService = authenticatedRestTemplateService;
         this.objectMapper = objectMapper;
+        this.vnfPackageCache = vnfPackageCache;
+        this.vnfPkgInfoIndex = vnfPkgInfoIndex;
+        this.localVnfPkgInfoCache = CacheBuilder.newBuilder().maximumSize(vnfmDriverProperties.getPackageManagement().getVnfPkgInfoCacheSize()).build();
+        this.vnfPackageAssetCache = CacheBuilder.newBuilder()
+                                                .maximumSize(vnfmDriverProperties.getPackageManagement().getVnfPkgInfoCacheSize())
+                                                .expireAfterWrite(vnfmDriverProperties.getPackageManagement().getPackageCache().getAssetLookupTtl())
+                                                .build();
+
+        final VNFMDriverProperties.PackageManagement.RepositoryDownloads downloadProperties = vnfmDriverProperties.getPackageManagement().getRepositoryDownloads();
+        final CustomizableThreadFactory downloadThreadFactory = new CustomizableThreadFactory("vnfPkgInfoDownload");
+        downloadThreadFactory.setDaemon(true);
+        // Once the queue is full, further downloads are made by the thread fetching the search results, which slows it down to match
+        this.downloadExecutor = new ThreadPoolExecutor(downloadProperties.getThreads(), downloadProperties.getThreads(), 30, TimeUnit.SECONDS,
+                                                       new LinkedBlockingQueue<>(downloadProperties.getQueueCapacity()), downloadThreadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.downloadExecutor.allowCoreThreadTimeOut(true);
+        this.maxDownloadsPerHost = downloadProperties.getMaxPerHost();
+        this.pageTimer = Timer.builder("vnfmdriver.package.repository.requests")
+                              .tag("type", "page")
+                              .description("Time taken to fetch a page of search results from the package repository")
+                              .register(meterRegistry);
+        this.assetTimer = Timer.builder("vnfmdriver.package.repository.requests")
+                               .tag("type", "asset")
+                               .description("Time taken to download a VnfPkgInfo record from the package repository")
+                               .register(meterRegistry);
+
+        this.indexRefreshInterval = vnfmDriverProperties.getPackageManagement().getPackageIndex().getRefreshInterval();
+        // Only refreshed in the background when there is a repository to refresh from, otherwise the index is built on first use
+        if (vnfPkgInfoIndex != null && vnfmDriverProperties.getPackageManagement().isEnabled()
+                && StringUtils.hasText(vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl())) {
+            final CustomizableThreadFactory indexRefreshThreadFactory = new CustomizableThreadFactory("vnfPkgInfoIndexRefresh");
+            indexRefreshThreadFactory.setDaemon(true);
+            this.indexRefreshScheduler = Executors.newSingleThreadScheduledExecutor(indexRefreshThreadFactory);
+            this.indexRefreshScheduler.scheduleWithFixedDelay(this::refreshVnfPkgInfoIndexInBackground, 0, indexRefreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.indexRefreshScheduler = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (indexRefreshScheduler != null) {
+            indexRefreshScheduler.shutdownNow();
+        }
+        downloadExecutor.shutdownNow();
     }
 
     @Override
     public List<VnfPkgInfo> queryAllVnfPkgInfos(String groupName) {
+        if (vnfPkgInfoIndex != null) {
+            loadVnfPkgInfoIndex();
+            return StringUtils.hasText(groupName) ? vnfPkgInfoIndex.findByGroup(groupName) : vnfPkgInfoIndex.findAll();
+        }
         return queryVnfPkgInfos(groupName, null);
     }
 
+    @Override
+    public List<VnfPkgInfo> queryVnfPkgInfos(String groupName, String vnfProvider, String vnfProductName) {
+        final List<VnfPkgInfo> candidates;
+        if (vnfPkgInfoIndex != null) {
+            loadVnfPkgInfoIndex();
+            if (StringUtils.hasText(vnfProductName)) {
+                candidates = vnfPkgInfoIndex.findByProductName(vnfProductName);
+            } else if (StringUtils.hasText(vnfProvider)) {
+                candidates = vnfPkgInfoIndex.findByProvider(vnfProvider);
+            } else {
+                return queryAllVnfPkgInfos(groupName);
+            }
+        } else {
+            candidates = queryVnfPkgInfos(groupName, null);
+        }
+
+        // Records are shared between the lookups of the index, so group membership can be checked by identity
+        final Set<VnfPkgInfo> groupMembers = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (vnfPkgInfoIndex != null && StringUtils.hasText(groupName)) {
+            groupMembers.addAll(vnfPkgInfoIndex.findByGroup(groupName));
+        }
+        return candidates.stream()
+                         .filter(vnfPkgInfo -> vnfPkgInfoIndex == null || !StringUtils.hasText(groupName) || groupMembers.contains(vnfPkgInfo))
+                         .filter(vnfPkgInfo -> !StringUtils.hasText(vnfProvider) || vnfProvider.equals(vnfPkgInfo.getVnfProvider()))
+                         .filter(vnfPkgInfo -> !StringUtils.hasText(vnfProductName) || vnfProductName.equals(vnfPkgInfo.getVnfProductName()))
+                         .collect(Collectors.toList());
+    }
+
     @Override
     public VnfPkgInfo getVnfPkgInfo(String vnfPackageId) throws VNFPackageNotFoundException {
-        List<VnfPkgInfo> vnfPkgInfoList = queryVnfPkgInfos(null, vnfPackageId);
+        List<VnfPkgInfo> vnfPkgInfoList;
+        if (vnfPkgInfoIndex != null) {
+            loadVnfPkgInfoIndex();
+            vnfPkgInfoList = vnfPkgInfoIndex.findById(vnfPackageId);
+            if (vnfPkgInfoList.isEmpty()) {
+                // May have been added to the repository since the index was last refreshed
+                logger.debug("VNF package [{}] not found in index, searching repository", vnfPackageId);
+                vnfPkgInfoList = queryVnfPkgInfos(null, vnfPackageId);
+            }
+        } else {
+            vnfPkgInfoList = queryVnfPkgInfos(null, vnfPackageId);
+        }
         if (vnfPkgInfoList.size() == 1) {
             return vnfPkgInfoList.get(0);
         } else if (vnfPkgInfoList.size() > 1) {
@@ -80,32 +216,160 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
             queryParameters.set("keyword", "*" + vnfPackageId + vnfmDriverProperties.getPackageManagement().getVnfPkgInfoSuffix() + "*");
         }
 
-        // Get a list of components from Nexus
-        List<ComponentInformation> componentList = getPaginatedResultsAsList(COMPONENT_SEARCH_URL, queryParameters, ComponentInformation.class);
-
-        // Reduce list to only contain unique VnfPkgInfo assets (and populate local cache, keyed by MD5 sum)
-        return componentList.stream()
-                            .flatMap(c -> c.getAssets().stream())
-                            .filter(a -> a.getPath().endsWith(vnfmDriverProperties.getPackageManagement().getVnfPkgInfoSuffix()))
-                            .map(a -> {
-                                // TODO What about if there's no md5 checksum?
-                                if (!localVnfPkgInfoCache.containsKey(a.getChecksum().getMd5())) {
-                                    localVnfPkgInfoCache.put(a.getChecksum().getMd5(), getVnfPkgInfoFromUrl(a.getDownloadUrl()));
-                                }
-                                return localVnfPkgInfoCache.get(a.getChecksum().getMd5());
-                            })
-                            .collect(Collectors.toList());
+        // Get components from Nexus, downloading the VnfPkgInfo assets of each page while the next is fetched
+        final List<CompletableFuture<VnfPkgInfo>> vnfPkgInfos = new ArrayList<>();
+        forEachPage(COMPONENT_SEARCH_URL, queryParameters, ComponentInformation.class, components -> {
+            for (ComponentInformation component : components) {
+                for (AssetInformation asset : component.getAssets()) {
+                    if (asset.getPath().endsWith(vnfmDriverProperties.getPackageManagement().getVnfPkgInfoSuffix())) {
+                        vnfPkgInfos.add(prefetchVnfPkgInfo(asset));
+                    }
+                }
+            }
+        });
+
+        return vnfPkgInfos.stream()
+                          .map(NexusVNFPackageRepositoryDriver::join)
+                          .filter(Objects::nonNull)
+                          .collect(Collectors.toList());
     }
 
-    public Resource getVnfPackage(String vnfPackageId) throws VNFPackageNotFoundException {
+    /**
+     * Builds the index on the calling thread if it has not yet been built, so that lookups made before the first background refresh completes are still answered from it
+     */
+    private void loadVnfPkgInfoIndex() {
+        if (!vnfPkgInfoIndex.isLoaded()) {
+            indexRefreshLock.lock();
+            try {
+                if (!vnfPkgInfoIndex.isLoaded()) {
+                    refreshVnfPkgInfoIndex();
+                }
+            } finally {
+                indexRefreshLock.unlock();
+            }
+        }
+    }
+
+    private void refreshVnfPkgInfoIndexInBackground() {
+        if (!StringUtils.hasText(vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl())) {
+            logger.debug("No VNF Package Repository URL configured, not refreshing index");
+            return;
+        }
+
+        indexRefreshLock.lock();
+        try {
+            // Skip the refresh if a lookup has only just built the index
+            if (vnfPkgInfoIndex.isLoaded() && vnfPkgInfoIndex.getTimeSinceRefresh() < indexRefreshInterval.toNanos() / 2) {
+                return;
+            }
+            refreshVnfPkgInfoIndex();
+        } catch (Exception e) {
+            logger.warn("Unable to refresh index of VnfPkgInfo records from the package repository", e);
+        } finally {
+            indexRefreshLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index, a page of components at a time, only downloading the VnfPkgInfo records which are new or have changed since the previous refresh
+     */
+    void refreshVnfPkgInfoIndex() {
+        final String vnfPkgInfoSuffix = vnfmDriverProperties.getPackageManagement().getVnfPkgInfoSuffix();
+        final MultiValueMap<String, String> queryParameters = new LinkedMultiValueMap<>();
+        queryParameters.set("repository", vnfmDriverProperties.getPackageManagement().getRepositoryName());
+
+        final VnfPkgInfoIndex.Builder indexBuilder = vnfPkgInfoIndex.refresh();
+        final List<IndexEntry> indexEntries = new ArrayList<>();
+        forEachPage(COMPONENT_SEARCH_URL, queryParameters, ComponentInformation.class, components -> {
+            for (ComponentInformation component : components) {
+                for (AssetInformation asset : component.getAssets()) {
+                    if (asset.getPath().endsWith(vnfPkgInfoSuffix)) {
+                        final String checksum = asset.getChecksum().getMd5();
+                        final VnfPkgInfo unchangedVnfPkgInfo = indexBuilder.getUnchanged(checksum);
+                        final String fileName = StringUtils.getFilename(asset.getPath());
+                        indexEntries.add(new IndexEntry(fileName.substring(0, fileName.length() - vnfPkgInfoSuffix.length()), component.getGroup(), checksum,
+                                                        unchangedVnfPkgInfo != null ? CompletableFuture.completedFuture(unchangedVnfPkgInfo) : prefetchVnfPkgInfo(asset)));
+                    }
+                }
+            }
+        });
+        for (IndexEntry indexEntry : indexEntries) {
+            final VnfPkgInfo vnfPkgInfo = join(indexEntry.vnfPkgInfo);
+            if (vnfPkgInfo != null) {
+                indexBuilder.add(indexEntry.vnfPackageId, indexEntry.groupName, indexEntry.checksum, vnfPkgInfo);
+            }
+        }
+        indexBuilder.build();
+        logger.debug("Refreshed index with {} VnfPkgInfo record(s)", vnfPkgInfoIndex.findAll().size());
+    }
+
+    /**
+     * Starts downloading a VnfPkgInfo record on the download executor, unless it is already cached. No more than maxPerHost downloads are made from each host at once.
+     */
+    private CompletableFuture<VnfPkgInfo> prefetchVnfPkgInfo(AssetInformation asset) {
+        final String checksum = asset.getChecksum().getMd5();
+        final VnfPkgInfo cachedVnfPkgInfo = StringUtils.hasText(checksum) ? localVnfPkgInfoCache.getIfPresent(checksum) : null;
+        if (cachedVnfPkgInfo != null) {
+            return CompletableFuture.completedFuture(cachedVnfPkgInfo);
+        }
+
+        final Semaphore permits = hostDownloadPermits.computeIfAbsent(UriComponentsBuilder.fromHttpUrl(asset.getDownloadUrl()).build().getHost(),
+                                                                      host -> new Semaphore(maxDownloadsPerHost));
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return getCachedVnfPkgInfo(asset);
+            } finally {
+                permits.release();
+            }
+        }, downloadExecutor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
 
-        // TODO some local caching would be nice
+    private VnfPkgInfo getCachedVnfPkgInfo(AssetInformation asset) {
+        final String checksum = asset.getChecksum().getMd5();
+        if (!StringUtils.hasText(checksum)) {
+            return getVnfPkgInfoFromUrl(asset.getDownloadUrl());
+        }
+
+        VnfPkgInfo vnfPkgInfo = localVnfPkgInfoCache.getIfPresent(checksum);
+        if (vnfPkgInfo == null) {
+            vnfPkgInfo = getVnfPkgInfoFromUrl(asset.getDownloadUrl());
+            if (vnfPkgInfo != null) {
+                localVnfPkgInfoCache.put(checksum, vnfPkgInfo);
+            }
+        }
+        return vnfPkgInfo;
+    }
 
+    /**
+     * Packages are read from the package cache where possible. A package found in the cache for an asset seen within the last assetLookupTtl is returned without any requests to
+     * the repository, and a package found in the cache for the asset returned by the search is returned without checking the download URL.
+     */
+    public Resource getVnfPackage(String vnfPackageId) throws VNFPackageNotFoundException {
         String vnfRepositoryUrl = vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl();
         if (Strings.isEmpty(vnfRepositoryUrl)) {
             throw new VNFPackageRepositoryException("A valid VNF Package Repository URL must be configured.");
         }
 
+        final AssetInformation knownVnfPackageAsset = vnfPackageAssetCache.getIfPresent(vnfPackageId);
+        if (knownVnfPackageAsset != null) {
+            final Resource cachedVnfPackage = getCachedVnfPackage(knownVnfPackageAsset);
+            if (cachedVnfPackage != null) {
+                return cachedVnfPackage;
+            }
+        }
+
         final MultiValueMap<String, String> queryParameters = new LinkedMultiValueMap<>();
         queryParameters.set("repository", vnfmDriverProperties.getPackageManagement().getRepositoryName());
         queryParameters.set("keyword", "*" + vnfPackageId + vnfmDriverProperties.getPackageManagement().getVnfPkgSuffix() + "*");
@@ -119,7 +383,15 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
             throw new VNFPackageNotFoundException(String.format("Too many results [%s] when searching for VNF Package [%s] in repository [%s]", assetList.size(), vnfPackageId, vnfRepositoryUrl));
         }
 
-        final String vnfDownloadPath = assetList.get(0).getDownloadUrl();
+        final AssetInformation vnfPackageAsset = assetList.get(0);
+        final String vnfDownloadPath = vnfPackageAsset.getDownloadUrl();
+        if (getPackageChecksum(vnfPackageAsset) != null) {
+            vnfPackageAssetCache.put(vnfPackageId, vnfPackageAsset);
+            final Resource cachedVnfPackage = getCachedVnfPackage(vnfPackageAsset);
+            if (cachedVnfPackage != null) {
+                return cachedVnfPackage;
+            }
+        }
         logger.info("Attempting to load VNF Package from location {}", vnfDownloadPath);
 
         try {
@@ -131,13 +403,59 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
 
             logger.info(" VNF Package found at location {}", vnfDownloadPath);
 
-            return vnfPackage;
+            return cacheVnfPackage(vnfPackageAsset, vnfPackage);
         } catch (MalformedURLException e) {
             throw new VNFPackageRepositoryException(String.format("The configured VNF Package Repository location was invalid [%s].", vnfDownloadPath), e);
         }
 
     }
 
+    /**
+     * Returns the locally cached copy of the VNF package, or null if it is not in the package cache (or it has no checksum to identify it by)
+     */
+    private Resource getCachedVnfPackage(AssetInformation vnfPackageAsset) {
+        final Checksum checksum = getPackageChecksum(vnfPackageAsset);
+        return vnfPackageCache != null && checksum != null ? vnfPackageCache.getCachedPackage(checksum.getHash()) : null;
+    }
+
+    /**
+     * Returns a locally cached copy of the VNF package (so it's only downloaded once, however many times it is read), if there is a checksum to identify it by
+     */
+    private Resource cacheVnfPackage(AssetInformation vnfPackageAsset, Resource vnfPackage) {
+        final Checksum checksum = getPackageChecksum(vnfPackageAsset);
+        if (vnfPackageCache == null) {
+            return vnfPackage;
+        } else if (checksum == null) {
+            logger.debug("No checksum for VNF Package at location {}, not caching", vnfPackageAsset.getDownloadUrl());
+            return vnfPackage;
+        }
+
+        try {
+            return vnfPackageCache.getPackage(checksum.getAlgorithm(), checksum.getHash(), vnfPackage);
+        } catch (IOException e) {
+            throw new VNFPackageRepositoryException(String.format("Unable to download VNF Package from location [%s]", vnfPackageAsset.getDownloadUrl()), e);
+        }
+    }
+
+    /**
+     * @return the strongest checksum reported for the asset, or null if it has none
+     */
+    private static Checksum getPackageChecksum(AssetInformation vnfPackageAsset) {
+        final Checksum checksum = new Checksum();
+        if (vnfPackageAsset.getChecksum() == null) {
+            return null;
+        } else if (StringUtils.hasText(vnfPackageAsset.getChecksum().getSha1())) {
+            checksum.setAlgorithm("SHA-1");
+            checksum.setHash(vnfPackageAsset.getChecksum().getSha1());
+        } else if (StringUtils.hasText(vnfPackageAsset.getChecksum().getMd5())) {
+            checksum.setAlgorithm("MD5");
+            checksum.setHash(vnfPackageAsset.getChecksum().getMd5());
+        } else {
+            return null;
+        }
+        return checksum;
+    }
+
     private RestTemplate getRestTemplate() {
         return authenticatedRestTemplateService.getRestTemplate(vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl(),
                                                                 vnfmDriverProperties.getPackageManagement().getAuthenticationProperties());
@@ -145,7 +463,9 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
 
     private VnfPkgInfo getVnfPkgInfoFromUrl(String downloadUrl) {
         logger.debug("Downloading VnfPkgInfo: {}", downloadUrl);
+        final long startTime = System.nanoTime();
         final ResponseEntity<String> responseEntity = getRestTemplate().exchange(downloadUrl, HttpMethod.GET, null, String.class);
+        assetTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
         if (responseEntity.getStatusCode().is2xxSuccessful()) {
             String vnfPkgInfoString = responseEntity.getBody();
             logger.debug("Got response\n{}", vnfPkgInfoString);
@@ -162,6 +482,17 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
 
     private <T> List<T> getPaginatedResultsAsList(final String baseUrl, final MultiValueMap<String, String> queryParameters, Class<T> returnClass) {
         final List<T> paginatedResults = new ArrayList<>();
+        final int pageCount = forEachPage(baseUrl, queryParameters, returnClass, paginatedResults::addAll);
+        logger.debug("Got paginated response with {} element(s) over {} page(s)", paginatedResults.size(), pageCount);
+        return paginatedResults;
+    }
+
+    /**
+     * Passes each page of results to the consumer as it is received, following continuation tokens until the last page
+     *
+     * @return the number of pages received
+     */
+    private <T> int forEachPage(final String baseUrl, final MultiValueMap<String, String> queryParameters, Class<T> returnClass, Consumer<List<T>> pageConsumer) {
         String continuationToken = null;
         int pageCount = 0;
 
@@ -172,20 +503,37 @@ public class NexusVNFPackageRepositoryDriver implements VNFPackageRepositoryDriv
             }
 
             logger.debug("Making paginated call to {}", uriBuilder.toUriString());
+            final long startTime = System.nanoTime();
             ResponseEntity<PaginatedResults<T>> responseEntity = getRestTemplate()
                     .exchange(uriBuilder.toUriString(), HttpMethod.GET, null, ParameterizedTypeReference.forType(ResolvableType.forClassWithGenerics(PaginatedResults.class, returnClass).getType()));
+            final long pageTime = System.nanoTime() - startTime;
+            pageTimer.record(pageTime, TimeUnit.NANOSECONDS);
+            logger.debug("Got page of results in {}ms", TimeUnit.NANOSECONDS.toMillis(pageTime));
 
             if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
                 pageCount++;
-                paginatedResults.addAll(responseEntity.getBody().getItems());
+                pageConsumer.accept(responseEntity.getBody().getItems());
                 continuationToken = responseEntity.getBody().getContinuationToken();
             } else {
                 throw new VNFPackageRepositoryException(String.format("Invalid status code [%s] while searching Nexus repository at [%s]", responseEntity.getStatusCode(), uriBuilder.toUriString()));
             }
         } while (continuationToken != null);
 
-        logger.debug("Got paginated response with {} element(s) over {} page(s)", paginatedResults.size(), pageCount);
-        return paginatedResults;
+        return pageCount;
+    }
+
+    private static class IndexEntry {
+        private final String vnfPackageId;
+        private final String groupName;
+        private final String checksum;
+        private final CompletableFuture<VnfPkgInfo> vnfPkgInfo;
+
+        private IndexEntry(String vnfPackageId, String groupName, String checksum, CompletableFuture<VnfPkgInfo> vnfPkgInfo) {
+            this.vnfPackageId = vnfPackageId;
+            this.groupName = groupName;
+            this.checksum = checksum;
+            this.vnfPkgInfo = vnfPkgInfo;
+        }
     }
 
 }
@@ -0,0 +1,334 @@
+package com.accantosystems.stratoss.vnfmdriver.driver.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * On-disk cache of VNF packages, keyed by the checksum of the package reported by the repository (so a package which changes in the repository is downloaded again).
+ * <p>
+ * Packages are downloaded to a temporary file, verified against the checksum and then renamed into place, so a partial download is never used. Concurrent requests for the same
+ * package share a single download. The least recently used packages are deleted once the total size of the cache exceeds the configured maximum.
+ * <p>
+ * A package returned by the cache is pinned until the returned resource is closed, and for a grace period afterwards (since the servlet container may only open the file once the
+ * request has completed, when sending it with sendfile). Pinned packages are never evicted, so the cache may exceed its maximum size until they are released.
+ */
+public class VNFPackageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VNFPackageCache.class);
+    private static final Pattern CHECKSUM_PATTERN = Pattern.compile("[0-9a-f]{32,128}");
+    private static final String PACKAGE_SUFFIX = ".zip";
+    private static final String DOWNLOAD_SUFFIX = ".download";
+
+    private final Path directory;
+    private final long maxSize;
+    private final long releaseGracePeriod;
+    // Access ordered, so iteration starts from the least recently used package (guarded by this)
+    private final LinkedHashMap<String, Long> cachedPackageSizes = new LinkedHashMap<>(16, 0.75f, true);
+    // Number of unclosed resources returned for each package, and when the last one for each package was closed (both guarded by this)
+    private final Map<String, Integer> readerCounts = new HashMap<>();
+    private final Map<String, Long> releaseTimes = new HashMap<>();
+    private final Map<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private long totalSize;
+
+    public VNFPackageCache(VNFMDriverProperties.PackageManagement.PackageCache properties, MeterRegistry meterRegistry) {
+        this.directory = Paths.get(properties.getDirectory());
+        this.maxSize = properties.getMaxSize().toBytes();
+        this.releaseGracePeriod = properties.getReleaseGracePeriod().toNanos();
+        try {
+            Files.createDirectories(directory);
+            loadCachedPackages();
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Unable to initialise VNF package cache in [%s]", directory), e);
+        }
+
+        this.hitCounter = Counter.builder("vnfmdriver.package.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("vnfmdriver.package.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("vnfmdriver.package.cache.size", this, VNFPackageCache::getTotalSize)
+             .baseUnit("bytes")
+             .description("Total size of the VNF packages held in the cache")
+             .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached copy of a package, downloading it first if it is not already in the cache.
+     *
+     * @param checksumAlgorithm name of the algorithm used to calculate the checksum, e.g. SHA-1
+     * @param checksum          checksum of the package, as reported by the repository
+     * @param source            location to download the package from
+     * @return the cached package, which is pinned in the cache (so will not be evicted) until it is closed
+     * @throws IOException if the package could not be downloaded, or the downloaded package did not match the checksum
+     */
+    public Resource getPackage(final String checksumAlgorithm, final String checksum, final Resource source) throws IOException {
+        final Resource cachedPackageResource = getCachedPackage(checksum);
+        if (cachedPackageResource != null) {
+            return cachedPackageResource;
+        }
+
+        final String key = checksum.toLowerCase(Locale.ROOT);
+        missCounter.increment();
+        while (true) {
+            Path cachedPackage;
+            final CompletableFuture<Path> download = new CompletableFuture<>();
+            final CompletableFuture<Path> existingDownload = downloads.putIfAbsent(key, download);
+            if (existingDownload != null) {
+                logger.debug("Waiting for VNF package [{}] to be downloaded by another request", key);
+                waitForDownload(existingDownload);
+                // The package may already have been evicted again if the cache is under pressure, in which case it is downloaded again
+                cachedPackage = acquireCachedPackage(key);
+                if (cachedPackage != null) {
+                    return new CachedPackageResource(key, cachedPackage);
+                }
+                continue;
+            }
+
+            try {
+                // Check again, in case another download completed since the first check
+                cachedPackage = acquireCachedPackage(key);
+                if (cachedPackage == null) {
+                    cachedPackage = downloadPackage(key, checksumAlgorithm, source);
+                }
+                download.complete(cachedPackage);
+                return new CachedPackageResource(key, cachedPackage);
+            } catch (IOException | RuntimeException e) {
+                download.completeExceptionally(e);
+                throw e;
+            } finally {
+                downloads.remove(key, download);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached copy of a package, without downloading it if it is not already in the cache.
+     *
+     * @param checksum checksum of the package, as reported by the repository
+     * @return the cached package, which is pinned in the cache (so will not be evicted) until it is closed, or null if the package is not in the cache
+     */
+    public Resource getCachedPackage(final String checksum) {
+        final String key = checksum.toLowerCase(Locale.ROOT);
+        if (!CHECKSUM_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException(String.format("Invalid checksum [%s]", checksum));
+        }
+
+        final Path cachedPackage = acquireCachedPackage(key);
+        if (cachedPackage == null) {
+            return null;
+        }
+        hitCounter.increment();
+        logger.debug("Found VNF package [{}] in cache", key);
+        return new CachedPackageResource(key, cachedPackage);
+    }
+
+    synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * @return the path of the package, pinned for the caller, or null if the package is not in the cache
+     */
+    private synchronized Path acquireCachedPackage(final String key) {
+        if (cachedPackageSizes.get(key) == null) {
+            return null;
+        }
+        final Path cachedPackage = getPackagePath(key);
+        if (!Files.exists(cachedPackage)) {
+            // Removed from outside of the cache
+            totalSize -= cachedPackageSizes.remove(key);
+            return null;
+        }
+        readerCounts.merge(key, 1, Integer::sum);
+        return cachedPackage;
+    }
+
+    private synchronized void release(final String key) {
+        if (readerCounts.merge(key, -1, Integer::sum) <= 0) {
+            readerCounts.remove(key);
+            if (cachedPackageSizes.containsKey(key)) {
+                releaseTimes.put(key, System.nanoTime());
+            }
+        }
+        // Evict any packages that could not be evicted while they were in use
+        evictPackages();
+    }
+
+    private Path downloadPackage(final String key, final String checksumAlgorithm, final Resource source) throws IOException {
+        logger.info("Downloading VNF package [{}] to cache", key);
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(checksumAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(String.format("Unsupported checksum algorithm [%s]", checksumAlgorithm), e);
+        }
+
+        final Path downloadFile = Files.createTempFile(directory, key, DOWNLOAD_SUFFIX);
+        try {
+            try (InputStream inputStream = new DigestInputStream(source.getInputStream(), messageDigest)) {
+                Files.copy(inputStream, downloadFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final String actualChecksum = toHexString(messageDigest.digest());
+            if (!key.equals(actualChecksum)) {
+                throw new IOException(String.format("Downloaded VNF package has %s checksum [%s], expected [%s]", checksumAlgorithm, actualChecksum, key));
+            }
+
+            final Path cachedPackage = getPackagePath(key);
+            Files.move(downloadFile, cachedPackage, StandardCopyOption.ATOMIC_MOVE);
+            addCachedPackage(key, Files.size(cachedPackage), true);
+            return cachedPackage;
+        } finally {
+            Files.deleteIfExists(downloadFile);
+        }
+    }
+
+    /**
+     * Adds a package to the cache, pinned for the caller if it is being downloaded (so it is never evicted before it is returned, even if it is larger than the cache)
+     */
+    private synchronized void addCachedPackage(final String key, final long size, final boolean pin) {
+        final Long previousSize = cachedPackageSizes.put(key, size);
+        totalSize += size - (previousSize != null ? previousSize : 0);
+        if (pin) {
+            readerCounts.merge(key, 1, Integer::sum);
+        }
+        evictPackages();
+    }
+
+    private synchronized void evictPackages() {
+        final long now = System.nanoTime();
+        final Iterator<Map.Entry<String, Long>> iterator = cachedPackageSizes.entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Long> leastRecentlyUsed = iterator.next();
+            if (!isInUse(leastRecentlyUsed.getKey(), now)) {
+                iterator.remove();
+                releaseTimes.remove(leastRecentlyUsed.getKey());
+                totalSize -= leastRecentlyUsed.getValue();
+                logger.info("Evicting VNF package [{}] from cache", leastRecentlyUsed.getKey());
+                try {
+                    Files.deleteIfExists(getPackagePath(leastRecentlyUsed.getKey()));
+                } catch (IOException e) {
+                    logger.warn(String.format("Unable to delete cached VNF package [%s]", leastRecentlyUsed.getKey()), e);
+                }
+            }
+        }
+    }
+
+    private boolean isInUse(final String key, final long now) {
+        if (readerCounts.containsKey(key)) {
+            return true;
+        }
+        final Long releaseTime = releaseTimes.get(key);
+        if (releaseTime == null) {
+            return false;
+        } else if (now - releaseTime < releaseGracePeriod) {
+            return true;
+        }
+        releaseTimes.remove(key);
+        return false;
+    }
+
+    /**
+     * Picks up any packages cached by a previous run, oldest first, and removes any incomplete downloads
+     */
+    private void loadCachedPackages() throws IOException {
+        final List<Path> cachedPackages;
+        try (Stream<Path> files = Files.list(directory)) {
+            cachedPackages = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        final Map<Path, FileTime> lastModifiedTimes = new LinkedHashMap<>();
+        for (Path file : cachedPackages) {
+            final String fileName = file.getFileName().toString();
+            if (fileName.endsWith(DOWNLOAD_SUFFIX)) {
+                Files.deleteIfExists(file);
+            } else if (fileName.endsWith(PACKAGE_SUFFIX) && CHECKSUM_PATTERN.matcher(fileName.substring(0, fileName.length() - PACKAGE_SUFFIX.length())).matches()) {
+                lastModifiedTimes.put(file, Files.getLastModifiedTime(file));
+            }
+        }
+
+        for (Path file : lastModifiedTimes.keySet().stream().sorted(Comparator.comparing(lastModifiedTimes::get)).collect(Collectors.toList())) {
+            final String fileName = file.getFileName().toString();
+            addCachedPackage(fileName.substring(0, fileName.length() - PACKAGE_SUFFIX.length()), Files.size(file), false);
+        }
+        logger.info("Found {} VNF package(s) in cache [{}]", cachedPackageSizes.size(), directory);
+    }
+
+    private Path getPackagePath(final String key) {
+        return directory.resolve(key + PACKAGE_SUFFIX);
+    }
+
+    private static void waitForDownload(final CompletableFuture<Path> download) throws IOException {
+        try {
+            download.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String toHexString(final byte[] bytes) {
+        final StringBuilder hexString = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hexString.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hexString.toString();
+    }
+
+    /**
+     * A package returned from the cache, which releases its pin on the package when closed. Closing it more than once has no further effect.
+     */
+    private class CachedPackageResource extends FileSystemResource implements Closeable {
+        private final String key;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private CachedPackageResource(final String key, final Path path) {
+            super(path);
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(key);
+            }
+        }
+    }
+
+}
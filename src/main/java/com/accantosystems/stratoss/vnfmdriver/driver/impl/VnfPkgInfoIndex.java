@@ -0,0 +1,157 @@
+package com.accantosystems.stratoss.vnfmdriver.driver.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.etsi.sol003.packagemanagement.VnfPkgInfo;
+import org.springframework.util.StringUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * In-memory index of the VnfPkgInfo records held in the package repository, by VNF package id, repository group, product name and provider.
+ * <p>
+ * The index is held as an immutable snapshot which is replaced as a whole when a refresh completes, so lookups never block and never see a partially refreshed index. Records
+ * are carried over from the previous snapshot when the checksum of the asset they were read from is unchanged, so a refresh only downloads new or modified records.
+ */
+public class VnfPkgInfoIndex {
+
+    private final Timer refreshTimer;
+    private volatile Snapshot snapshot;
+    private volatile long lastRefreshTime;
+
+    public VnfPkgInfoIndex(MeterRegistry meterRegistry) {
+        this.refreshTimer = Timer.builder("vnfmdriver.package.index.refresh")
+                                 .description("Time taken to rebuild the index of VnfPkgInfo records from the package repository")
+                                 .register(meterRegistry);
+        Gauge.builder("vnfmdriver.package.index.size", this, index -> index.findAll().size())
+             .description("VnfPkgInfo records held in the index")
+             .register(meterRegistry);
+    }
+
+    /**
+     * @return true once the index has been built at least once
+     */
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * @return time since the index was last built, in nanoseconds
+     */
+    public long getTimeSinceRefresh() {
+        return System.nanoTime() - lastRefreshTime;
+    }
+
+    public List<VnfPkgInfo> findById(String vnfPackageId) {
+        final Snapshot current = snapshot;
+        return current != null ? current.byId.get(vnfPackageId) : ImmutableList.of();
+    }
+
+    public List<VnfPkgInfo> findByGroup(String groupName) {
+        final Snapshot current = snapshot;
+        return current != null ? current.byGroup.get(groupName) : ImmutableList.of();
+    }
+
+    public List<VnfPkgInfo> findByProductName(String vnfProductName) {
+        final Snapshot current = snapshot;
+        return current != null ? current.byProductName.get(vnfProductName) : ImmutableList.of();
+    }
+
+    public List<VnfPkgInfo> findByProvider(String vnfProvider) {
+        final Snapshot current = snapshot;
+        return current != null ? current.byProvider.get(vnfProvider) : ImmutableList.of();
+    }
+
+    public List<VnfPkgInfo> findAll() {
+        final Snapshot current = snapshot;
+        return current != null ? current.all : ImmutableList.of();
+    }
+
+    /**
+     * Starts a refresh of the index. Records are added to the returned builder as they are read from the repository, and the index is replaced once it is built.
+     */
+    public Builder refresh() {
+        return new Builder(snapshot);
+    }
+
+    public class Builder {
+
+        private final Snapshot previous;
+        private final Map<String, VnfPkgInfo> byChecksum = new HashMap<>();
+        private final ImmutableListMultimap.Builder<String, VnfPkgInfo> byId = ImmutableListMultimap.builder();
+        private final ImmutableListMultimap.Builder<String, VnfPkgInfo> byGroup = ImmutableListMultimap.builder();
+        private final ImmutableListMultimap.Builder<String, VnfPkgInfo> byProductName = ImmutableListMultimap.builder();
+        private final ImmutableListMultimap.Builder<String, VnfPkgInfo> byProvider = ImmutableListMultimap.builder();
+        private final ImmutableList.Builder<VnfPkgInfo> all = ImmutableList.builder();
+        private final long startTime = System.nanoTime();
+
+        private Builder(Snapshot previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * @return the record read from an asset with the given checksum by the previous refresh, or null if there isn't one
+         */
+        public VnfPkgInfo getUnchanged(String checksum) {
+            return previous != null && checksum != null ? previous.byChecksum.get(checksum) : null;
+        }
+
+        public Builder add(String vnfPackageId, String groupName, String checksum, VnfPkgInfo vnfPkgInfo) {
+            if (checksum != null) {
+                byChecksum.put(checksum, vnfPkgInfo);
+            }
+            byId.put(vnfPackageId, vnfPkgInfo);
+            if (StringUtils.hasText(groupName)) {
+                byGroup.put(groupName, vnfPkgInfo);
+            }
+            if (StringUtils.hasText(vnfPkgInfo.getVnfProductName())) {
+                byProductName.put(vnfPkgInfo.getVnfProductName(), vnfPkgInfo);
+            }
+            if (StringUtils.hasText(vnfPkgInfo.getVnfProvider())) {
+                byProvider.put(vnfPkgInfo.getVnfProvider(), vnfPkgInfo);
+            }
+            all.add(vnfPkgInfo);
+            return this;
+        }
+
+        /**
+         * Replaces the contents of the index with the records added to this builder
+         */
+        public void build() {
+            snapshot = new Snapshot(byChecksum, byId.build(), byGroup.build(), byProductName.build(), byProvider.build(), all.build());
+            lastRefreshTime = System.nanoTime();
+            refreshTimer.record(lastRefreshTime - startTime, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, VnfPkgInfo> byChecksum;
+        private final ImmutableListMultimap<String, VnfPkgInfo> byId;
+        private final ImmutableListMultimap<String, VnfPkgInfo> byGroup;
+        private final ImmutableListMultimap<String, VnfPkgInfo> byProductName;
+        private final ImmutableListMultimap<String, VnfPkgInfo> byProvider;
+        private final ImmutableList<VnfPkgInfo> all;
+
+        private Snapshot(Map<String, VnfPkgInfo> byChecksum, ImmutableListMultimap<String, VnfPkgInfo> byId, ImmutableListMultimap<String, VnfPkgInfo> byGroup,
+                         ImmutableListMultimap<String, VnfPkgInfo> byProductName, ImmutableListMultimap<String, VnfPkgInfo> byProvider, ImmutableList<VnfPkgInfo> all) {
+            this.byChecksum = byChecksum;
+            this.byId = byId;
+            this.byGroup = byGroup;
+            this.byProductName = byProductName;
+            this.byProvider = byProvider;
+            this.all = all;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.accantosystems.stratoss.vnfmdriver.model;
+
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static com.accantosystems.stratoss.vnfmdriver.utils.Constants.KAFKA_MESSAGE_VERSION;
+
+/**
+ * An ExecutionAsyncResponse that was still waiting on its delay when the driver shut down, handed back to Kafka so it can be sent once due (by this or another instance)
+ */
+public class DelayedExecutionAsyncResponse {
+
+    private final ExecutionAsyncResponse response;
+    private final long dueTime;
+    private final String version = KAFKA_MESSAGE_VERSION;
+
+    /**
+     * @param response response to send
+     * @param dueTime  time (in milliseconds since the epoch) after which the response can be sent
+     */
+    @JsonCreator
+    public DelayedExecutionAsyncResponse(@JsonProperty("response") ExecutionAsyncResponse response, @JsonProperty("dueTime") long dueTime) {
+        this.response = response;
+        this.dueTime = dueTime;
+    }
+
+    public ExecutionAsyncResponse getResponse() {
+        return response;
+    }
+
+    public long getDueTime() {
+        return dueTime;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.accantosystems.stratoss.vnfmdriver.model;
 
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ResourceManagerDeploymentLocation;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import static com.accantosystems.stratoss.vnfmdriver.utils.Constants.KAFKA_MESSAGE_VERSION;
 
@@ -8,11 +10,25 @@ public class LcmOpOccPollingRequest {
 
     private final ResourceManagerDeploymentLocation deploymentLocation;
     private final String vnfLcmOpOccId;
+    private final int failedHandbacks;
     private final String version = KAFKA_MESSAGE_VERSION;
 
     public LcmOpOccPollingRequest(ResourceManagerDeploymentLocation deploymentLocation, String vnfLcmOpOccId) {
+        this(deploymentLocation, vnfLcmOpOccId, 0);
+    }
+
+    /**
+     * @param deploymentLocation deployment location to poll
+     * @param vnfLcmOpOccId      id of the LcmOpOcc to poll
+     * @param failedHandbacks    number of times the request has been handed back to Kafka because polling failed repeatedly
+     */
+    @JsonCreator
+    public LcmOpOccPollingRequest(@JsonProperty("deploymentLocation") ResourceManagerDeploymentLocation deploymentLocation,
+                                  @JsonProperty("vnfLcmOpOccId") String vnfLcmOpOccId,
+                                  @JsonProperty("failedHandbacks") int failedHandbacks) {
         this.deploymentLocation = deploymentLocation;
         this.vnfLcmOpOccId = vnfLcmOpOccId;
+        this.failedHandbacks = failedHandbacks;
     }
 
     public ResourceManagerDeploymentLocation getDeploymentLocation() {
@@ -23,6 +39,10 @@ public class LcmOpOccPollingRequest {
         return vnfLcmOpOccId;
     }
 
+    public int getFailedHandbacks() {
+        return failedHandbacks;
+    }
+
     public String getVersion() {
         return version;
     }
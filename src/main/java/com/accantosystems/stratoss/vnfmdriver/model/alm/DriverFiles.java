@@ -0,0 +1,194 @@
+package com.accantosystems.stratoss.vnfmdriver.model.alm;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.hash.Hashing;
+
+/**
+ * The (decoded) zip of driver files passed in an ExecutionRequest. Sent as a Base64 encoded string, which is decoded as it is read by the {@link DriverFilesDeserializer} so
+ * the encoded form is never held in memory. Archives larger than the configured threshold are written to a temporary file, which is deleted on close (or, failing that, once the
+ * DriverFiles are no longer referenced).
+ * <p>
+ * Entries are only read when they're asked for. For archives held in a file, the central directory is read on the first lookup, so individual entries can then be read without
+ * scanning through the rest of the archive.
+ */
+@JsonDeserialize(using = DriverFilesDeserializer.class)
+@JsonSerialize(using = DriverFilesSerializer.class)
+public class DriverFiles implements Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(DriverFiles.class);
+    private static final Cleaner cleaner = Cleaner.create();
+
+    // Exactly one of contents and file is set
+    private final byte[] contents;
+    private final Path file;
+    private final long size;
+    private final String digest;
+    private final Cleaner.Cleanable cleanable;
+    // Lower-cased entry name to entry, only read for archives held in a file
+    private Map<String, ZipEntry> entries;
+    private ZipFile zipFile;
+
+    DriverFiles(byte[] contents, String digest) {
+        this.contents = contents;
+        this.file = null;
+        this.size = contents.length;
+        this.digest = digest;
+        this.cleanable = null;
+    }
+
+    DriverFiles(Path file, long size, String digest) {
+        this.contents = null;
+        this.file = file;
+        this.size = size;
+        this.digest = digest;
+        this.cleanable = cleaner.register(this, new TemporaryFileCleaner(file));
+    }
+
+    /**
+     * Decodes driver files which are already held in memory as a Base64 encoded string
+     */
+    public static DriverFiles fromBase64(String driverFiles) {
+        final byte[] contents = Base64.getDecoder().decode(driverFiles);
+        return new DriverFiles(contents, Hashing.sha256().hashBytes(contents).toString());
+    }
+
+    /**
+     * @return size of the (decoded) zip file, in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return SHA-256 digest of the (decoded) zip file, which identifies the contents of the driver files
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a stream of the (decoded) zip file
+     */
+    public InputStream getInputStream() throws IOException {
+        return contents != null ? new ByteArrayInputStream(contents) : Files.newInputStream(file);
+    }
+
+    /**
+     * Reads a single file from the archive. Names are matched case-insensitively, the first entry wins if two names only differ by case.
+     *
+     * @param filename name (including path) of the file to read
+     * @return contents of the file, or null if the archive doesn't contain it
+     * @throws IOException if the archive cannot be read
+     */
+    public byte[] getFile(String filename) throws IOException {
+        if (isEmpty()) {
+            return null;
+        }
+        if (contents != null) {
+            // Small enough to be held in memory, so scan through it rather than building an index
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(contents))) {
+                ZipEntry entry = zis.getNextEntry();
+                while (entry != null) {
+                    logger.trace("Found zip entry: {}", entry);
+                    if (!entry.isDirectory() && filename.equalsIgnoreCase(entry.getName())) {
+                        return IOUtils.toByteArray(zis);
+                    }
+                    entry = zis.getNextEntry();
+                }
+            }
+            return null;
+        }
+
+        final ZipEntry entry = getEntries().get(filename.toLowerCase(Locale.ROOT));
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    private synchronized Map<String, ZipEntry> getEntries() throws IOException {
+        if (entries == null) {
+            zipFile = new ZipFile(file.toFile());
+            final Map<String, ZipEntry> entries = new HashMap<>();
+            final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                final ZipEntry zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory()) {
+                    entries.putIfAbsent(zipEntry.getName().toLowerCase(Locale.ROOT), zipEntry);
+                }
+            }
+            this.entries = entries;
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (zipFile != null) {
+                zipFile.close();
+            }
+        } finally {
+            if (cleanable != null) {
+                cleanable.clean();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DriverFiles{" +
+                "size=" + size +
+                ", digest='" + digest + '\'' +
+                '}';
+    }
+
+    /**
+     * Deletes the temporary file, must not reference the DriverFiles so that they can become phantom reachable
+     */
+    private static class TemporaryFileCleaner implements Runnable {
+
+        private final Path file;
+
+        private TemporaryFileCleaner(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn(String.format("Unable to delete temporary driver files [%s]", file), e);
+            }
+        }
+    }
+
+}
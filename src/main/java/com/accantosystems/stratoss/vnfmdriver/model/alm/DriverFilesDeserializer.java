@@ -0,0 +1,124 @@
+package com.accantosystems.stratoss.vnfmdriver.model.alm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Decodes the Base64 encoded driverFiles as they are read from the request, rather than reading them into a String first. Once more than the memory threshold has been decoded,
+ * the rest is written to a temporary file.
+ * <p>
+ * Created through Spring when used by the application's ObjectMapper (so the threshold can be configured), otherwise the default threshold is used.
+ */
+public class DriverFilesDeserializer extends StdDeserializer<DriverFiles> {
+
+    private static final long serialVersionUID = 1L;
+    private final static Logger logger = LoggerFactory.getLogger(DriverFilesDeserializer.class);
+
+    private final long memoryThreshold;
+
+    public DriverFilesDeserializer() {
+        this(new VNFMDriverProperties());
+    }
+
+    @Autowired
+    public DriverFilesDeserializer(VNFMDriverProperties properties) {
+        super(DriverFiles.class);
+        this.memoryThreshold = properties.getMessageConversion().getDriverFilesMemoryThreshold().toBytes();
+    }
+
+    @Override
+    public DriverFiles deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        if (jp.currentToken() != JsonToken.VALUE_STRING) {
+            return (DriverFiles) ctxt.handleUnexpectedToken(DriverFiles.class, jp);
+        }
+
+        final Base64Variant base64Variant = ctxt.getBase64Variant().withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+        try (SpillingOutputStream outputStream = new SpillingOutputStream(memoryThreshold)) {
+            jp.readBinaryValue(base64Variant, outputStream);
+            return outputStream.toDriverFiles();
+        }
+    }
+
+    /**
+     * Holds what's written in memory until the threshold is reached, then moves it to a temporary file. Calculates the digest of the contents as they're written.
+     */
+    private static class SpillingOutputStream extends OutputStream {
+
+        private final long memoryThreshold;
+        private final Hasher hasher = Hashing.sha256().newHasher();
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private Path file;
+        private OutputStream fileOutputStream;
+        private long size;
+        private boolean complete;
+
+        private SpillingOutputStream(long memoryThreshold) {
+            this.memoryThreshold = memoryThreshold;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            hasher.putBytes(bytes, offset, length);
+            size += length;
+            if (fileOutputStream == null && size > memoryThreshold) {
+                file = Files.createTempFile("driverfiles", ".zip");
+                logger.debug("Writing driver files to temporary file [{}]", file);
+                fileOutputStream = new BufferedOutputStream(Files.newOutputStream(file));
+                buffer.writeTo(fileOutputStream);
+                buffer = null;
+            }
+            if (fileOutputStream != null) {
+                fileOutputStream.write(bytes, offset, length);
+            } else {
+                buffer.write(bytes, offset, length);
+            }
+        }
+
+        private DriverFiles toDriverFiles() throws IOException {
+            final String digest = hasher.hash().toString();
+            final DriverFiles driverFiles;
+            if (fileOutputStream != null) {
+                fileOutputStream.close();
+                driverFiles = new DriverFiles(file, size, digest);
+            } else {
+                driverFiles = new DriverFiles(buffer.toByteArray(), digest);
+            }
+            complete = true;
+            return driverFiles;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutputStream != null) {
+                fileOutputStream.close();
+                if (!complete) {
+                    // The value couldn't be read, so nothing else will delete the file
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.accantosystems.stratoss.vnfmdriver.model.alm;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes driverFiles as a Base64 encoded string, encoding them as they're read from memory or the temporary file
+ */
+public class DriverFilesSerializer extends StdSerializer<DriverFiles> {
+
+    private static final long serialVersionUID = 1L;
+
+    public DriverFilesSerializer() {
+        super(DriverFiles.class);
+    }
+
+    @Override
+    public void serialize(DriverFiles driverFiles, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+        try (InputStream inputStream = driverFiles.getInputStream()) {
+            jgen.writeBinary(provider.getConfig().getBase64Variant(), inputStream, (int) driverFiles.getSize());
+        }
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, DriverFiles driverFiles) {
+        return driverFiles.isEmpty();
+    }
+
+}
@@ -19,7 +19,7 @@ public class ExecutionRequest {
     @ApiModelProperty(value = "Lifecycle Name")
     private String lifecycleName;
     @ApiModelProperty(value = "Driver files")
-    private String driverFiles;
+    private DriverFiles driverFiles;
     @ApiModelProperty(value = "System Properties")
     private Map<String, ExecutionRequestPropertyValue> systemProperties = new HashMap<>();
     @ApiModelProperty(value = "Resource Properties")
@@ -33,7 +33,7 @@ public class ExecutionRequest {
 
     public ExecutionRequest() {}
 
-    public ExecutionRequest(String lifecycleName, String driverFiles, Map<String, ExecutionRequestPropertyValue> systemProperties,
+    public ExecutionRequest(String lifecycleName, DriverFiles driverFiles, Map<String, ExecutionRequestPropertyValue> systemProperties,
                             Map<String, ExecutionRequestPropertyValue> resourceProperties, Map<String, ExecutionRequestPropertyValue> requestProperties, ResourceManagerDeploymentLocation deploymentLocation,
                             Map<String, InternalResourceInstance> associatedTopology) {
         this.lifecycleName = lifecycleName;
@@ -53,11 +53,11 @@ public class ExecutionRequest {
         this.lifecycleName = lifecycleName;
     }
 
-    public String getDriverFiles() {
+    public DriverFiles getDriverFiles() {
         return driverFiles;
     }
 
-    public void setDriverFiles(String driverFiles) {
+    public void setDriverFiles(DriverFiles driverFiles) {
         this.driverFiles = driverFiles;
     }
 
@@ -135,7 +135,7 @@ public class ExecutionRequest {
     public String toString() {
         return "ExecutionRequest{" +
                 "lifecycleName='" + lifecycleName + '\'' +
-                ", driverFiles='" + driverFiles + '\'' +
+                ", driverFiles=" + driverFiles +
                 ", systemProperties=" + LogSafeProperties.getLogSafeProperties(systemProperties) +
                 ", resourceProperties=" + LogSafeProperties.getLogSafeProperties(resourceProperties) +
                 ", requestProperties=" + LogSafeProperties.getLogSafeProperties(requestProperties) +
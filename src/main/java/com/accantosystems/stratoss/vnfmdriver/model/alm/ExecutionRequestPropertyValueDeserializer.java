@@ -1,15 +1,27 @@
 package com.accantosystems.stratoss.vnfmdriver.model.alm;
 
 import java.io.IOException;
-import java.util.*;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
+/**
+ * Reads property values straight from the token stream, creating a KeyExecutionRequestPropertyValue or GenericExecutionRequestPropertyValue depending on the type. The type is
+ * normally the first field (as written by ExecutionRequestPropertyValue), any fields which come before it are buffered until it's found.
+ */
 public class ExecutionRequestPropertyValueDeserializer extends StdDeserializer<ExecutionRequestPropertyValue> {
 
-    private static final long serialVersionUID = 2L;
+    private static final long serialVersionUID = 3L;
+
+    private static final String TYPE_FIELD = "type";
+    private static final String VALUE_FIELD = "value";
+    private static final String KEY_NAME_FIELD = "keyName";
+    private static final String PRIVATE_KEY_FIELD = "privateKey";
+    private static final String PUBLIC_KEY_FIELD = "publicKey";
 
     public ExecutionRequestPropertyValueDeserializer() {
         super(ExecutionRequestPropertyValue.class);
@@ -17,21 +29,96 @@ public class ExecutionRequestPropertyValueDeserializer extends StdDeserializer<E
 
     @Override
     public ExecutionRequestPropertyValue deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-        if (mapper == null) {
-            mapper = new ObjectMapper();
+        JsonToken token = jp.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
+        }
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (ExecutionRequestPropertyValue) ctxt.handleUnexpectedToken(ExecutionRequestPropertyValue.class, jp);
+        }
+
+        TokenBuffer buffer = null;
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            final String fieldName = jp.getCurrentName();
+            jp.nextToken();
+            if (TYPE_FIELD.equals(fieldName)) {
+                final String type = readString(jp, ctxt);
+                if (buffer != null) {
+                    // Read the buffered fields first, then carry on from the field after the type
+                    jp.clearCurrentToken();
+                    jp = JsonParserSequence.createFlattened(false, buffer.asParser(jp), jp);
+                }
+                jp.nextToken();
+                return readProperties(jp, ctxt, type, true);
+            }
+            if (buffer == null) {
+                buffer = new TokenBuffer(jp, ctxt);
+            }
+            buffer.writeFieldName(fieldName);
+            buffer.copyCurrentStructure(jp);
         }
 
-        JsonNode root = mapper.readTree(jp);
-        String type = getFieldValueAsString(root, "type");
-        if (Objects.equals(type, PropertyType.KEY.getValue())) {
-            return mapper.treeToValue(root, KeyExecutionRequestPropertyValue.class);
-        } else {
-            return mapper.treeToValue(root, GenericExecutionRequestPropertyValue.class);
+        // No type given
+        if (buffer != null) {
+            jp = buffer.asParser(jp);
+            jp.nextToken();
         }
+        return readProperties(jp, ctxt, null, false);
     }
 
-    private String getFieldValueAsString(JsonNode node, String fieldName) {
-        return node.has(fieldName) ? node.get(fieldName).asText() : null;
+    /**
+     * Reads the remaining fields of the property value, from a parser positioned at the first of them
+     */
+    private ExecutionRequestPropertyValue readProperties(JsonParser jp, DeserializationContext ctxt, String type, boolean typeGiven) throws IOException {
+        if (PropertyType.KEY.getValue().equals(type)) {
+            String keyName = null;
+            String privateKey = null;
+            String publicKey = null;
+            for (JsonToken token = jp.currentToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+                final String fieldName = jp.getCurrentName();
+                jp.nextToken();
+                switch (fieldName) {
+                    case KEY_NAME_FIELD:
+                        keyName = readString(jp, ctxt);
+                        break;
+                    case PRIVATE_KEY_FIELD:
+                        privateKey = readString(jp, ctxt);
+                        break;
+                    case PUBLIC_KEY_FIELD:
+                        publicKey = readString(jp, ctxt);
+                        break;
+                    default:
+                        jp.skipChildren();
+                        break;
+                }
+            }
+            return new KeyExecutionRequestPropertyValue(keyName, privateKey, publicKey);
+        }
+
+        final GenericExecutionRequestPropertyValue propertyValue = new GenericExecutionRequestPropertyValue();
+        if (typeGiven) {
+            propertyValue.setType(type);
+        }
+        for (JsonToken token = jp.currentToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            final String fieldName = jp.getCurrentName();
+            jp.nextToken();
+            switch (fieldName) {
+                case VALUE_FIELD:
+                    propertyValue.setValue(ctxt.readValue(jp, Object.class));
+                    break;
+                case TYPE_FIELD:
+                    propertyValue.setType(readString(jp, ctxt));
+                    break;
+                default:
+                    jp.skipChildren();
+                    break;
+            }
+        }
+        return propertyValue;
     }
+
+    private String readString(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        return jp.currentToken() == JsonToken.VALUE_NULL ? null : _parseString(jp, ctxt);
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.accantosystems.stratoss.vnfmdriver.model.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * A page of the results of a query, along with the opaque marker identifying the next page (null if this is the last page)
+ */
+@Data
+public class PagedResults<T> {
+
+    private final List<T> items = new ArrayList<>();
+    private String nextPageOpaqueMarker;
+
+}
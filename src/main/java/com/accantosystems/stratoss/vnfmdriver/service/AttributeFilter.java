@@ -0,0 +1,272 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import org.springframework.util.StringUtils;
+
+import com.accantosystems.stratoss.vnfmdriver.web.etsi.BadRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Attribute-based filter, as defined in ETSI GS NFV-SOL 013 clause 5.2, e.g. <code>(eq,vnfProvider,Acme);(in,softwareImages/imagePath,'Files/Images/a','Files/Images/b')</code>.
+ * <p>
+ * The filter is parsed once into a list of predicates, each of which walks the JSON representation of a record along the attribute path without copying it. Where the path
+ * passes through an array, the positive operators (eq, in, cont, gt, ...) match if any element matches, and the negative operators (neq, nin, ncont) match if no element does.
+ * All expressions must match for a record to match the filter.
+ */
+public class AttributeFilter implements Predicate<JsonNode> {
+
+    private static final AttributeFilter MATCH_ALL = new AttributeFilter(Collections.emptyList());
+
+    private final List<Expression> expressions;
+
+    private AttributeFilter(List<Expression> expressions) {
+        this.expressions = expressions;
+    }
+
+    /**
+     * @param filter value of the filter query parameter, may be null or empty
+     * @return the compiled filter
+     * @throws BadRequestException if the filter is not valid
+     */
+    public static AttributeFilter parse(String filter) {
+        if (!StringUtils.hasText(filter)) {
+            return MATCH_ALL;
+        }
+        return new AttributeFilter(new Parser(filter).parse());
+    }
+
+    @Override
+    public boolean test(JsonNode record) {
+        for (Expression expression : expressions) {
+            if (!expression.test(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value a top-level attribute must be equal to for a record to match this filter, or null if it isn't constrained to a single value
+     */
+    public String getRequiredValue(String attributeName) {
+        for (Expression expression : expressions) {
+            if (expression.path.length == 1 && expression.path[0].equals(attributeName) && expression.values.size() == 1
+                    && (expression.operator == Operator.EQ || expression.operator == Operator.IN)) {
+                return expression.values.get(0);
+            }
+        }
+        return null;
+    }
+
+    enum Operator {
+        EQ(false), NEQ(true), IN(false), NIN(true), GT(false), GTE(false), LT(false), LTE(false), CONT(false), NCONT(true);
+
+        private final boolean negated;
+
+        Operator(boolean negated) {
+            this.negated = negated;
+        }
+
+        boolean isMultiValued() {
+            return this == IN || this == NIN || this == CONT || this == NCONT;
+        }
+
+        boolean matches(JsonNode value, List<String> operands) {
+            if (!value.isValueNode()) {
+                // Structured attributes can't be compared with a value
+                return false;
+            }
+            switch (this) {
+            case EQ:
+            case NEQ:
+            case IN:
+            case NIN:
+                for (String operand : operands) {
+                    if (compare(value, operand) == 0) {
+                        return true;
+                    }
+                }
+                return false;
+            case CONT:
+            case NCONT:
+                for (String operand : operands) {
+                    if (value.asText().contains(operand)) {
+                        return true;
+                    }
+                }
+                return false;
+            case GT:
+                return compare(value, operands.get(0)) > 0;
+            case GTE:
+                return compare(value, operands.get(0)) >= 0;
+            case LT:
+                return compare(value, operands.get(0)) < 0;
+            case LTE:
+                return compare(value, operands.get(0)) <= 0;
+            default:
+                throw new IllegalStateException(String.format("Unsupported operator [%s]", this));
+            }
+        }
+
+        /**
+         * Compares numbers numerically and anything else (including dates, which are in ISO 8601 format) as text
+         */
+        private static int compare(JsonNode value, String operand) {
+            if (value.isNumber()) {
+                try {
+                    return value.decimalValue().compareTo(new BigDecimal(operand));
+                } catch (NumberFormatException e) {
+                    // fall through to comparing as text
+                }
+            }
+            return Integer.signum(value.asText().compareTo(operand));
+        }
+    }
+
+    private static class Expression implements Predicate<JsonNode> {
+
+        private final Operator operator;
+        private final String[] path;
+        private final List<String> values;
+
+        private Expression(Operator operator, String[] path, List<String> values) {
+            this.operator = operator;
+            this.path = path;
+            this.values = values;
+        }
+
+        @Override
+        public boolean test(JsonNode record) {
+            return anyMatch(record, 0) != operator.negated;
+        }
+
+        private boolean anyMatch(JsonNode node, int depth) {
+            if (node == null || node.isMissingNode() || node.isNull()) {
+                return false;
+            }
+            if (node.isArray()) {
+                for (JsonNode element : node) {
+                    if (anyMatch(element, depth)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (depth == path.length) {
+                return operator.matches(node, values);
+            }
+            return anyMatch(node.get(path[depth]), depth + 1);
+        }
+    }
+
+    private static class Parser {
+
+        private final String filter;
+        private int position;
+
+        private Parser(String filter) {
+            this.filter = filter;
+        }
+
+        private List<Expression> parse() {
+            final List<Expression> expressions = new ArrayList<>();
+            do {
+                expressions.add(parseExpression());
+            } while (consume(';'));
+            if (position < filter.length()) {
+                throw invalid("unexpected character at position " + position);
+            }
+            return expressions;
+        }
+
+        private Expression parseExpression() {
+            expect('(');
+            final String operatorName = parseToken();
+            final Operator operator;
+            try {
+                operator = Operator.valueOf(operatorName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw invalid(String.format("unsupported operator [%s]", operatorName));
+            }
+
+            expect(',');
+            final String attributeName = parseToken();
+            final String[] path = StringUtils.delimitedListToStringArray(attributeName, "/");
+            for (String element : path) {
+                if (element.isEmpty()) {
+                    throw invalid(String.format("invalid attribute name [%s]", attributeName));
+                }
+            }
+
+            final List<String> values = new ArrayList<>();
+            while (consume(',')) {
+                values.add(parseValue());
+            }
+            expect(')');
+
+            if (values.isEmpty() || (values.size() > 1 && !operator.isMultiValued())) {
+                throw invalid(String.format("operator [%s] on attribute [%s] requires %s value", operatorName, attributeName, operator.isMultiValued() ? "at least one" : "a single"));
+            }
+            return new Expression(operator, path, values);
+        }
+
+        private String parseToken() {
+            final int start = position;
+            while (position < filter.length() && ",;()'".indexOf(filter.charAt(position)) < 0) {
+                position++;
+            }
+            if (position == start) {
+                throw invalid("expected a value at position " + position);
+            }
+            return filter.substring(start, position);
+        }
+
+        /**
+         * Values containing a comma, single quote or closing bracket are enclosed in single quotes, with single quotes within them repeated
+         */
+        private String parseValue() {
+            if (!consume('\'')) {
+                return parseToken();
+            }
+            final StringBuilder value = new StringBuilder();
+            while (true) {
+                final int end = filter.indexOf('\'', position);
+                if (end < 0) {
+                    throw invalid("unterminated quoted value");
+                }
+                value.append(filter, position, end);
+                position = end + 1;
+                if (consume('\'')) {
+                    value.append('\'');
+                } else {
+                    return value.toString();
+                }
+            }
+        }
+
+        private boolean consume(char c) {
+            if (position < filter.length() && filter.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw invalid(String.format("expected '%s' at position %s", c, position));
+            }
+        }
+
+        private BadRequestException invalid(String reason) {
+            return new BadRequestException(String.format("Invalid filter [%s]: %s", filter, reason));
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.util.StringUtils;
+
+import com.accantosystems.stratoss.vnfmdriver.web.etsi.BadRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Attribute selector, as defined in ETSI GS NFV-SOL 013 clause 5.3, which removes attributes from the JSON representation of each record returned by a query according to the
+ * all_fields, fields, exclude_fields and exclude_default query parameters. Attribute names are paths, e.g. <code>softwareImages/imagePath</code>.
+ */
+public class AttributeSelector {
+
+    private static final AttributeSelector ALL_FIELDS = new AttributeSelector(new ArrayList<>(), new ArrayList<>());
+
+    // Attributes removed from each record
+    private final List<String[]> excludedPaths;
+    // Attributes removed from each record, except for the given parts of them
+    private final List<DefaultExclusion> defaultExclusions;
+
+    private AttributeSelector(List<String[]> excludedPaths, List<DefaultExclusion> defaultExclusions) {
+        this.excludedPaths = excludedPaths;
+        this.defaultExclusions = defaultExclusions;
+    }
+
+    /**
+     * Creates a selector from the query parameters. If none of the parameters are given, all attributes are returned.
+     *
+     * @param allFields                 value of the all_fields parameter, null if not present
+     * @param fields                    value of the fields parameter, null if not present
+     * @param excludeFields             value of the exclude_fields parameter, null if not present
+     * @param excludeDefault            value of the exclude_default parameter, null if not present
+     * @param defaultExcludedAttributes attributes excluded by exclude_default (or by fields, unless named in it)
+     * @throws BadRequestException if an invalid combination of parameters is given
+     */
+    public static AttributeSelector of(String allFields, String fields, String excludeFields, String excludeDefault, Collection<String> defaultExcludedAttributes) {
+        if (allFields != null) {
+            if (fields != null || excludeFields != null || excludeDefault != null) {
+                throw new BadRequestException("The all_fields parameter cannot be combined with fields, exclude_fields or exclude_default");
+            }
+            return ALL_FIELDS;
+        }
+        if (excludeFields != null) {
+            if (fields != null || excludeDefault != null) {
+                throw new BadRequestException("The exclude_fields parameter cannot be combined with fields or exclude_default");
+            }
+            return new AttributeSelector(parsePaths("exclude_fields", excludeFields), new ArrayList<>());
+        }
+        if (fields == null && excludeDefault == null) {
+            return ALL_FIELDS;
+        }
+
+        final List<String[]> includedPaths = fields != null ? parsePaths("fields", fields) : new ArrayList<>();
+        final List<DefaultExclusion> defaultExclusions = new ArrayList<>();
+        for (String attributeName : defaultExcludedAttributes) {
+            final DefaultExclusion defaultExclusion = new DefaultExclusion(attributeName);
+            for (String[] includedPath : includedPaths) {
+                if (includedPath[0].equals(attributeName)) {
+                    defaultExclusion.includedPaths.add(includedPath);
+                }
+            }
+            defaultExclusions.add(defaultExclusion);
+        }
+        return new AttributeSelector(new ArrayList<>(), defaultExclusions);
+    }
+
+    /**
+     * Removes the unselected attributes from the record
+     *
+     * @return the record
+     */
+    public ObjectNode apply(ObjectNode record) {
+        for (String[] excludedPath : excludedPaths) {
+            remove(record, excludedPath, 0);
+        }
+        for (DefaultExclusion defaultExclusion : defaultExclusions) {
+            if (defaultExclusion.includedPaths.isEmpty()) {
+                record.remove(defaultExclusion.attributeName);
+            } else if (defaultExclusion.includedPaths.stream().noneMatch(path -> path.length == 1)) {
+                retain(record.get(defaultExclusion.attributeName), defaultExclusion.includedPaths, 1);
+            }
+        }
+        return record;
+    }
+
+    private static void remove(JsonNode node, String[] path, int depth) {
+        if (node == null) {
+            return;
+        }
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                remove(element, path, depth);
+            }
+        } else if (node.isObject()) {
+            if (depth == path.length - 1) {
+                ((ObjectNode) node).remove(path[depth]);
+            } else {
+                remove(node.get(path[depth]), path, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Removes everything from the node apart from the given paths (from the given depth onwards)
+     */
+    private static void retain(JsonNode node, List<String[]> paths, int depth) {
+        if (node == null) {
+            return;
+        }
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                retain(element, paths, depth);
+            }
+        } else if (node.isObject()) {
+            final Iterator<String> fieldNames = node.fieldNames();
+            final List<String> removedFieldNames = new ArrayList<>();
+            while (fieldNames.hasNext()) {
+                final String fieldName = fieldNames.next();
+                final List<String[]> childPaths = new ArrayList<>();
+                boolean wholeField = false;
+                for (String[] path : paths) {
+                    if (path[depth].equals(fieldName)) {
+                        childPaths.add(path);
+                        wholeField |= path.length == depth + 1;
+                    }
+                }
+                if (childPaths.isEmpty()) {
+                    removedFieldNames.add(fieldName);
+                } else if (!wholeField) {
+                    retain(node.get(fieldName), childPaths, depth + 1);
+                }
+            }
+            ((ObjectNode) node).remove(removedFieldNames);
+        }
+    }
+
+    private static List<String[]> parsePaths(String parameterName, String attributeNames) {
+        final List<String[]> paths = new ArrayList<>();
+        for (String attributeName : StringUtils.commaDelimitedListToStringArray(attributeNames)) {
+            final String[] path = StringUtils.delimitedListToStringArray(attributeName.trim(), "/");
+            for (String element : path) {
+                if (element.isEmpty()) {
+                    throw new BadRequestException(String.format("Invalid attribute name [%s] in %s parameter", attributeName, parameterName));
+                }
+            }
+            paths.add(path);
+        }
+        if (paths.isEmpty()) {
+            throw new BadRequestException(String.format("The %s parameter must name at least one attribute", parameterName));
+        }
+        return paths;
+    }
+
+    private static class DefaultExclusion {
+        private final String attributeName;
+        private final List<String[]> includedPaths = new ArrayList<>();
+
+        private DefaultExclusion(String attributeName) {
+            this.attributeName = attributeName;
+        }
+    }
+
+}
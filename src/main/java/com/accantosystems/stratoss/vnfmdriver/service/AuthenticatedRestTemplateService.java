@@ -2,17 +2,25 @@ package com.accantosystems.stratoss.vnfmdriver.service;
 
 import static com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverConstants.*;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsAccessTokenProvider;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -26,57 +34,105 @@ import com.accantosystems.stratoss.vnfmdriver.security.CookieAuthenticatedRestTe
 import com.accantosystems.stratoss.vnfmdriver.security.CookieCredentials;
 import com.accantosystems.stratoss.vnfmdriver.utils.DynamicSslCertificateHttpRequestFactory;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service("AuthenticatedRestTemplateService")
 public class AuthenticatedRestTemplateService {
 
     private final static Logger logger = LoggerFactory.getLogger(AuthenticatedRestTemplateService.class);
 
     private final RestTemplateBuilder restTemplateBuilder;
-    private final Map<ResourceManagerDeploymentLocation, RestTemplate> cachedRestTemplatesByDLs = new ConcurrentHashMap<>();
+    private final VNFMDriverProperties.RestConnectionPool restConnectionPoolProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CachedRestTemplate> cachedRestTemplatesByDLs = new ConcurrentHashMap<>();
     private final Map<String, RestTemplate> cachedRestTemplatesByServerUrl = new ConcurrentHashMap<>();
+    private final Map<RestTemplate, DynamicSslCertificateHttpRequestFactory> requestFactories = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService retiredPoolScheduler;
 
     @Autowired
-    public AuthenticatedRestTemplateService(RestTemplateBuilder restTemplateBuilder, VNFMResponseErrorHandler vnfmResponseErrorHandler, VNFMDriverProperties vnfmDriverProperties) {
+    public AuthenticatedRestTemplateService(RestTemplateBuilder restTemplateBuilder, VNFMResponseErrorHandler vnfmResponseErrorHandler, VNFMDriverProperties vnfmDriverProperties,
+                                            MeterRegistry meterRegistry) {
         logger.info("Initialising RestTemplate configuration");
         this.restTemplateBuilder = restTemplateBuilder.errorHandler(vnfmResponseErrorHandler)
-                .requestFactory(DynamicSslCertificateHttpRequestFactory.class)
                 .setConnectTimeout(vnfmDriverProperties.getRestConnectTimeout())
                 .setReadTimeout(vnfmDriverProperties.getRestReadTimeout());
+        this.restConnectionPoolProperties = vnfmDriverProperties.getRestConnectionPool();
+        this.meterRegistry = meterRegistry;
+
+        final CustomizableThreadFactory retiredPoolThreadFactory = new CustomizableThreadFactory("retiredConnectionPool");
+        retiredPoolThreadFactory.setDaemon(true);
+        this.retiredPoolScheduler = Executors.newSingleThreadScheduledExecutor(retiredPoolThreadFactory);
     }
 
     public RestTemplate getRestTemplate(ResourceManagerDeploymentLocation deploymentLocation) {
-        if (cachedRestTemplatesByDLs.containsKey(deploymentLocation)) {
-            return cachedRestTemplatesByDLs.get(deploymentLocation);
+        // Deployment locations are deserialized afresh for every request, so are matched on name and properties rather than identity
+        final CachedRestTemplate cachedRestTemplate = cachedRestTemplatesByDLs.get(deploymentLocation.getName());
+        if (cachedRestTemplate != null && cachedRestTemplate.properties.equals(deploymentLocation.getProperties())) {
+            return cachedRestTemplate.restTemplate;
         }
 
-        // Double-check we haven't got a cached entry of the same "name", but different properties. If so, remove it.
-        cachedRestTemplatesByDLs.keySet()
-                                .stream()
-                                .filter(dl -> Objects.equals(dl.getName(), deploymentLocation.getName()))
-                                .findFirst()
-                                .ifPresent(cachedRestTemplatesByDLs::remove);
+        // Creation is synchronized so that concurrent requests for a new deployment location share a single connection pool
+        synchronized (this) {
+            final CachedRestTemplate existingRestTemplate = cachedRestTemplatesByDLs.get(deploymentLocation.getName());
+            if (existingRestTemplate != null) {
+                if (existingRestTemplate.properties.equals(deploymentLocation.getProperties())) {
+                    return existingRestTemplate.restTemplate;
+                }
+                // We have a cached entry of the same "name", but different properties. If so, remove it (its connection pool is closed once no longer in use).
+                cachedRestTemplatesByDLs.remove(deploymentLocation.getName());
+                retireRestTemplate(existingRestTemplate.restTemplate);
+            }
 
-        // Check there's a URL defined
-        Map<String,String> authenticationProperties = deploymentLocation.getProperties().entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> (String)e.getValue()));
-        checkProperty(authenticationProperties, VNFM_SERVER_URL);
+            // Check there's a URL defined
+            Map<String,String> authenticationProperties = deploymentLocation.getProperties().entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> (String)e.getValue()));
+            checkProperty(authenticationProperties, VNFM_SERVER_URL);
 
-        final RestTemplate restTemplate = getRestTemplate(authenticationProperties);
-        cachedRestTemplatesByDLs.put(deploymentLocation, restTemplate);
-        return restTemplate;
+            final RestTemplate restTemplate = getRestTemplate(authenticationProperties, deploymentLocation.getName());
+            cachedRestTemplatesByDLs.put(deploymentLocation.getName(), new CachedRestTemplate(new HashMap<>(deploymentLocation.getProperties()), restTemplate));
+            return restTemplate;
+        }
     }
 
     public RestTemplate getRestTemplate(String serverUrl, Map<String, String> authenticationProperties) {
-        if (cachedRestTemplatesByServerUrl.containsKey(serverUrl)) {
-            return cachedRestTemplatesByServerUrl.get(serverUrl);
+        final RestTemplate cachedRestTemplate = cachedRestTemplatesByServerUrl.get(serverUrl);
+        if (cachedRestTemplate != null) {
+            return cachedRestTemplate;
         }
 
-        final RestTemplate restTemplate = getRestTemplate(authenticationProperties);
-        cachedRestTemplatesByServerUrl.put(serverUrl, restTemplate);
-        return restTemplate;
+        synchronized (this) {
+            if (cachedRestTemplatesByServerUrl.containsKey(serverUrl)) {
+                return cachedRestTemplatesByServerUrl.get(serverUrl);
+            }
+
+            final RestTemplate restTemplate = getRestTemplate(authenticationProperties, serverUrl);
+            cachedRestTemplatesByServerUrl.put(serverUrl, restTemplate);
+            return restTemplate;
+        }
     }
 
-    private RestTemplate getRestTemplate(Map<String, String> authenticationProperties) {
+    @PreDestroy
+    public void closeConnectionPools() {
+        retiredPoolScheduler.shutdownNow();
+        cachedRestTemplatesByDLs.clear();
+        cachedRestTemplatesByServerUrl.clear();
+        requestFactories.keySet().forEach(this::closeRestTemplate);
+    }
+
+    private RestTemplate getRestTemplate(Map<String, String> authenticationProperties, String poolName) {
+        final DynamicSslCertificateHttpRequestFactory requestFactory = new DynamicSslCertificateHttpRequestFactory(restConnectionPoolProperties, meterRegistry, poolName);
+        final RestTemplateBuilder restTemplateBuilder = this.restTemplateBuilder.requestFactory(() -> requestFactory);
+        try {
+            final RestTemplate restTemplate = getRestTemplate(restTemplateBuilder, requestFactory, authenticationProperties);
+            requestFactories.put(restTemplate, requestFactory);
+            return restTemplate;
+        } catch (RuntimeException e) {
+            closeRequestFactory(requestFactory);
+            throw e;
+        }
+    }
+
+    private RestTemplate getRestTemplate(RestTemplateBuilder restTemplateBuilder, DynamicSslCertificateHttpRequestFactory requestFactory, Map<String, String> authenticationProperties) {
         final String authenticationTypeString = authenticationProperties.getOrDefault(AUTHENTICATION_TYPE, AuthenticationType.NONE.toString());
         final AuthenticationType authenticationType = AuthenticationType.valueOfIgnoreCase(authenticationTypeString);
         if (authenticationType == null) {
@@ -88,22 +144,22 @@ public class AuthenticatedRestTemplateService {
         case BASIC:
             checkProperty(authenticationProperties, AUTHENTICATION_USERNAME);
             checkProperty(authenticationProperties, AUTHENTICATION_PASSWORD);
-            restTemplate = getBasicAuthenticatedRestTemplate(authenticationProperties);
+            restTemplate = getBasicAuthenticatedRestTemplate(restTemplateBuilder, authenticationProperties);
             break;
         case OAUTH2:
             checkProperty(authenticationProperties, AUTHENTICATION_ACCESS_TOKEN_URI);
             checkProperty(authenticationProperties, AUTHENTICATION_CLIENT_ID);
             checkProperty(authenticationProperties, AUTHENTICATION_CLIENT_SECRET);
-            restTemplate = getOAuth2RestTemplate(authenticationProperties);
+            restTemplate = getOAuth2RestTemplate(restTemplateBuilder, requestFactory, authenticationProperties);
             break;
         case COOKIE:
             checkProperty(authenticationProperties, AUTHENTICATION_URL);
             checkProperty(authenticationProperties, AUTHENTICATION_USERNAME);
             checkProperty(authenticationProperties, AUTHENTICATION_PASSWORD);
-            restTemplate = getCookieAuthenticatedRestTemplate(authenticationProperties);
+            restTemplate = getCookieAuthenticatedRestTemplate(restTemplateBuilder, authenticationProperties);
             break;
         default:
-            restTemplate = getUnauthenticatedRestTemplate();
+            restTemplate = getUnauthenticatedRestTemplate(restTemplateBuilder);
         }
 
         return restTemplate;
@@ -115,19 +171,65 @@ public class AuthenticatedRestTemplateService {
         }
     }
 
-    private RestTemplate getUnauthenticatedRestTemplate() {
+    /**
+     * Requests already in progress (or about to start) may still be using a RestTemplate which has been replaced, so its connection pool is only closed once it has had no
+     * connections leased for the idle timeout of the pool
+     */
+    private void retireRestTemplate(RestTemplate restTemplate) {
+        final DynamicSslCertificateHttpRequestFactory requestFactory = requestFactories.get(restTemplate);
+        if (requestFactory != null) {
+            // the metrics are taken over by the pool replacing this one
+            requestFactory.removeMeters();
+            scheduleRetiredPoolCheck(restTemplate, requestFactory);
+        }
+    }
+
+    private void scheduleRetiredPoolCheck(RestTemplate restTemplate, DynamicSslCertificateHttpRequestFactory requestFactory) {
+        final Duration idleTimeout = restConnectionPoolProperties.getIdleTimeout();
+        try {
+            retiredPoolScheduler.schedule(() -> {
+                if (requestFactory.isIdle(idleTimeout)) {
+                    logger.debug("Closing retired connection pool");
+                    closeRestTemplate(restTemplate);
+                } else {
+                    scheduleRetiredPoolCheck(restTemplate, requestFactory);
+                }
+            }, idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, so all connection pools are being closed anyway
+            logger.debug("Unable to schedule close of retired connection pool: {}", e.getMessage());
+        }
+    }
+
+    private void closeRestTemplate(RestTemplate restTemplate) {
+        final DynamicSslCertificateHttpRequestFactory requestFactory = requestFactories.remove(restTemplate);
+        if (requestFactory != null) {
+            closeRequestFactory(requestFactory);
+        }
+    }
+
+    private void closeRequestFactory(DynamicSslCertificateHttpRequestFactory requestFactory) {
+        try {
+            requestFactory.destroy();
+        } catch (Exception e) {
+            logger.warn("Exception caught closing connection pool", e);
+        }
+    }
+
+    private RestTemplate getUnauthenticatedRestTemplate(RestTemplateBuilder restTemplateBuilder) {
         logger.info("Configuring unauthenticated RestTemplate.");
         return restTemplateBuilder.build();
     }
 
-    private RestTemplate getBasicAuthenticatedRestTemplate(final Map<String, String> authenticationProperties) {
+    private RestTemplate getBasicAuthenticatedRestTemplate(final RestTemplateBuilder restTemplateBuilder, final Map<String, String> authenticationProperties) {
         logger.info("Configuring Basic Authentication RestTemplate.");
         return restTemplateBuilder.basicAuthentication(authenticationProperties.get(AUTHENTICATION_USERNAME),
                                                        authenticationProperties.get(AUTHENTICATION_PASSWORD))
                 .build();
     }
 
-    private RestTemplate getOAuth2RestTemplate(final Map<String, String> authenticationProperties) {
+    private RestTemplate getOAuth2RestTemplate(final RestTemplateBuilder restTemplateBuilder, final DynamicSslCertificateHttpRequestFactory requestFactory,
+                                               final Map<String, String> authenticationProperties) {
         final ClientCredentialsResourceDetails resourceDetails = new ClientCredentialsResourceDetails();
         resourceDetails.setAccessTokenUri(authenticationProperties.get(AUTHENTICATION_ACCESS_TOKEN_URI));
         resourceDetails.setClientId(authenticationProperties.get(AUTHENTICATION_CLIENT_ID));
@@ -138,10 +240,15 @@ public class AuthenticatedRestTemplateService {
         }
 
         logger.info("Configuring OAuth2 authenticated RestTemplate.");
-        return restTemplateBuilder.configure(new OAuth2RestTemplate(resourceDetails));
+        final OAuth2RestTemplate restTemplate = restTemplateBuilder.configure(new OAuth2RestTemplate(resourceDetails));
+        // Token requests would otherwise use a request factory without connect or read timeouts, leaving the async request timeout unable to cover them
+        final ClientCredentialsAccessTokenProvider accessTokenProvider = new ClientCredentialsAccessTokenProvider();
+        accessTokenProvider.setRequestFactory(requestFactory);
+        restTemplate.setAccessTokenProvider(accessTokenProvider);
+        return restTemplate;
     }
 
-    private RestTemplate getCookieAuthenticatedRestTemplate(final Map<String, String> authenticationProperties) {
+    private RestTemplate getCookieAuthenticatedRestTemplate(final RestTemplateBuilder restTemplateBuilder, final Map<String, String> authenticationProperties) {
         CookieCredentials cookieCredentials = new CookieCredentials();
         cookieCredentials.setAuthenticationUrl(authenticationProperties.get(AUTHENTICATION_URL));
         cookieCredentials.setUsernameTokenName(authenticationProperties.getOrDefault(AUTHENTICATION_USERNAME_TOKEN_NAME, "IDToken1"));
@@ -153,4 +260,14 @@ public class AuthenticatedRestTemplateService {
         return restTemplateBuilder.configure(new CookieAuthenticatedRestTemplate(cookieCredentials));
     }
 
+    private static class CachedRestTemplate {
+        private final Map<String, Object> properties;
+        private final RestTemplate restTemplate;
+
+        private CachedRestTemplate(Map<String, Object> properties, RestTemplate restTemplate) {
+            this.properties = properties;
+            this.restTemplate = restTemplate;
+        }
+    }
+
 }
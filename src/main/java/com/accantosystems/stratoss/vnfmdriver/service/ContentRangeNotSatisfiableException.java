@@ -4,8 +4,22 @@ public class ContentRangeNotSatisfiableException extends Exception {
 
     private static final long serialVersionUID = 1L;
 
+    private final long contentLength;
+
     public ContentRangeNotSatisfiableException(String message) {
+        this(message, -1);
+    }
+
+    public ContentRangeNotSatisfiableException(String message, long contentLength) {
         super(message);
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * @return the length of the content the range was requested from, or -1 if not known
+     */
+    public long getContentLength() {
+        return contentLength;
     }
 
 }
@@ -0,0 +1,80 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.DriverFiles;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Provides access to the files contained within the driverFiles of an ExecutionRequest.
+ * <p>
+ * Files are read from the archive as they're asked for. The contents found (or not found) are cached, keyed by the digest of the archive and the file name, so that repeated
+ * requests for the same resource package skip reading the archive entirely. The cache is bounded by the total (uncompressed) size of the files it holds.
+ */
+@Service("DriverFilesService")
+public class DriverFilesService {
+
+    private final static Logger logger = LoggerFactory.getLogger(DriverFilesService.class);
+    private static final String DRIVER_FILES_CACHE_NAME = "vnfmdriver.driverfiles";
+
+    private final Cache<String, Optional<byte[]>> driverFilesCache;
+
+    @Autowired
+    public DriverFilesService(VNFMDriverProperties properties, MeterRegistry meterRegistry) {
+        this.driverFilesCache = CacheBuilder.newBuilder()
+                                            .maximumWeight(properties.getMessageConversion().getDriverFilesCacheSize().toBytes())
+                                            .weigher(DriverFilesService::weigh)
+                                            .recordStats()
+                                            .build();
+        GuavaCacheMetrics.monitor(meterRegistry, driverFilesCache, DRIVER_FILES_CACHE_NAME);
+    }
+
+    /**
+     * Returns the contents of a file contained within the driverFiles (matched case-insensitively), or null if the driverFiles are empty or don't contain the file.
+     *
+     * @param driverFiles zip of driver files
+     * @param filename    name (including path) of the file to retrieve
+     * @return contents of the file, or null if not found
+     */
+    public String getFile(final DriverFiles driverFiles, final String filename) {
+        if (driverFiles == null || driverFiles.isEmpty()) {
+            return null;
+        }
+
+        final String cacheKey = driverFiles.getDigest() + ":" + filename.toLowerCase(Locale.ROOT);
+        final Optional<byte[]> contents;
+        try {
+            contents = driverFilesCache.get(cacheKey, () -> Optional.ofNullable(driverFiles.getFile(filename)));
+        } catch (ExecutionException e) {
+            // Unreadable driver files are treated as empty (nothing is cached, so the next request will try again)
+            logger.error("Exception raised reading lifecycle scripts", e.getCause());
+            return null;
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+        if (contents.isEmpty()) {
+            return null;
+        }
+        logger.debug("Found file called [{}] in driver files", filename);
+        return new String(contents.get(), Charset.defaultCharset());
+    }
+
+    private static int weigh(final String key, final Optional<byte[]> contents) {
+        return key.length() + contents.map(c -> c.length).orElse(0);
+    }
+
+}
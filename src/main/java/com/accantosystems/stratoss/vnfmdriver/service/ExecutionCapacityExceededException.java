@@ -0,0 +1,14 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+/**
+ * Thrown when a lifecycle can't be accepted for now, before anything has been sent to the VNFM, so it is safe for the caller to retry later
+ */
+public class ExecutionCapacityExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExecutionCapacityExceededException(String message) {
+        super(message);
+    }
+
+}
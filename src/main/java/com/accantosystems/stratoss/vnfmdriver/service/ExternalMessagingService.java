@@ -11,6 +11,13 @@ public interface ExternalMessagingService {
 
     void sendDelayedExecutionAsyncResponse(ExecutionAsyncResponse request, Duration delay);
 
+    /**
+     * @return false if no more delayed responses should be accepted for now, in which case work that would need one should be rejected before it is started
+     */
+    default boolean canAcceptDelayedExecutionAsyncResponse() {
+        return true;
+    }
+
     void sendLcmOpOccPollingRequest(LcmOpOccPollingRequest request);
 
 }
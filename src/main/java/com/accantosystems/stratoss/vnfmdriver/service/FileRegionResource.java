@@ -0,0 +1,116 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.util.Assert;
+
+/**
+ * A contiguous region of a local file, such as a whole VNF package or an artifact stored (uncompressed) within one. Because the content is a plain byte range of a file, it can be
+ * sent to the client directly by the servlet container (see PackageManagementController) rather than being copied through the heap.
+ * <p>
+ * The region may have an owner which keeps the file available (such as a pin on a cached VNF package), released when the region is closed.
+ */
+public class FileRegionResource extends AbstractResource implements Closeable {
+
+    private final File file;
+    private final long position;
+    private final long count;
+    private final Closeable owner;
+
+    public FileRegionResource(File file, long position, long count) {
+        this(file, position, count, null);
+    }
+
+    public FileRegionResource(File file, long position, long count, Closeable owner) {
+        Assert.notNull(file, "File must not be null");
+        Assert.isTrue(position >= 0 && count >= 0, "Position and count must not be negative");
+        this.file = file;
+        this.position = position;
+        this.count = count;
+        this.owner = owner;
+    }
+
+    public File getSourceFile() {
+        return file;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return a region within this one, starting at offset (relative to the start of this region), sharing the owner of this one
+     */
+    public FileRegionResource region(long offset, long length) {
+        Assert.isTrue(offset >= 0 && length >= 0 && offset + length <= count, "Region must lie within this resource");
+        return new FileRegionResource(file, position + offset, length, owner);
+    }
+
+    /**
+     * Releases the owner of this region, if any
+     */
+    @Override
+    public void close() throws IOException {
+        if (owner != null) {
+            owner.close();
+        }
+    }
+
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+
+    @Override
+    public long contentLength() {
+        return count;
+    }
+
+    @Override
+    public long lastModified() {
+        return file.lastModified();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(position);
+            return new BoundedInputStream(Channels.newInputStream(channel), count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return String.format("file region [%s, position=%s, count=%s]", file.getAbsolutePath(), position, count);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FileRegionResource)) {
+            return false;
+        }
+        final FileRegionResource that = (FileRegionResource) other;
+        return file.equals(that.file) && position == that.position && count == that.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return file.hashCode() * 31 + Long.hashCode(position) * 17 + Long.hashCode(count);
+    }
+
+}
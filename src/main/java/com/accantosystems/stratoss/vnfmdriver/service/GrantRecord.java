@@ -0,0 +1,121 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.etsi.sol003.granting.Grant;
+import org.etsi.sol003.granting.GrantRequest;
+
+/**
+ * A grant held in the {@link GrantStore}, along with the state of the decision on it. Records are immutable, a new record replaces the old one whenever the decision is
+ * refreshed from the grant provider.
+ */
+public class GrantRecord {
+
+    private final String grantId;
+    private final String vnfInstanceId;
+    private final String vnfLcmOpOccId;
+    // null until the grant has been accepted
+    private final Grant grant;
+    // null unless the grant has been rejected
+    private final String rejectionReason;
+    private final Instant createdAt;
+    private final Instant lastRefreshedAt;
+
+    public GrantRecord(String grantId, String vnfInstanceId, String vnfLcmOpOccId, Grant grant, String rejectionReason, Instant createdAt, Instant lastRefreshedAt) {
+        this.grantId = grantId;
+        this.vnfInstanceId = vnfInstanceId;
+        this.vnfLcmOpOccId = vnfLcmOpOccId;
+        this.grant = grant;
+        this.rejectionReason = rejectionReason;
+        this.createdAt = createdAt;
+        this.lastRefreshedAt = lastRefreshedAt;
+    }
+
+    /**
+     * @return a record of a grant on which no decision is known to have been made, where the request isn't known
+     */
+    public static GrantRecord pending(String grantId) {
+        final Instant now = Instant.now();
+        return new GrantRecord(grantId, null, null, null, null, now, now);
+    }
+
+    /**
+     * @return a record of a grant request on which no decision has yet been made
+     */
+    public static GrantRecord pending(String grantId, GrantRequest grantRequest) {
+        final Instant now = Instant.now();
+        return new GrantRecord(grantId, grantRequest.getVnfInstanceId(), grantRequest.getVnfLcmOpOccId(), null, null, now, now);
+    }
+
+    /**
+     * @return a record of an accepted grant
+     */
+    public static GrantRecord granted(Grant grant) {
+        final Instant now = Instant.now();
+        return new GrantRecord(grant.getId(), grant.getVnfInstanceId(), grant.getVnfLcmOpOccId(), grant, null, now, now);
+    }
+
+    /**
+     * @return this record, updated with the accepted grant
+     */
+    public GrantRecord withGrant(Grant grant) {
+        return new GrantRecord(grantId, grant.getVnfInstanceId() != null ? grant.getVnfInstanceId() : vnfInstanceId,
+                               grant.getVnfLcmOpOccId() != null ? grant.getVnfLcmOpOccId() : vnfLcmOpOccId, grant, null, createdAt, Instant.now());
+    }
+
+    /**
+     * @return this record, updated with the reason the grant was rejected
+     */
+    public GrantRecord withRejection(String rejectionReason) {
+        return new GrantRecord(grantId, vnfInstanceId, vnfLcmOpOccId, null, rejectionReason, createdAt, Instant.now());
+    }
+
+    /**
+     * @return this record, marked as having been refreshed from the grant provider without a decision being made
+     */
+    public GrantRecord refreshed() {
+        return new GrantRecord(grantId, vnfInstanceId, vnfLcmOpOccId, grant, rejectionReason, createdAt, Instant.now());
+    }
+
+    public String getGrantId() {
+        return grantId;
+    }
+
+    public String getVnfInstanceId() {
+        return vnfInstanceId;
+    }
+
+    public String getVnfLcmOpOccId() {
+        return vnfLcmOpOccId;
+    }
+
+    public Grant getGrant() {
+        return grant;
+    }
+
+    public String getRejectionReason() {
+        return rejectionReason;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastRefreshedAt() {
+        return lastRefreshedAt;
+    }
+
+    public boolean isPending() {
+        return grant == null && rejectionReason == null;
+    }
+
+    public boolean isRejected() {
+        return rejectionReason != null;
+    }
+
+    public boolean isExpired(Duration timeToLive) {
+        return createdAt.plus(timeToLive).isBefore(Instant.now());
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+/**
+ * Durable storage for grants, so that they survive a restart of the driver (or can be shared between instances of it). The {@link GrantStore} uses the implementation registered
+ * as a bean, if there is one, behind its in-memory cache.
+ */
+public interface GrantRepository {
+
+    /**
+     * Saves the record, replacing any existing record for the same grant
+     */
+    void save(GrantRecord grantRecord);
+
+    /**
+     * @return the record for the grant, or null if there isn't one
+     */
+    GrantRecord findById(String grantId);
+
+    void delete(String grantId);
+
+}
@@ -1,7 +1,16 @@
 package com.accantosystems.stratoss.vnfmdriver.service;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 
 import org.etsi.sol003.granting.Grant;
 import org.etsi.sol003.granting.GrantRequest;
@@ -9,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
@@ -17,17 +27,39 @@ import com.accantosystems.stratoss.vnfmdriver.driver.GrantProviderException;
 import com.accantosystems.stratoss.vnfmdriver.model.GrantCreationResponse;
 import com.accantosystems.stratoss.vnfmdriver.web.etsi.BadRequestException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Handles grant requests from the VNFM, either granting them automatically or passing them on to the grant provider (NFVO).
+ * <p>
+ * Grants are held in the {@link GrantStore}, and VNFM polls for a grant are answered from it. When the grant provider doesn't make a decision immediately, the driver polls it
+ * for the decision on a scheduler, backing off between polls, and stores the decision when it arrives. Callers waiting on a decision (see {@link #awaitGrant(String)}) are
+ * notified as soon as it is stored.
+ * <p>
+ * The time taken by each call to the grant provider is recorded, by operation and outcome (granted, pending, rejected or error).
+ */
 @Service("GrantService")
 public class GrantService {
 
     private final static Logger logger = LoggerFactory.getLogger(GrantService.class);
+    private static final String GRANT_PROVIDER_TIMER_NAME = "vnfmdriver.grant.provider.requests";
 
     private final VNFMDriverProperties vnfmDriverProperties;
     private final GrantDriver grantDriver;
+    private final GrantStore grantStore;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledThreadPoolExecutor pollingScheduler;
+    // Grants for which the grant provider is being polled
+    private final Set<String> polledGrantIds = ConcurrentHashMap.newKeySet();
+    // Completed when the decision on each grant is stored
+    private final Map<String, CompletableFuture<Grant>> pendingDecisions = new ConcurrentHashMap<>();
 
     @Autowired
-    public GrantService(VNFMDriverProperties vnfmDriverProperties, Optional<GrantDriver> grantDriver) {
+    public GrantService(VNFMDriverProperties vnfmDriverProperties, Optional<GrantDriver> grantDriver, GrantStore grantStore, MeterRegistry meterRegistry) {
         this.vnfmDriverProperties = vnfmDriverProperties;
+        this.grantStore = grantStore;
+        this.meterRegistry = meterRegistry;
         if (grantDriver.isPresent()) {
             this.grantDriver = grantDriver.get();
         } else if (!vnfmDriverProperties.getGrant().isAutomatic()) {
@@ -35,6 +67,22 @@ public class GrantService {
         } else {
             this.grantDriver = null;
         }
+
+        if (this.grantDriver != null) {
+            final CustomizableThreadFactory pollingThreadFactory = new CustomizableThreadFactory("grantPolling");
+            pollingThreadFactory.setDaemon(true);
+            this.pollingScheduler = new ScheduledThreadPoolExecutor(vnfmDriverProperties.getGrant().getPolling().getThreads(), pollingThreadFactory);
+            this.pollingScheduler.setRemoveOnCancelPolicy(true);
+        } else {
+            this.pollingScheduler = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pollingScheduler != null) {
+            pollingScheduler.shutdownNow();
+        }
     }
 
     public GrantCreationResponse requestGrant(GrantRequest grantRequest) throws GrantRejectedException, GrantProviderException {
@@ -49,22 +97,37 @@ public class GrantService {
 
         GrantCreationResponse grantCreationResponse;
         if (vnfmDriverProperties.getGrant().isAutomatic()) {
-            // when grants are automatic, all grants requests will be accepted immediately and not persisted.
+            // when grants are automatic, all grants requests will be accepted immediately
             // the created grantId will be randomly generated and will always correspond to an accepted grant
-            // for now the grant response will only contain the id. Not yet sure what else it needs
             Grant grant = new Grant();
             grant.setId(UUID.randomUUID().toString());
+            grant.setVnfInstanceId(grantRequest.getVnfInstanceId());
+            grant.setVnfLcmOpOccId(grantRequest.getVnfLcmOpOccId());
+            grantStore.put(GrantRecord.granted(grant));
             grantCreationResponse = new GrantCreationResponse(grant);
             logger.info("Auto-authorised grant for operation to {} VNF instance [{}]", grantRequest.getOperation(), grantRequest.getVnfInstanceId());
         } else {
             logger.info("Requesting grant operation to {} VNF instance [{}]", grantRequest.getOperation(), grantRequest.getVnfInstanceId());
-            grantCreationResponse = grantDriver.requestGrant(grantRequest);
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            try {
+                grantCreationResponse = grantDriver.requestGrant(grantRequest);
+                outcome = grantCreationResponse.getGrant() != null ? "granted" : "pending";
+            } catch (GrantRejectedException e) {
+                outcome = "rejected";
+                throw e;
+            } finally {
+                recordGrantProviderRequest(sample, "requestGrant", outcome);
+            }
             if (grantCreationResponse.getGrant() == null) {
                 // asynchronous grant flow. Must poll get Grant API for granting decision
                 logger.info("Grant request for operation to {} VNF instance [{}] has no immediate response and should be polled", grantRequest.getOperation(), grantRequest.getVnfInstanceId());
+                grantStore.put(GrantRecord.pending(grantCreationResponse.getGrantId(), grantRequest));
+                startPolling(grantCreationResponse.getGrantId());
             } else {
                 // synchronous grant flow. Response immediately available and grant resource can be returned
                 logger.info("Grant request for operation to {} VNF instance [{}] was immediately granted", grantRequest.getOperation(), grantRequest.getVnfInstanceId());
+                grantStore.put(GrantRecord.pending(grantCreationResponse.getGrantId(), grantRequest).withGrant(grantCreationResponse.getGrant()));
             }
         }
         return grantCreationResponse;
@@ -76,24 +139,159 @@ public class GrantService {
             throw new BadRequestException("grantId cannot be null");
         }
 
-        Grant grant;
+        final GrantRecord grantRecord = grantStore.get(grantId);
         if (vnfmDriverProperties.getGrant().isAutomatic()) {
             // automatic granting mode
-            // for now we are not persisting grants so the only information we can return in the grant response is the provided id
+            if (grantRecord != null && grantRecord.getGrant() != null) {
+                logger.info("Auto-authorised grant for grantId [{}]. Returning resource", grantId);
+                return grantRecord.getGrant();
+            }
+            // no longer held, so the only information we can return in the grant response is the provided id
             logger.info("Auto-authorised grant for grantId [{}]. Returning empty grant resource", grantId);
-            grant = new Grant();
+            Grant grant = new Grant();
             grant.setId(grantId);
             return grant;
-        } else {
+        }
+
+        final Grant grant;
+        if (grantRecord == null) {
+            // not requested through this driver (or no longer held), so the grant provider must be asked directly
             logger.info("Getting grant with grantId [{}]", grantId);
-            grant = grantDriver.getGrant(grantId);
+            grant = refreshGrant(GrantRecord.pending(grantId));
             if (grant == null) {
-                logger.info("No grant decision yet available for request with grantId [{}]", grantId);
-            } else {
-                logger.info("Grant decision available for request with grantId [{}]. Returning resource", grantId);
+                startPolling(grantId);
+            }
+        } else if (grantRecord.isRejected()) {
+            throw new GrantRejectedException(grantRecord.getRejectionReason());
+        } else {
+            if (grantRecord.isPending()) {
+                // e.g. read back from the grant repository after a restart
+                startPolling(grantId);
             }
+            grant = grantRecord.getGrant();
+        }
+        if (grant == null) {
+            logger.info("No grant decision yet available for request with grantId [{}]", grantId);
+        } else {
+            logger.info("Grant decision available for request with grantId [{}]. Returning resource", grantId);
         }
         return grant;
     }
 
+    /**
+     * Waits for the decision on a grant. The returned future completes with the grant once it has been accepted, or exceptionally with a {@link GrantRejectedException} if it was
+     * rejected. It never completes if the grant isn't known to the driver, so callers should apply a timeout.
+     */
+    public CompletableFuture<Grant> awaitGrant(String grantId) {
+        final CompletableFuture<Grant> decision = pendingDecisions.computeIfAbsent(grantId, id -> new CompletableFuture<>());
+        // the decision may have been stored before the future was registered
+        final GrantRecord grantRecord = grantStore.get(grantId);
+        if (grantRecord != null && !grantRecord.isPending()) {
+            completeDecision(grantRecord);
+        }
+        return decision;
+    }
+
+    /**
+     * Gets the decision on a grant from the grant provider and stores it
+     *
+     * @return the grant resource if a grant decision has been made, null if still pending
+     */
+    private Grant refreshGrant(GrantRecord grantRecord) throws GrantRejectedException, GrantProviderException {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        final Grant grant;
+        try {
+            grant = grantDriver.getGrant(grantRecord.getGrantId());
+            outcome = grant != null ? "granted" : "pending";
+        } catch (GrantRejectedException e) {
+            outcome = "rejected";
+            storeDecision(grantRecord.withRejection(e.getReason()));
+            throw e;
+        } finally {
+            recordGrantProviderRequest(sample, "getGrant", outcome);
+        }
+        if (grant != null) {
+            storeDecision(grantRecord.withGrant(grant));
+        } else {
+            grantStore.put(grantRecord.refreshed());
+        }
+        return grant;
+    }
+
+    private void recordGrantProviderRequest(Timer.Sample sample, String operation, String outcome) {
+        sample.stop(Timer.builder(GRANT_PROVIDER_TIMER_NAME)
+                         .tag("operation", operation)
+                         .tag("outcome", outcome)
+                         .description("Time taken by requests to the grant provider")
+                         .register(meterRegistry));
+    }
+
+    private void storeDecision(GrantRecord grantRecord) {
+        grantStore.put(grantRecord);
+        completeDecision(grantRecord);
+    }
+
+    private void completeDecision(GrantRecord grantRecord) {
+        final CompletableFuture<Grant> decision = pendingDecisions.remove(grantRecord.getGrantId());
+        if (decision == null) {
+            return;
+        }
+        if (grantRecord.isRejected()) {
+            decision.completeExceptionally(new GrantRejectedException(grantRecord.getRejectionReason()));
+        } else {
+            decision.complete(grantRecord.getGrant());
+        }
+    }
+
+    private void startPolling(String grantId) {
+        if (!polledGrantIds.add(grantId)) {
+            return;
+        }
+        final Duration initialDelay = vnfmDriverProperties.getGrant().getPolling().getInitialDelay();
+        logger.debug("Polling grant provider for decision on grant with grantId [{}]", grantId);
+        schedulePoll(grantId, initialDelay);
+    }
+
+    private void schedulePoll(String grantId, Duration delay) {
+        try {
+            pollingScheduler.schedule(() -> poll(grantId, delay), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down, the grant will be polled again when it's next read
+            polledGrantIds.remove(grantId);
+        }
+    }
+
+    private void poll(String grantId, Duration delay) {
+        final GrantRecord grantRecord = grantStore.get(grantId);
+        if (grantRecord == null || !grantRecord.isPending()) {
+            // expired, or decided elsewhere (e.g. by a VNFM poll for a grant the driver didn't know about)
+            polledGrantIds.remove(grantId);
+            if (grantRecord == null) {
+                pendingDecisions.remove(grantId);
+            } else {
+                completeDecision(grantRecord);
+            }
+            return;
+        }
+
+        try {
+            if (refreshGrant(grantRecord) != null) {
+                logger.info("Grant decision received for request with grantId [{}]", grantId);
+                polledGrantIds.remove(grantId);
+                return;
+            }
+        } catch (GrantRejectedException e) {
+            logger.info("Grant request with grantId [{}] was rejected: {}", grantId, e.getReason());
+            polledGrantIds.remove(grantId);
+            return;
+        } catch (Exception e) {
+            logger.warn(String.format("Unable to get decision on grant with grantId [%s] from the grant provider", grantId), e);
+        }
+
+        final VNFMDriverProperties.Grant.Polling pollingProperties = vnfmDriverProperties.getGrant().getPolling();
+        final Duration nextDelay = Duration.ofMillis(Math.min((long) (Math.max(delay.toMillis(), 1) * pollingProperties.getBackoffMultiplier()), pollingProperties.getMaxDelay().toMillis()));
+        schedulePoll(grantId, nextDelay);
+    }
+
 }
@@ -0,0 +1,154 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Store of the grants requested through the driver, keyed by grantId and indexed by vnfInstanceId and vnfLcmOpOccId, which lets VNFM polls for a grant be answered without
+ * calling the grant provider.
+ * <p>
+ * Grants are held in memory for the configured time to live. If a {@link GrantRepository} bean is present, grants are also written through to it and read back from it when they
+ * are no longer held in memory (e.g. after a restart). The vnfInstanceId and vnfLcmOpOccId indexes only cover the grants held in memory.
+ */
+@Service("GrantStore")
+public class GrantStore {
+
+    private final static Logger logger = LoggerFactory.getLogger(GrantStore.class);
+    private static final String GRANT_CACHE_NAME = "vnfmdriver.grants";
+
+    private final Duration timeToLive;
+    private final Cache<String, GrantRecord> grantCache;
+    private final SetMultimap<String, String> grantIdsByVnfInstanceId = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final SetMultimap<String, String> grantIdsByVnfLcmOpOccId = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final GrantRepository grantRepository;
+
+    @Autowired
+    public GrantStore(VNFMDriverProperties properties, Optional<GrantRepository> grantRepository, MeterRegistry meterRegistry) {
+        this.timeToLive = properties.getGrant().getStore().getTimeToLive();
+        this.grantRepository = grantRepository.orElse(null);
+        // Records are replaced whenever a grant is refreshed, so expireAfterWrite only bounds how long they're held; expiry is checked against the creation time on each read
+        this.grantCache = CacheBuilder.newBuilder()
+                                      .maximumSize(properties.getGrant().getStore().getMaxSize())
+                                      .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                                      .removalListener(this::onRemoval)
+                                      .recordStats()
+                                      .build();
+        GuavaCacheMetrics.monitor(meterRegistry, grantCache, GRANT_CACHE_NAME);
+    }
+
+    public void put(GrantRecord grantRecord) {
+        cache(grantRecord);
+        if (grantRepository != null) {
+            try {
+                grantRepository.save(grantRecord);
+            } catch (Exception e) {
+                // the grant is still held in memory, so VNFM polls can be answered
+                logger.warn(String.format("Unable to save grant [%s] to the grant repository", grantRecord.getGrantId()), e);
+            }
+        }
+    }
+
+    /**
+     * @return the record for the grant, or null if it isn't held (or has expired)
+     */
+    public GrantRecord get(String grantId) {
+        GrantRecord grantRecord = grantCache.getIfPresent(grantId);
+        if (grantRecord == null && grantRepository != null) {
+            try {
+                grantRecord = grantRepository.findById(grantId);
+            } catch (Exception e) {
+                logger.warn(String.format("Unable to read grant [%s] from the grant repository", grantId), e);
+            }
+            if (grantRecord != null && !grantRecord.isExpired(timeToLive)) {
+                cache(grantRecord);
+            }
+        }
+        if (grantRecord != null && grantRecord.isExpired(timeToLive)) {
+            remove(grantId);
+            return null;
+        }
+        return grantRecord;
+    }
+
+    public List<GrantRecord> findByVnfInstanceId(String vnfInstanceId) {
+        return find(grantIdsByVnfInstanceId, vnfInstanceId, GrantRecord::getVnfInstanceId);
+    }
+
+    public List<GrantRecord> findByVnfLcmOpOccId(String vnfLcmOpOccId) {
+        return find(grantIdsByVnfLcmOpOccId, vnfLcmOpOccId, GrantRecord::getVnfLcmOpOccId);
+    }
+
+    public void remove(String grantId) {
+        grantCache.invalidate(grantId);
+        if (grantRepository != null) {
+            try {
+                grantRepository.delete(grantId);
+            } catch (Exception e) {
+                logger.warn(String.format("Unable to delete grant [%s] from the grant repository", grantId), e);
+            }
+        }
+    }
+
+    private void cache(GrantRecord grantRecord) {
+        grantCache.put(grantRecord.getGrantId(), grantRecord);
+        if (grantRecord.getVnfInstanceId() != null) {
+            grantIdsByVnfInstanceId.put(grantRecord.getVnfInstanceId(), grantRecord.getGrantId());
+        }
+        if (grantRecord.getVnfLcmOpOccId() != null) {
+            grantIdsByVnfLcmOpOccId.put(grantRecord.getVnfLcmOpOccId(), grantRecord.getGrantId());
+        }
+    }
+
+    private List<GrantRecord> find(SetMultimap<String, String> index, String key, Function<GrantRecord, String> indexedValue) {
+        final ImmutableSet<String> grantIds;
+        synchronized (index) {
+            grantIds = ImmutableSet.copyOf(index.get(key));
+        }
+        final List<GrantRecord> grantRecords = new ArrayList<>();
+        for (String grantId : grantIds) {
+            final GrantRecord grantRecord = get(grantId);
+            // the indexed value may have changed since the grant was first stored
+            if (grantRecord != null && Objects.equals(indexedValue.apply(grantRecord), key)) {
+                grantRecords.add(grantRecord);
+            }
+        }
+        return grantRecords;
+    }
+
+    private void onRemoval(RemovalNotification<String, GrantRecord> notification) {
+        final GrantRecord grantRecord = notification.getValue();
+        if (notification.getCause() == RemovalCause.REPLACED || grantRecord == null) {
+            return;
+        }
+        if (grantRecord.getVnfInstanceId() != null) {
+            grantIdsByVnfInstanceId.remove(grantRecord.getVnfInstanceId(), grantRecord.getGrantId());
+        }
+        if (grantRecord.getVnfLcmOpOccId() != null) {
+            grantIdsByVnfLcmOpOccId.remove(grantRecord.getVnfLcmOpOccId(), grantRecord.getGrantId());
+        }
+    }
+
+}
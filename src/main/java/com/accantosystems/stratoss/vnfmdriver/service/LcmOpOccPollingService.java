@@ -2,17 +2,31 @@ package com.accantosystems.stratoss.vnfmdriver.service;
 
 import static com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverConstants.COMPLETED_OPERATIONAL_STATES;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PreDestroy;
 
 import org.etsi.sol003.lifecyclemanagement.LcmOperationStateType;
+import org.etsi.sol003.lifecyclemanagement.LcmOperationType;
 import org.etsi.sol003.lifecyclemanagement.VnfLcmOpOcc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFLifecycleManagementDriver;
 import com.accantosystems.stratoss.vnfmdriver.model.LcmOpOccPollingRequest;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
@@ -20,6 +34,22 @@ import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionStatus;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.FailureDetails;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Polls the VNFM for the state of LcmOpOccs until they complete, sending an {@link ExecutionAsyncResponse} for each.
+ * <p>
+ * Polling requests are received from Kafka, but are then held in memory and polled on a scheduler (with the delay between polls backing off) rather than being re-published to
+ * Kafka after every poll. Kafka is only used to hand requests back when this service is at capacity, polling has failed repeatedly or this service is shutting down, so
+ * they can be picked up again later (or by another instance). A request is only handed back a limited number of times because of failures, after which the execution is
+ * reported as failed.
+ * <p>
+ * In batch mode, LcmOpOccs for the same deployment location which are due to be polled at around the same time are retrieved with a single filtered query, rather than one
+ * query for each.
+ */
 public class LcmOpOccPollingService {
 
     private static final Logger logger = LoggerFactory.getLogger(LcmOpOccPollingService.class);
@@ -27,18 +57,68 @@ public class LcmOpOccPollingService {
     private final VNFLifecycleManagementDriver driver;
     private final ExternalMessagingService externalMessagingService;
     private final ObjectMapper objectMapper;
+    private final LifecycleCompletionTracker lifecycleCompletionTracker;
+    private final Duration pollingDelay;
+    private final VNFMDriverProperties.LcmOpOccPolling pollingProperties;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, LcmOpOccPoll> inFlightPolls = new ConcurrentHashMap<>();
+    // A permit is held for each entry in inFlightPolls, so the limit can't be exceeded by concurrent requests
+    private final Semaphore inFlightPermits;
+    private final Set<LcmOpOccPollingRequest> deferredRequests = ConcurrentHashMap.newKeySet();
+    private final Timer pollLagTimer;
+    private final Counter deferredCounter;
+    private final Counter failureCounter;
+    private final Counter individualQueryCounter;
+    private final Counter batchQueryCounter;
 
     @Autowired
-    public LcmOpOccPollingService(VNFLifecycleManagementDriver driver, ExternalMessagingService externalMessagingService, ObjectMapper objectMapper) {
+    public LcmOpOccPollingService(VNFLifecycleManagementDriver driver, ExternalMessagingService externalMessagingService, ObjectMapper objectMapper,
+                                  LifecycleCompletionTracker lifecycleCompletionTracker, VNFMDriverProperties properties, MeterRegistry meterRegistry) {
         logger.info("Creating Lifecycle Management Operation Occurrence Polling Service");
         this.driver = driver;
         this.externalMessagingService = externalMessagingService;
         this.objectMapper = objectMapper;
+        this.lifecycleCompletionTracker = lifecycleCompletionTracker;
+        this.pollingDelay = properties.getLcmOpOccPollingDelay();
+        this.pollingProperties = properties.getLcmOpOccPolling();
+        this.scheduler = new ScheduledThreadPoolExecutor(pollingProperties.getThreads(), new CustomizableThreadFactory("lcmOpOccPoller"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.inFlightPermits = new Semaphore(pollingProperties.getMaxInFlight());
+
+        Gauge.builder("vnfmdriver.lcmopocc.polling.inflight", inFlightPolls, Map::size)
+             .description("LcmOpOccs currently being polled")
+             .register(meterRegistry);
+        this.pollLagTimer = Timer.builder("vnfmdriver.lcmopocc.polling.lag")
+                                 .description("Delay between the time a poll was due and the time it started")
+                                 .register(meterRegistry);
+        this.deferredCounter = Counter.builder("vnfmdriver.lcmopocc.polling.deferred")
+                                      .description("Polling requests handed back to Kafka because the maximum number of in-flight LcmOpOccs was reached")
+                                      .register(meterRegistry);
+        this.failureCounter = Counter.builder("vnfmdriver.lcmopocc.polling.failures")
+                                     .description("Polls for the state of an LcmOpOcc which failed")
+                                     .register(meterRegistry);
+        this.individualQueryCounter = Counter.builder("vnfmdriver.lcmopocc.polling.queries")
+                                             .tag("type", "individual")
+                                             .description("Queries sent to VNFMs to retrieve the state of LcmOpOccs")
+                                             .register(meterRegistry);
+        this.batchQueryCounter = Counter.builder("vnfmdriver.lcmopocc.polling.queries")
+                                        .tag("type", "batch")
+                                        .description("Queries sent to VNFMs to retrieve the state of LcmOpOccs")
+                                        .register(meterRegistry);
     }
 
     @PreDestroy
-    public void close() {
+    public void close() throws InterruptedException {
         logger.info("Shutting down Lifecycle Management Operation Occurrence Polling Service...");
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Hand any outstanding requests back to Kafka, so polling can be resumed
+        inFlightPolls.values().forEach(poll -> externalMessagingService.sendLcmOpOccPollingRequest(poll.request));
+        deferredRequests.forEach(externalMessagingService::sendLcmOpOccPollingRequest);
+        logger.info("Returned {} outstanding LcmOpOcc polling requests", inFlightPolls.size() + deferredRequests.size());
+        inFlightPolls.clear();
+        deferredRequests.clear();
     }
 
     @KafkaListener(topics = "${vnfmdriver.topics.lcmOpOccPollingTopic}")
@@ -46,27 +126,209 @@ public class LcmOpOccPollingService {
         try {
             // Deserialize message into LcmOpOccPollingRequest
             LcmOpOccPollingRequest lcmOpOccPollingRequest = objectMapper.readValue(message, LcmOpOccPollingRequest.class);
+            startPolling(lcmOpOccPollingRequest);
+        } catch (Exception e) {
+            logger.error("Exception caught processing LcmOpOccPollingRequest message", e);
+        }
+    }
+
+    /**
+     * Schedules polling for an LcmOpOcc, unless it is already being polled. If the maximum number of LcmOpOccs are already being polled, the request is re-published after the
+     * polling delay instead.
+     *
+     * @param lcmOpOccPollingRequest request identifying the LcmOpOcc (and the deployment location to poll)
+     */
+    public void startPolling(final LcmOpOccPollingRequest lcmOpOccPollingRequest) {
+        if (inFlightPolls.containsKey(lcmOpOccPollingRequest.getVnfLcmOpOccId())) {
+            logger.debug("Already polling for LcmOpOcc [{}]", lcmOpOccPollingRequest.getVnfLcmOpOccId());
+            return;
+        }
+
+        if (!inFlightPermits.tryAcquire()) {
+            logger.warn("Maximum number of in-flight LcmOpOccs reached, deferring polling for LcmOpOcc [{}]", lcmOpOccPollingRequest.getVnfLcmOpOccId());
+            deferredCounter.increment();
+            deferredRequests.add(lcmOpOccPollingRequest);
+            scheduler.schedule(() -> {
+                if (deferredRequests.remove(lcmOpOccPollingRequest)) {
+                    externalMessagingService.sendLcmOpOccPollingRequest(lcmOpOccPollingRequest);
+                }
+            }, pollingDelay.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        final LcmOpOccPoll poll = new LcmOpOccPoll(lcmOpOccPollingRequest);
+        if (inFlightPolls.putIfAbsent(lcmOpOccPollingRequest.getVnfLcmOpOccId(), poll) == null) {
+            logger.debug("Starting to poll for LcmOpOcc [{}]", lcmOpOccPollingRequest.getVnfLcmOpOccId());
+            schedulePoll(poll, pollingDelay);
+        } else {
+            // Started by a concurrent request for the same LcmOpOcc
+            inFlightPermits.release();
+        }
+    }
 
-            VnfLcmOpOcc vnfLcmOpOcc = driver.queryLifecycleOperationOccurrence(lcmOpOccPollingRequest.getDeploymentLocation(), lcmOpOccPollingRequest.getVnfLcmOpOccId());
-            if (COMPLETED_OPERATIONAL_STATES.contains(vnfLcmOpOcc.getOperationState())) {
-                // Send back Async response to Brent
-                final ExecutionAsyncResponse executionResponse;
-                if (vnfLcmOpOcc.getOperationState() == LcmOperationStateType.COMPLETED) {
-                    executionResponse = new ExecutionAsyncResponse(lcmOpOccPollingRequest.getVnfLcmOpOccId(), ExecutionStatus.COMPLETE, null, Collections.emptyMap(), Collections.emptyMap());
-                } else {
-                    executionResponse = new ExecutionAsyncResponse(lcmOpOccPollingRequest.getVnfLcmOpOccId(),
-                                                                   ExecutionStatus.FAILED,
-                                                                   new FailureDetails(FailureDetails.FailureCode.INFRASTRUCTURE_ERROR, vnfLcmOpOcc.getError().getDetail()),
-                                                                   Collections.emptyMap(),Collections.emptyMap());
+    private void stopPolling(final LcmOpOccPoll poll) {
+        if (inFlightPolls.remove(poll.request.getVnfLcmOpOccId(), poll)) {
+            inFlightPermits.release();
+        }
+    }
+
+    private void poll(final LcmOpOccPoll poll) {
+        // The poll may already have been done as part of a batch
+        if (!poll.pending.compareAndSet(true, false)) {
+            return;
+        }
+
+        pollLagTimer.record(System.nanoTime() - poll.dueTime, TimeUnit.NANOSECONDS);
+        if (pollingProperties.isBatchEnabled()) {
+            pollBatch(poll);
+        } else {
+            pollIndividually(poll);
+        }
+    }
+
+    private void pollIndividually(final LcmOpOccPoll poll) {
+        individualQueryCounter.increment();
+        try {
+            handlePollResult(poll, driver.queryLifecycleOperationOccurrence(poll.request.getDeploymentLocation(), poll.request.getVnfLcmOpOccId()));
+        } catch (Exception e) {
+            handlePollFailure(poll, e);
+        }
+    }
+
+    /**
+     * Polls for an LcmOpOcc, along with any others for the same deployment location that are due within the batch window, using a single query
+     */
+    private void pollBatch(final LcmOpOccPoll poll) {
+        final String deploymentLocationName = poll.request.getDeploymentLocation().getName();
+        final long batchDeadline = System.nanoTime() + pollingProperties.getBatchWindow().toNanos();
+        final Map<String, LcmOpOccPoll> batch = new LinkedHashMap<>();
+        batch.put(poll.request.getVnfLcmOpOccId(), poll);
+        for (LcmOpOccPoll otherPoll : inFlightPolls.values()) {
+            if (batch.size() >= pollingProperties.getBatchSize()) {
+                break;
+            }
+            if (otherPoll != poll && Objects.equals(deploymentLocationName, otherPoll.request.getDeploymentLocation().getName()) && otherPoll.dueTime - batchDeadline <= 0
+                    && otherPoll.pending.compareAndSet(true, false)) {
+                if (otherPoll.future != null) {
+                    otherPoll.future.cancel(false);
                 }
-                executionResponse.setTimestamp(System.currentTimeMillis());
-                externalMessagingService.sendExecutionAsyncResponse(executionResponse);
+                batch.put(otherPoll.request.getVnfLcmOpOccId(), otherPoll);
+            }
+        }
+
+        if (batch.size() > 1) {
+            batchQueryCounter.increment();
+            try {
+                for (VnfLcmOpOcc vnfLcmOpOcc : driver.queryLifecycleOperationOccurrences(poll.request.getDeploymentLocation(), batch.keySet())) {
+                    final LcmOpOccPoll batchedPoll = batch.remove(vnfLcmOpOcc.getId());
+                    if (batchedPoll != null) {
+                        try {
+                            handlePollResult(batchedPoll, vnfLcmOpOcc);
+                        } catch (Exception e) {
+                            handlePollFailure(batchedPoll, e);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn(String.format("Exception caught polling for %s LcmOpOccs in a single query, polling individually instead", batch.size()), e);
+            }
+        }
+
+        // Anything not returned by the query (or if batching was not possible) is polled individually
+        batch.values().forEach(this::pollIndividually);
+    }
+
+    private void handlePollResult(final LcmOpOccPoll poll, final VnfLcmOpOcc vnfLcmOpOcc) {
+        final String vnfLcmOpOccId = poll.request.getVnfLcmOpOccId();
+        poll.failures = 0;
+        if (COMPLETED_OPERATIONAL_STATES.contains(vnfLcmOpOcc.getOperationState())) {
+            stopPolling(poll);
+            // Send back Async response to Brent
+            final ExecutionAsyncResponse executionResponse;
+            if (vnfLcmOpOcc.getOperationState() == LcmOperationStateType.COMPLETED) {
+                executionResponse = new ExecutionAsyncResponse(vnfLcmOpOccId, ExecutionStatus.COMPLETE, null, Collections.emptyMap(), Collections.emptyMap());
             } else {
-                // Keep waiting and re-enqueue polling request
-                externalMessagingService.sendLcmOpOccPollingRequest(lcmOpOccPollingRequest);
+                executionResponse = new ExecutionAsyncResponse(vnfLcmOpOccId,
+                                                               ExecutionStatus.FAILED,
+                                                               new FailureDetails(FailureDetails.FailureCode.INFRASTRUCTURE_ERROR, vnfLcmOpOcc.getError().getDetail()),
+                                                               Collections.emptyMap(), Collections.emptyMap());
             }
-        } catch (Exception e) {
-            logger.error("Exception caught processing LcmOpOccPollingRequest message", e);
+            executionResponse.setTimestamp(System.currentTimeMillis());
+            lifecycleCompletionTracker.completed(vnfLcmOpOccId, executionResponse.getStatus());
+            externalMessagingService.sendExecutionAsyncResponse(executionResponse);
+        } else if (!scheduler.isShutdown()) {
+            // Keep waiting, backing off between polls
+            poll.attempts++;
+            schedulePoll(poll, getNextDelay(vnfLcmOpOcc.getOperation(), poll.attempts));
+        }
+    }
+
+    /**
+     * Retries a failed poll, backing off between attempts. Once polling has failed maxPollFailures times in a row, the request is handed back to Kafka rather than being dropped,
+     * unless it has already been handed back maxFailedHandbacks times (e.g. the LcmOpOcc no longer exists), in which case the execution is reported as failed.
+     */
+    private void handlePollFailure(final LcmOpOccPoll poll, final Exception e) {
+        final String vnfLcmOpOccId = poll.request.getVnfLcmOpOccId();
+        failureCounter.increment();
+        poll.failures++;
+        if (poll.failures < pollingProperties.getMaxPollFailures()) {
+            if (!scheduler.isShutdown()) {
+                logger.warn(String.format("Exception caught polling for LcmOpOcc [%s], will retry", vnfLcmOpOccId), e);
+                schedulePoll(poll, getNextDelay(null, poll.failures));
+            }
+            return;
+        }
+
+        stopPolling(poll);
+        if (poll.request.getFailedHandbacks() < pollingProperties.getMaxFailedHandbacks()) {
+            logger.error(String.format("Exception caught polling for LcmOpOcc [%s], handing back polling request after %s failures", vnfLcmOpOccId, poll.failures), e);
+            externalMessagingService.sendLcmOpOccPollingRequest(new LcmOpOccPollingRequest(poll.request.getDeploymentLocation(), vnfLcmOpOccId,
+                                                                                           poll.request.getFailedHandbacks() + 1));
+        } else {
+            logger.error(String.format("Exception caught polling for LcmOpOcc [%s], giving up after the polling request was handed back %s times", vnfLcmOpOccId,
+                                       poll.request.getFailedHandbacks()), e);
+            final ExecutionAsyncResponse executionResponse = new ExecutionAsyncResponse(vnfLcmOpOccId, ExecutionStatus.FAILED,
+                                                                                        new FailureDetails(FailureDetails.FailureCode.INFRASTRUCTURE_ERROR,
+                                                                                                           String.format("Unable to retrieve the state of LcmOpOcc [%s]: %s",
+                                                                                                                         vnfLcmOpOccId, e.getMessage())),
+                                                                                        Collections.emptyMap(), Collections.emptyMap());
+            executionResponse.setTimestamp(System.currentTimeMillis());
+            lifecycleCompletionTracker.completed(vnfLcmOpOccId, executionResponse.getStatus());
+            externalMessagingService.sendExecutionAsyncResponse(executionResponse);
+        }
+    }
+
+    private void schedulePoll(final LcmOpOccPoll poll, final Duration delay) {
+        final long delayNanos = applyJitter(delay.toNanos());
+        poll.dueTime = System.nanoTime() + delayNanos;
+        poll.pending.set(true);
+        poll.future = scheduler.schedule(() -> poll(poll), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    Duration getNextDelay(final LcmOperationType operation, final int attempts) {
+        final Duration initialDelay = operation != null ? pollingProperties.getOperationDelays().getOrDefault(operation, pollingDelay) : pollingDelay;
+        final double delayMillis = initialDelay.toMillis() * Math.pow(pollingProperties.getBackoffMultiplier(), attempts - 1);
+        return Duration.ofMillis((long) Math.min(delayMillis, Math.max(pollingProperties.getMaxDelay().toMillis(), initialDelay.toMillis())));
+    }
+
+    private long applyJitter(final long delayNanos) {
+        if (pollingProperties.getJitter() <= 0) {
+            return delayNanos;
+        }
+        final double jitter = pollingProperties.getJitter() * ThreadLocalRandom.current().nextDouble(-1, 1);
+        return Math.max(0, (long) (delayNanos * (1 + jitter)));
+    }
+
+    private static class LcmOpOccPoll {
+        private final LcmOpOccPollingRequest request;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile int attempts;
+        private volatile int failures;
+        private volatile long dueTime;
+        private volatile ScheduledFuture<?> future;
+
+        private LcmOpOccPoll(LcmOpOccPollingRequest request) {
+            this.request = request;
         }
     }
 
@@ -0,0 +1,94 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionStatus;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Records the time taken for asynchronous lifecycles to complete, from the point the VNFM accepts the request (202 Accepted) until the final result is received, whether that's
+ * from a notification or from polling the LcmOpOcc. Each lifecycle is only recorded once, so a result seen by both routes isn't counted twice.
+ * <p>
+ * Accepted lifecycles are held in memory, so any accepted before a restart (or by another instance) are not recorded.
+ */
+@Service("LifecycleCompletionTracker")
+public class LifecycleCompletionTracker {
+
+    private final static Logger logger = LoggerFactory.getLogger(LifecycleCompletionTracker.class);
+    private static final String ACCEPTED_LIFECYCLES_CACHE_NAME = "vnfmdriver.lifecycle.accepted";
+    private static final String COMPLETION_TIMER_NAME = "vnfmdriver.lifecycle.completion";
+
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    // Accepted lifecycles, keyed by requestId (the vnfLcmOpOccId)
+    private final Cache<String, AcceptedLifecycle> acceptedLifecycles;
+
+    @Autowired
+    public LifecycleCompletionTracker(VNFMDriverProperties properties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.clock = meterRegistry.config().clock();
+        this.acceptedLifecycles = CacheBuilder.newBuilder()
+                                              .maximumSize(properties.getLifecycleCompletion().getMaxSize())
+                                              .expireAfterWrite(properties.getLifecycleCompletion().getTimeToLive().toMillis(), TimeUnit.MILLISECONDS)
+                                              .recordStats()
+                                              .build();
+        GuavaCacheMetrics.monitor(meterRegistry, acceptedLifecycles, ACCEPTED_LIFECYCLES_CACHE_NAME);
+    }
+
+    /**
+     * Starts timing a lifecycle which has been accepted by the VNFM
+     *
+     * @param requestId              identifier of the request (the vnfLcmOpOccId), as returned to the ALM
+     * @param lifecycleName          name of the lifecycle
+     * @param deploymentLocationName name of the deployment location the lifecycle is running in
+     */
+    public void accepted(String requestId, String lifecycleName, String deploymentLocationName) {
+        acceptedLifecycles.put(requestId, new AcceptedLifecycle(lifecycleName, deploymentLocationName, clock.monotonicTime()));
+    }
+
+    /**
+     * Records the time taken for a lifecycle to complete, if it was accepted by this instance (and hasn't already been recorded)
+     *
+     * @param requestId identifier of the request (the vnfLcmOpOccId)
+     * @param status    final status of the lifecycle
+     */
+    public void completed(String requestId, ExecutionStatus status) {
+        final AcceptedLifecycle acceptedLifecycle = acceptedLifecycles.asMap().remove(requestId);
+        if (acceptedLifecycle == null) {
+            logger.debug("Lifecycle for request [{}] is not being tracked, not recording its completion time", requestId);
+            return;
+        }
+        Timer.builder(COMPLETION_TIMER_NAME)
+             .tag("lifecycle", acceptedLifecycle.lifecycleName)
+             .tag("location", String.valueOf(acceptedLifecycle.deploymentLocationName))
+             .tag("outcome", status == ExecutionStatus.COMPLETE ? "success" : "failure")
+             .description("Time taken for lifecycles to complete, from being accepted by the VNFM to the final result being received")
+             .register(meterRegistry)
+             .record(clock.monotonicTime() - acceptedLifecycle.startTime, TimeUnit.NANOSECONDS);
+    }
+
+    private static class AcceptedLifecycle {
+        private final String lifecycleName;
+        private final String deploymentLocationName;
+        private final long startTime;
+
+        private AcceptedLifecycle(String lifecycleName, String deploymentLocationName, long startTime) {
+            this.lifecycleName = lifecycleName;
+            this.deploymentLocationName = deploymentLocationName;
+            this.startTime = startTime;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import com.accantosystems.stratoss.vnfmdriver.driver.VNFLifecycleManagementDriver;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+
+/**
+ * How a lifecycle is executed: the message script used to generate the request to the VNFM (if any), the call made to the VNFM, and how completion of the lifecycle is reported.
+ * Handlers are registered with the {@link LifecycleHandlerRegistry}.
+ */
+public class LifecycleHandler {
+
+    public enum Completion {
+        /**
+         * The lifecycle is complete once the VNFM call returns, the driver sends the execution response itself
+         */
+        SYNCHRONOUS,
+        /**
+         * The VNFM call starts a lifecycle operation occurrence, the execution response is sent once the VNFM reports that it has completed
+         */
+        ASYNCHRONOUS
+    }
+
+    @FunctionalInterface
+    public interface DriverCall {
+        /**
+         * @param message   the message generated for the request, or null if the handler has no message script
+         * @param requestId the id generated for the request, only given for synchronous lifecycles
+         * @return the id of the lifecycle operation occurrence for asynchronous lifecycles, or the response from the VNFM (if any) for synchronous ones
+         */
+        String execute(VNFLifecycleManagementDriver driver, ExecutionRequest executionRequest, String message, String requestId) throws MessageConversionException;
+    }
+
+    /**
+     * Calls a VNFM operation which acts on the VNF instance given by the vnfInstanceId resource property
+     */
+    @FunctionalInterface
+    public interface VnfInstanceOperation {
+        String execute(VNFLifecycleManagementDriver driver, ExecutionRequest executionRequest, String vnfInstanceId, String message);
+    }
+
+    private final String lifecycleName;
+    private final String messageType;
+    private final String responseMessageType;
+    private final DriverCall driverCall;
+    private final Completion completion;
+
+    public LifecycleHandler(String lifecycleName, String messageType, String responseMessageType, DriverCall driverCall, Completion completion) {
+        this.lifecycleName = lifecycleName;
+        this.messageType = messageType;
+        this.responseMessageType = responseMessageType;
+        this.driverCall = driverCall;
+        this.completion = completion;
+    }
+
+    /**
+     * @return a handler for a lifecycle which starts a lifecycle operation occurrence on the VNF instance, completing once the VNFM reports the operation has completed
+     */
+    public static LifecycleHandler vnfLcmOperation(String lifecycleName, String messageType, VnfInstanceOperation operation) {
+        return new LifecycleHandler(lifecycleName, messageType, null, (driver, executionRequest, message, requestId) -> {
+            final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
+            return operation.execute(driver, executionRequest, vnfInstanceId, message);
+        }, Completion.ASYNCHRONOUS);
+    }
+
+    public String getLifecycleName() {
+        return lifecycleName;
+    }
+
+    /**
+     * @return the message type (script name) used to generate the request to the VNFM, or null if no message is sent
+     */
+    public String getMessageType() {
+        return messageType;
+    }
+
+    /**
+     * @return the message type (script name) used to extract the outputs of a synchronous lifecycle from the VNFM response, or null if it has no outputs
+     */
+    public String getResponseMessageType() {
+        return responseMessageType;
+    }
+
+    public DriverCall getDriverCall() {
+        return driverCall;
+    }
+
+    public Completion getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public String toString() {
+        return "LifecycleHandler{" +
+                "lifecycleName='" + lifecycleName + '\'' +
+                ", messageType='" + messageType + '\'' +
+                ", completion=" + completion +
+                '}';
+    }
+
+}
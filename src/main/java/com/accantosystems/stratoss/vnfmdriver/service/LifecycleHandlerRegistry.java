@@ -0,0 +1,97 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.accantosystems.stratoss.vnfmdriver.service.LifecycleHandler.Completion;
+
+/**
+ * The lifecycles supported by the driver, keyed by normalised lifecycle name (lower case, ignoring any '-', '_' or space characters).
+ * <p>
+ * Handlers for the standard lifecycles are always registered. Any LifecycleHandler beans are registered after them, so they can add new lifecycles or replace the standard ones.
+ */
+@Service("LifecycleHandlerRegistry")
+public class LifecycleHandlerRegistry {
+
+    private final static Logger logger = LoggerFactory.getLogger(LifecycleHandlerRegistry.class);
+
+    private final Map<String, LifecycleHandler> handlers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LifecycleHandlerRegistry(Optional<List<LifecycleHandler>> additionalHandlers) {
+        register(new LifecycleHandler("Create", "CreateVnfRequest", "VnfInstance",
+                                      (driver, executionRequest, message, requestId) -> driver.createVnfInstance(executionRequest.getDeploymentLocation(), message, requestId),
+                                      Completion.SYNCHRONOUS));
+        register(LifecycleHandler.vnfLcmOperation("Install", "InstantiateVnfRequest",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.instantiateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        register(LifecycleHandler.vnfLcmOperation("Start", "OperateVnfRequest-Start",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.operateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        register(LifecycleHandler.vnfLcmOperation("Stop", "OperateVnfRequest-Stop",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.operateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        register(LifecycleHandler.vnfLcmOperation("Uninstall", "TerminateVnfRequest",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.terminateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        for (String scaleLifecycleName : List.of("ScaleToLevel", "ScaleOut", "ScaleIn")) {
+            register(LifecycleHandler.vnfLcmOperation(scaleLifecycleName, "ScaleVnfRequest",
+                                                      (driver, executionRequest, vnfInstanceId, message) -> driver.scaleVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        }
+        register(LifecycleHandler.vnfLcmOperation("Heal", "HealVnfRequest",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.healVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        register(new LifecycleHandler("Delete", null, null, (driver, executionRequest, message, requestId) -> {
+            driver.deleteVnfInstance(executionRequest.getDeploymentLocation(), executionRequest.getStringResourceProperty("vnfInstanceId"), requestId);
+            return null;
+        }, Completion.SYNCHRONOUS));
+        register(LifecycleHandler.vnfLcmOperation("Upgrade", "ChangeCurrentVnfPkgRequest",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.changeCurrentVnfPkg(executionRequest.getDeploymentLocation(), vnfInstanceId,
+                                                                                                                                   message)));
+        register(LifecycleHandler.vnfLcmOperation("ChangeVnfFlavour", "ChangeVnfFlavourRequest",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.changeVnfFlavour(executionRequest.getDeploymentLocation(), vnfInstanceId, message)));
+        register(LifecycleHandler.vnfLcmOperation("ChangeExtVnfConnectivity", "ChangeExtVnfConnectivityRequest",
+                                                  (driver, executionRequest, vnfInstanceId, message) -> driver.changeExtVnfConnectivity(executionRequest.getDeploymentLocation(),
+                                                                                                                                        vnfInstanceId, message)));
+
+        for (LifecycleHandler handler : additionalHandlers.orElse(Collections.emptyList())) {
+            final LifecycleHandler replacedHandler = register(handler);
+            logger.info("Registered handler for lifecycle [{}]{}", handler.getLifecycleName(), replacedHandler != null ? ", replacing the standard handler" : "");
+        }
+    }
+
+    /**
+     * @return the handler previously registered for the lifecycle, or null if there wasn't one
+     */
+    public LifecycleHandler register(LifecycleHandler handler) {
+        return handlers.put(normalise(handler.getLifecycleName()), handler);
+    }
+
+    /**
+     * @return the handler for the lifecycle, or null if the lifecycle isn't supported
+     */
+    public LifecycleHandler get(String lifecycleName) {
+        return lifecycleName != null ? handlers.get(normalise(lifecycleName)) : null;
+    }
+
+    public Collection<LifecycleHandler> getHandlers() {
+        return Collections.unmodifiableCollection(handlers.values());
+    }
+
+    static String normalise(String lifecycleName) {
+        final StringBuilder normalisedName = new StringBuilder(lifecycleName.length());
+        for (int i = 0; i < lifecycleName.length(); i++) {
+            final char c = lifecycleName.charAt(i);
+            if (c != '-' && c != '_' && c != ' ') {
+                normalisedName.append(c);
+            }
+        }
+        return normalisedName.toString().toLowerCase(Locale.ROOT);
+    }
+
+}
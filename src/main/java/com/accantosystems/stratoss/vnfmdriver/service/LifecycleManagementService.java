@@ -13,112 +13,127 @@ import org.springframework.stereotype.Service;
 import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFLifecycleManagementDriver;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Executes lifecycles against the VNFM, using the handler registered for the lifecycle in the {@link LifecycleHandlerRegistry}. The time taken to execute each lifecycle (up to the
+ * point it's accepted), and the time spent converting messages for it, are recorded by lifecycle, deployment location and outcome. Asynchronous lifecycles are handed to the
+ * {@link LifecycleCompletionTracker} once accepted, to record the time taken for them to complete.
+ */
 @Service("LifecycleManagementService")
 public class LifecycleManagementService {
 
     private final static Logger logger = LoggerFactory.getLogger(LifecycleManagementService.class);
+    private static final String EXECUTION_TIMER_NAME = "vnfmdriver.lifecycle.execution";
+    private static final String CONVERSION_TIMER_NAME = "vnfmdriver.lifecycle.conversion";
 
     private final VNFLifecycleManagementDriver vnfLifecycleManagementDriver;
     private final MessageConversionService messageConversionService;
     private final ExternalMessagingService externalMessagingService;
+    private final LifecycleHandlerRegistry lifecycleHandlerRegistry;
+    private final LifecycleCompletionTracker lifecycleCompletionTracker;
     private final VNFMDriverProperties properties;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public LifecycleManagementService(VNFLifecycleManagementDriver vnfLifecycleManagementDriver, MessageConversionService messageConversionService, ExternalMessagingService externalMessagingService,
-                                      VNFMDriverProperties properties) {
+                                      LifecycleHandlerRegistry lifecycleHandlerRegistry, LifecycleCompletionTracker lifecycleCompletionTracker, VNFMDriverProperties properties,
+                                      MeterRegistry meterRegistry) {
         this.vnfLifecycleManagementDriver = vnfLifecycleManagementDriver;
         this.messageConversionService = messageConversionService;
         this.externalMessagingService = externalMessagingService;
+        this.lifecycleHandlerRegistry = lifecycleHandlerRegistry;
+        this.lifecycleCompletionTracker = lifecycleCompletionTracker;
         this.properties = properties;
+        this.meterRegistry = meterRegistry;
     }
 
     public ExecutionAcceptedResponse executeLifecycle(ExecutionRequest executionRequest) throws MessageConversionException {
         logger.info("Processing execution request");
 
+        final LifecycleHandler handler = lifecycleHandlerRegistry.get(executionRequest.getLifecycleName());
+        if (handler == null) {
+            throw new IllegalArgumentException(String.format("Requested transition [%s] is not supported by this lifecycle driver", executionRequest.getLifecycleName()));
+        }
+
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
-            if ("Create".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                final String requestId = UUID.randomUUID().toString();
-                // Generate CreateVnfRequest message
-                final String createVnfRequest = messageConversionService.generateMessageFromRequest("CreateVnfRequest", executionRequest);
-                // Send message to VNFM
-                final String vnfInstanceResponse = vnfLifecycleManagementDriver.createVnfInstance(executionRequest.getDeploymentLocation(), createVnfRequest, requestId);
-                // Convert response into properties to be returned to ALM
-                final Map<String, Object> outputs = messageConversionService.extractPropertiesFromMessage("VnfInstance", executionRequest, vnfInstanceResponse);
-
-                // Delay sending the asynchronous response (from a different thread) as this method needs to complete first (to send the response back to Brent)
-                externalMessagingService.sendDelayedExecutionAsyncResponse(new ExecutionAsyncResponse(requestId, ExecutionStatus.COMPLETE, null, outputs, Collections.emptyMap()), properties.getExecutionResponseDelay());
-
-                // Send response back to ALM
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Install".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Instantiate
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String instantiateVnfRequest = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.instantiateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, instantiateVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Start".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Operate (Start)
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String operateVnfRequest = messageConversionService.generateMessageFromRequest("OperateVnfRequest-Start", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.operateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, operateVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Stop".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Operate (Stop)
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String operateVnfRequest = messageConversionService.generateMessageFromRequest("OperateVnfRequest-Stop", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.operateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, operateVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Uninstall".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Terminate
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String terminateVnfRequest = messageConversionService.generateMessageFromRequest("TerminateVnfRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.terminateVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, terminateVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("ScaleToLevel".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // ScaleToLevel
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String scaleVnfRequest = messageConversionService.generateMessageFromRequest("ScaleVnfRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.scaleVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, scaleVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("ScaleOut".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Scale Out
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String scaleVnfRequest = messageConversionService.generateMessageFromRequest("ScaleVnfRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.scaleVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, scaleVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("ScaleIn".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Scale In
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String scaleVnfRequest = messageConversionService.generateMessageFromRequest("ScaleVnfRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.scaleVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, scaleVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Heal".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Heal
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String healVnfRequest = messageConversionService.generateMessageFromRequest("HealVnfRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.healVnf(executionRequest.getDeploymentLocation(), vnfInstanceId, healVnfRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Delete".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // Delete
-                final String requestId = UUID.randomUUID().toString();
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                vnfLifecycleManagementDriver.deleteVnfInstance(executionRequest.getDeploymentLocation(), vnfInstanceId, requestId);
-                externalMessagingService.sendDelayedExecutionAsyncResponse(new ExecutionAsyncResponse(requestId, ExecutionStatus.COMPLETE, null, Collections.emptyMap(), Collections.emptyMap()), properties.getExecutionResponseDelay());
-                return new ExecutionAcceptedResponse(requestId);
-            } else if ("Upgrade".equalsIgnoreCase(executionRequest.getLifecycleName())) {
-                // ChangeCurrentVNFPackage
-                final String vnfInstanceId = executionRequest.getStringResourceProperty("vnfInstanceId");
-                final String changeCurrentVnfPkgRequest = messageConversionService.generateMessageFromRequest("ChangeCurrentVnfPkgRequest", executionRequest);
-                final String requestId = vnfLifecycleManagementDriver.changeCurrentVnfPkg(executionRequest.getDeploymentLocation(), vnfInstanceId, changeCurrentVnfPkgRequest);
-                return new ExecutionAcceptedResponse(requestId);
-            }
-             else {
-                throw new IllegalArgumentException(String.format("Requested transition [%s] is not supported by this lifecycle driver", executionRequest.getLifecycleName()));
-            }
+            final ExecutionAcceptedResponse executionAcceptedResponse = executeLifecycle(handler, executionRequest);
+            outcome = "success";
+            return executionAcceptedResponse;
         } catch (MessageConversionException e) {
             logger.error("Error converting message", e);
             throw e;
+        } finally {
+            sample.stop(Timer.builder(EXECUTION_TIMER_NAME)
+                             .tag("lifecycle", handler.getLifecycleName())
+                             .tag("location", getDeploymentLocationName(executionRequest))
+                             .tag("outcome", outcome)
+                             .description("Time taken to execute a lifecycle, up to the point it is accepted")
+                             .register(meterRegistry));
+        }
+    }
+
+    private ExecutionAcceptedResponse executeLifecycle(LifecycleHandler handler, ExecutionRequest executionRequest) throws MessageConversionException {
+        // Reject the request before the VNFM is called if its response couldn't be held back until after the ALM has received the response to this request
+        if (handler.getCompletion() == LifecycleHandler.Completion.SYNCHRONOUS && !externalMessagingService.canAcceptDelayedExecutionAsyncResponse()) {
+            throw new ExecutionCapacityExceededException(String.format("Too many execution responses are waiting to be sent, unable to accept lifecycle [%s]",
+                                                                       handler.getLifecycleName()));
+        }
+
+        // Generate the message to send to the VNFM (if the lifecycle has one)
+        final String message = handler.getMessageType() != null
+                ? convertMessage(handler, handler.getMessageType(), executionRequest, () -> messageConversionService.generateMessageFromRequest(handler.getMessageType(), executionRequest))
+                : null;
+
+        if (handler.getCompletion() == LifecycleHandler.Completion.SYNCHRONOUS) {
+            final String requestId = UUID.randomUUID().toString();
+            final String response = handler.getDriverCall().execute(vnfLifecycleManagementDriver, executionRequest, message, requestId);
+            // Convert response into properties to be returned to ALM
+            final Map<String, Object> outputs = handler.getResponseMessageType() != null
+                    ? convertMessage(handler, handler.getResponseMessageType(), executionRequest,
+                                     () -> messageConversionService.extractPropertiesFromMessage(handler.getResponseMessageType(), executionRequest, response))
+                    : Collections.emptyMap();
+
+            // Delay sending the asynchronous response (from a different thread) as this method needs to complete first (to send the response back to Brent)
+            externalMessagingService.sendDelayedExecutionAsyncResponse(new ExecutionAsyncResponse(requestId, ExecutionStatus.COMPLETE, null, outputs, Collections.emptyMap()),
+                                                                       properties.getExecutionResponseDelay());
+            return new ExecutionAcceptedResponse(requestId);
         }
+
+        // The response is sent once the VNFM reports the lifecycle operation occurrence has completed
+        final String requestId = handler.getDriverCall().execute(vnfLifecycleManagementDriver, executionRequest, message, null);
+        lifecycleCompletionTracker.accepted(requestId, handler.getLifecycleName(), getDeploymentLocationName(executionRequest));
+        return new ExecutionAcceptedResponse(requestId);
+    }
+
+    private <T> T convertMessage(LifecycleHandler handler, String messageType, ExecutionRequest executionRequest, MessageConversion<T> conversion) throws MessageConversionException {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            final T result = conversion.convert();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder(CONVERSION_TIMER_NAME)
+                             .tag("lifecycle", handler.getLifecycleName())
+                             .tag("location", getDeploymentLocationName(executionRequest))
+                             .tag("messageType", messageType)
+                             .tag("outcome", outcome)
+                             .description("Time taken to convert messages sent to (or received from) the VNFM for a lifecycle")
+                             .register(meterRegistry));
+        }
+    }
+
+    private static String getDeploymentLocationName(ExecutionRequest executionRequest) {
+        return executionRequest.getDeploymentLocation() != null ? String.valueOf(executionRequest.getDeploymentLocation().getName()) : "none";
+    }
+
+    @FunctionalInterface
+    private interface MessageConversion<T> {
+        T convert() throws MessageConversionException;
     }
 
 }
@@ -1,35 +1,120 @@
 package com.accantosystems.stratoss.vnfmdriver.service;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
+import org.etsi.sol003.packagemanagement.Checksum;
 import org.etsi.sol003.packagemanagement.VnfPkgInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageNotFoundException;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageRepositoryDriver;
+import com.accantosystems.stratoss.vnfmdriver.model.web.PagedResults;
+import com.accantosystems.stratoss.vnfmdriver.web.etsi.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 
 @Service("PackageManagementService")
 public class PackageManagementService {
 
     private final static Logger logger = LoggerFactory.getLogger(PackageManagementService.class);
 
+    private static final String VNFD_CACHE_NAME = "vnfmdriver.vnfd";
+    private static final String EXTRACTION_TIMER_NAME = "vnfmdriver.package.extraction";
+
     private final VNFPackageRepositoryDriver vnfPackageDriver;
     private final VNFPackageExtractor vnfPackageExtractor;
+    // VNFD zips, keyed by the checksum of the VNF package they were extracted from
+    private final Cache<String, Resource> vnfdCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final VNFMDriverProperties.PackageManagement packageManagementProperties;
 
     @Autowired
-    public PackageManagementService(VNFPackageRepositoryDriver vnfPackageDriver, VNFPackageExtractor vnfPackageExtractor) {
+    public PackageManagementService(VNFPackageRepositoryDriver vnfPackageDriver, VNFPackageExtractor vnfPackageExtractor, VNFMDriverProperties properties,
+                                    MeterRegistry meterRegistry, ObjectMapper objectMapper) {
         this.vnfPackageDriver = vnfPackageDriver;
         this.vnfPackageExtractor = vnfPackageExtractor;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.packageManagementProperties = properties.getPackageManagement();
+        this.vnfdCache = CacheBuilder.newBuilder()
+                                     .maximumWeight(properties.getPackageManagement().getVnfdCacheMaxWeight().toBytes())
+                                     .weigher(PackageManagementService::weigh)
+                                     .recordStats()
+                                     .build();
+        GuavaCacheMetrics.monitor(meterRegistry, vnfdCache, VNFD_CACHE_NAME);
     }
 
     public List<VnfPkgInfo> getAllVnfPackageInfos(String groupName) {
         return vnfPackageDriver.queryAllVnfPkgInfos(groupName);
     }
 
+    /**
+     * Returns the VnfPkgInfo records in the group which match the filter, as JSON so that attributes can then be selected from them. All matching records are returned unless a
+     * page size is configured.
+     * <p>
+     * Records are ordered by id, and the marker for the next page is the (encoded) id of the last record on this page, so a page is never skipped or repeated if packages are
+     * added or removed between requests. Records are only converted to JSON and tested against the filter until the page is full.
+     *
+     * @param groupName            repository group to search, or null for all groups
+     * @param filter               filter records must match
+     * @param nextPageOpaqueMarker marker returned with the previous page, or null for the first page
+     * @throws BadRequestException if the marker is not valid
+     */
+    public PagedResults<ObjectNode> queryVnfPackageInfos(String groupName, AttributeFilter filter, String nextPageOpaqueMarker) {
+        final String previousId = decodePageMarker(nextPageOpaqueMarker);
+        final int pageSize = packageManagementProperties.getPageSize();
+        // Let the driver narrow down the search where it can
+        final String vnfProvider = filter.getRequiredValue("vnfProvider");
+        final String vnfProductName = filter.getRequiredValue("vnfProductName");
+        final List<VnfPkgInfo> vnfPkgInfos = vnfProvider != null || vnfProductName != null ? vnfPackageDriver.queryVnfPkgInfos(groupName, vnfProvider, vnfProductName)
+                                                                                           : vnfPackageDriver.queryAllVnfPkgInfos(groupName);
+
+        final Iterator<ObjectNode> matches = vnfPkgInfos.stream()
+                                                        .filter(vnfPkgInfo -> vnfPkgInfo.getId() != null)
+                                                        .sorted(Comparator.comparing(VnfPkgInfo::getId))
+                                                        .filter(vnfPkgInfo -> previousId == null || vnfPkgInfo.getId().compareTo(previousId) > 0)
+                                                        .map(vnfPkgInfo -> (ObjectNode) objectMapper.valueToTree(vnfPkgInfo))
+                                                        .filter(filter)
+                                                        .limit(pageSize > 0 ? pageSize + 1 : Long.MAX_VALUE)
+                                                        .iterator();
+
+        final PagedResults<ObjectNode> page = new PagedResults<>();
+        if (pageSize <= 0) {
+            // Unpaged (although a marker from an earlier paged query is still honoured)
+            matches.forEachRemaining(page.getItems()::add);
+            return page;
+        }
+        while (matches.hasNext() && page.getItems().size() < pageSize) {
+            page.getItems().add(matches.next());
+        }
+        if (matches.hasNext()) {
+            page.setNextPageOpaqueMarker(encodePageMarker(page.getItems().get(page.getItems().size() - 1).path("id").asText()));
+        }
+        return page;
+    }
+
     public VnfPkgInfo getVnfPackageInfo(String vnfPkgId) throws VNFPackageNotFoundException {
         return vnfPackageDriver.getVnfPkgInfo(vnfPkgId);
     }
@@ -37,31 +122,124 @@ public class PackageManagementService {
     public String getVnfdAsYaml(String vnfPkgId) throws UnexpectedPackageContentsException, VNFPackageNotFoundException {
 
         Resource vnfPackageZip = vnfPackageDriver.getVnfPackage(vnfPkgId);
-        String vnfd = vnfPackageExtractor.extractVnfdAsYaml(vnfPkgId, vnfPackageZip);
+        String vnfd = extract("vnfdYaml", () -> vnfPackageExtractor.extractVnfdAsYaml(vnfPkgId, vnfPackageZip));
         return vnfd;
 
     }
 
+    /**
+     * The VNFD is typically fetched several times while a VNF is instantiated, so VNFD zips are cached against the package checksum (if the package has one). Subsequent requests
+     * are served without fetching the package at all.
+     */
     public Resource getVnfdAsZip(String vnfPkgId) throws VNFPackageNotFoundException {
 
+        String packageChecksum = getPackageChecksum(vnfPkgId);
+        if (packageChecksum == null) {
+            return extractVnfdAsZip(vnfPkgId);
+        }
+
+        try {
+            return vnfdCache.get(packageChecksum, () -> extractVnfdAsZip(vnfPkgId));
+        } catch (ExecutionException e) {
+            // VNFPackageNotFoundException is the only checked exception thrown by extractVnfdAsZip
+            throw (VNFPackageNotFoundException) e.getCause();
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private Resource extractVnfdAsZip(String vnfPkgId) throws VNFPackageNotFoundException {
         Resource vnfPackageZip = vnfPackageDriver.getVnfPackage(vnfPkgId);
-        Resource vnfdPackage = vnfPackageExtractor.extractVnfdAsZip(vnfPkgId, vnfPackageZip);
+        Resource vnfdPackage = extract("vnfdZip", () -> vnfPackageExtractor.extractVnfdAsZip(vnfPkgId, vnfPackageZip));
         return vnfdPackage;
     }
 
-    public Resource getVnfPackageContent(String vnfPkgId, String contentRange) throws PackageStateConflictException, ContentRangeNotSatisfiableException, VNFPackageNotFoundException {
+    private String getPackageChecksum(String vnfPkgId) {
+        try {
+            VnfPkgInfo vnfPkgInfo = vnfPackageDriver.getVnfPkgInfo(vnfPkgId);
+            Checksum checksum = vnfPkgInfo != null ? vnfPkgInfo.getChecksum() : null;
+            if (checksum != null && StringUtils.hasText(checksum.getAlgorithm()) && StringUtils.hasText(checksum.getHash())) {
+                return checksum.getAlgorithm().toUpperCase(Locale.ROOT) + ":" + checksum.getHash().toLowerCase(Locale.ROOT);
+            }
+        } catch (VNFPackageNotFoundException e) {
+            logger.debug("No package information found for VNF package [{}]: {}", vnfPkgId, e.getMessage());
+        }
+        logger.debug("No checksum for VNF package [{}], VNFD will not be cached", vnfPkgId);
+        return null;
+    }
+
+    private static String encodePageMarker(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePageMarker(String nextPageOpaqueMarker) {
+        if (!StringUtils.hasText(nextPageOpaqueMarker)) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(nextPageOpaqueMarker), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(String.format("Invalid nextpage_opaque_marker [%s]", nextPageOpaqueMarker));
+        }
+    }
+
+    private static int weigh(String key, Resource value) {
+        try {
+            return (int) Math.min(value.contentLength(), Integer.MAX_VALUE);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Content is streamed from the package repository (or package cache), never read into memory. Any requested byte range is applied by the caller. If the content is
+     * {@link Closeable} (e.g. it holds a package in the package cache), the caller must close it once the content has been sent.
+     */
+    public Resource getVnfPackageContent(String vnfPkgId) throws PackageStateConflictException, VNFPackageNotFoundException {
         Resource vnfPackageZip = vnfPackageDriver.getVnfPackage(vnfPkgId);
-        // TODO handle content range
+        if (vnfPackageZip.isFile()) {
+            // allows the package to be sent directly from the file
+            try {
+                return new FileRegionResource(vnfPackageZip.getFile(), 0, vnfPackageZip.contentLength(), vnfPackageZip instanceof Closeable ? (Closeable) vnfPackageZip : null);
+            } catch (IOException e) {
+                logger.warn("Unable to read VNF package [{}] as a file, will be streamed instead: {}", vnfPkgId, e.getMessage());
+            }
+        }
         return vnfPackageZip;
     }
 
-    public Resource getVnfPackageArtifact(String vnfPkgId, String artifactPath, String contentRange) throws PackageStateConflictException, ContentRangeNotSatisfiableException,
-                                                                                                            VNFPackageNotFoundException {
+    /**
+     * The artifact is {@link Closeable}, and must be closed by the caller once it has been sent (or if it is never read).
+     */
+    public Resource getVnfPackageArtifact(String vnfPkgId, String artifactPath) throws PackageStateConflictException, VNFPackageNotFoundException {
 
         Resource vnfPackageZip = vnfPackageDriver.getVnfPackage(vnfPkgId);
-        Resource vnfArtifact = vnfPackageExtractor.extractVnfPackageArtifact(vnfPkgId, artifactPath, vnfPackageZip);
-        // TODO handle content range
+        Resource vnfArtifact = extract("artifact", () -> vnfPackageExtractor.extractVnfPackageArtifact(vnfPkgId, artifactPath, vnfPackageZip));
         return vnfArtifact;
     }
 
+    /**
+     * Runs an extraction from a VNF package, recording the time taken by the type of content extracted
+     */
+    private <T, E extends Exception> T extract(String type, Extraction<T, E> extraction) throws E {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            final T extracted = extraction.extract();
+            outcome = "success";
+            return extracted;
+        } finally {
+            sample.stop(Timer.builder(EXTRACTION_TIMER_NAME)
+                             .tag("type", type)
+                             .tag("outcome", outcome)
+                             .description("Time taken to extract content from VNF packages")
+                             .register(meterRegistry));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Extraction<T, E extends Exception> {
+        T extract() throws E;
+    }
+
 }
@@ -0,0 +1,513 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Random access to the contents of a VNF package. The central directory is read once, when the archive is opened, so entries can be listed without reading any file data and
+ * individual entries read without scanning through the rest of the archive.
+ * <p>
+ * Packages which aren't already held in a local file (e.g. those not served from the package cache) are first copied to a temporary file, which is deleted on close. A package
+ * resource which is {@link Closeable} (such as a package pinned in the package cache) is owned by the archive, and closed along with it.
+ */
+public class VNFPackageArchive implements Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(VNFPackageArchive.class);
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final int CENTRAL_DIRECTORY_HEADER_LENGTH = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int FLAG_ENCRYPTED = 0x0001;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    private final File file;
+    private final ZipFile zipFile;
+    private final Path temporaryFile;
+    private final Closeable source;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Keyed by entry name, in the order the entries appear in the central directory
+    private final Map<String, ZipEntry> entries;
+    // Only read if the data of an entry needs to be located within the file
+    private Map<String, CentralDirectoryHeader> centralDirectory;
+
+    private VNFPackageArchive(File file, Path temporaryFile, Closeable source) throws IOException {
+        this.file = file;
+        this.zipFile = new ZipFile(file);
+        this.temporaryFile = temporaryFile;
+        this.source = source;
+
+        final Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+        while (zipEntries.hasMoreElements()) {
+            final ZipEntry zipEntry = zipEntries.nextElement();
+            entries.putIfAbsent(zipEntry.getName(), zipEntry);
+        }
+        this.entries = Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * Opens a VNF package, taking ownership of the package resource if it is {@link Closeable} (it is closed along with the archive, or straight away if the package cannot be
+     * opened or has been copied to a temporary file).
+     */
+    public static VNFPackageArchive open(Resource vnfPackageZip) throws IOException {
+        final Closeable source = vnfPackageZip instanceof Closeable ? (Closeable) vnfPackageZip : null;
+        try {
+            if (vnfPackageZip.isFile()) {
+                return new VNFPackageArchive(vnfPackageZip.getFile(), null, source);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeSource(source);
+            throw e;
+        }
+
+        final Path temporaryFile = Files.createTempFile("vnfpackage", ".zip");
+        try (InputStream inputStream = vnfPackageZip.getInputStream()) {
+            logger.debug("Copying VNF package to temporary file [{}]", temporaryFile);
+            Files.copy(inputStream, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        } finally {
+            closeSource(source);
+        }
+
+        try {
+            return new VNFPackageArchive(temporaryFile.toFile(), temporaryFile, null);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+    }
+
+    public boolean containsArtifact(String artifactPath) {
+        return entries.containsKey(artifactPath);
+    }
+
+    /**
+     * @return paths of all files in the archive (i.e. excluding directories)
+     */
+    public List<String> listArtifacts(Predicate<String> artifactPathFilter) {
+        return entries.values().stream().filter(e -> !e.isDirectory()).map(ZipEntry::getName).filter(artifactPathFilter).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the uncompressed size of an artifact, or -1 if not known (or the artifact doesn't exist)
+     */
+    public long getArtifactSize(String artifactPath) {
+        final ZipEntry zipEntry = entries.get(artifactPath);
+        return zipEntry != null ? zipEntry.getSize() : -1;
+    }
+
+    /**
+     * @return a stream of the (uncompressed) artifact contents, or null if the artifact doesn't exist
+     */
+    public InputStream getArtifactInputStream(String artifactPath) throws IOException {
+        final ZipEntry zipEntry = entries.get(artifactPath);
+        return zipEntry != null ? zipFile.getInputStream(zipEntry) : null;
+    }
+
+    /**
+     * @return the artifact contents, or null if the artifact doesn't exist
+     */
+    public byte[] getArtifact(String artifactPath) throws IOException {
+        try (InputStream inputStream = getArtifactInputStream(artifactPath)) {
+            return inputStream != null ? StreamUtils.copyToByteArray(inputStream) : null;
+        }
+    }
+
+    /**
+     * Locates an artifact which has been stored (rather than compressed) in the package, so its contents can be read directly from the package file. The region is owned by this
+     * archive, so closing the region closes the archive.
+     *
+     * @return the region of the package file holding the artifact contents, or null if the artifact doesn't exist, is compressed or the package is only held in a temporary file
+     */
+    public FileRegionResource getStoredArtifactRegion(String artifactPath) throws IOException {
+        final ZipEntry zipEntry = entries.get(artifactPath);
+        if (zipEntry == null || zipEntry.getMethod() != ZipEntry.STORED || zipEntry.getSize() < 0 || temporaryFile != null) {
+            return null;
+        }
+        final CentralDirectoryHeader centralDirectoryHeader = getCentralDirectory().get(artifactPath);
+        if (centralDirectoryHeader == null) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer localHeader = readLocalHeader(channel, centralDirectoryHeader, artifactPath);
+            return new FileRegionResource(file, getDataOffset(centralDirectoryHeader, localHeader), zipEntry.getSize(), this);
+        }
+    }
+
+    /**
+     * Writes a new zip, containing only the given artifacts, to the output stream (which is left open). Where possible, the compressed data of each artifact is copied as-is, rather
+     * than being inflated and compressed again.
+     */
+    public void writeArtifacts(List<String> artifactPaths, OutputStream outputStream) throws IOException {
+        final List<ZipEntry> zipEntries = artifactPaths.stream().map(entries::get).filter(Objects::nonNull).collect(Collectors.toList());
+
+        Map<String, CentralDirectoryHeader> centralDirectory;
+        try {
+            centralDirectory = getCentralDirectory();
+        } catch (ZipException e) {
+            logger.debug("Unable to read central directory, artifacts will be compressed again: {}", e.getMessage());
+            centralDirectory = Collections.emptyMap();
+        }
+        final Map<String, CentralDirectoryHeader> headers = centralDirectory;
+        if (zipEntries.stream().allMatch(zipEntry -> canCopyCompressed(zipEntry, headers.get(zipEntry.getName())))) {
+            writeCompressedArtifacts(zipEntries, outputStream);
+        } else {
+            writeDecompressedArtifacts(zipEntries, outputStream);
+        }
+    }
+
+    /**
+     * Hands over this archive to a resource for streaming the contents of a single artifact. The archive (and any temporary file) is closed once the stream returned by the resource
+     * has been closed, so the resource can only be read once. The resource is also {@link Closeable}, and must be closed by the caller if the stream may never be opened (for
+     * example if the request fails before the content is written).
+     *
+     * @return a resource for the artifact, or null if the artifact doesn't exist (in which case the archive remains open)
+     */
+    public Resource toArtifactResource(String artifactPath) {
+        final ZipEntry zipEntry = entries.get(artifactPath);
+        return zipEntry != null ? new ArtifactResource(zipEntry) : null;
+    }
+
+    /**
+     * @return contents of all files with a path starting with the given prefix, keyed on their path
+     */
+    public Map<String, byte[]> getArtifacts(String artifactPathStartsWith) throws IOException {
+        final Map<String, byte[]> artifacts = new LinkedHashMap<>();
+        for (String artifactPath : listArtifacts(p -> p.startsWith(artifactPathStartsWith))) {
+            artifacts.put(artifactPath, getArtifact(artifactPath));
+        }
+        return artifacts;
+    }
+
+    private static boolean canCopyCompressed(ZipEntry zipEntry, CentralDirectoryHeader centralDirectoryHeader) {
+        return centralDirectoryHeader != null && (centralDirectoryHeader.getFlags() & FLAG_ENCRYPTED) == 0
+               && (zipEntry.getMethod() == ZipEntry.STORED || zipEntry.getMethod() == ZipEntry.DEFLATED)
+               && zipEntry.getCompressedSize() >= 0 && zipEntry.getCompressedSize() < ZIP64_MAGIC && zipEntry.getSize() >= 0 && zipEntry.getSize() < ZIP64_MAGIC
+               && centralDirectoryHeader.localHeaderOffset < ZIP64_MAGIC;
+    }
+
+    // Each entry is written with sizes and CRC in the local header (rather than a data descriptor) and without any extra fields, so only the local header and central directory need
+    // to be rewritten around the copied data
+    private void writeCompressedArtifacts(List<ZipEntry> zipEntries, OutputStream outputStream) throws IOException {
+        final WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+        final ByteArrayOutputStream centralDirectoryOutput = new ByteArrayOutputStream();
+        long offset = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (ZipEntry zipEntry : zipEntries) {
+                final CentralDirectoryHeader centralDirectoryHeader = centralDirectory.get(zipEntry.getName());
+                final ByteBuffer localHeader = readLocalHeader(channel, centralDirectoryHeader, zipEntry.getName());
+                final long dataOffset = getDataOffset(centralDirectoryHeader, localHeader);
+                final int flags = centralDirectoryHeader.getFlags() & ~FLAG_DATA_DESCRIPTOR;
+
+                localHeader.putShort(6, (short) flags);
+                localHeader.putInt(14, (int) zipEntry.getCrc());
+                localHeader.putInt(18, (int) zipEntry.getCompressedSize());
+                localHeader.putInt(22, (int) zipEntry.getSize());
+                localHeader.putShort(26, (short) centralDirectoryHeader.name.length);
+                localHeader.putShort(28, (short) 0);
+                writeFully(outputChannel, localHeader.rewind());
+                writeFully(outputChannel, ByteBuffer.wrap(centralDirectoryHeader.name));
+
+                long transferred = 0;
+                while (transferred < zipEntry.getCompressedSize()) {
+                    transferred += channel.transferTo(dataOffset + transferred, zipEntry.getCompressedSize() - transferred, outputChannel);
+                }
+
+                final ByteBuffer header = ByteBuffer.allocate(CENTRAL_DIRECTORY_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN).put(centralDirectoryHeader.header.duplicate().rewind());
+                header.putShort(8, (short) flags);
+                header.putShort(30, (short) 0);
+                header.putShort(32, (short) 0);
+                header.putInt(42, (int) offset);
+                centralDirectoryOutput.write(header.array());
+                centralDirectoryOutput.write(centralDirectoryHeader.name);
+
+                offset += LOCAL_FILE_HEADER_LENGTH + centralDirectoryHeader.name.length + zipEntry.getCompressedSize();
+            }
+        }
+
+        if (offset >= ZIP64_MAGIC) {
+            throw new ZipException("Artifacts too large to be written without Zip64 extensions");
+        }
+        centralDirectoryOutput.writeTo(outputStream);
+        final ByteBuffer endOfCentralDirectory = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        endOfCentralDirectory.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+                             .putShort((short) 0)
+                             .putShort((short) 0)
+                             .putShort((short) zipEntries.size())
+                             .putShort((short) zipEntries.size())
+                             .putInt(centralDirectoryOutput.size())
+                             .putInt((int) offset)
+                             .putShort((short) 0);
+        writeFully(outputChannel, endOfCentralDirectory.flip());
+    }
+
+    private void writeDecompressedArtifacts(List<ZipEntry> zipEntries, OutputStream outputStream) throws IOException {
+        final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        for (ZipEntry zipEntry : zipEntries) {
+            zipOutputStream.putNextEntry(new ZipEntry(zipEntry.getName()));
+            try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+                StreamUtils.copy(inputStream, zipOutputStream);
+            }
+            zipOutputStream.closeEntry();
+        }
+        // don't close the underlying stream
+        zipOutputStream.finish();
+    }
+
+    private Map<String, CentralDirectoryHeader> getCentralDirectory() throws IOException {
+        if (centralDirectory == null) {
+            centralDirectory = readCentralDirectory();
+        }
+        return centralDirectory;
+    }
+
+    private static ByteBuffer readLocalHeader(FileChannel channel, CentralDirectoryHeader centralDirectoryHeader, String artifactPath) throws IOException {
+        final ByteBuffer localHeader = read(channel, centralDirectoryHeader.localHeaderOffset, LOCAL_FILE_HEADER_LENGTH);
+        if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException(String.format("Invalid local file header for entry [%s]", artifactPath));
+        }
+        return localHeader;
+    }
+
+    private static long getDataOffset(CentralDirectoryHeader centralDirectoryHeader, ByteBuffer localHeader) {
+        return centralDirectoryHeader.localHeaderOffset + LOCAL_FILE_HEADER_LENGTH + getUnsignedShort(localHeader, 26) + getUnsignedShort(localHeader, 28);
+    }
+
+    // ZipFile doesn't expose where the data of each entry starts, so the central directory has to be read again to find the local file headers
+    private Map<String, CentralDirectoryHeader> readCentralDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The end of central directory record is 22 bytes, followed by a comment of up to 64KB
+            final long fileSize = channel.size();
+            final int tailSize = (int) Math.min(fileSize, END_OF_CENTRAL_DIRECTORY_LENGTH + 0xFFFF);
+            final ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+            int endOfCentralDirectory = tailSize - END_OF_CENTRAL_DIRECTORY_LENGTH;
+            while (endOfCentralDirectory >= 0 && tail.getInt(endOfCentralDirectory) != END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                endOfCentralDirectory--;
+            }
+            if (endOfCentralDirectory < 0) {
+                throw new ZipException("Unable to find end of central directory record");
+            }
+
+            long centralDirectorySize = getUnsignedInt(tail, endOfCentralDirectory + 12);
+            long centralDirectoryOffset = getUnsignedInt(tail, endOfCentralDirectory + 16);
+            if ((centralDirectorySize == ZIP64_MAGIC || centralDirectoryOffset == ZIP64_MAGIC) && endOfCentralDirectory >= 20
+                && tail.getInt(endOfCentralDirectory - 20) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+                final ByteBuffer zip64EndOfCentralDirectory = read(channel, tail.getLong(endOfCentralDirectory - 12), 56);
+                if (zip64EndOfCentralDirectory.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new ZipException("Invalid Zip64 end of central directory record");
+                }
+                centralDirectorySize = zip64EndOfCentralDirectory.getLong(40);
+                centralDirectoryOffset = zip64EndOfCentralDirectory.getLong(48);
+            }
+            if (centralDirectorySize > Integer.MAX_VALUE) {
+                throw new ZipException(String.format("Central directory too large [%s]", centralDirectorySize));
+            }
+
+            final Map<String, CentralDirectoryHeader> headers = new HashMap<>();
+            final ByteBuffer centralDirectoryBuffer = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+            int headerPosition = 0;
+            while (headerPosition + CENTRAL_DIRECTORY_HEADER_LENGTH <= centralDirectoryBuffer.limit() && centralDirectoryBuffer.getInt(headerPosition) == CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                final int nameLength = getUnsignedShort(centralDirectoryBuffer, headerPosition + 28);
+                final int extraLength = getUnsignedShort(centralDirectoryBuffer, headerPosition + 30);
+                final int commentLength = getUnsignedShort(centralDirectoryBuffer, headerPosition + 32);
+                final byte[] name = new byte[nameLength];
+                centralDirectoryBuffer.position(headerPosition + CENTRAL_DIRECTORY_HEADER_LENGTH);
+                centralDirectoryBuffer.get(name);
+                final ByteBuffer header = ByteBuffer.allocate(CENTRAL_DIRECTORY_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(centralDirectoryBuffer.duplicate().position(headerPosition).limit(headerPosition + CENTRAL_DIRECTORY_HEADER_LENGTH)).flip();
+
+                long localHeaderOffset = getUnsignedInt(centralDirectoryBuffer, headerPosition + 42);
+                if (localHeaderOffset == ZIP64_MAGIC) {
+                    // The Zip64 extra field only includes the values which didn't fit in the header, in a fixed order
+                    int extraPosition = headerPosition + CENTRAL_DIRECTORY_HEADER_LENGTH + nameLength;
+                    final int extraEnd = extraPosition + extraLength;
+                    while (extraPosition + 4 <= extraEnd) {
+                        final int extraId = getUnsignedShort(centralDirectoryBuffer, extraPosition);
+                        final int extraSize = getUnsignedShort(centralDirectoryBuffer, extraPosition + 2);
+                        if (extraId == ZIP64_EXTRA_FIELD_ID) {
+                            int valuePosition = extraPosition + 4;
+                            valuePosition += getUnsignedInt(centralDirectoryBuffer, headerPosition + 24) == ZIP64_MAGIC ? 8 : 0;
+                            valuePosition += getUnsignedInt(centralDirectoryBuffer, headerPosition + 20) == ZIP64_MAGIC ? 8 : 0;
+                            localHeaderOffset = centralDirectoryBuffer.getLong(valuePosition);
+                            break;
+                        }
+                        extraPosition += 4 + extraSize;
+                    }
+                }
+                headers.putIfAbsent(new String(name, StandardCharsets.UTF_8), new CentralDirectoryHeader(header, name, localHeaderOffset));
+                headerPosition += CENTRAL_DIRECTORY_HEADER_LENGTH + nameLength + extraLength + commentLength;
+            }
+            return headers;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of VNF package");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void closeSource(Closeable source) {
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close VNF package", e);
+            }
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int getUnsignedShort(ByteBuffer buffer, int index) {
+        return Short.toUnsignedInt(buffer.getShort(index));
+    }
+
+    private static long getUnsignedInt(ByteBuffer buffer, int index) {
+        return Integer.toUnsignedLong(buffer.getInt(index));
+    }
+
+    /**
+     * Closes the archive, deletes any temporary file and closes the package resource (if owned by the archive). Closing an archive more than once has no effect.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            zipFile.close();
+        } finally {
+            if (temporaryFile != null) {
+                Files.deleteIfExists(temporaryFile);
+            }
+            closeSource(source);
+        }
+    }
+
+    /**
+     * The fixed-size part of an entry's central directory header, along with its name and (possibly Zip64) local header offset
+     */
+    private static class CentralDirectoryHeader {
+
+        private final ByteBuffer header;
+        private final byte[] name;
+        private final long localHeaderOffset;
+
+        private CentralDirectoryHeader(ByteBuffer header, byte[] name, long localHeaderOffset) {
+            this.header = header;
+            this.name = name;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        private int getFlags() {
+            return getUnsignedShort(header, 8);
+        }
+
+    }
+
+    private class ArtifactResource extends AbstractResource implements Closeable {
+
+        private final ZipEntry zipEntry;
+        private boolean read;
+
+        private ArtifactResource(ZipEntry zipEntry) {
+            this.zipEntry = zipEntry;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return zipEntry.getSize();
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (read) {
+                throw new IllegalStateException(String.format("Artifact [%s] has already been read", zipEntry.getName()));
+            }
+            read = true;
+            return new FilterInputStream(zipFile.getInputStream(zipEntry)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        VNFPackageArchive.this.close();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String getDescription() {
+            return String.format("VNF package artifact [%s]", zipEntry.getName());
+        }
+
+        @Override
+        public void close() throws IOException {
+            VNFPackageArchive.this.close();
+        }
+
+    }
+
+}
@@ -3,11 +3,7 @@ package com.accantosystems.stratoss.vnfmdriver.service;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import org.etsi.sol003.packagemanagement.VnfPackageArtifactInfo;
 import org.etsi.sol003.packagemanagement.VnfPackageSoftwareImageInfo;
@@ -35,59 +31,62 @@ public abstract class VNFPackageExtractor {
         this.vnfmDriverProperties = vnfmDriverProperties;
     }
 
-    public Resource extractVnfPackageArtifact(String vnfPkgId, String artifactPath, Resource vnfPackageZip) throws PackageStateConflictException, ContentRangeNotSatisfiableException {
+    /**
+     * Artifacts are not read into memory: stored artifacts are returned as a region of the package file, anything else is decompressed as it's read
+     */
+    public Resource extractVnfPackageArtifact(String vnfPkgId, String artifactPath, Resource vnfPackageZip) throws PackageStateConflictException {
 
         logger.info("Extracting VNF package artifact on path [{}] from VNF package with id [{}]", artifactPath, vnfPkgId);
 
         Resource artifactResource = null;
+        VNFPackageArchive vnfPackageArchive = null;
         try {
-            byte[] artifactByteArray = extractArtifactFromZip(vnfPackageZip, artifactPath);
-            if (artifactByteArray == null) {
+            vnfPackageArchive = VNFPackageArchive.open(vnfPackageZip);
+            if (!vnfPackageArchive.containsArtifact(artifactPath)) {
                 throw new VNFPackageExtractionException(String.format("Unable to find artifact [%s] within VnfPackage with id [%s]", artifactPath, vnfPkgId));
             }
-            artifactResource = new ByteArrayResource(artifactByteArray);
+            artifactResource = vnfPackageArchive.getStoredArtifactRegion(artifactPath);
+            if (artifactResource == null) {
+                // the archive is closed once the artifact has been read
+                artifactResource = vnfPackageArchive.toArtifactResource(artifactPath);
+            }
+            // either way, the archive is closed when the artifact resource is closed
+            vnfPackageArchive = null;
             return artifactResource;
         } catch (IOException e) {
             handleGenericExtractionException(e, vnfPkgId);
+        } finally {
+            closeQuietly(vnfPackageArchive);
         }
         return artifactResource;
     }
 
+    private void closeQuietly(VNFPackageArchive vnfPackageArchive) {
+        if (vnfPackageArchive != null) {
+            try {
+                vnfPackageArchive.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close VNF package archive", e);
+            }
+        }
+    }
+
     protected VNFPackageExtractionException handleGenericExtractionException(Exception e, String vnfPkgId) {
         throw new VNFPackageExtractionException(String.format("Unable to extract Vnf Package with id [%s]", vnfPkgId), e);
     }
 
-    protected byte[] extractArtifactFromZip(Resource zipPackage, String artifactPath) throws IOException {
-
-        try (ZipInputStream zipInputStream = new ZipInputStream(zipPackage.getInputStream())) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (zipEntry.getName().equals(artifactPath)) {
-                    return extractBytesFromZipEntry(zipInputStream);
-                }
-            }
-            return null;
-        }
+    protected byte[] extractArtifactFromZip(VNFPackageArchive vnfPackageArchive, String artifactPath) throws IOException {
+        return vnfPackageArchive.getArtifact(artifactPath);
     }
 
     // return map of artifacts keyed on their path. Excludes any directories in the zip
-    protected Map<String, byte[]> extractArtifactsFromZip(Resource zipPackage, String artifactPathStartsWith) throws IOException {
-        Map<String, byte[]> artifactResources = new HashMap<String, byte[]>();
-
-        try (ZipInputStream zipInputStream = new ZipInputStream(zipPackage.getInputStream())) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (!zipEntry.isDirectory() && zipEntry.getName().startsWith(artifactPathStartsWith)) {
-                    artifactResources.put(zipEntry.getName(), extractBytesFromZipEntry(zipInputStream));
-                }
-            }
-        }
-        return artifactResources;
+    protected Map<String, byte[]> extractArtifactsFromZip(VNFPackageArchive vnfPackageArchive, String artifactPathStartsWith) throws IOException {
+        return vnfPackageArchive.getArtifacts(artifactPathStartsWith);
     }
 
-    protected List<VnfPackageSoftwareImageInfo> listPackageImageArtifacts(Resource zipPackage) throws IOException {
+    protected List<VnfPackageSoftwareImageInfo> listPackageImageArtifacts(VNFPackageArchive vnfPackageArchive) {
         String imagePathFilter = vnfmDriverProperties.getPackageManagement().getImageArtifactFilter();
-        List<String> packageImageArtifactPaths = imagePathFilter == null ? Collections.emptyList() : listPackageArtifacts(zipPackage, imagePathFilter, null);
+        List<String> packageImageArtifactPaths = imagePathFilter == null ? Collections.emptyList() : listPackageArtifacts(vnfPackageArchive, imagePathFilter, null);
 
         List<VnfPackageSoftwareImageInfo> softwareImages = packageImageArtifactPaths.stream().map(artifactPath -> {
             VnfPackageSoftwareImageInfo info = new VnfPackageSoftwareImageInfo();
@@ -98,9 +97,9 @@ public abstract class VNFPackageExtractor {
         return softwareImages;
     }
 
-    protected List<VnfPackageArtifactInfo> listPackageNonImageArtifacts(Resource zipPackage) throws IOException {
+    protected List<VnfPackageArtifactInfo> listPackageNonImageArtifacts(VNFPackageArchive vnfPackageArchive) {
         String imagePathFilter = vnfmDriverProperties.getPackageManagement().getImageArtifactFilter();
-        List<String> packageNonImageArtifactPaths = listPackageArtifacts(zipPackage, null, imagePathFilter);
+        List<String> packageNonImageArtifactPaths = listPackageArtifacts(vnfPackageArchive, null, imagePathFilter);
 
         List<VnfPackageArtifactInfo> additionalArtifacts = packageNonImageArtifactPaths.stream().map(artifactPath -> {
             VnfPackageArtifactInfo info = new VnfPackageArtifactInfo();
@@ -111,43 +110,16 @@ public abstract class VNFPackageExtractor {
         return additionalArtifacts;
     }
 
-    private List<String> listPackageArtifacts(Resource zipPackage, String artifactPathContains, String artifactPathNotContains) throws IOException {
-        List<String> zipContents = new ArrayList<String>();
-
-        try (ZipInputStream zipInputStream = new ZipInputStream(zipPackage.getInputStream())) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (!zipEntry.isDirectory() && (artifactPathContains == null || zipEntry.getName().contains(artifactPathContains))
-                    && (artifactPathNotContains == null || !zipEntry.getName().contains(artifactPathNotContains))) {
-                    zipContents.add(zipEntry.getName());
-                }
-            }
-        }
-        return zipContents;
-    }
-
-    private byte[] extractBytesFromZipEntry(ZipInputStream zipInputStream) throws IOException {
-
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            byte[] byteBuff = new byte[1024];
-            int bytesRead = 0;
-            while ((bytesRead = zipInputStream.read(byteBuff)) != -1) {
-                baos.write(byteBuff, 0, bytesRead);
-            }
-            return baos.toByteArray();
-        }
+    // Only the central directory is used, so listing never reads (or decompresses) the artifacts themselves
+    private List<String> listPackageArtifacts(VNFPackageArchive vnfPackageArchive, String artifactPathContains, String artifactPathNotContains) {
+        return vnfPackageArchive.listArtifacts(artifactPath -> (artifactPathContains == null || artifactPath.contains(artifactPathContains))
+                                                               && (artifactPathNotContains == null || !artifactPath.contains(artifactPathNotContains)));
     }
 
-    protected Resource createZipFromArtifacts(Map<String, byte[]> pathToArtifactsMap) throws IOException {
+    protected Resource createZipFromArtifacts(VNFPackageArchive vnfPackageArchive, List<String> artifactPaths) throws IOException {
 
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(baos)) {
-
-                for (Entry<String, byte[]> artifact : pathToArtifactsMap.entrySet()) {
-                    zipOutputStream.putNextEntry(new ZipEntry(artifact.getKey()));
-                    zipOutputStream.write(artifact.getValue());
-                }
-            }
+            vnfPackageArchive.writeArtifacts(artifactPaths, baos);
             return new ByteArrayResource(baos.toByteArray());
         }
     }
@@ -0,0 +1,192 @@
+package com.accantosystems.stratoss.vnfmdriver.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.DelayedExecutionAsyncResponse;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Holds ExecutionAsyncResponses until their delay has passed, then hands them to a small pool of publisher threads.
+ * <p>
+ * A single thread waits on a {@link DelayQueue}, so any number of pending responses only costs the memory to hold them. A response is never published before its delay has passed,
+ * as it could then reach the ALM before the response to the execution request. Callers should check {@link #hasCapacity()} before starting work that will need a delayed
+ * response, so new requests can be rejected once the maximum number are pending. On shutdown, responses which are already due are published, with the rest handed back (with
+ * their due time) to be sent later.
+ */
+public class DelayedExecutionResponseDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DelayedExecutionResponseDispatcher.class);
+
+    private final Consumer<ExecutionAsyncResponse> publisher;
+    private final Consumer<DelayedExecutionAsyncResponse> returner;
+    private final VNFMDriverProperties.DelayedResponses properties;
+    private final DelayQueue<DelayedResponse> delayQueue = new DelayQueue<>();
+    private final ExecutorService publisherExecutor;
+    private final Thread dispatcherThread;
+    private final Timer delayAccuracyTimer;
+    private final Counter overflowCounter;
+    private volatile boolean closed;
+
+    /**
+     * @param publisher publishes responses once they are due
+     * @param returner  hands back responses which are not yet due when the dispatcher is shut down
+     */
+    public DelayedExecutionResponseDispatcher(Consumer<ExecutionAsyncResponse> publisher, Consumer<DelayedExecutionAsyncResponse> returner,
+                                              VNFMDriverProperties.DelayedResponses properties, MeterRegistry meterRegistry) {
+        this.publisher = publisher;
+        this.returner = returner;
+        this.properties = properties;
+        this.publisherExecutor = new ThreadPoolExecutor(properties.getPublisherThreads(), properties.getPublisherThreads(), 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                                                        new CustomizableThreadFactory("executionResponsePublisher"));
+
+        Gauge.builder("vnfmdriver.execution.response.pending", delayQueue, DelayQueue::size)
+             .description("Delayed ExecutionAsyncResponses waiting to be published")
+             .register(meterRegistry);
+        this.delayAccuracyTimer = Timer.builder("vnfmdriver.execution.response.delay.accuracy")
+                                       .description("Time between a delayed ExecutionAsyncResponse becoming due and being published")
+                                       .register(meterRegistry);
+        this.overflowCounter = Counter.builder("vnfmdriver.execution.response.overflow")
+                                      .description("Delayed ExecutionAsyncResponses queued after the maximum number pending was reached")
+                                      .register(meterRegistry);
+
+        this.dispatcherThread = new CustomizableThreadFactory("executionResponseDispatcher").newThread(this::dispatchDueResponses);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * @return true if fewer than the maximum number of responses are pending (and the dispatcher is still running)
+     */
+    public boolean hasCapacity() {
+        return !closed && delayQueue.size() < properties.getMaxPending();
+    }
+
+    /**
+     * Publishes a response once the delay has passed. Never blocks, and the response is queued even if the maximum number are already pending (as the work it reports on has
+     * been done), so callers are expected to check {@link #hasCapacity()} beforehand.
+     *
+     * @param response response to publish
+     * @param delay    time to wait before publishing
+     */
+    public void dispatch(final ExecutionAsyncResponse response, final Duration delay) {
+        final DelayedResponse delayedResponse = new DelayedResponse(response, System.nanoTime() + delay.toNanos(), System.currentTimeMillis() + delay.toMillis());
+        if (closed) {
+            logger.warn("Dispatcher has been shut down, handing back ExecutionAsyncResponse [{}] to be published later", response.getRequestId());
+            returnResponse(delayedResponse);
+            return;
+        }
+
+        if (delayQueue.size() >= properties.getMaxPending()) {
+            logger.warn("Maximum number of delayed ExecutionAsyncResponses reached, queuing [{}] regardless", response.getRequestId());
+            overflowCounter.increment();
+        }
+        delayQueue.put(delayedResponse);
+        // Covers a race with close(), where the queue may already have been drained
+        if (closed && delayQueue.remove(delayedResponse)) {
+            returnResponse(delayedResponse);
+        }
+    }
+
+    public int getPendingCount() {
+        return delayQueue.size();
+    }
+
+    public void close() throws InterruptedException {
+        closed = true;
+        dispatcherThread.interrupt();
+        dispatcherThread.join();
+
+        // Responses which are already due are published, anything else is handed back so it isn't published before its delay has passed
+        final List<DelayedResponse> due = new ArrayList<>();
+        delayQueue.drainTo(due);
+        final List<DelayedResponse> remaining = new ArrayList<>(delayQueue);
+        delayQueue.clear();
+        due.forEach(this::publish);
+        if (!remaining.isEmpty()) {
+            logger.info("Handing back {} delayed ExecutionAsyncResponses on shutdown", remaining.size());
+            remaining.forEach(this::returnResponse);
+        }
+
+        publisherExecutor.shutdown();
+        if (!publisherExecutor.awaitTermination(properties.getDrainTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            logger.warn("Timed out waiting for delayed ExecutionAsyncResponses to be published");
+        }
+    }
+
+    private void dispatchDueResponses() {
+        while (!closed) {
+            try {
+                final DelayedResponse delayedResponse = delayQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (delayedResponse != null) {
+                    try {
+                        publisherExecutor.execute(() -> publish(delayedResponse));
+                    } catch (RejectedExecutionException e) {
+                        publish(delayedResponse);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void publish(final DelayedResponse delayedResponse) {
+        delayAccuracyTimer.record(Math.max(0, System.nanoTime() - delayedResponse.dueTime), TimeUnit.NANOSECONDS);
+        try {
+            publisher.accept(delayedResponse.response);
+        } catch (Exception e) {
+            logger.error(String.format("Exception caught publishing ExecutionAsyncResponse [%s]", delayedResponse.response.getRequestId()), e);
+        }
+    }
+
+    private void returnResponse(final DelayedResponse delayedResponse) {
+        try {
+            returner.accept(new DelayedExecutionAsyncResponse(delayedResponse.response, delayedResponse.dueTimeMillis));
+        } catch (Exception e) {
+            logger.error(String.format("Exception caught handing back ExecutionAsyncResponse [%s]", delayedResponse.response.getRequestId()), e);
+        }
+    }
+
+    private static class DelayedResponse implements Delayed {
+        private final ExecutionAsyncResponse response;
+        private final long dueTime;
+        // Wall clock equivalent of the due time, for responses handed back to be published elsewhere
+        private final long dueTimeMillis;
+
+        private DelayedResponse(ExecutionAsyncResponse response, long dueTime, long dueTimeMillis) {
+            this.response = response;
+            this.dueTime = dueTime;
+            this.dueTimeMillis = dueTimeMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueTime, ((DelayedResponse) other).dueTime);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.accantosystems.stratoss.vnfmdriver.service.impl;
+
+import static com.accantosystems.stratoss.vnfmdriver.service.impl.JavascriptMessageConversionServiceImpl.SCRIPTS_PATH;
+import static com.accantosystems.stratoss.vnfmdriver.service.impl.JavascriptMessageConversionServiceImpl.getInterfaceVersion;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.service.DriverFilesService;
+import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionException;
+import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionService;
+import com.accantosystems.stratoss.vnfmdriver.service.impl.MessageTemplate.UnsupportedMessageException;
+
+/**
+ * Generates the standard SOL003 request messages in Java, avoiding the cost of running the equivalent default scripts.
+ * <p>
+ * The Javascript implementation is still used whenever the resource package provides its own script for a message, for interface versions (and message types) that don't have a Java
+ * equivalent, for any request that cannot be converted identically to the script, and for parsing all response messages.
+ */
+@Primary
+@Service("JavaMessageConversionServiceImpl")
+public class JavaMessageConversionServiceImpl implements MessageConversionService {
+
+    private final static Logger logger = LoggerFactory.getLogger(JavaMessageConversionServiceImpl.class);
+
+    private static final Map<String, MessageTemplate> MESSAGE_TEMPLATES = new HashMap<>();
+
+    static {
+        // SOL003 v2.4.1 (see scripts/2.4.1)
+        register("2.4.1", new MessageTemplate("CreateVnfRequest").object("additionalParams")
+                                                                 .copyIfNotNull("vnfdId")
+                                                                 .copyIfNotNull("vnfInstanceName")
+                                                                 .copyIfNotNull("vnfInstanceDescription")
+                                                                 .addProperties("additionalParams"));
+        register("2.4.1", new MessageTemplate("InstantiateVnfRequest").array("extVirtualLinks")
+                                                                      .array("extManagedVirtualLinks")
+                                                                      .array("vimConnectionInfo")
+                                                                      .object("additionalParams")
+                                                                      .copyIfNotNull("flavourId")
+                                                                      .copyIfNotNull("instantiationLevelId")
+                                                                      .copyIfNotNull("localizationLanguage")
+                                                                      .addProperties("additionalParams", "extVirtualLinks", "extManagedVirtualLinks", "vimConnectionInfo"));
+        register("2.4.1", new MessageTemplate("ChangeVnfFlavourRequest").object("extVirtualLinks")
+                                                                        .object("extManagedVirtualLinks")
+                                                                        .object("vimConnectionInfo")
+                                                                        .object("additionalParams")
+                                                                        .copy("newFlavourId", "flavourId")
+                                                                        .copyIfNotNull("instantiationLevelId")
+                                                                        .copyIfNotNull("localizationLanguage")
+                                                                        .addProperties("additionalParams", "extVirtualLinks", "extManagedVirtualLinks", "vimConnectionInfo"));
+        registerCommonTemplates("2.4.1");
+
+        // SOL003 v3.5.1 (see scripts/3.5.1)
+        register("3.5.1", new MessageTemplate("CreateVnfRequest").object("additionalParams")
+                                                                 .object("metadata")
+                                                                 .copyIfNotNull("vnfdId")
+                                                                 .copyIfNotNull("vnfInstanceName")
+                                                                 .copyIfNotNull("vnfInstanceDescription")
+                                                                 .addProperties("additionalParams", "metadata"));
+        register("3.5.1", new MessageTemplate("InstantiateVnfRequest").array("extVirtualLinks")
+                                                                      .array("extManagedVirtualLinks")
+                                                                      .object("vimConnectionInfo")
+                                                                      .object("additionalParams")
+                                                                      .object("extensions")
+                                                                      .copyIfNotNull("flavourId")
+                                                                      .copyIfNotNull("instantiationLevelId")
+                                                                      .copyIfNotNull("localizationLanguage")
+                                                                      .addProperties("additionalParams", "extVirtualLinks", "extManagedVirtualLinks", "vimConnectionInfo", "extensions"));
+        register("3.5.1", new MessageTemplate("ChangeVnfFlavourRequest").object("extVirtualLinks")
+                                                                        .object("extManagedVirtualLinks")
+                                                                        .object("vimConnectionInfo")
+                                                                        .object("additionalParams")
+                                                                        .object("extensions")
+                                                                        .object("vnfConfigurableProperties")
+                                                                        .copy("newFlavourId", "flavourId")
+                                                                        .copyIfNotNull("instantiationLevelId")
+                                                                        .copyIfNotNull("localizationLanguage")
+                                                                        .addProperties("additionalParams", "extVirtualLinks", "extManagedVirtualLinks", "vimConnectionInfo", "extensions",
+                                                                                       "vnfConfigurableProperties"));
+        register("3.5.1", new MessageTemplate("ChangeCurrentVnfPkgRequest").array("extVirtualLinks")
+                                                                           .object("vimConnectionInfo")
+                                                                           .array("extManagedVirtualLinks")
+                                                                           .object("additionalParams")
+                                                                           .object("vnfConfigurableProperties")
+                                                                           .object("extensions")
+                                                                           .copyIfNotNull("vnfdId")
+                                                                           .addProperties("extManagedVirtualLinks", "extVirtualLinks", "vimConnectionInfo", "additionalParams",
+                                                                                          "vnfConfigurableProperties", "extensions"));
+        registerCommonTemplates("3.5.1");
+    }
+
+    /**
+     * Messages which are the same in all supported interface versions
+     */
+    private static void registerCommonTemplates(final String interfaceVersion) {
+        register(interfaceVersion, new MessageTemplate("ChangeExtVnfConnectivityRequest").object("extVirtualLinks")
+                                                                                         .object("vimConnectionInfo")
+                                                                                         .object("additionalParams")
+                                                                                         .addProperties("additionalParams", "extVirtualLinks", "vimConnectionInfo"));
+        register(interfaceVersion, new MessageTemplate("HealVnfRequest").object("additionalParams")
+                                                                        .copyIfNotNull("cause")
+                                                                        .addProperties("additionalParams"));
+        register(interfaceVersion, new MessageTemplate("OperateVnfRequest-Start").object("additionalParams")
+                                                                                 .constant("changeStateTo", "STARTED")
+                                                                                 .addProperties("additionalParams"));
+        register(interfaceVersion, new MessageTemplate("OperateVnfRequest-Stop").object("additionalParams")
+                                                                                .constant("changeStateTo", "STOPPED")
+                                                                                .constant("stopType", "FORCEFUL")
+                                                                                .addProperties("additionalParams"));
+        register(interfaceVersion, new MessageTemplate("ScaleVnfRequest").object("additionalParams")
+                                                                         .copy("type", "scaleType")
+                                                                         .copy("aspectId", "scaleAspectId")
+                                                                         .copyIfNotNull("numberOfSteps")
+                                                                         .addProperties("additionalParams"));
+        register(interfaceVersion, new MessageTemplate("ScaleVnfToLevelRequest").array("scaleInfo")
+                                                                                .object("additionalParams")
+                                                                                .copyIfNotNull("instantiationLevelId")
+                                                                                .addProperties("additionalParams", "scaleInfo"));
+        register(interfaceVersion, new MessageTemplate("TerminateVnfRequest").object("additionalParams")
+                                                                             .constant("terminationType", "FORCEFUL")
+                                                                             .addProperties("additionalParams"));
+    }
+
+    private static void register(final String interfaceVersion, final MessageTemplate messageTemplate) {
+        MESSAGE_TEMPLATES.put(interfaceVersion + "/" + messageTemplate.getMessageType(), messageTemplate);
+    }
+
+    private final JavascriptMessageConversionServiceImpl javascriptMessageConversionService;
+    private final DriverFilesService driverFilesService;
+    private final boolean enabled;
+
+    @Autowired
+    public JavaMessageConversionServiceImpl(JavascriptMessageConversionServiceImpl javascriptMessageConversionService, DriverFilesService driverFilesService, VNFMDriverProperties properties) {
+        this.javascriptMessageConversionService = javascriptMessageConversionService;
+        this.driverFilesService = driverFilesService;
+        this.enabled = properties.getMessageConversion().isJavaGeneratorsEnabled();
+    }
+
+    @Override public String generateMessageFromRequest(final String messageType, final ExecutionRequest executionRequest) throws MessageConversionException {
+        final MessageTemplate messageTemplate = enabled ? MESSAGE_TEMPLATES.get(getInterfaceVersion(executionRequest) + "/" + messageType) : null;
+
+        // Scripts provided in the resource package always take precedence
+        if (messageTemplate != null && driverFilesService.getFile(executionRequest.getDriverFiles(), SCRIPTS_PATH + messageType + ".js") == null) {
+            try {
+                final String message = messageTemplate.generate(executionRequest.getProperties());
+                logger.debug("Message [{}] successfully generated, message is\n{}", messageType, message);
+                return message;
+            } catch (UnsupportedMessageException e) {
+                logger.debug("Unable to generate message [{}] without running a script: {}", messageType, e.getMessage());
+            }
+        }
+
+        return javascriptMessageConversionService.generateMessageFromRequest(messageType, executionRequest);
+    }
+
+    @Override public Map<String, Object> extractPropertiesFromMessage(String messageType, ExecutionRequest executionRequest, String message) throws MessageConversionException {
+        return javascriptMessageConversionService.extractPropertiesFromMessage(messageType, executionRequest, message);
+    }
+
+}
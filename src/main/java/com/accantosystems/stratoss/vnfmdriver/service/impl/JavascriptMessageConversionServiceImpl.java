@@ -3,9 +3,16 @@ package com.accantosystems.stratoss.vnfmdriver.service.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -17,31 +24,69 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
-import com.accantosystems.stratoss.vnfmdriver.model.alm.GenericExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.service.DriverFilesService;
 import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionException;
 import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionService;
-import com.accantosystems.stratoss.vnfmdriver.utils.FileUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 
 @Service("JavascriptMessageConversionServiceImpl")
 public class JavascriptMessageConversionServiceImpl implements MessageConversionService {
 
     private static final Logger logger = LoggerFactory.getLogger(JavascriptMessageConversionServiceImpl.class);
     private static final String DEFAULT_ETSI_SOL003_VERSION = "3.5.1";
-    private static final String SCRIPTS_PATH = "scripts/";
+    static final String SCRIPTS_PATH = "scripts/";
+    private static final String COMPILED_SCRIPT_CACHE_NAME = "vnfmdriver.scripts.compiled";
+    private static final String VNFD_CACHE_NAME = "vnfmdriver.vnfd.parsed";
 
     private final ObjectMapper objectMapper;
+    private final DriverFilesService driverFilesService;
+    private final ScriptEngine scriptEngine;
+    // Compiled scripts, keyed by interface version, message type and a digest of the script contents
+    private final Cache<String, CompiledScript> compiledScriptCache;
+    // Parsed descriptors, keyed by a digest of the vnfd.yaml contents. These instances are shared between requests, so scripts must treat the vnfd binding as read-only
+    private final Cache<String, VnfDescriptor> vnfdCache;
+    // Contents of the default scripts found on the classpath (there are only a handful of these, so no need to bound it)
+    private final Map<String, Optional<String>> defaultScriptCache = new ConcurrentHashMap<>();
+    private final Timer compileTimer;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
-    public JavascriptMessageConversionServiceImpl(ObjectMapper objectMapper) {
+    public JavascriptMessageConversionServiceImpl(ObjectMapper objectMapper, DriverFilesService driverFilesService, VNFMDriverProperties properties, MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
+        this.driverFilesService = driverFilesService;
+        this.meterRegistry = meterRegistry;
+        // A single engine is shared by all requests. Each evaluation is given its own Bindings (and hence its own global scope), so compiled scripts can be run concurrently
+        this.scriptEngine = new ScriptEngineManager().getEngineByMimeType("application/javascript");
+        logger.debug("Retrieved an instance of a [{}] script engine", scriptEngine);
+        this.compiledScriptCache = CacheBuilder.newBuilder()
+                                               .maximumSize(properties.getMessageConversion().getCompiledScriptCacheSize())
+                                               .recordStats()
+                                               .build();
+        GuavaCacheMetrics.monitor(meterRegistry, compiledScriptCache, COMPILED_SCRIPT_CACHE_NAME);
+        this.vnfdCache = CacheBuilder.newBuilder()
+                                     .maximumSize(properties.getMessageConversion().getVnfdCacheSize())
+                                     .recordStats()
+                                     .build();
+        GuavaCacheMetrics.monitor(meterRegistry, vnfdCache, VNFD_CACHE_NAME);
+        this.compileTimer = Timer.builder("vnfmdriver.scripts.compile")
+                                 .description("Time taken to compile message conversion scripts")
+                                 .register(meterRegistry);
     }
 
     @Override public String generateMessageFromRequest(final String messageType, final ExecutionRequest executionRequest) throws MessageConversionException {
-        final String script = getScriptFromExecutionRequest(executionRequest, messageType);
-        final String vnfdString = FileUtils.getFileFromLifecycleScripts(executionRequest.getDriverFiles(), "vnfd.yaml");
-        final ScriptEngine scriptEngine = getScriptEngine();
+        final CompiledScript compiledScript = getCompiledScript(executionRequest, messageType);
+        final String vnfdString = driverFilesService.getFile(executionRequest.getDriverFiles(), "vnfd.yaml");
 
         try {
             // Create a new bindings object and attach objects to be used by the scripts
@@ -50,11 +95,10 @@ public class JavascriptMessageConversionServiceImpl implements MessageConversion
             bindings.put("logger", logger);
 
             if (vnfdString != null) {
-                final VnfDescriptor vnfd = objectMapper.readValue(vnfdString, VnfDescriptor.class);
-                bindings.put("vnfd", vnfd);
+                bindings.put("vnfd", getVnfDescriptor(vnfdString));
             }
 
-            final Object returnVal = scriptEngine.eval(script, bindings);
+            final Object returnVal = evaluateScript(messageType, compiledScript, bindings);
             logger.info("Message conversion script successfully run, returnVal is\n{}", returnVal);
             if (returnVal instanceof String) {
                 return (String) returnVal;
@@ -63,14 +107,13 @@ public class JavascriptMessageConversionServiceImpl implements MessageConversion
             } else {
                 throw new MessageConversionException(String.format("Script returned invalid object of type [%s], expected a String", returnVal.getClass().getSimpleName()));
             }
-        } catch (ScriptException | IOException e) {
+        } catch (ScriptException e) {
             throw new MessageConversionException("Exception caught executing a script", e);
         }
     }
 
     @Override public Map<String, Object> extractPropertiesFromMessage(String messageType, ExecutionRequest executionRequest, String message) throws MessageConversionException {
-        final String script = getScriptFromExecutionRequest(executionRequest, messageType);
-        final ScriptEngine scriptEngine = getScriptEngine();
+        final CompiledScript compiledScript = getCompiledScript(executionRequest, messageType);
 
         try {
             // Create a new bindings object and attach objects to be used by the scripts
@@ -80,7 +123,7 @@ public class JavascriptMessageConversionServiceImpl implements MessageConversion
             final Map<String, Object> outputs = new HashMap<>();
             bindings.put("outputs", outputs);
 
-            scriptEngine.eval(script, bindings);
+            evaluateScript(messageType, compiledScript, bindings);
             logger.info("Message conversion script successfully run, outputs are\n{}", outputs);
             return outputs;
         } catch (ScriptException e) {
@@ -88,28 +131,71 @@ public class JavascriptMessageConversionServiceImpl implements MessageConversion
         }
     }
 
-    private ScriptEngine getScriptEngine() {
-        // Retrieve a Javascript engine (should be Nashorn in JRE 8+)
-        final ScriptEngine scriptEngine = new ScriptEngineManager().getEngineByMimeType("application/javascript");
-        logger.debug("Retrieved an instance of a [{}] script engine", scriptEngine);
-        return scriptEngine;
+    private CompiledScript getCompiledScript(final ExecutionRequest executionRequest, final String scriptName) throws MessageConversionException {
+        final String interfaceVersion = getInterfaceVersion(executionRequest);
+        final String script = getScriptFromExecutionRequest(executionRequest, scriptName, interfaceVersion);
+        final String cacheKey = interfaceVersion + "/" + scriptName + "/" + Hashing.sha256().hashString(script, StandardCharsets.UTF_8);
+
+        try {
+            return compiledScriptCache.get(cacheKey, () -> compileScript(scriptName, script));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new MessageConversionException(String.format("Exception caught compiling script [%s]", scriptName), e.getCause());
+        }
+    }
+
+    private CompiledScript compileScript(final String scriptName, final String script) throws ScriptException {
+        if (!(scriptEngine instanceof Compilable)) {
+            throw new ScriptException(String.format("Script engine [%s] does not support compilation", scriptEngine));
+        }
+        logger.debug("Compiling script [{}]", scriptName);
+        final long start = System.nanoTime();
+        try {
+            return ((Compilable) scriptEngine).compile(script);
+        } finally {
+            compileTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Object evaluateScript(final String scriptName, final CompiledScript compiledScript, final Bindings bindings) throws ScriptException {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            final Object returnVal = compiledScript.eval(bindings);
+            outcome = "success";
+            return returnVal;
+        } finally {
+            sample.stop(Timer.builder("vnfmdriver.scripts.execution")
+                             .tag("script", scriptName)
+                             .tag("outcome", outcome)
+                             .description("Time taken to run message conversion scripts")
+                             .register(meterRegistry));
+        }
+    }
+
+    private VnfDescriptor getVnfDescriptor(final String vnfdString) throws MessageConversionException {
+        final String cacheKey = Hashing.sha256().hashString(vnfdString, StandardCharsets.UTF_8).toString();
+
+        try {
+            return vnfdCache.get(cacheKey, () -> objectMapper.readValue(vnfdString, VnfDescriptor.class));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new MessageConversionException("Exception caught parsing vnfd.yaml", e.getCause());
+        }
     }
 
-    private String getScriptFromExecutionRequest(final ExecutionRequest executionRequest, final String scriptName) {
+    static String getInterfaceVersion(final ExecutionRequest executionRequest) {
+        final ExecutionRequestPropertyValue interfaceVersion = executionRequest.getResourceProperties().get("interfaceVersion");
+        return interfaceVersion != null ? interfaceVersion.getValue().toString() : DEFAULT_ETSI_SOL003_VERSION;
+    }
+
+    private String getScriptFromExecutionRequest(final ExecutionRequest executionRequest, final String scriptName, final String interfaceVersion) {
         final String fullScriptName = scriptName + ".js";
 
-        String scriptContents = FileUtils.getFileFromLifecycleScripts(executionRequest.getDriverFiles(), SCRIPTS_PATH + fullScriptName);
+        String scriptContents = driverFilesService.getFile(executionRequest.getDriverFiles(), SCRIPTS_PATH + fullScriptName);
 
         if (scriptContents == null) {
             // If we can't find it in the zip file, try searching in out default locations
-            String interfaceVersion =  ((GenericExecutionRequestPropertyValue)executionRequest.getResourceProperties().getOrDefault("interfaceVersion", new GenericExecutionRequestPropertyValue(DEFAULT_ETSI_SOL003_VERSION))).getValue().toString();
-            try (InputStream inputStream = JavascriptMessageConversionServiceImpl.class.getResourceAsStream("/" + SCRIPTS_PATH + interfaceVersion + "/" + fullScriptName)) {
-                if (inputStream != null) {
-                    scriptContents = IOUtils.toString(inputStream, Charset.defaultCharset());
-                }
-            } catch (IOException e) {
-                logger.error("Exception raised looking up default lifecycle script", e);
-            }
+            final String resourcePath = "/" + SCRIPTS_PATH + interfaceVersion + "/" + fullScriptName;
+            scriptContents = defaultScriptCache.computeIfAbsent(resourcePath, this::loadDefaultScript).orElse(null);
         }
 
         if (scriptContents != null) {
@@ -119,4 +205,15 @@ public class JavascriptMessageConversionServiceImpl implements MessageConversion
         }
     }
 
+    private Optional<String> loadDefaultScript(final String resourcePath) {
+        try (InputStream inputStream = JavascriptMessageConversionServiceImpl.class.getResourceAsStream(resourcePath)) {
+            if (inputStream != null) {
+                return Optional.of(IOUtils.toString(inputStream, Charset.defaultCharset()));
+            }
+        } catch (IOException e) {
+            logger.error("Exception raised looking up default lifecycle script", e);
+        }
+        return Optional.empty();
+    }
+
 }
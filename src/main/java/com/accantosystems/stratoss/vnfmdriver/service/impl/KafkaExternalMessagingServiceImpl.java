@@ -1,22 +1,27 @@
 package com.accantosystems.stratoss.vnfmdriver.service.impl;
 
 import java.time.Duration;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.util.concurrent.ListenableFuture;
 
 import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.DelayedExecutionAsyncResponse;
 import com.accantosystems.stratoss.vnfmdriver.model.LcmOpOccPollingRequest;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
 import com.accantosystems.stratoss.vnfmdriver.service.ExternalMessagingService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 public class KafkaExternalMessagingServiceImpl implements ExternalMessagingService {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaExternalMessagingServiceImpl.class);
@@ -24,18 +29,39 @@ public class KafkaExternalMessagingServiceImpl implements ExternalMessagingServi
     private final VNFMDriverProperties properties;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final DelayedExecutionResponseDispatcher delayedResponseDispatcher;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
-    public KafkaExternalMessagingServiceImpl(VNFMDriverProperties properties, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public KafkaExternalMessagingServiceImpl(VNFMDriverProperties properties, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
         this.properties = properties;
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.delayedResponseDispatcher = new DelayedExecutionResponseDispatcher(this::sendExecutionAsyncResponse, this::returnDelayedExecutionAsyncResponse,
+                                                                                properties.getDelayedResponses(), meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        // Any responses still waiting on their delay are handed back to Kafka, to be sent once due
+        delayedResponseDispatcher.close();
+    }
+
+    @KafkaListener(topics = "${vnfmdriver.topics.delayedExecutionResponsesTopic}")
+    public void listenForDelayedExecutionAsyncResponseMessages(final String message) {
+        try {
+            final DelayedExecutionAsyncResponse delayedResponse = objectMapper.readValue(message, DelayedExecutionAsyncResponse.class);
+            sendDelayedExecutionAsyncResponse(delayedResponse.getResponse(), Duration.ofMillis(delayedResponse.getDueTime() - System.currentTimeMillis()));
+        } catch (Exception e) {
+            logger.error("Exception caught processing DelayedExecutionAsyncResponse message", e);
+        }
     }
 
     @Override public void sendExecutionAsyncResponse(ExecutionAsyncResponse request) {
         try {
             final String message = objectMapper.writeValueAsString(request);
-            ListenableFuture<SendResult<String, String>> future = kafkaTemplate.send(properties.getTopics().getLifecycleResponsesTopic(), message);
+            ListenableFuture<SendResult<String, String>> future = send(properties.getTopics().getLifecycleResponsesTopic(), message);
 
             future.addCallback(sendResult -> logger.debug("ExecutionAsyncResponse successfully sent"),
                                exception -> logger.warn("Exception sending ExecutionAsyncResponse", exception));
@@ -45,27 +71,35 @@ public class KafkaExternalMessagingServiceImpl implements ExternalMessagingServi
     }
 
     @Override
-    @Async
     public void sendDelayedExecutionAsyncResponse(ExecutionAsyncResponse request, Duration delay) {
-        if (delay != null) {
-            try {
-                Thread.sleep(delay.toMillis());
-            } catch (InterruptedException e) {
-                logger.error("Thread interrupted during sleep", e);
-            }
+        if (delay == null || delay.isZero() || delay.isNegative()) {
+            sendExecutionAsyncResponse(request);
+        } else {
+            delayedResponseDispatcher.dispatch(request, delay);
+        }
+    }
+
+    @Override
+    public boolean canAcceptDelayedExecutionAsyncResponse() {
+        return delayedResponseDispatcher.hasCapacity();
+    }
+
+    private void returnDelayedExecutionAsyncResponse(DelayedExecutionAsyncResponse delayedResponse) {
+        try {
+            final String message = objectMapper.writeValueAsString(delayedResponse);
+            ListenableFuture<SendResult<String, String>> future = send(properties.getTopics().getDelayedExecutionResponsesTopic(), message);
+
+            future.addCallback(sendResult -> logger.debug("Handed back delayed ExecutionAsyncResponse [{}]", delayedResponse.getResponse().getRequestId()),
+                               exception -> logger.warn("Exception sending DelayedExecutionAsyncResponse", exception));
+        } catch (JsonProcessingException e) {
+            logger.warn("Exception generating message text from DelayedExecutionAsyncResponse", e);
         }
-        sendExecutionAsyncResponse(request);
     }
 
     @Override public void sendLcmOpOccPollingRequest(LcmOpOccPollingRequest request) {
         try {
-            try {
-                Thread.sleep(properties.getLcmOpOccPollingDelay().toMillis());
-            } catch (InterruptedException e) {
-                logger.error("Thread interrupted during sleep", e);
-            }
             final String message = objectMapper.writeValueAsString(request);
-            ListenableFuture<SendResult<String, String>> future = kafkaTemplate.send(properties.getTopics().getLcmOpOccPollingTopic(), message);
+            ListenableFuture<SendResult<String, String>> future = send(properties.getTopics().getLcmOpOccPollingTopic(), message);
 
             future.addCallback(sendResult -> logger.debug("Submitted request to poll for LcmOpOcc [{}]", request.getVnfLcmOpOccId()),
                                exception -> logger.warn("Exception sending LcmOpOccPollingRequest", exception));
@@ -74,4 +108,22 @@ public class KafkaExternalMessagingServiceImpl implements ExternalMessagingServi
         }
     }
 
+    /**
+     * Sends a message, recording the time taken for it to be acknowledged by Kafka
+     */
+    private ListenableFuture<SendResult<String, String>> send(final String topic, final String message) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final ListenableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, message);
+        future.addCallback(sendResult -> recordPublish(sample, topic, "success"), exception -> recordPublish(sample, topic, "failure"));
+        return future;
+    }
+
+    private void recordPublish(final Timer.Sample sample, final String topic, final String outcome) {
+        sample.stop(Timer.builder("vnfmdriver.kafka.publish")
+                         .tag("topic", topic)
+                         .tag("outcome", outcome)
+                         .description("Time taken for messages to be acknowledged by Kafka")
+                         .register(meterRegistry));
+    }
+
 }
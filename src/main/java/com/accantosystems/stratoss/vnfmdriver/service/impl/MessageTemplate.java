@@ -0,0 +1,359 @@
+package com.accantosystems.stratoss.vnfmdriver.service.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Java equivalent of one of the default SOL003 request message scripts (see src/main/resources/scripts).
+ * <p>
+ * The scripts build a Javascript object from the resource properties (using the addProperty and setPropertyIfNotNull functions in lib.js) and then call JSON.stringify on it. This class
+ * mirrors that behaviour exactly, including the ordering of keys within the resulting JSON, so that the output is identical to the script. Where a request contains something that would be
+ * awkward to replicate faithfully (e.g. map or list property values, or properties that clash with one another) an {@link UnsupportedMessageException} is thrown and the caller should fall
+ * back to running the script.
+ */
+class MessageTemplate {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().setCharacterEscapes(new ScriptCharacterEscapes());
+    private static final Pattern DECIMAL_LITERAL = Pattern.compile("[+-]?(Infinity|(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?)");
+    private static final Pattern HEX_LITERAL = Pattern.compile("0[xX][0-9a-fA-F]+");
+    private static final Pattern ARRAY_INDEX = Pattern.compile("0|[1-9]\\d{0,9}");
+    private static final long MAX_ARRAY_INDEX = 4294967294L;
+    private static final long MAX_SAFE_INTEGER = 1L << 53;
+    // Sparse arrays this large are almost certainly a mistake, leave these to the script
+    private static final int MAX_SUPPORTED_ARRAY_INDEX = 10000;
+
+    private final String messageType;
+    private final List<Step> steps = new ArrayList<>();
+    private final List<String> propertyPrefixes = new ArrayList<>();
+
+    MessageTemplate(final String messageType) {
+        this.messageType = messageType;
+    }
+
+    String getMessageType() {
+        return messageType;
+    }
+
+    /**
+     * Equivalent of <code>var message = {name: {}}</code>
+     */
+    MessageTemplate object(final String name) {
+        steps.add((properties, message) -> message.put(name, new LinkedHashMap<String, Object>()));
+        return this;
+    }
+
+    /**
+     * Equivalent of <code>var message = {name: []}</code>
+     */
+    MessageTemplate array(final String name) {
+        steps.add((properties, message) -> message.put(name, new ArrayList<>()));
+        return this;
+    }
+
+    /**
+     * Equivalent of <code>message.name = 'value'</code>
+     */
+    MessageTemplate constant(final String name, final String value) {
+        steps.add((properties, message) -> message.put(name, value));
+        return this;
+    }
+
+    /**
+     * Equivalent of <code>message.name = executionRequest.properties.propertyName</code> (a missing property is undefined, so is left out of the message)
+     */
+    MessageTemplate copy(final String name, final String propertyName) {
+        steps.add((properties, message) -> {
+            final Object value = properties.get(propertyName);
+            if (value != null) {
+                message.put(name, convertRawValue(value));
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Equivalent of <code>setPropertyIfNotNull(executionRequest.properties, message, 'propertyName')</code>
+     */
+    MessageTemplate copyIfNotNull(final String propertyName) {
+        steps.add((properties, message) -> {
+            final Object value = properties.get(propertyName);
+            if (value != null) {
+                message.put(propertyName, convertValue(value));
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Equivalent of calling <code>addProperty(message, key, executionRequest.properties[key])</code> for every property whose name starts with one of the given prefixes
+     */
+    MessageTemplate addProperties(final String... prefixes) {
+        for (String prefix : prefixes) {
+            propertyPrefixes.add(prefix + ".");
+        }
+        return this;
+    }
+
+    /**
+     * Generates the message for the given properties (as returned by ExecutionRequest.getProperties()).
+     *
+     * @param properties resource properties of the request
+     * @return JSON message, identical to that generated by the equivalent script
+     * @throws UnsupportedMessageException if the properties cannot be converted without running the script
+     */
+    String generate(final Map<String, Object> properties) throws UnsupportedMessageException {
+        final Map<String, Object> message = new LinkedHashMap<>();
+        for (Step step : steps) {
+            step.apply(properties, message);
+        }
+
+        // This has to iterate over the properties in the same order as the script does, since it affects the outcome when property names overlap
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            final String key = property.getKey();
+            if (propertyPrefixes.stream().anyMatch(key::startsWith)) {
+                addProperty(message, key, property.getValue());
+            }
+        }
+
+        final StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            writeValue(generator, message);
+        } catch (IOException e) {
+            throw new UnsupportedMessageException(String.format("Unable to write message [%s]", messageType), e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Equivalent of the addProperty function in lib.js
+     */
+    private static void addProperty(final Map<String, Object> message, final String propertyName, final Object propertyValue) throws UnsupportedMessageException {
+        final String[] propertyNameParts = propertyName.split("\\.", -1);
+        Object messageObject = message;
+        for (int i = 0; i < propertyNameParts.length; i++) {
+            final String propertyNamePart = propertyNameParts[i];
+            final boolean last = i == propertyNameParts.length - 1;
+            if (!hasOwnProperty(messageObject, propertyNamePart) && !last) {
+                set(messageObject, propertyNamePart, isNumeric(propertyNameParts[i + 1]) ? new ArrayList<>() : new LinkedHashMap<String, Object>());
+            } else if (last) {
+                set(messageObject, propertyNamePart, convertValue(propertyValue));
+            }
+            messageObject = get(messageObject, propertyNamePart);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean hasOwnProperty(final Object messageObject, final String name) throws UnsupportedMessageException {
+        if (messageObject instanceof Map) {
+            checkObjectKey(name);
+            return ((Map<String, Object>) messageObject).containsKey(name);
+        } else if (messageObject instanceof List) {
+            final int index = toArrayIndex(name);
+            final List<Object> array = (List<Object>) messageObject;
+            return index < array.size() && array.get(index) != null;
+        }
+        throw new UnsupportedMessageException(String.format("Cannot add property [%s] to a value of type [%s]", name, describe(messageObject)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void set(final Object messageObject, final String name, final Object value) throws UnsupportedMessageException {
+        if (messageObject instanceof Map) {
+            checkObjectKey(name);
+            ((Map<String, Object>) messageObject).put(name, value);
+        } else if (messageObject instanceof List) {
+            final int index = toArrayIndex(name);
+            final List<Object> array = (List<Object>) messageObject;
+            // Assigning beyond the end of a Javascript array leaves holes, which are written as nulls
+            while (array.size() <= index) {
+                array.add(null);
+            }
+            array.set(index, value);
+        } else {
+            throw new UnsupportedMessageException(String.format("Cannot add property [%s] to a value of type [%s]", name, describe(messageObject)));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object get(final Object messageObject, final String name) {
+        if (messageObject instanceof Map) {
+            return ((Map<String, Object>) messageObject).get(name);
+        }
+        return ((List<Object>) messageObject).get(Integer.parseInt(name));
+    }
+
+    private static void checkObjectKey(final String name) throws UnsupportedMessageException {
+        if ("__proto__".equals(name)) {
+            throw new UnsupportedMessageException("Property names containing [__proto__] are not supported");
+        }
+    }
+
+    private static int toArrayIndex(final String name) throws UnsupportedMessageException {
+        // Anything other than a (reasonably sized) index would be a named property of the array, which JSON.stringify ignores
+        if (!ARRAY_INDEX.matcher(name).matches() || Long.parseLong(name) > MAX_SUPPORTED_ARRAY_INDEX) {
+            throw new UnsupportedMessageException(String.format("Property name [%s] is not a supported array index", name));
+        }
+        return Integer.parseInt(name);
+    }
+
+    /**
+     * Equivalent of <code>!isNaN(value)</code> for a String in Javascript
+     */
+    static boolean isNumeric(final String value) {
+        final String trimmed = value.strip();
+        return trimmed.isEmpty() || DECIMAL_LITERAL.matcher(trimmed).matches() || HEX_LITERAL.matcher(trimmed).matches();
+    }
+
+    private static boolean isArrayIndex(final String name) {
+        return ARRAY_INDEX.matcher(name).matches() && Long.parseLong(name) <= MAX_ARRAY_INDEX;
+    }
+
+    /**
+     * Equivalent of the handleJavaPropertyTypes function in lib.js
+     */
+    private static Object convertValue(final Object value) throws UnsupportedMessageException {
+        if (value instanceof OffsetDateTime) {
+            return value.toString();
+        }
+        return convertRawValue(value);
+    }
+
+    private static Object convertRawValue(final Object value) throws UnsupportedMessageException {
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return new NumberValue(value.toString());
+        } else if (value instanceof Long) {
+            // Javascript numbers are doubles, so the script would round larger values (formatting them as Javascript does isn't something Java reproduces reliably)
+            final long longValue = (Long) value;
+            if (longValue > MAX_SAFE_INTEGER || longValue < -MAX_SAFE_INTEGER) {
+                throw new UnsupportedMessageException(String.format("Number [%s] cannot be represented exactly in Javascript", value));
+            }
+            return new NumberValue(value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            return new NumberValue(formatDouble(((Number) value).doubleValue()));
+        }
+        // Maps and Lists are converted via org.json in the scripts, which doesn't preserve their ordering
+        throw new UnsupportedMessageException(String.format("Property values of type [%s] are not supported", describe(value)));
+    }
+
+    private static String formatDouble(final double value) throws UnsupportedMessageException {
+        if (value == Math.rint(value) && Math.abs(value) < 0x1p53) {
+            return Long.toString((long) value);
+        }
+        // Java and Javascript agree on the formatting of fractional values, as long as neither resorts to exponent notation
+        final String formatted = Double.toString(value);
+        if (Double.isFinite(value) && formatted.indexOf('E') < 0) {
+            return formatted;
+        }
+        throw new UnsupportedMessageException(String.format("Number [%s] is not supported", formatted));
+    }
+
+    private static String describe(final Object value) {
+        return value != null ? value.getClass().getSimpleName() : "null";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(final JsonGenerator generator, final Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Map) {
+            final Map<String, Object> object = (Map<String, Object>) value;
+            generator.writeStartObject();
+            // Javascript objects list array index keys first (in numerical order), followed by all other keys in the order they were added
+            final List<String> indexKeys = new ArrayList<>();
+            for (String key : object.keySet()) {
+                if (isArrayIndex(key)) {
+                    indexKeys.add(key);
+                }
+            }
+            if (!indexKeys.isEmpty()) {
+                indexKeys.sort(Comparator.comparingLong(Long::parseLong));
+                for (String key : indexKeys) {
+                    generator.writeFieldName(key);
+                    writeValue(generator, object.get(key));
+                }
+            }
+            for (Map.Entry<String, Object> entry : object.entrySet()) {
+                if (indexKeys.isEmpty() || !isArrayIndex(entry.getKey())) {
+                    generator.writeFieldName(entry.getKey());
+                    writeValue(generator, entry.getValue());
+                }
+            }
+            generator.writeEndObject();
+        } else if (value instanceof List) {
+            generator.writeStartArray();
+            for (Object element : (List<Object>) value) {
+                writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof NumberValue) {
+            generator.writeNumber(((NumberValue) value).text);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void apply(Map<String, Object> properties, Map<String, Object> message) throws UnsupportedMessageException;
+    }
+
+    private static final class NumberValue {
+        private final String text;
+
+        private NumberValue(final String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * JSON.stringify escapes control characters using lower case hex digits, Jackson uses upper case by default
+     */
+    private static final class ScriptCharacterEscapes extends CharacterEscapes {
+
+        private final int[] escapes = standardAsciiEscapesForJSON();
+        private final Map<Integer, SerializableString> sequences = new HashMap<>();
+
+        private ScriptCharacterEscapes() {
+            for (int ch = 0; ch < 0x20; ch++) {
+                if (escapes[ch] == ESCAPE_STANDARD) {
+                    escapes[ch] = ESCAPE_CUSTOM;
+                    sequences.put(ch, new SerializedString(String.format("\\u%04x", ch)));
+                }
+            }
+        }
+
+        @Override public int[] getEscapeCodesForAscii() {
+            return escapes;
+        }
+
+        @Override public SerializableString getEscapeSequence(final int ch) {
+            return sequences.get(ch);
+        }
+    }
+
+    /**
+     * Thrown when a message cannot be generated without falling back to the script
+     */
+    static class UnsupportedMessageException extends Exception {
+        UnsupportedMessageException(final String message) {
+            super(message);
+        }
+
+        UnsupportedMessageException(final String message, final Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+}
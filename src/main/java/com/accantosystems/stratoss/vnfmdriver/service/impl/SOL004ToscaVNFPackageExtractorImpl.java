@@ -17,6 +17,7 @@ import org.springframework.stereotype.Service;
 
 import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.service.UnexpectedPackageContentsException;
+import com.accantosystems.stratoss.vnfmdriver.service.VNFPackageArchive;
 import com.accantosystems.stratoss.vnfmdriver.service.VNFPackageExtractionException;
 import com.accantosystems.stratoss.vnfmdriver.service.VNFPackageExtractor;
 
@@ -70,15 +71,15 @@ public class SOL004ToscaVNFPackageExtractorImpl extends VNFPackageExtractor {
         VnfPkgInfo vnfPkgInfo = new VnfPkgInfo();
         vnfPkgInfo.setId(vnfPkgId);
 
-        try {
-            String toscaMetadata = ensureToscaMetadata(vnfPackageZip, vnfPkgId);
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(vnfPackageZip)) {
+            String toscaMetadata = ensureToscaMetadata(vnfPackageArchive, vnfPkgId);
             Map<String, String> toscaMetaData = parseManifestFile(toscaMetadata);
             String entryManifestPath = toscaMetaData.get(KEY_ENTRY_MANIFEST);
             if (entryManifestPath == null) {
                 throw new VNFPackageExtractionException(String.format("Unable to locate [%s] definition within [%s] for Vnf Package with id [%s]", KEY_ENTRY_MANIFEST, PATH_TOSCA_METADATA, vnfPkgId));
             }
 
-            byte[] entryManifestByteArray = extractArtifactFromZip(vnfPackageZip, entryManifestPath);
+            byte[] entryManifestByteArray = extractArtifactFromZip(vnfPackageArchive, entryManifestPath);
             if (entryManifestByteArray == null) {
                 throw new VNFPackageExtractionException(String.format("Unable to locate Entry Manifest definition on path [%S] within Vnf Package with id [%s]", entryManifestPath, vnfPkgId));
             }
@@ -86,10 +87,10 @@ public class SOL004ToscaVNFPackageExtractorImpl extends VNFPackageExtractor {
             vnfPkgInfo.setVnfProductName(entryManifest.get(KEY_VNF_PRODUCT_NAME));
             vnfPkgInfo.setVnfProvider(entryManifest.get(KEY_VNF_PROVIDER_ID));
 
-            List<VnfPackageSoftwareImageInfo> softwareImages = listPackageImageArtifacts(vnfPackageZip);
+            List<VnfPackageSoftwareImageInfo> softwareImages = listPackageImageArtifacts(vnfPackageArchive);
             vnfPkgInfo.setSoftwareImages(softwareImages);
 
-            List<VnfPackageArtifactInfo> additionalArtifacts = listPackageNonImageArtifacts(vnfPackageZip);
+            List<VnfPackageArtifactInfo> additionalArtifacts = listPackageNonImageArtifacts(vnfPackageArchive);
             vnfPkgInfo.setAdditionalArtifacts(additionalArtifacts);
 
         } catch (IOException e) {
@@ -104,11 +105,11 @@ public class SOL004ToscaVNFPackageExtractorImpl extends VNFPackageExtractor {
 
         logger.info("Extracting VNFD yaml from VNF package with id [{}]", vnfPkgId);
 
-        try {
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(vnfPackageZip)) {
             // verify package is in the format that includes a TOSCA-Metadata directory
-            ensureToscaMetadata(vnfPackageZip, vnfPkgId);
+            ensureToscaMetadata(vnfPackageArchive, vnfPkgId);
 
-            Map<String, byte[]> definitions = extractArtifactsFromZip(vnfPackageZip, PATH_TOSCA_DEFINITIONS_DIRECTORY);
+            Map<String, byte[]> definitions = extractArtifactsFromZip(vnfPackageArchive, PATH_TOSCA_DEFINITIONS_DIRECTORY);
             if (definitions.isEmpty()) {
                 throw new VNFPackageExtractionException(String.format("Unable to find any Definitions within VnfPackage with id [%s]", vnfPkgId));
             } else if (definitions.size() > 1) {
@@ -128,22 +129,19 @@ public class SOL004ToscaVNFPackageExtractorImpl extends VNFPackageExtractor {
 
         logger.info("Extracting VNFD zip package from VNF package with id [{}]", vnfPkgId);
 
-        try {
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(vnfPackageZip)) {
             // verify package is in the format that includes a TOSCA-Metadata directory
-            ensureToscaMetadata(vnfPackageZip, vnfPkgId);
+            ensureToscaMetadata(vnfPackageArchive, vnfPkgId);
 
-            Map<String, byte[]> metadataArtifacts = extractArtifactsFromZip(vnfPackageZip, PATH_TOSCA_METADATA_DIRECTORY);
-            if (metadataArtifacts.isEmpty()) {
-
-            }
-            Map<String, byte[]> definitions = extractArtifactsFromZip(vnfPackageZip, PATH_TOSCA_DEFINITIONS_DIRECTORY);
+            List<String> definitions = vnfPackageArchive.listArtifacts(artifactPath -> artifactPath.startsWith(PATH_TOSCA_DEFINITIONS_DIRECTORY));
             if (definitions.isEmpty()) {
                 throw new VNFPackageExtractionException(String.format("Unable to find any Definitions within VnfPackage with id [%s]", vnfPkgId));
             }
 
-            // combine metadata into definitions and rezip
-            definitions.putAll(metadataArtifacts);
-            Resource definitionsAsZip = createZipFromArtifacts(definitions);
+            // combine metadata and definitions into a new zip, copied straight from the package
+            List<String> vnfdArtifacts = vnfPackageArchive.listArtifacts(artifactPath -> artifactPath.startsWith(PATH_TOSCA_DEFINITIONS_DIRECTORY)
+                                                                                         || artifactPath.startsWith(PATH_TOSCA_METADATA_DIRECTORY));
+            Resource definitionsAsZip = createZipFromArtifacts(vnfPackageArchive, vnfdArtifacts);
             return definitionsAsZip;
 
         } catch (IOException e) {
@@ -167,9 +165,9 @@ public class SOL004ToscaVNFPackageExtractorImpl extends VNFPackageExtractor {
         return manifestEntries;
     }
 
-    private String ensureToscaMetadata(Resource vnfPackageZip, String vnfPkgId) throws IOException {
+    private String ensureToscaMetadata(VNFPackageArchive vnfPackageArchive, String vnfPkgId) throws IOException {
 
-        byte[] toscaMetadataByteArray = extractArtifactFromZip(vnfPackageZip, PATH_TOSCA_METADATA);
+        byte[] toscaMetadataByteArray = extractArtifactFromZip(vnfPackageArchive, PATH_TOSCA_METADATA);
         if (toscaMetadataByteArray == null) {
             throw new VNFPackageExtractionException(String.format("Unable to locate Tosca Metadata File on path [%s] within Vnf Package with id [%s]", PATH_TOSCA_METADATA, vnfPkgId));
         }
@@ -1,36 +1,203 @@
 package com.accantosystems.stratoss.vnfmdriver.utils;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
-import javax.net.ssl.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
 
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 
-public class DynamicSslCertificateHttpRequestFactory extends SimpleClientHttpRequestFactory {
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 
-    protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
-        if (connection instanceof HttpsURLConnection) {
-            this.prepareHttpsConnection((HttpsURLConnection) connection);
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Request factory which accepts any server certificate, backed by a pool of keep-alive connections.
+ * <p>
+ * All factories share a single SSLContext, so TLS sessions can be resumed rather than performing a full handshake for every new connection. The pool is closed (and its metrics
+ * removed) when the factory is destroyed.
+ */
+public class DynamicSslCertificateHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final List<Meter> meters = new ArrayList<>();
+    private final AtomicBoolean metersRemoved = new AtomicBoolean();
+    private final MeterRegistry meterRegistry;
+    private final InstrumentedConnectionManager connectionManager;
+
+    public DynamicSslCertificateHttpRequestFactory(VNFMDriverProperties.RestConnectionPool properties, MeterRegistry meterRegistry, String poolName) {
+        this.meterRegistry = meterRegistry;
+
+        this.connectionManager = new InstrumentedConnectionManager(properties.getTimeToLive(), meterRegistry, poolName);
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity((int) properties.getValidateAfterInactivity().toMillis());
+        meters.add(connectionManager.leaseTimer);
+        meters.add(connectionManager.connectionsCreated);
+        meters.add(Gauge.builder("vnfmdriver.http.pool.connections", connectionManager, cm -> cm.getTotalStats().getLeased())
+                        .tag("pool", poolName)
+                        .tag("state", "leased")
+                        .register(meterRegistry));
+        meters.add(Gauge.builder("vnfmdriver.http.pool.connections", connectionManager, cm -> cm.getTotalStats().getAvailable())
+                        .tag("pool", poolName)
+                        .tag("state", "available")
+                        .register(meterRegistry));
+        meters.add(Gauge.builder("vnfmdriver.http.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                        .tag("pool", poolName)
+                        .description("Requests waiting to lease a connection")
+                        .register(meterRegistry));
+        meters.add(Gauge.builder("vnfmdriver.http.pool.max", connectionManager, cm -> cm.getTotalStats().getMax())
+                        .tag("pool", poolName)
+                        .register(meterRegistry));
+        meters.add(TimeGauge.builder("vnfmdriver.http.pool.connection.age", connectionManager, TimeUnit.MILLISECONDS, InstrumentedConnectionManager::getOldestConnectionAge)
+                            .tag("pool", poolName)
+                            .description("Age of the oldest open connection")
+                            .register(meterRegistry));
+
+        // Connection state is disabled so connections are always eligible for reuse, and cookies are handled by the RestTemplates themselves (as before)
+        setHttpClient(HttpClients.custom()
+                                 .setConnectionManager(connectionManager)
+                                 .evictExpiredConnections()
+                                 .evictIdleConnections(properties.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                                 .disableConnectionState()
+                                 .disableCookieManagement()
+                                 .build());
+        setConnectionRequestTimeout((int) properties.getLeaseTimeout().toMillis());
+    }
+
+    /**
+     * @return true if no connections are leased from (or waiting to be leased from) the pool, and none have been for at least the given duration
+     */
+    public boolean isIdle(Duration duration) {
+        return connectionManager.getTotalStats().getLeased() == 0 && connectionManager.getTotalStats().getPending() == 0
+               && System.nanoTime() - connectionManager.lastActivity >= duration.toNanos();
+    }
+
+    /**
+     * Removes the metrics of the pool, e.g. so a replacement pool with the same name can register its own while this one is still in use. Meters are removed by id, so they are
+     * only ever removed once (to avoid removing those of the replacement).
+     */
+    public void removeMeters() {
+        if (metersRemoved.compareAndSet(false, true)) {
+            meters.forEach(meterRegistry::remove);
         }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        removeMeters();
+        super.destroy();
+    }
 
-        super.prepareConnection(connection, httpMethod);
+    private static Registry<ConnectionSocketFactory> getSocketFactoryRegistry() {
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                              .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                              .register("https", SslSocketFactoryHolder.SSL_SOCKET_FACTORY)
+                              .build();
     }
 
-    private void prepareHttpsConnection(HttpsURLConnection connection) {
-        connection.setHostnameVerifier(new DynamicSslCertificateHttpRequestFactory.SkipHostnameVerifier());
+    private static class SslSocketFactoryHolder {
+        private static final SSLConnectionSocketFactory SSL_SOCKET_FACTORY = createSslSocketFactory();
 
-        try {
-            connection.setSSLSocketFactory(this.createSslSocketFactory());
-        } catch (Exception e) {
+        private static SSLConnectionSocketFactory createSslSocketFactory() {
+            try {
+                SSLContext context = SSLContext.getInstance("TLS");
+                context.init(null, new TrustManager[] { new DynamicSslCertificateHttpRequestFactory.SkipX509TrustManager() }, new SecureRandom());
+                return new SSLConnectionSocketFactory(context, NoopHostnameVerifier.INSTANCE);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to initialise SSLContext", e);
+            }
         }
     }
 
-    private SSLSocketFactory createSslSocketFactory() throws Exception {
-        SSLContext context = SSLContext.getInstance("TLS");
-        context.init(null, new TrustManager[] { new DynamicSslCertificateHttpRequestFactory.SkipX509TrustManager() }, new SecureRandom());
-        return context.getSocketFactory();
+    /**
+     * Records how long requests wait to lease a connection, how many new connections are opened and the age of the oldest connection in the pool
+     */
+    private static class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer leaseTimer;
+        private final Counter connectionsCreated;
+        private volatile long lastActivity = System.nanoTime();
+
+        private InstrumentedConnectionManager(Duration timeToLive, MeterRegistry meterRegistry, String poolName) {
+            super(getSocketFactoryRegistry(), null, null, null, timeToLive.toMillis(), TimeUnit.MILLISECONDS);
+            this.leaseTimer = Timer.builder("vnfmdriver.http.pool.lease")
+                                   .tag("pool", poolName)
+                                   .description("Time taken to lease a connection from the pool")
+                                   .register(meterRegistry);
+            this.connectionsCreated = Counter.builder("vnfmdriver.http.pool.connections.created")
+                                             .tag("pool", poolName)
+                                             .description("New connections opened (including any TLS handshake)")
+                                             .register(meterRegistry);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            lastActivity = System.nanoTime();
+            final ConnectionRequest connectionRequest = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    final long start = System.nanoTime();
+                    try {
+                        return connectionRequest.get(timeout, timeUnit);
+                    } finally {
+                        leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return connectionRequest.cancel();
+                }
+            };
+        }
+
+        @Override
+        public void releaseConnection(HttpClientConnection managedConn, Object state, long keepAlive, TimeUnit timeUnit) {
+            lastActivity = System.nanoTime();
+            super.releaseConnection(managedConn, state, keepAlive, timeUnit);
+        }
+
+        @Override
+        public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+            connectionsCreated.increment();
+            super.connect(managedConn, route, connectTimeout, context);
+        }
+
+        private double getOldestConnectionAge() {
+            final AtomicLong oldest = new AtomicLong(Long.MAX_VALUE);
+            enumAvailable(entry -> oldest.accumulateAndGet(entry.getCreated(), Math::min));
+            enumLeased(entry -> oldest.accumulateAndGet(entry.getCreated(), Math::min));
+            return oldest.get() == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest.get();
+        }
+
     }
 
     private static class SkipX509TrustManager implements X509TrustManager {
@@ -45,12 +212,4 @@ public class DynamicSslCertificateHttpRequestFactory extends SimpleClientHttpReq
         public void checkServerTrusted(X509Certificate[] chain, String authType) {}
     }
 
-    private static class SkipHostnameVerifier implements HostnameVerifier {
-        private SkipHostnameVerifier() {}
-
-        public boolean verify(String s, SSLSession sslSession) {
-            return true;
-        }
-    }
-
-}
\ No newline at end of file
+}
@@ -17,9 +17,11 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import com.accantosystems.stratoss.vnfmdriver.driver.SOL003ResponseException;
 import com.accantosystems.stratoss.vnfmdriver.model.web.ErrorInfo;
+import com.accantosystems.stratoss.vnfmdriver.service.ExecutionCapacityExceededException;
 
 /**
  * Handles the conversion of Exceptions thrown by ALM-facing Rest API calls
@@ -78,6 +80,23 @@ public class ALMExceptionHandlingControllerAdvice {
         return defaultHandle("Method not yet implemented", req, cause);
     }
 
+    @ExceptionHandler(ExecutionCapacityExceededException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    protected ErrorInfo handleExecutionCapacityExceededException(HttpServletRequest req, ExecutionCapacityExceededException cause) {
+        return defaultHandle(cause.getLocalizedMessage(), req, cause);
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    @ResponseBody
+    protected ErrorInfo handleAsyncRequestTimeoutException(HttpServletRequest req, AsyncRequestTimeoutException cause) {
+        // The lifecycle may still be executing, so this must not be reported as a 503 (which the ALM can safely retry)
+        final String message = "Timed out waiting for the lifecycle to be accepted by the VNFM, it may still be in progress";
+        logError(message, cause);
+        return new ErrorInfo(req.getRequestURL().toString(), message, new HashMap<>());
+    }
+
     @ExceptionHandler(SOL003ResponseException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ResponseBody
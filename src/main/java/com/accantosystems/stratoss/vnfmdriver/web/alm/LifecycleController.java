@@ -1,8 +1,10 @@
 package com.accantosystems.stratoss.vnfmdriver.web.alm;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -10,14 +12,18 @@ import com.accantosystems.stratoss.vnfmdriver.model.alm.FindReferenceRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.accantosystems.stratoss.vnfmdriver.config.BufferedRequestWrapper;
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAcceptedResponse;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.service.ExecutionCapacityExceededException;
 import com.accantosystems.stratoss.vnfmdriver.service.LifecycleManagementService;
 import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionException;
 
@@ -30,24 +36,55 @@ public class LifecycleController {
     private final static Logger logger = LoggerFactory.getLogger(LifecycleController.class);
 
     private final LifecycleManagementService lifecycleManagementService;
+    private final VNFMDriverProperties properties;
+    private final Executor lifecycleExecutor;
 
     @Autowired
-    public LifecycleController(final LifecycleManagementService lifecycleManagementService) {
+    public LifecycleController(final LifecycleManagementService lifecycleManagementService, final VNFMDriverProperties properties,
+                               @Qualifier("lifecycleExecutor") final Executor lifecycleExecutor) {
         this.lifecycleManagementService = lifecycleManagementService;
+        this.properties = properties;
+        this.lifecycleExecutor = lifecycleExecutor;
     }
 
     @PostMapping("/lifecycle/execute")
     @ApiOperation(value = "Execute a lifecycle against a VNFM", notes = "Initiates a lifecycle against a VNF, managed by a VNFM")
-    public ResponseEntity<ExecutionAcceptedResponse> executeLifecycle(@RequestBody ExecutionRequest executionRequest, HttpServletRequest servletRequest) throws MessageConversionException {
-        try (BufferedReader messageReader = servletRequest.getReader()) {
-            String rawMessage = messageReader.lines().collect(Collectors.joining("\n"));
-            logger.info("Received ExecutionRequest:\n{}", rawMessage);
-        } catch (IOException e) {
-            logger.warn(String.format("Exception caught logging ExecutionRequest message: %s", e.getMessage()), e);
+    public CompletableFuture<ResponseEntity<ExecutionAcceptedResponse>> executeLifecycle(@RequestBody ExecutionRequest executionRequest, HttpServletRequest servletRequest)
+            throws MessageConversionException {
+        // The body was captured as it was read to deserialise the ExecutionRequest
+        final BufferedRequestWrapper bufferedRequest = BufferedRequestWrapper.of(servletRequest);
+        if (bufferedRequest != null) {
+            logger.info("Received ExecutionRequest:\n{}", bufferedRequest.getCapturedBody());
         }
         logger.info("Received request to execute a lifecycle [{}] at deployment location [{}]", executionRequest.getLifecycleName(), executionRequest.getDeploymentLocation().getName());
-        final ExecutionAcceptedResponse executionAcceptedResponse = lifecycleManagementService.executeLifecycle(executionRequest);
-        return ResponseEntity.accepted().body(executionAcceptedResponse);
+        if (properties.getExecution().isAsync()) {
+            // Release the request thread while the VNFM is called, the response is written once the lifecycle executor completes the future
+            final long submittedTime = System.nanoTime();
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        // Requests which have waited too long are rejected before the VNFM is called, so the ALM can safely retry them
+                        if (System.nanoTime() - submittedTime > properties.getExecution().getQueueTimeout().toNanos()) {
+                            throw new ExecutionCapacityExceededException(String.format("Timed out waiting to execute lifecycle [%s]", executionRequest.getLifecycleName()));
+                        }
+                        return ResponseEntity.accepted().body(lifecycleManagementService.executeLifecycle(executionRequest));
+                    } catch (MessageConversionException e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        closeDriverFiles(executionRequest);
+                    }
+                }, lifecycleExecutor);
+            } catch (RejectedExecutionException e) {
+                closeDriverFiles(executionRequest);
+                throw new ExecutionCapacityExceededException(String.format("Lifecycle executor is at capacity, unable to execute lifecycle [%s]", executionRequest.getLifecycleName()));
+            }
+        }
+        try {
+            final ExecutionAcceptedResponse executionAcceptedResponse = lifecycleManagementService.executeLifecycle(executionRequest);
+            return CompletableFuture.completedFuture(ResponseEntity.accepted().body(executionAcceptedResponse));
+        } finally {
+            closeDriverFiles(executionRequest);
+        }
     }
 
     @PostMapping("/references/find")
@@ -56,4 +93,17 @@ public class LifecycleController {
         throw new NotImplementedException("Find References API is not implemented");
     }
 
+    /**
+     * The driver files are only needed to generate the request messages, so can be released (deleting any temporary file) once the lifecycle has been executed
+     */
+    private static void closeDriverFiles(ExecutionRequest executionRequest) {
+        if (executionRequest.getDriverFiles() != null) {
+            try {
+                executionRequest.getDriverFiles().close();
+            } catch (IOException e) {
+                logger.warn("Unable to close driver files", e);
+            }
+        }
+    }
+
 }
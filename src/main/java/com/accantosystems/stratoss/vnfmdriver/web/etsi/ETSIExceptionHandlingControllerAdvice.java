@@ -1,10 +1,12 @@
 package com.accantosystems.stratoss.vnfmdriver.web.etsi;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.etsi.sol003.common.ProblemDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -110,7 +112,10 @@ public class ETSIExceptionHandlingControllerAdvice {
     @ExceptionHandler(ContentRangeNotSatisfiableException.class)
     @ResponseStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
     @ResponseBody
-    protected ProblemDetails handleContentRangeNotSatisfiableException(HttpServletRequest req, ContentRangeNotSatisfiableException cause) {
+    protected ProblemDetails handleContentRangeNotSatisfiableException(HttpServletRequest req, HttpServletResponse resp, ContentRangeNotSatisfiableException cause) {
+        if (cause.getContentLength() >= 0) {
+            resp.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + cause.getContentLength());
+        }
         return defaultHandle("The byte range passed in the \"Range\" header did not match any available byte range in the VNF Package file.", cause, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
     }
 
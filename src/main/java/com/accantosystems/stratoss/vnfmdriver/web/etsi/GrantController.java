@@ -1,6 +1,9 @@
 package com.accantosystems.stratoss.vnfmdriver.web.etsi;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.etsi.sol003.granting.Grant;
 import org.etsi.sol003.granting.GrantRequest;
@@ -10,8 +13,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.config.WebMvcConfiguration;
 import com.accantosystems.stratoss.vnfmdriver.driver.GrantProviderException;
 import com.accantosystems.stratoss.vnfmdriver.model.GrantCreationResponse;
 import com.accantosystems.stratoss.vnfmdriver.service.GrantRejectedException;
@@ -29,10 +35,12 @@ public class GrantController {
     private static final String GRANT_LOCATION = GrantController.GRANTS_ENDPOINT + "/{grantId}";
 
     private final GrantService grantService;
+    private final VNFMDriverProperties properties;
 
     @Autowired
-    public GrantController(GrantService grantService) {
+    public GrantController(GrantService grantService, VNFMDriverProperties properties) {
         this.grantService = grantService;
+        this.properties = properties;
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -54,16 +62,45 @@ public class GrantController {
 
     @GetMapping(path = { "/{grantId}" }, produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiOperation(value = "Reads a grant", notes = "Returns a previously created grant resource if a granting decision has been made.")
-    public ResponseEntity<Grant> getGrant(@PathVariable String grantId) throws GrantRejectedException, GrantProviderException {
+    public CompletableFuture<ResponseEntity<Grant>> getGrant(@PathVariable String grantId) throws GrantRejectedException, GrantProviderException {
         logger.info("Received grant fetch for id [{}]", grantId);
 
         Grant grant = grantService.getGrant(grantId);
 
         if (grant != null) {
-            return ResponseEntity.ok(grant);
-        } else {
-            return ResponseEntity.accepted().build();
+            return CompletableFuture.completedFuture(ResponseEntity.ok(grant));
+        }
+        final Duration longPollTimeout = getLongPollTimeout();
+        if (longPollTimeout.isZero() || longPollTimeout.isNegative()) {
+            return CompletableFuture.completedFuture(ResponseEntity.accepted().build());
+        }
+        // Release the request thread until the decision is made, or the timeout is reached
+        logger.info("Waiting up to {} for decision on grant with id [{}]", longPollTimeout, grantId);
+        return grantService.awaitGrant(grantId)
+                           .thenApply(ResponseEntity::ok)
+                           .completeOnTimeout(ResponseEntity.accepted().build(), longPollTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A long poll which outlasts the async request timeout is still answered with 202 Accepted, as if no decision had been made
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<Grant> handleAsyncRequestTimeoutException(AsyncRequestTimeoutException cause) {
+        logger.warn("Async request timed out waiting for grant decision");
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * The long poll timeout is capped at 90% of the async request timeout, so the VNFM is sent 202 Accepted before the request itself is timed out
+     */
+    private Duration getLongPollTimeout() {
+        final Duration longPollTimeout = properties.getGrant().getPolling().getLongPollTimeout();
+        final Duration maxLongPollTimeout = WebMvcConfiguration.getAsyncRequestTimeout(properties).multipliedBy(9).dividedBy(10);
+        if (longPollTimeout.compareTo(maxLongPollTimeout) > 0) {
+            logger.debug("Long poll timeout {} exceeds the async request timeout, waiting {} instead", longPollTimeout, maxLongPollTimeout);
+            return maxLongPollTimeout;
         }
+        return longPollTimeout;
     }
 
 }
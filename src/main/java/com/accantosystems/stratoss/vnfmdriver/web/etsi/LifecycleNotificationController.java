@@ -19,6 +19,7 @@ import org.etsi.sol003.lifecyclemanagement.LcmOperationStateType;
 import org.etsi.sol003.lifecyclemanagement.LifecycleManagementNotification;
 import org.etsi.sol003.lifecyclemanagement.VnfLcmOperationOccurenceNotification;
 import com.accantosystems.stratoss.vnfmdriver.service.ExternalMessagingService;
+import com.accantosystems.stratoss.vnfmdriver.service.LifecycleCompletionTracker;
 
 import io.swagger.annotations.ApiOperation;
 
@@ -29,10 +30,12 @@ public class LifecycleNotificationController {
     private final static Logger logger = LoggerFactory.getLogger(LifecycleNotificationController.class);
 
     private final ExternalMessagingService externalMessagingService;
+    private final LifecycleCompletionTracker lifecycleCompletionTracker;
 
     @Autowired
-    public LifecycleNotificationController(ExternalMessagingService externalMessagingService) {
+    public LifecycleNotificationController(ExternalMessagingService externalMessagingService, LifecycleCompletionTracker lifecycleCompletionTracker) {
         this.externalMessagingService = externalMessagingService;
+        this.lifecycleCompletionTracker = lifecycleCompletionTracker;
     }
 
     @PostMapping
@@ -54,6 +57,7 @@ public class LifecycleNotificationController {
                         asyncResponse.setFailureDetails(new FailureDetails(FailureDetails.FailureCode.INTERNAL_ERROR, vnfLcmOpOccNotification.getError().getDetail()));
                     }
                 }
+                lifecycleCompletionTracker.completed(asyncResponse.getRequestId(), asyncResponse.getStatus());
                 externalMessagingService.sendExecutionAsyncResponse(asyncResponse);
             }
         }
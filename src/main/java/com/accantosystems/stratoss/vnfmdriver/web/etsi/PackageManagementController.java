@@ -1,30 +1,48 @@
 package com.accantosystems.stratoss.vnfmdriver.web.etsi;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.etsi.sol003.packagemanagement.VnfPkgInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageNotFoundException;
+import com.accantosystems.stratoss.vnfmdriver.model.web.PagedResults;
+import com.accantosystems.stratoss.vnfmdriver.service.AttributeFilter;
+import com.accantosystems.stratoss.vnfmdriver.service.AttributeSelector;
 import com.accantosystems.stratoss.vnfmdriver.service.ContentRangeNotSatisfiableException;
+import com.accantosystems.stratoss.vnfmdriver.service.FileRegionResource;
 import com.accantosystems.stratoss.vnfmdriver.service.PackageManagementService;
 import com.accantosystems.stratoss.vnfmdriver.service.PackageStateConflictException;
 import com.accantosystems.stratoss.vnfmdriver.service.UnexpectedPackageContentsException;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import io.swagger.annotations.ApiOperation;
 
 @RestController("PackageManagementController")
@@ -36,6 +54,15 @@ public class PackageManagementController {
 
     private static final String CONTENT_TYPE_APPLICATION_YAML = "application/yaml";
     private static final String CONTENT_TYPE_APPLICATION_ZIP = "application/zip";
+    // Request attributes used by Tomcat to send a file directly from the connector
+    private static final String RELEASE_CALLBACK_PREFIX = PackageManagementController.class.getName() + ".release.";
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    // Attributes of VnfPkgInfo excluded by exclude_default, as defined by ETSI GS NFV-SOL 003
+    private static final List<String> VNF_PKG_INFO_DEFAULT_EXCLUDED_ATTRIBUTES = Arrays.asList("softwareImages", "additionalArtifacts", "userDefinedData", "checksum");
 
     private final PackageManagementService packageManagementService;
     private final VNFMDriverProperties vnfmDriverProperties;
@@ -48,7 +75,7 @@ public class PackageManagementController {
 
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiOperation(value = "Query VNF packages information.", notes = "Queries the information of the VNF packages matching the filter.")
-    public ResponseEntity<List<VnfPkgInfo>> queryVnfPackages(@RequestParam(value = "filter", required = false) String filter,
+    public ResponseEntity<List<?>> queryVnfPackages(@RequestParam(value = "filter", required = false) String filter,
                                                              @RequestParam(value = "all_fields", required = false) String allFields,
                                                              @RequestParam(value = "fields", required = false) String fields,
                                                              @RequestParam(value = "exclude_fields", required = false) String excludeFields,
@@ -62,7 +89,22 @@ public class PackageManagementController {
             return ResponseEntity.ok(Collections.singletonList(packageManagementService.getVnfPackageInfo(vnfdId)));
         }
 
-        return ResponseEntity.ok(packageManagementService.getAllVnfPackageInfos(vnfmDriverProperties.getPackageManagement().getNexusGroupName()));
+        final AttributeFilter attributeFilter = AttributeFilter.parse(filter);
+        final AttributeSelector attributeSelector = AttributeSelector.of(allFields, fields, excludeFields, excludeDefault, VNF_PKG_INFO_DEFAULT_EXCLUDED_ATTRIBUTES);
+        final PagedResults<ObjectNode> vnfPkgInfos = packageManagementService.queryVnfPackageInfos(vnfmDriverProperties.getPackageManagement().getNexusGroupName(), attributeFilter,
+                                                                                                   nextPageOpaqueMarker);
+        vnfPkgInfos.getItems().forEach(attributeSelector::apply);
+
+        final HttpHeaders headers = new HttpHeaders();
+        if (vnfPkgInfos.getNextPageOpaqueMarker() != null) {
+            // The marker is URL-safe, and the rest of the query is kept as it was received
+            final String nextPageUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                                                                  .replaceQueryParam("nextpage_opaque_marker", vnfPkgInfos.getNextPageOpaqueMarker())
+                                                                  .build(true)
+                                                                  .toUriString();
+            headers.add(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", nextPageUri));
+        }
+        return new ResponseEntity<>(vnfPkgInfos.getItems(), headers, HttpStatus.OK);
     }
 
     @GetMapping(path = "/{vnfPkgId}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -120,17 +162,16 @@ public class PackageManagementController {
 
     @GetMapping(path = "/{vnfPkgId}/package_content", produces = { CONTENT_TYPE_APPLICATION_ZIP })
     @ApiOperation(value = "Reads the content of a VNF package identified by the VNF package identifier allocated by the NFVO.", notes = "This resource represents a VNF package identified by the VNF package identifier allocated by the NFVO. The client can use this resource to fetch the content of the VNF package.")
-    public ResponseEntity<Resource> getVnfPackageContent(@RequestHeader(value = "Content-Range", required = false) String contentRange,
-                                                         @PathVariable String vnfPkgId) throws PackageStateConflictException,
-                                                                                               ContentRangeNotSatisfiableException, VNFPackageNotFoundException {
+    public ResponseEntity<Resource> getVnfPackageContent(@RequestHeader(value = HttpHeaders.RANGE, required = false) String range, @PathVariable String vnfPkgId,
+                                                         HttpServletRequest request) throws PackageStateConflictException, ContentRangeNotSatisfiableException,
+                                                                                            VNFPackageNotFoundException, IOException {
 
-        logger.info("Received VNF Package Content Get request for package id [{}] and content range [{}]", vnfPkgId, contentRange);
+        logger.info("Received VNF Package Content Get request for package id [{}] and range [{}]", vnfPkgId, range);
 
-        Resource vnfPackage = packageManagementService.getVnfPackageContent(vnfPkgId, contentRange);
-        HttpStatus responseStatus = contentRange != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(CONTENT_TYPE_APPLICATION_ZIP));
-        return new ResponseEntity<>(vnfPackage, headers, responseStatus);
+        HttpRange httpRange = parseRange(range);
+        Resource vnfPackage = packageManagementService.getVnfPackageContent(vnfPkgId);
+        releaseOnCompletion(vnfPackage);
+        return createContentResponse(vnfPackage, MediaType.parseMediaType(CONTENT_TYPE_APPLICATION_ZIP), httpRange, range, request);
 
     }
 
@@ -138,22 +179,170 @@ public class PackageManagementController {
     // This path filter seems to be the only way to match on these URLs - https://stackoverflow.com/questions/51108291
     @GetMapping(path = { "/{vnfPkgId}/artifacts/**" })
     @ApiOperation(value = "Reads the content content of an artifact within a VNF package.", notes = "This resource represents an individual artifact contained in a VNF package. The client can use this resource to fetch the content of the artifact.")
-    public ResponseEntity<Resource> getVnfPackageArtifact(@RequestHeader(value = "Content-Range", required = false) String contentRange, @PathVariable String vnfPkgId,
-                                                          HttpServletRequest request) throws PackageStateConflictException, ContentRangeNotSatisfiableException, VNFPackageNotFoundException {
+    public ResponseEntity<Resource> getVnfPackageArtifact(@RequestHeader(value = HttpHeaders.RANGE, required = false) String range, @PathVariable String vnfPkgId,
+                                                          HttpServletRequest request) throws PackageStateConflictException, ContentRangeNotSatisfiableException, VNFPackageNotFoundException,
+                                                                                             IOException {
 
         // Need to manually extract the artifactPath from the request URI to ensure it supports slashes within it
         String requestPath = request.getRequestURI();
         int index = requestPath.indexOf("/artifacts/") + "/artifacts/".length();
         String artifactPath = request.getRequestURI().substring(index);
 
-        logger.info("Received VNF Package Artifact Get request for package id [{}], artifact path [{}] and content range [{}]", vnfPkgId, artifactPath, contentRange);
+        logger.info("Received VNF Package Artifact Get request for package id [{}], artifact path [{}] and range [{}]", vnfPkgId, artifactPath, range);
+
+        HttpRange httpRange = parseRange(range);
+        Resource vnfPackageArtifact = packageManagementService.getVnfPackageArtifact(vnfPkgId, artifactPath);
+        releaseOnCompletion(vnfPackageArtifact);
+        // TODO - can we determine the actual type from the content
+        return createContentResponse(vnfPackageArtifact, MediaType.APPLICATION_OCTET_STREAM, httpRange, range, request);
+
+    }
+
+    /**
+     * A Range header that can't be parsed, or which asks for more than one range, is ignored (as permitted by RFC 7233) so the whole content is returned
+     *
+     * @return the single byte range requested, or null if the whole content should be returned
+     */
+    private HttpRange parseRange(String range) {
+        if (!StringUtils.hasText(range)) {
+            return null;
+        }
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring invalid range [{}]: {}", range, e.getMessage());
+            return null;
+        }
+        if (httpRanges.size() != 1) {
+            logger.debug("Ignoring range [{}] as only a single range is supported", range);
+            return null;
+        }
+        return httpRanges.get(0);
+    }
+
+    /**
+     * Content may hold resources (such as an open VNF package, or a pinned entry in the package cache) until it is closed. The body is only written (or sent by the container)
+     * after the controller returns, and may never be read at all if the request fails, so the content is closed once the request has completed rather than when its stream is
+     * closed.
+     */
+    private void releaseOnCompletion(Resource content) {
+        if (!(content instanceof Closeable)) {
+            return;
+        }
+        RequestContextHolder.currentRequestAttributes().registerDestructionCallback(RELEASE_CALLBACK_PREFIX + System.identityHashCode(content), () -> {
+            try {
+                ((Closeable) content).close();
+            } catch (IOException e) {
+                logger.warn(String.format("Unable to release %s", content.getDescription()), e);
+            }
+        }, RequestAttributes.SCOPE_REQUEST);
+    }
 
-        Resource vnfPackageArtifact = packageManagementService.getVnfPackageArtifact(vnfPkgId, artifactPath, contentRange);
-        HttpStatus responseStatus = contentRange != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
+    /**
+     * Returns either the whole content or, if a (single) byte range has been requested, a 206 Partial Content response for just that range. Content held in a file is handed to the
+     * servlet container to send directly (using sendfile), otherwise it's streamed from the resource.
+     */
+    private ResponseEntity<Resource> createContentResponse(Resource content, MediaType contentType, HttpRange httpRange, String range, HttpServletRequest request)
+            throws ContentRangeNotSatisfiableException, IOException {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM); // TODO - can we determine the actual type from the content
-        return new ResponseEntity<>(vnfPackageArtifact, headers, responseStatus);
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long contentLength = getContentLength(content);
+        if (httpRange == null) {
+            if (contentLength >= 0) {
+                headers.setContentLength(contentLength);
+            }
+            return createResponse(content, headers, HttpStatus.OK, request);
+        }
+
+        if (contentLength < 0) {
+            throw new ContentRangeNotSatisfiableException(String.format("Unable to determine the length of the content for range [%s]", range));
+        }
+
+        long start;
+        long end;
+        try {
+            start = httpRange.getRangeStart(contentLength);
+            end = httpRange.getRangeEnd(contentLength);
+        } catch (IllegalArgumentException e) {
+            start = contentLength;
+            end = contentLength - 1;
+        }
+        if (start >= contentLength || end < start) {
+            throw new ContentRangeNotSatisfiableException(String.format("Range [%s] is not satisfiable for content of length [%s]", range, contentLength), contentLength);
+        }
+
+        long count = end - start + 1;
+        headers.set(HttpHeaders.CONTENT_RANGE, String.format("bytes %s-%s/%s", start, end, contentLength));
+        headers.setContentLength(count);
+        return createResponse(getRegion(content, start, count), headers, HttpStatus.PARTIAL_CONTENT, request);
+    }
+
+    private ResponseEntity<Resource> createResponse(Resource body, HttpHeaders headers, HttpStatus status, HttpServletRequest request) throws IOException {
+        if (body instanceof FileRegionResource && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))
+            && body.isReadable() && headers.getContentLength() >= vnfmDriverProperties.getPackageManagement().getSendfileThreshold().toBytes()) {
+            FileRegionResource fileRegion = (FileRegionResource) body;
+            logger.debug("Sending {} using sendfile", fileRegion.getDescription());
+            // The container writes the body (using FileChannel.transferTo) once the request has been handled, so no body is returned here
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, fileRegion.getSourceFile().getAbsolutePath());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, fileRegion.getPosition());
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, fileRegion.getPosition() + headers.getContentLength());
+            return new ResponseEntity<>(headers, status);
+        }
+        if (status == HttpStatus.OK && StringUtils.hasText(request.getHeader(HttpHeaders.RANGE)) && !(body instanceof InputStreamResource)) {
+            // Spring MVC applies the Range header itself when writing any other type of Resource with a 200 status, which would undo ignoring it
+            body = new InputStreamResource(body.getInputStream(), body.getDescription());
+        }
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    private long getContentLength(Resource content) {
+        if (content instanceof InputStreamResource) {
+            // would consume the stream
+            return -1;
+        }
+        try {
+            return content.contentLength();
+        } catch (IOException e) {
+            logger.debug("Unable to determine content length of {}: {}", content.getDescription(), e.getMessage());
+            return -1;
+        }
+    }
+
+    private Resource getRegion(Resource content, long start, long count) {
+        if (content instanceof FileRegionResource) {
+            return ((FileRegionResource) content).region(start, count);
+        }
+        return new AbstractResource() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                InputStream inputStream = content.getInputStream();
+                try {
+                    IOUtils.skipFully(inputStream, start);
+                    return new BoundedInputStream(inputStream, count);
+                } catch (IOException | RuntimeException e) {
+                    inputStream.close();
+                    throw e;
+                }
+            }
 
+            @Override
+            public long contentLength() {
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return content.isOpen();
+            }
+
+            @Override
+            public String getDescription() {
+                return String.format("bytes %s-%s of %s", start, start + count - 1, content.getDescription());
+            }
+        };
     }
 
 }
@@ -0,0 +1,82 @@
+package com.accantosystems.stratoss.common.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import com.accantosystems.stratoss.vnfmdriver.model.MessageDirection;
+import com.accantosystems.stratoss.vnfmdriver.model.MessageType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+
+public class LoggingUtilsTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(LoggingUtils.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final LogstashEncoder encoder = new LogstashEncoder();
+    private Level originalLevel;
+
+    @BeforeEach
+    public void setUp() {
+        originalLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        appender.start();
+        logger.addAppender(appender);
+        encoder.setContext(logger.getLoggerContext());
+        encoder.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(originalLevel);
+        encoder.stop();
+    }
+
+    @Test
+    public void testLogEnabledMDC() throws Exception {
+        LoggingUtils.logEnabledMDC("{\"flavourId\": \"default\", \"extensions\": {}}", MessageType.REQUEST, MessageDirection.SENT, "requestId", "application/json", "HTTP",
+                                   Map.of("url", "https://vnfm:8080/vnflcm/v2/vnf_instances"), "driverRequestId");
+
+        assertThat(appender.list).hasSize(1);
+        final JsonNode logEvent = new ObjectMapper().readTree(new String(encoder.encode(appender.list.get(0)), StandardCharsets.UTF_8));
+        assertThat(logEvent.get("message").asText()).isEqualTo("{\"flavourId\": \"default\", \"extensions\": {}}");
+        assertThat(logEvent.get("message_direction").asText()).isEqualTo("sent");
+        assertThat(logEvent.get("message_type").asText()).isEqualTo("request");
+        assertThat(logEvent.get("tracectx.externalrequestid").asText()).isEqualTo("requestId");
+        assertThat(logEvent.get("content_type").asText()).isEqualTo("application/json");
+        assertThat(logEvent.get("protocol").asText()).isEqualTo("http");
+        assertThat(logEvent.get("protocol_metadata").asText()).isEqualTo("{\"url\":\"https://vnfm:8080/vnflcm/v2/vnf_instances\"}");
+        assertThat(logEvent.get("tracectx.driverrequestid").asText()).isEqualTo("driverRequestId");
+    }
+
+    @Test
+    public void testLogEnabledMDCTruncatesLongMessages() {
+        LoggingUtils.logEnabledMDC("x".repeat(20000), MessageType.RESPONSE, MessageDirection.RECEIVED, "requestId", "application/json", "http", Map.of(), null);
+
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage()).hasSize(16 * 1024 + "... [3616 characters not logged]".length())
+                                                             .endsWith("... [3616 characters not logged]");
+    }
+
+    @Test
+    public void testLogEnabledMDCDisabled() {
+        logger.setLevel(Level.WARN);
+        LoggingUtils.logEnabledMDC("message", MessageType.REQUEST, MessageDirection.SENT, "requestId", "application/json", "http", Map.of(), null);
+
+        assertThat(appender.list).isEmpty();
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.accantosystems.stratoss.vnfmdriver.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.servletapi.SecurityContextHolderAwareRequestWrapper;
+
+public class BufferedRequestWrapperTest {
+
+    @Test
+    public void testCapturedBody() throws Exception {
+        final String body = "{\"lifecycleName\": \"Install\", \"deploymentLocation\": {\"name\": \"café\"}}";
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+
+        final BufferedRequestWrapper bufferedRequest = new BufferedRequestWrapper(request, 1024);
+        assertThat(bufferedRequest.getCapturedBody()).isEmpty();
+        assertThat(IOUtils.toString(bufferedRequest.getInputStream(), StandardCharsets.UTF_8)).isEqualTo(body);
+        assertThat(bufferedRequest.getCapturedBody()).isEqualTo(body);
+
+        // can be found through any further wrappers
+        assertThat(BufferedRequestWrapper.of(new SecurityContextHolderAwareRequestWrapper(bufferedRequest, "ROLE_"))).isSameAs(bufferedRequest);
+        assertThat(BufferedRequestWrapper.of(request)).isNull();
+    }
+
+    @Test
+    public void testCapturedBodyOverLimit() throws Exception {
+        final byte[] body = "0123456789".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(body);
+
+        final BufferedRequestWrapper bufferedRequest = new BufferedRequestWrapper(request, 100);
+        // the whole body is still read
+        assertThat(IOUtils.toByteArray(bufferedRequest.getReader(), StandardCharsets.UTF_8)).isEqualTo(body);
+        assertThat(bufferedRequest.getCapturedBody()).isEqualTo("0123456789".repeat(10) + "... [10000 bytes in total]");
+    }
+
+}
@@ -9,24 +9,37 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
 
 import org.etsi.sol003.lifecyclemanagement.LccnSubscription;
 import org.etsi.sol003.lifecyclemanagement.LccnSubscriptionRequest;
+import org.etsi.sol003.lifecyclemanagement.LcmOperationStateType;
+import org.etsi.sol003.lifecyclemanagement.LcmOperationType;
+import org.etsi.sol003.lifecyclemanagement.VnfLcmOpOcc;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.client.MockRestServiceServer;
 
 import com.accantosystems.stratoss.vnfmdriver.service.AuthenticatedRestTemplateService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @RestClientTest({ VNFLifecycleManagementDriver.class, SOL003ResponseErrorHandler.class, AuthenticatedRestTemplateService.class })
+@ImportAutoConfiguration({ MetricsAutoConfiguration.class, SimpleMetricsExportAutoConfiguration.class, CompositeMeterRegistryAutoConfiguration.class })
 @AutoConfigureWireMock(port = 0)
 public class VNFLifecycleManagementDriverTest {
 
@@ -37,6 +50,7 @@ public class VNFLifecycleManagementDriverTest {
 
     @Autowired private VNFLifecycleManagementDriver driver;
     @Autowired private AuthenticatedRestTemplateService authenticatedRestTemplateService;
+    @Autowired private MeterRegistry meterRegistry;
 
     @Value("${wiremock.server.port}") private int wiremockServerPort;
 
@@ -56,6 +70,8 @@ public class VNFLifecycleManagementDriverTest {
         final String vnfInstanceResponse = driver.createVnfInstance(TEST_DL_NO_AUTH, createVnfRequest, TEST_VNF_DRIVER_INSTANCE_ID);
 
         assertThat(vnfInstanceResponse).isNotNull();
+        assertThat(meterRegistry.get("vnfmdriver.vnfm.requests").tag("location", "test-location").tag("operation", "createVnfInstance").tag("status", "201")
+                                .tag("outcome", "SUCCESS").timer().count()).isPositive();
     }
 
     @Test
@@ -145,6 +161,8 @@ public class VNFLifecycleManagementDriverTest {
         assertThat(exception.getProblemDetails()).isNotNull();
         assertThat(exception.getProblemDetails().getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR.value());
         assertThat(exception.getProblemDetails().getDetail()).isEqualTo("An error has occurred");
+        assertThat(meterRegistry.get("vnfmdriver.vnfm.requests").tag("location", "test-location").tag("operation", "createVnfInstance").tag("status", "500")
+                                .tag("outcome", "SERVER_ERROR").timer().count()).isPositive();
     }
 
     @Test
@@ -457,11 +475,66 @@ public class VNFLifecycleManagementDriverTest {
     }
 
     @Test
-    public void testQueryAllLifecycleOperationOccurrences() {
+    public void testQueryAllLifecycleOperationOccurrences() throws Exception {
+        final MockRestServiceServer server = MockRestServiceServer.bindTo(authenticatedRestTemplateService.getRestTemplate(TEST_DL_NO_AUTH)).build();
+        final String vnfLcmOpOcc = loadFileIntoString("examples/VnfLcmOpOcc.json");
+        final HttpHeaders firstPageHeaders = new HttpHeaders();
+        firstPageHeaders.set(HttpHeaders.LINK, "<" + LCM_OP_OCC_ENDPOINT + "?nextpage_opaque_marker=page2>; rel=\"next\"");
+
+        server.expect(requestTo(TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT))
+              .andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess("[" + vnfLcmOpOcc + "]", MediaType.APPLICATION_JSON).headers(firstPageHeaders));
+        server.expect(requestTo(TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT + "?nextpage_opaque_marker=page2"))
+              .andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess("[" + vnfLcmOpOcc + "]", MediaType.APPLICATION_JSON));
+
+        final List<VnfLcmOpOcc> vnfLcmOpOccs = driver.queryAllLifecycleOperationOccurrences(TEST_DL_NO_AUTH);
+
+        server.verify();
+        assertThat(vnfLcmOpOccs).hasSize(2);
+        assertThat(vnfLcmOpOccs.get(0).getId()).isEqualTo(TEST_VNF_LCM_OP_OCC_ID);
     }
 
     @Test
-    public void testQueryLifecycleOperationOccurrence() {
+    public void testQueryLifecycleOperationOccurrences() throws Exception {
+        final MockRestServiceServer server = MockRestServiceServer.bindTo(authenticatedRestTemplateService.getRestTemplate(TEST_DL_NO_AUTH)).build();
+
+        server.expect(requestTo(TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT + "?filter=%28in%2Cid%2C" + TEST_VNF_LCM_OP_OCC_ID + "%2C%27a%2Cb%27%29"))
+              .andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess("[" + loadFileIntoString("examples/VnfLcmOpOcc.json") + "]", MediaType.APPLICATION_JSON));
+
+        final List<VnfLcmOpOcc> vnfLcmOpOccs = driver.queryLifecycleOperationOccurrences(TEST_DL_NO_AUTH, Arrays.asList(TEST_VNF_LCM_OP_OCC_ID, "a,b"));
+
+        server.verify();
+        assertThat(vnfLcmOpOccs).hasSize(1);
+    }
+
+    @Test
+    public void testQueryLifecycleOperationOccurrence() throws Exception {
+        final MockRestServiceServer server = MockRestServiceServer.bindTo(authenticatedRestTemplateService.getRestTemplate(TEST_DL_NO_AUTH)).build();
+
+        server.expect(requestTo(TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT + "/" + TEST_VNF_LCM_OP_OCC_ID))
+              .andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(loadFileIntoString("examples/VnfLcmOpOcc.json"), MediaType.APPLICATION_JSON));
+
+        final VnfLcmOpOcc vnfLcmOpOcc = driver.queryLifecycleOperationOccurrence(TEST_DL_NO_AUTH, TEST_VNF_LCM_OP_OCC_ID);
+
+        assertThat(vnfLcmOpOcc.getId()).isEqualTo(TEST_VNF_LCM_OP_OCC_ID);
+        assertThat(vnfLcmOpOcc.getOperationState()).isEqualTo(LcmOperationStateType.COMPLETED);
+        assertThat(vnfLcmOpOcc.getOperation()).isEqualTo(LcmOperationType.INSTANTIATE);
+    }
+
+    @Test
+    public void testGetNextPageUri() {
+        final URI currentUri = URI.create(TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT);
+        final HttpHeaders headers = new HttpHeaders();
+        assertThat(VNFLifecycleManagementDriver.getNextPageUri(currentUri, headers)).isNull();
+
+        headers.set(HttpHeaders.LINK, "<" + TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT + "?nextpage_opaque_marker=abc>; rel=\"next\"");
+        assertThat(VNFLifecycleManagementDriver.getNextPageUri(currentUri, headers)).isEqualTo(URI.create(TEST_SERVER_BASE_URL + LCM_OP_OCC_ENDPOINT + "?nextpage_opaque_marker=abc"));
+
+        headers.set(HttpHeaders.LINK, "<" + LCM_OP_OCC_ENDPOINT + "?nextpage_opaque_marker=abc>; rel=\"next-archive\"");
+        assertThat(VNFLifecycleManagementDriver.getNextPageUri(currentUri, headers)).isNull();
     }
 
     @Test
@@ -520,4 +593,15 @@ public class VNFLifecycleManagementDriverTest {
         assertThat(vnfLcmOpOccId).isEqualTo(TEST_VNF_LCM_OP_OCC_ID);
     }
 
+    @Test
+    public void testProtocolMetaData() {
+        final ResponseEntity<Void> responseEntity = ResponseEntity.ok().build();
+
+        assertThat(driver.getProtocolMetaData(TEST_SERVER_BASE_URL, responseEntity)).containsExactly(entry("status", HttpStatus.OK), entry("status_code", 200),
+                                                                                                    entry("url", TEST_SERVER_BASE_URL));
+        // a missing url is left out, rather than logged as "null"
+        assertThat(driver.getProtocolMetaData(null, responseEntity)).containsOnlyKeys("status", "status_code");
+        assertThat(driver.getRequestProtocolMetaData(null)).isEmpty();
+    }
+
 }
@@ -10,10 +10,16 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withUnauthorizedRequest;
 
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.etsi.sol003.packagemanagement.VnfPkgInfo;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.Resource;
@@ -34,6 +40,9 @@ import com.accantosystems.stratoss.vnfmdriver.service.AuthenticatedRestTemplateS
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.ByteStreams;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles({ "test" })
 public class NexusVNFPackageRepositoryDriverTest {
@@ -44,6 +53,18 @@ public class NexusVNFPackageRepositoryDriverTest {
     @Autowired private AuthenticatedRestTemplateService authenticatedRestTemplateService;
     @Autowired private ObjectMapper objectMapper;
 
+    private static byte[] readAndClose(Resource resource) throws Exception {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return ByteStreams.toByteArray(inputStream);
+        } finally {
+            ((Closeable) resource).close();
+        }
+    }
+
+    private static List<Thread> getIndexRefreshThreads() {
+        return Thread.getAllStackTraces().keySet().stream().filter(thread -> thread.getName().startsWith("vnfPkgInfoIndexRefresh")).collect(Collectors.toList());
+    }
+
     private MockRestServiceServer getMockRestServiceServer(VNFMDriverProperties vnfmDriverProperties) {
         return MockRestServiceServer.bindTo(authenticatedRestTemplateService.getRestTemplate(vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl(),
                                                                                              vnfmDriverProperties.getPackageManagement().getAuthenticationProperties())).build();
@@ -60,6 +81,27 @@ public class NexusVNFPackageRepositoryDriverTest {
         assertThat(ByteStreams.toByteArray(vnfPackage.getInputStream())).isNotEmpty();
     }
 
+    @Test
+    public void testGetCachedVnfPackageWithoutRepositoryRequests(@TempDir Path cacheDirectory) throws Exception {
+        final VNFMDriverProperties.PackageManagement.PackageCache packageCacheProperties = new VNFMDriverProperties.PackageManagement.PackageCache();
+        packageCacheProperties.setDirectory(cacheDirectory.toString());
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(packageCacheProperties, new SimpleMeterRegistry());
+        final NexusVNFPackageRepositoryDriver vnfPackageDriver = new NexusVNFPackageRepositoryDriver(vnfmDriverProperties, authenticatedRestTemplateService, objectMapper,
+                                                                                                     vnfPackageCache);
+        final MockRestServiceServer server = getMockRestServiceServer(vnfmDriverProperties);
+        server.expect(times(1), requestTo("http://does-not-exist:8081/service/rest/v1/search/assets?repository=test-repository&keyword=*vMRF.zip*")).andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(loadFileIntoString("examples/pkgMgmt-AssetSearch.json"), MediaType.APPLICATION_JSON));
+
+        try {
+            final byte[] vnfPackage = readAndClose(vnfPackageDriver.getVnfPackage("vMRF"));
+            // Served from the package cache, without searching the repository again
+            assertThat(readAndClose(vnfPackageDriver.getVnfPackage("vMRF"))).isEqualTo(vnfPackage);
+            server.verify();
+        } finally {
+            vnfPackageDriver.close();
+        }
+    }
+
     @Test
     public void testGetVnfPackageNotFound() {
         final MockRestServiceServer server = getMockRestServiceServer(vnfmDriverProperties);
@@ -107,6 +149,40 @@ public class NexusVNFPackageRepositoryDriverTest {
         server.verify();
     }
 
+    @Test
+    public void testQueryVnfPkgInfoOverMultiplePages() throws Exception {
+        // Records are downloaded while the next page is fetched, so the order of the requests isn't fixed
+        final MockRestServiceServer server = MockRestServiceServer.bindTo(authenticatedRestTemplateService.getRestTemplate(vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl(),
+                                                                                                                           vnfmDriverProperties.getPackageManagement().getAuthenticationProperties()))
+                                                                  .ignoreExpectOrder(true)
+                                                                  .build();
+        final String componentSearch = loadFileIntoString("/examples/pkgMgmt-ComponentSearch.json");
+        server.expect(requestTo("http://does-not-exist:8081/service/rest/v1/search?repository=test-repository&group=/group/vnfdId")).andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(componentSearch.replace("\"continuationToken\" : null", "\"continuationToken\" : \"page2\""), MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://does-not-exist:8081/service/rest/v1/search?repository=test-repository&group=/group/vnfdId&continuationToken=page2"))
+              .andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(componentSearch.replace("vnfPackageId.pkgInfo", "vnfPackageId2.pkgInfo").replace("26d5d013c2df80cbfbdb4c772b103f06", "26d5d013c2df80cbfbdb4c772b103f07"),
+                                      MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://does-not-exist:8081/repository/test-repository/group/vnfdId/vnfPackageId.pkgInfo")).andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(loadFileIntoString("/examples/vnfPackageId.pkgInfo"), MediaType.TEXT_PLAIN));
+        server.expect(requestTo("http://does-not-exist:8081/repository/test-repository/group/vnfdId/vnfPackageId2.pkgInfo")).andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(loadFileIntoString("/examples/vnfPackageId.pkgInfo").replace("\"vnfPackageId\"", "\"vnfPackageId2\""), MediaType.TEXT_PLAIN));
+
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final NexusVNFPackageRepositoryDriver vnfPackageDriver = new NexusVNFPackageRepositoryDriver(vnfmDriverProperties, authenticatedRestTemplateService, objectMapper, null, null,
+                                                                                                     meterRegistry);
+        try {
+            // Records should be returned in the order they were found
+            assertThat(vnfPackageDriver.queryAllVnfPkgInfos("/group/vnfdId")).extracting(VnfPkgInfo::getId).containsExactly("vnfPackageId", "vnfPackageId2");
+            server.verify();
+
+            assertThat(meterRegistry.get("vnfmdriver.package.repository.requests").tag("type", "page").timer().count()).isEqualTo(2);
+            assertThat(meterRegistry.get("vnfmdriver.package.repository.requests").tag("type", "asset").timer().count()).isEqualTo(2);
+        } finally {
+            vnfPackageDriver.close();
+        }
+    }
+
     @Test
     public void testQueryVnfPkgInfoNoGroupName() throws Exception {
         final MockRestServiceServer server = getMockRestServiceServer(vnfmDriverProperties);
@@ -186,6 +262,71 @@ public class NexusVNFPackageRepositoryDriverTest {
         assertThat(vnfPkgInfo).isNotNull();
     }
 
+    @Test
+    public void testQueryVnfPkgInfoFromIndex() throws Exception {
+        final MockRestServiceServer server = getMockRestServiceServer(vnfmDriverProperties);
+
+        // The index should be built from a single search of the repository, and answer all subsequent queries
+        server.expect(requestTo("http://does-not-exist:8081/service/rest/v1/search?repository=test-repository")).andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(loadFileIntoString("/examples/pkgMgmt-ComponentSearch.json"), MediaType.APPLICATION_JSON));
+        server.expect(requestTo("http://does-not-exist:8081/repository/test-repository/group/vnfdId/vnfPackageId.pkgInfo")).andExpect(method(HttpMethod.GET))
+              .andRespond(withSuccess(loadFileIntoString("/examples/vnfPackageId.pkgInfo"), MediaType.TEXT_PLAIN));
+
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        properties.getPackageManagement().setPackageRepositoryUrl(vnfmDriverProperties.getPackageManagement().getPackageRepositoryUrl());
+        properties.getPackageManagement().setRepositoryName(vnfmDriverProperties.getPackageManagement().getRepositoryName());
+        properties.getPackageManagement().getPackageIndex().setRefreshInterval(Duration.ofHours(1));
+        final VnfPkgInfoIndex vnfPkgInfoIndex = new VnfPkgInfoIndex(new SimpleMeterRegistry());
+        final NexusVNFPackageRepositoryDriver vnfPackageDriver = new NexusVNFPackageRepositoryDriver(properties, authenticatedRestTemplateService, objectMapper, null, vnfPkgInfoIndex,
+                                                                                                     new SimpleMeterRegistry());
+        try {
+            assertThat(vnfPackageDriver.getVnfPkgInfo("vnfPackageId").getVnfProductName()).isEqualTo("vMRF");
+            assertThat(vnfPackageDriver.queryAllVnfPkgInfos("/group/vnfdId")).hasSize(1);
+            assertThat(vnfPackageDriver.queryAllVnfPkgInfos("/group/otherVnfdId")).isEmpty();
+            assertThat(vnfPackageDriver.queryAllVnfPkgInfos(null)).hasSize(1);
+            assertThat(vnfPackageDriver.queryVnfPkgInfos("/group/vnfdId", "Acme", "vMRF")).hasSize(1);
+            assertThat(vnfPackageDriver.queryVnfPkgInfos(null, "Acme", null)).hasSize(1);
+            assertThat(vnfPackageDriver.queryVnfPkgInfos(null, "Acme", "vOther")).isEmpty();
+            server.verify();
+
+            // Unchanged records should be carried over, without being downloaded again
+            server.reset();
+            server.expect(requestTo("http://does-not-exist:8081/service/rest/v1/search?repository=test-repository")).andExpect(method(HttpMethod.GET))
+                  .andRespond(withSuccess(loadFileIntoString("/examples/pkgMgmt-ComponentSearch.json"), MediaType.APPLICATION_JSON));
+            vnfPackageDriver.refreshVnfPkgInfoIndex();
+            assertThat(vnfPkgInfoIndex.findById("vnfPackageId")).hasSize(1);
+            server.verify();
+        } finally {
+            vnfPackageDriver.close();
+        }
+    }
+
+    @Test
+    public void testIndexOnlyRefreshedInBackgroundWhenPackageManagementEnabled() throws Exception {
+        // A separate repository, so the background refresh doesn't use the RestTemplate bound to the mock server by other tests
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        properties.getPackageManagement().setPackageRepositoryUrl("http://index-refresh-does-not-exist:8081");
+        properties.getPackageManagement().setRepositoryName(vnfmDriverProperties.getPackageManagement().getRepositoryName());
+        final NexusVNFPackageRepositoryDriver disabledDriver = new NexusVNFPackageRepositoryDriver(properties, authenticatedRestTemplateService, objectMapper, null,
+                                                                                                   new VnfPkgInfoIndex(new SimpleMeterRegistry()), new SimpleMeterRegistry());
+        try {
+            assertThat(getIndexRefreshThreads()).isEmpty();
+        } finally {
+            disabledDriver.close();
+        }
+
+        properties.getPackageManagement().setEnabled(true);
+        properties.getPackageManagement().getPackageIndex().setRefreshInterval(Duration.ofHours(1));
+        final NexusVNFPackageRepositoryDriver enabledDriver = new NexusVNFPackageRepositoryDriver(properties, authenticatedRestTemplateService, objectMapper, null,
+                                                                                                  new VnfPkgInfoIndex(new SimpleMeterRegistry()), new SimpleMeterRegistry());
+        try {
+            // Never prevents the JVM from exiting
+            assertThat(getIndexRefreshThreads()).isNotEmpty().allMatch(Thread::isDaemon);
+        } finally {
+            enabledDriver.close();
+        }
+    }
+
     @Test
     public void testGetVnfPkgInfoNotFound() {
         final MockRestServiceServer server = getMockRestServiceServer(vnfmDriverProperties);
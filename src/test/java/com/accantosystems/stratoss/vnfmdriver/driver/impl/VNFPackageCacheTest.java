@@ -0,0 +1,195 @@
+package com.accantosystems.stratoss.vnfmdriver.driver.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class VNFPackageCacheTest {
+
+    private static final String VNF_PACKAGE_SHA1 = "c6df31e0880ef80a0fe765c3225a194cfa9851cd";
+    private static final String VNF_PACKAGE_MD5 = "d2acb153cf7536c1cdc19b0854b05532";
+
+    @TempDir Path cacheDirectory;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VNFMDriverProperties.PackageManagement.PackageCache properties = new VNFMDriverProperties.PackageManagement.PackageCache();
+
+    @BeforeEach
+    public void setUp() {
+        properties.setDirectory(cacheDirectory.toString());
+    }
+
+    @Test
+    public void testPackageDownloadedOnce() throws Exception {
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(properties, meterRegistry);
+        final CountingResource source = new CountingResource(new ClassPathResource("examples/VnfPackage-vMRF.zip"));
+
+        final Resource vnfPackage = vnfPackageCache.getPackage("SHA-1", VNF_PACKAGE_SHA1, source);
+        assertThat(vnfPackage.getFile().toPath()).isEqualTo(cacheDirectory.resolve(VNF_PACKAGE_SHA1 + ".zip"));
+        assertThat(vnfPackage.contentLength()).isEqualTo(new ClassPathResource("examples/VnfPackage-vMRF.zip").contentLength());
+
+        // Checksums from the repository may be in upper case
+        assertThat(vnfPackageCache.getPackage("SHA-1", VNF_PACKAGE_SHA1.toUpperCase(), source).getFile()).isEqualTo(vnfPackage.getFile());
+        assertThat(source.openCount.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.package.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.package.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.package.cache.size").gauge().value()).isEqualTo(vnfPackage.contentLength());
+
+        // A new cache should pick up packages downloaded previously
+        final VNFPackageCache newVnfPackageCache = new VNFPackageCache(properties, new SimpleMeterRegistry());
+        assertThat(newVnfPackageCache.getPackage("SHA-1", VNF_PACKAGE_SHA1, source).getFile()).isEqualTo(vnfPackage.getFile());
+        assertThat(source.openCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareDownload() throws Exception {
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(properties, meterRegistry);
+        final CountDownLatch downloadStarted = new CountDownLatch(1);
+        final CountDownLatch allowDownload = new CountDownLatch(1);
+        final CountingResource source = new CountingResource(new ClassPathResource("examples/VnfPackage-vMRF.zip")) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                downloadStarted.countDown();
+                try {
+                    allowDownload.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getInputStream();
+            }
+        };
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Resource> first = executorService.submit(() -> vnfPackageCache.getPackage("MD5", VNF_PACKAGE_MD5, source));
+            assertThat(downloadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            final Future<Resource> second = executorService.submit(() -> vnfPackageCache.getPackage("MD5", VNF_PACKAGE_MD5, source));
+            allowDownload.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getFile()).isEqualTo(second.get(5, TimeUnit.SECONDS).getFile());
+            assertThat(source.openCount.get()).isEqualTo(1);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPackagesEvicted() throws Exception {
+        properties.setMaxSize(DataSize.ofBytes(20));
+        properties.setReleaseGracePeriod(Duration.ZERO);
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(properties, meterRegistry);
+        final Resource package1 = new ByteArrayResource("package1-contents".getBytes(StandardCharsets.UTF_8));
+        final Resource package2 = new ByteArrayResource("package2-contents".getBytes(StandardCharsets.UTF_8));
+
+        final Resource cachedPackage1 = vnfPackageCache.getPackage("MD5", md5(package1), package1);
+        ((Closeable) cachedPackage1).close();
+        final Resource cachedPackage2 = vnfPackageCache.getPackage("MD5", md5(package2), package2);
+
+        assertThat(cachedPackage1.getFile()).doesNotExist();
+        assertThat(cachedPackage2.getFile()).exists();
+        assertThat(vnfPackageCache.getTotalSize()).isEqualTo(17);
+    }
+
+    @Test
+    public void testPackagesInUseNotEvicted() throws Exception {
+        properties.setMaxSize(DataSize.ofBytes(20));
+        properties.setReleaseGracePeriod(Duration.ZERO);
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(properties, meterRegistry);
+        final Resource package1 = new ByteArrayResource("package1-contents".getBytes(StandardCharsets.UTF_8));
+        final Resource package2 = new ByteArrayResource("package2-contents".getBytes(StandardCharsets.UTF_8));
+
+        final Resource cachedPackage1 = vnfPackageCache.getPackage("MD5", md5(package1), package1);
+        final Resource cachedPackage2 = vnfPackageCache.getPackage("MD5", md5(package2), package2);
+
+        // Both are still being read, so the cache is allowed to exceed its maximum size
+        assertThat(cachedPackage1.getFile()).exists();
+        assertThat(cachedPackage2.getFile()).exists();
+        assertThat(vnfPackageCache.getTotalSize()).isEqualTo(34);
+
+        // Once released, the least recently used package is evicted (closing more than once has no further effect)
+        ((Closeable) cachedPackage1).close();
+        ((Closeable) cachedPackage1).close();
+        assertThat(cachedPackage1.getFile()).doesNotExist();
+        assertThat(cachedPackage2.getFile()).exists();
+        assertThat(vnfPackageCache.getTotalSize()).isEqualTo(17);
+    }
+
+    @Test
+    public void testReleasedPackagesNotEvictedWithinGracePeriod() throws Exception {
+        properties.setMaxSize(DataSize.ofBytes(20));
+        properties.setReleaseGracePeriod(Duration.ofMinutes(1));
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(properties, meterRegistry);
+        final Resource package1 = new ByteArrayResource("package1-contents".getBytes(StandardCharsets.UTF_8));
+        final Resource package2 = new ByteArrayResource("package2-contents".getBytes(StandardCharsets.UTF_8));
+
+        final Resource cachedPackage1 = vnfPackageCache.getPackage("MD5", md5(package1), package1);
+        ((Closeable) cachedPackage1).close();
+        final Resource cachedPackage2 = vnfPackageCache.getPackage("MD5", md5(package2), package2);
+
+        // The servlet container may still be sending the first package
+        assertThat(cachedPackage1.getFile()).exists();
+        assertThat(cachedPackage2.getFile()).exists();
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        final VNFPackageCache vnfPackageCache = new VNFPackageCache(properties, meterRegistry);
+        final Resource vnfPackage = new ByteArrayResource("corrupt".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> vnfPackageCache.getPackage("SHA-1", VNF_PACKAGE_SHA1, vnfPackage))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Downloaded VNF package has SHA-1 checksum");
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static String md5(final Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return DigestUtils.md5DigestAsHex(inputStream);
+        }
+    }
+
+    private static class CountingResource extends ByteArrayResource {
+        private final AtomicInteger openCount = new AtomicInteger();
+
+        private CountingResource(Resource resource) throws IOException {
+            super(StreamUtils.copyToByteArray(resource.getInputStream()));
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            openCount.incrementAndGet();
+            return super.getInputStream();
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.accantosystems.stratoss.vnfmdriver.model.alm;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadZipIntoBase64String;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class DriverFilesTest {
+
+    @Test
+    public void testDeserialize() throws Exception {
+        final String encodedDriverFiles = loadZipIntoBase64String("examples/lifecyclescripts.zip");
+        final ExecutionRequest executionRequest = new ObjectMapper().readValue("{\"driverFiles\": \"" + encodedDriverFiles + "\"}", ExecutionRequest.class);
+
+        try (DriverFiles driverFiles = executionRequest.getDriverFiles()) {
+            assertThat(driverFiles.getDigest()).isEqualTo(DriverFiles.fromBase64(encodedDriverFiles).getDigest());
+            assertThat(new String(driverFiles.getFile("SCRIPTS/InstantiateVnfRequest.js"), StandardCharsets.UTF_8)).contains("vnfInstanceDescription");
+            assertThat(driverFiles.getFile("vnfd.yaml")).isNull();
+        }
+    }
+
+    @Test
+    public void testDeserializeToTemporaryFile() throws Exception {
+        final String encodedDriverFiles = loadZipIntoBase64String("examples/lifecyclescripts.zip");
+        final ObjectMapper objectMapper = createObjectMapper(DataSize.ofBytes(64));
+        final Set<Path> existingFiles = listTemporaryDriverFiles();
+
+        final ExecutionRequest executionRequest = objectMapper.readValue("{\"driverFiles\": \"" + encodedDriverFiles + "\"}", ExecutionRequest.class);
+        final DriverFiles driverFiles = executionRequest.getDriverFiles();
+        final Set<Path> temporaryFiles = listTemporaryDriverFiles();
+        temporaryFiles.removeAll(existingFiles);
+        assertThat(temporaryFiles).hasSize(1);
+
+        assertThat(driverFiles.getDigest()).isEqualTo(DriverFiles.fromBase64(encodedDriverFiles).getDigest());
+        assertThat(new String(driverFiles.getFile("scripts/TerminateVnfRequest.js"), StandardCharsets.UTF_8)).isNotEmpty();
+        assertThat(driverFiles.getFile("vnfd.yaml")).isNull();
+        // Written back out as the original Base64 encoded string
+        assertThat(objectMapper.writeValueAsString(executionRequest)).contains("\"driverFiles\":\"" + encodedDriverFiles + "\"");
+
+        driverFiles.close();
+        assertThat(temporaryFiles.iterator().next()).doesNotExist();
+    }
+
+    @Test
+    public void testDeserializeInvalidDriverFiles() throws Exception {
+        final ObjectMapper objectMapper = createObjectMapper(DataSize.ofBytes(4));
+        final Set<Path> existingFiles = listTemporaryDriverFiles();
+
+        assertThatThrownBy(() -> objectMapper.readValue("{\"driverFiles\": \"VGhpcyBpcyBub3Qg!!!\"}", ExecutionRequest.class)).isInstanceOf(IOException.class);
+        assertThat(listTemporaryDriverFiles()).isEqualTo(existingFiles);
+    }
+
+    private static ObjectMapper createObjectMapper(DataSize memoryThreshold) {
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        properties.getMessageConversion().setDriverFilesMemoryThreshold(memoryThreshold);
+        // As configured by Spring, which creates the deserializer with the driver properties
+        final AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.registerBean(VNFMDriverProperties.class, () -> properties);
+        applicationContext.refresh();
+        return Jackson2ObjectMapperBuilder.json().applicationContext(applicationContext).build();
+    }
+
+    private static Set<Path> listTemporaryDriverFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("driverfiles")).collect(Collectors.toSet());
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.accantosystems.stratoss.vnfmdriver.model.alm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ExecutionRequestPropertyValueDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testDeserialize() throws Exception {
+        final Map<String, ExecutionRequestPropertyValue> properties = readProperties("{" +
+                "\"string\": {\"type\": \"string\", \"value\": \"value1\"}," +
+                "\"integer\": {\"type\": \"integer\", \"value\": 10, \"unknown\": {\"nested\": [1, 2]}}," +
+                "\"map\": {\"type\": \"map\", \"value\": {\"a\": [\"b\", \"c\"]}}," +
+                "\"key\": {\"type\": \"key\", \"keyName\": \"keyName1\", \"privateKey\": \"private\", \"publicKey\": \"public\"}," +
+                "\"untyped\": {\"value\": true}," +
+                "\"empty\": {}" +
+                "}");
+
+        assertThat(properties.get("string")).isEqualTo(new GenericExecutionRequestPropertyValue("value1", "string"));
+        assertThat(properties.get("integer")).isEqualTo(new GenericExecutionRequestPropertyValue(10, "integer"));
+        assertThat(properties.get("map")).isEqualTo(new GenericExecutionRequestPropertyValue(Map.of("a", List.of("b", "c")), "map"));
+        assertThat(properties.get("key")).isEqualTo(new KeyExecutionRequestPropertyValue("keyName1", "private", "public"));
+        assertThat(properties.get("key").getType()).isEqualTo("key");
+        assertThat(properties.get("untyped")).isEqualTo(new GenericExecutionRequestPropertyValue(true, "string"));
+        assertThat(properties.get("empty")).isEqualTo(new GenericExecutionRequestPropertyValue(null, "string"));
+    }
+
+    @Test
+    public void testDeserializeWithTypeAfterOtherFields() throws Exception {
+        final Map<String, ExecutionRequestPropertyValue> properties = readProperties("{" +
+                "\"integer\": {\"value\": 10, \"unknown\": [{\"type\": \"key\"}], \"type\": \"integer\"}," +
+                "\"key\": {\"keyName\": \"keyName1\", \"privateKey\": \"private\", \"type\": \"key\", \"publicKey\": \"public\"}," +
+                "\"next\": {\"type\": \"string\", \"value\": \"value1\"}" +
+                "}");
+
+        assertThat(properties.get("integer")).isEqualTo(new GenericExecutionRequestPropertyValue(10, "integer"));
+        assertThat(properties.get("key")).isEqualTo(new KeyExecutionRequestPropertyValue("keyName1", "private", "public"));
+        assertThat(properties.get("next")).isEqualTo(new GenericExecutionRequestPropertyValue("value1", "string"));
+    }
+
+    @Test
+    public void testDeserializeInvalid() {
+        assertThatThrownBy(() -> readProperties("{\"string\": \"value1\"}")).isInstanceOf(JsonMappingException.class);
+        assertThatThrownBy(() -> readProperties("{\"key\": {\"type\": \"key\", \"keyName\": [\"keyName1\"]}}")).isInstanceOf(JsonMappingException.class);
+    }
+
+    private Map<String, ExecutionRequestPropertyValue> readProperties(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<Map<String, ExecutionRequestPropertyValue>>() {});
+    }
+
+}
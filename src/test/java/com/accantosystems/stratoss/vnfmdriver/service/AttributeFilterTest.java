@@ -0,0 +1,76 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadFileIntoString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.accantosystems.stratoss.vnfmdriver.web.etsi.BadRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AttributeFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testFilter() throws Exception {
+        final JsonNode vnfPkgInfo = objectMapper.readTree(loadFileIntoString("examples/vnfPackageId.pkgInfo"));
+
+        assertThat(AttributeFilter.parse(null).test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(eq,vnfProvider,Acme)").test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(neq,vnfProvider,Acme)").test(vnfPkgInfo)).isFalse();
+        assertThat(AttributeFilter.parse("(in,vnfProductName,vOther,vMRF)").test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(nin,vnfProductName,vOther,vMRF)").test(vnfPkgInfo)).isFalse();
+        assertThat(AttributeFilter.parse("(cont,vnfProductName,MR)").test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(ncont,vnfProductName,MR)").test(vnfPkgInfo)).isFalse();
+        assertThat(AttributeFilter.parse("(gt,vnfSoftwareVersion,2.0);(lte,vnfSoftwareVersion,2.1)").test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(eq,vnfProvider,Acme);(eq,vnfdVersion,2.0)").test(vnfPkgInfo)).isFalse();
+
+        // Nested attributes, matching any element of an array
+        assertThat(AttributeFilter.parse("(eq,checksum/algorithm,SHA-256)").test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(eq,additionalArtifacts/artifactPath,Definitions/MRF.yaml)").test(vnfPkgInfo)).isTrue();
+        assertThat(AttributeFilter.parse("(neq,additionalArtifacts/artifactPath,Definitions/MRF.yaml)").test(vnfPkgInfo)).isFalse();
+        assertThat(AttributeFilter.parse("(eq,additionalArtifacts/artifactPath,Definitions/Other.yaml)").test(vnfPkgInfo)).isFalse();
+
+        // Missing attributes are never equal to anything
+        assertThat(AttributeFilter.parse("(eq,missing,value)").test(vnfPkgInfo)).isFalse();
+        assertThat(AttributeFilter.parse("(neq,missing,value)").test(vnfPkgInfo)).isTrue();
+    }
+
+    @Test
+    public void testQuotedValues() throws Exception {
+        final JsonNode record = objectMapper.readTree("{\"name\": \"it's (a), test\", \"size\": 10}");
+
+        assertThat(AttributeFilter.parse("(eq,name,'it''s (a), test')").test(record)).isTrue();
+        assertThat(AttributeFilter.parse("(in,name,other,'it''s (a), test')").test(record)).isTrue();
+        // Numbers are compared numerically
+        assertThat(AttributeFilter.parse("(gt,size,9)").test(record)).isTrue();
+        assertThat(AttributeFilter.parse("(lt,size,9.5)").test(record)).isFalse();
+        assertThat(AttributeFilter.parse("(eq,size,10.0)").test(record)).isTrue();
+    }
+
+    @Test
+    public void testRequiredValue() {
+        final AttributeFilter attributeFilter = AttributeFilter.parse("(eq,vnfProvider,Acme);(in,vnfProductName,vMRF,vOther);(eq,checksum/algorithm,SHA-256)");
+        assertThat(attributeFilter.getRequiredValue("vnfProvider")).isEqualTo("Acme");
+        assertThat(attributeFilter.getRequiredValue("vnfProductName")).isNull();
+        assertThat(attributeFilter.getRequiredValue("checksum")).isNull();
+    }
+
+    @Test
+    public void testInvalidFilter() {
+        assertThatThrownBy(() -> AttributeFilter.parse("(eq,vnfProvider)")).isInstanceOf(BadRequestException.class)
+                                                                           .hasMessage("Invalid filter [(eq,vnfProvider)]: operator [eq] on attribute [vnfProvider] requires a single value");
+        assertThatThrownBy(() -> AttributeFilter.parse("(eq,vnfProvider,Acme,Other)")).isInstanceOf(BadRequestException.class)
+                                                                                      .hasMessageContaining("requires a single value");
+        assertThatThrownBy(() -> AttributeFilter.parse("(like,vnfProvider,Acme)")).isInstanceOf(BadRequestException.class)
+                                                                                  .hasMessage("Invalid filter [(like,vnfProvider,Acme)]: unsupported operator [like]");
+        assertThatThrownBy(() -> AttributeFilter.parse("(eq,checksum//hash,abc)")).isInstanceOf(BadRequestException.class)
+                                                                                  .hasMessageContaining("invalid attribute name [checksum//hash]");
+        assertThatThrownBy(() -> AttributeFilter.parse("(eq,vnfProvider,'Acme)")).isInstanceOf(BadRequestException.class).hasMessageContaining("unterminated quoted value");
+        assertThatThrownBy(() -> AttributeFilter.parse("(eq,vnfProvider,Acme)x")).isInstanceOf(BadRequestException.class).hasMessageContaining("unexpected character");
+    }
+
+}
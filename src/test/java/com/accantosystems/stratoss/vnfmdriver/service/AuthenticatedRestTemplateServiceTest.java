@@ -0,0 +1,90 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import static com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverConstants.*;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.driver.VNFMResponseErrorHandler;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ResourceManagerDeploymentLocation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AuthenticatedRestTemplateServiceTest {
+
+    private static final String DEPLOYMENT_LOCATION_NAME = "test-location";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WireMockServer wireMockServer;
+    private AuthenticatedRestTemplateService authenticatedRestTemplateService;
+
+    @BeforeEach
+    public void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlEqualTo("/vnflcm/v1/vnf_instances")).willReturn(aResponse().withStatus(200).withBody("[]")));
+
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        properties.getRestConnectionPool().setIdleTimeout(Duration.ofMillis(500));
+        authenticatedRestTemplateService = new AuthenticatedRestTemplateService(new RestTemplateBuilder(), new VNFMResponseErrorHandler(new ObjectMapper()), properties,
+                                                                                meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        authenticatedRestTemplateService.closeConnectionPools();
+        wireMockServer.stop();
+    }
+
+    @Test
+    public void testReplacedConnectionPoolClosedOnceIdle() throws Exception {
+        final RestTemplate restTemplate = authenticatedRestTemplateService.getRestTemplate(deploymentLocation("user1"));
+        assertThat(authenticatedRestTemplateService.getRestTemplate(deploymentLocation("user1"))).isSameAs(restTemplate);
+        assertThat(restTemplate.getForObject(wireMockServer.baseUrl() + "/vnflcm/v1/vnf_instances", String.class)).isEqualTo("[]");
+
+        final RestTemplate replacementRestTemplate = authenticatedRestTemplateService.getRestTemplate(deploymentLocation("user2"));
+        assertThat(replacementRestTemplate).isNotSameAs(restTemplate);
+
+        // Requests which picked up the old RestTemplate can still complete
+        assertThat(restTemplate.getForObject(wireMockServer.baseUrl() + "/vnflcm/v1/vnf_instances", String.class)).isEqualTo("[]");
+        assertThat(replacementRestTemplate.getForObject(wireMockServer.baseUrl() + "/vnflcm/v1/vnf_instances", String.class)).isEqualTo("[]");
+        // The metrics are only those of the replacement pool
+        assertThat(meterRegistry.get("vnfmdriver.http.pool.lease").tag("pool", DEPLOYMENT_LOCATION_NAME).timer().count()).isEqualTo(1);
+
+        // The old pool is closed once it has been idle, leaving the replacement open
+        Thread.sleep(2000);
+        assertThatThrownBy(() -> restTemplate.getForObject(wireMockServer.baseUrl() + "/vnflcm/v1/vnf_instances", String.class))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shut down");
+        assertThat(replacementRestTemplate.getForObject(wireMockServer.baseUrl() + "/vnflcm/v1/vnf_instances", String.class)).isEqualTo("[]");
+        assertThat(meterRegistry.get("vnfmdriver.http.pool.lease").tag("pool", DEPLOYMENT_LOCATION_NAME).timer().count()).isEqualTo(2);
+    }
+
+    private ResourceManagerDeploymentLocation deploymentLocation(String username) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(VNFM_SERVER_URL, wireMockServer.baseUrl());
+        properties.put(AUTHENTICATION_TYPE, "BASIC");
+        properties.put(AUTHENTICATION_USERNAME, username);
+        properties.put(AUTHENTICATION_PASSWORD, "password");
+
+        final ResourceManagerDeploymentLocation deploymentLocation = new ResourceManagerDeploymentLocation(DEPLOYMENT_LOCATION_NAME, "type");
+        deploymentLocation.setProperties(properties);
+        return deploymentLocation;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadZipIntoBase64String;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.DriverFiles;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DriverFilesServiceTest {
+
+    @Test
+    public void testGetFile() throws Exception {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final DriverFilesService driverFilesService = new DriverFilesService(new VNFMDriverProperties(), meterRegistry);
+        final String encodedDriverFiles = loadZipIntoBase64String("examples/lifecyclescripts.zip");
+        final DriverFiles driverFiles = DriverFiles.fromBase64(encodedDriverFiles);
+
+        assertThat(driverFilesService.getFile(driverFiles, "scripts/InstantiateVnfRequest.js")).contains("vnfInstanceDescription");
+        assertThat(driverFilesService.getFile(driverFiles, "SCRIPTS/TerminateVnfRequest.js")).isNotEmpty();
+        assertThat(driverFilesService.getFile(driverFiles, "vnfd.yaml")).isNull();
+
+        // A later request with the same driver files shouldn't need to read the archive again
+        final DriverFiles sameDriverFiles = DriverFiles.fromBase64(encodedDriverFiles);
+        assertThat(driverFilesService.getFile(sameDriverFiles, "Scripts/InstantiateVnfRequest.js")).contains("vnfInstanceDescription");
+        assertThat(driverFilesService.getFile(sameDriverFiles, "vnfd.yaml")).isNull();
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vnfmdriver.driverfiles").tag("result", "miss").functionCounter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vnfmdriver.driverfiles").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetFileWithNoDriverFiles() {
+        final DriverFilesService driverFilesService = new DriverFilesService(new VNFMDriverProperties(), new SimpleMeterRegistry());
+
+        assertThat(driverFilesService.getFile(null, "vnfd.yaml")).isNull();
+        assertThat(driverFilesService.getFile(DriverFiles.fromBase64(""), "vnfd.yaml")).isNull();
+    }
+
+}
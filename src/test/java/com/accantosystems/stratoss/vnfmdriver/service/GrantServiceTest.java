@@ -4,9 +4,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.etsi.sol003.granting.Grant;
 import org.etsi.sol003.granting.GrantRequest;
@@ -33,6 +40,9 @@ public class GrantServiceTest {
     @Autowired
     private GrantService grantService;
 
+    @Autowired
+    private GrantStore grantStore;
+
     @Autowired
     private VNFMDriverProperties vnfmDriverProperties;
 
@@ -146,6 +156,106 @@ public class GrantServiceTest {
 
     }
 
+    @Test
+    public void testGetGrantAutomaticFromStore() throws GrantRejectedException, GrantProviderException {
+
+        // setup automatic grants
+        vnfmDriverProperties.getGrant().setAutomatic(true);
+
+        GrantRequest grantRequest = createValidGrantRequest();
+        grantRequest.setVnfLcmOpOccId(UUID.randomUUID().toString());
+        String grantId = grantService.requestGrant(grantRequest).getGrantId();
+
+        Grant retGrant = grantService.getGrant(grantId);
+        assertThat(retGrant.getId()).isEqualTo(grantId);
+        assertThat(retGrant.getVnfInstanceId()).isEqualTo(grantRequest.getVnfInstanceId());
+        assertThat(retGrant.getVnfLcmOpOccId()).isEqualTo(grantRequest.getVnfLcmOpOccId());
+
+        assertThat(grantStore.findByVnfInstanceId(grantRequest.getVnfInstanceId())).extracting(GrantRecord::getGrantId).containsExactly(grantId);
+        assertThat(grantStore.findByVnfLcmOpOccId(grantRequest.getVnfLcmOpOccId())).extracting(GrantRecord::getGrantId).containsExactly(grantId);
+    }
+
+    @Test
+    public void testGrantStoreIndexes() {
+
+        String vnfInstanceId = UUID.randomUUID().toString();
+        String firstLcmOpOccId = UUID.randomUUID().toString();
+        String secondLcmOpOccId = UUID.randomUUID().toString();
+        GrantRecord firstGrant = new GrantRecord(UUID.randomUUID().toString(), vnfInstanceId, firstLcmOpOccId, null, null, Instant.now(), Instant.now());
+        GrantRecord secondGrant = new GrantRecord(UUID.randomUUID().toString(), vnfInstanceId, secondLcmOpOccId, null, null, Instant.now(), Instant.now());
+        grantStore.put(firstGrant);
+        grantStore.put(secondGrant);
+
+        assertThat(grantStore.findByVnfInstanceId(vnfInstanceId)).extracting(GrantRecord::getGrantId).containsExactlyInAnyOrder(firstGrant.getGrantId(), secondGrant.getGrantId());
+        assertThat(grantStore.findByVnfLcmOpOccId(secondLcmOpOccId)).extracting(GrantRecord::getGrantId).containsExactly(secondGrant.getGrantId());
+        assertThat(grantStore.findByVnfInstanceId(UUID.randomUUID().toString())).isEmpty();
+
+        // removed grants are dropped from the indexes
+        grantStore.remove(firstGrant.getGrantId());
+        assertThat(grantStore.findByVnfInstanceId(vnfInstanceId)).extracting(GrantRecord::getGrantId).containsExactly(secondGrant.getGrantId());
+        assertThat(grantStore.findByVnfLcmOpOccId(firstLcmOpOccId)).isEmpty();
+    }
+
+    @Test
+    public void testGetGrantNonAutomaticSyncFromStore() throws GrantRejectedException, GrantProviderException {
+
+        // setup non-automatic grants and mock a response from the grant driver
+        vnfmDriverProperties.getGrant().setAutomatic(false);
+        Grant grant = createValidGrantResponse();
+        when(grantDriver.requestGrant(any(GrantRequest.class))).thenReturn(new GrantCreationResponse(grant));
+
+        grantService.requestGrant(createValidGrantRequest());
+
+        // answered without calling the grant provider
+        assertThat(grantService.getGrant(grant.getId())).isEqualTo(grant);
+        verify(grantDriver, never()).getGrant(eq(grant.getId()));
+    }
+
+    @Test
+    public void testGetGrantNonAutomaticPolled() throws Exception {
+
+        // setup non-automatic grants, with the grant provider making a decision on the second poll
+        vnfmDriverProperties.getGrant().setAutomatic(false);
+        vnfmDriverProperties.getGrant().getPolling().setInitialDelay(Duration.ofMillis(10));
+        Grant grant = createValidGrantResponse();
+        when(grantDriver.requestGrant(any(GrantRequest.class))).thenReturn(new GrantCreationResponse(grant.getId()));
+        when(grantDriver.getGrant(eq(grant.getId()))).thenReturn(null, grant);
+
+        GrantRequest grantRequest = createValidGrantRequest();
+        grantService.requestGrant(grantRequest);
+        CompletableFuture<Grant> decision = grantService.awaitGrant(grant.getId());
+
+        assertThat(decision.get(5, TimeUnit.SECONDS)).isEqualTo(grant);
+        // answered from the store, without calling the grant provider again
+        assertThat(grantService.getGrant(grant.getId())).isEqualTo(grant);
+        verify(grantDriver, times(2)).getGrant(eq(grant.getId()));
+        assertThat(grantStore.findByVnfInstanceId(grantRequest.getVnfInstanceId())).extracting(GrantRecord::getGrant).containsExactly(grant);
+        // decision already made
+        assertThat(grantService.awaitGrant(grant.getId())).isCompletedWithValue(grant);
+
+        vnfmDriverProperties.getGrant().getPolling().setInitialDelay(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void testGetGrantNonAutomaticPolledRejected() throws Exception {
+
+        // setup non-automatic grants, with the grant provider rejecting the grant
+        vnfmDriverProperties.getGrant().setAutomatic(false);
+        vnfmDriverProperties.getGrant().getPolling().setInitialDelay(Duration.ofMillis(10));
+        Grant grant = createValidGrantResponse();
+        when(grantDriver.requestGrant(any(GrantRequest.class))).thenReturn(new GrantCreationResponse(grant.getId()));
+        when(grantDriver.getGrant(eq(grant.getId()))).thenThrow(new GrantRejectedException("Insufficient resources"));
+
+        grantService.requestGrant(createValidGrantRequest());
+        CompletableFuture<Grant> decision = grantService.awaitGrant(grant.getId());
+
+        assertThatThrownBy(() -> decision.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(GrantRejectedException.class);
+        assertThatThrownBy(() -> grantService.getGrant(grant.getId())).isInstanceOf(GrantRejectedException.class).hasMessage("Insufficient resources");
+        verify(grantDriver, times(1)).getGrant(eq(grant.getId()));
+
+        vnfmDriverProperties.getGrant().getPolling().setInitialDelay(Duration.ofSeconds(1));
+    }
+
     private GrantRequest createValidGrantRequest() {
         GrantRequest request = new GrantRequest();
         request.setVnfInstanceId(UUID.randomUUID().toString());
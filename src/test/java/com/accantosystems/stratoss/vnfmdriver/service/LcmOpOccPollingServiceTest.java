@@ -0,0 +1,254 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.TEST_DL_NO_AUTH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.etsi.sol003.common.ProblemDetails;
+import org.etsi.sol003.lifecyclemanagement.LcmOperationStateType;
+import org.etsi.sol003.lifecyclemanagement.LcmOperationType;
+import org.etsi.sol003.lifecyclemanagement.VnfLcmOpOcc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.driver.SOL003ResponseException;
+import com.accantosystems.stratoss.vnfmdriver.driver.VNFLifecycleManagementDriver;
+import com.accantosystems.stratoss.vnfmdriver.model.LcmOpOccPollingRequest;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionStatus;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LcmOpOccPollingServiceTest {
+
+    private final VNFLifecycleManagementDriver mockDriver = mock(VNFLifecycleManagementDriver.class);
+    private final ExternalMessagingService mockExternalMessagingService = mock(ExternalMessagingService.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VNFMDriverProperties properties = new VNFMDriverProperties();
+    private LcmOpOccPollingService lcmOpOccPollingService;
+
+    @BeforeEach
+    public void setUp() {
+        properties.setLcmOpOccPollingDelay(Duration.ofMillis(10));
+        properties.getLcmOpOccPolling().setMaxInFlight(1);
+        properties.getLcmOpOccPolling().setJitter(0);
+        lcmOpOccPollingService = new LcmOpOccPollingService(mockDriver, mockExternalMessagingService, new ObjectMapper(), new LifecycleCompletionTracker(properties, meterRegistry),
+                                                            properties, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        lcmOpOccPollingService.close();
+    }
+
+    @Test
+    public void testPollUntilCompleted() throws Exception {
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"))).thenReturn(createVnfLcmOpOcc(LcmOperationStateType.STARTING),
+                                                                                              createVnfLcmOpOcc(LcmOperationStateType.PROCESSING),
+                                                                                              createVnfLcmOpOcc(LcmOperationStateType.COMPLETED));
+
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1"));
+        // Duplicate requests should be ignored
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1"));
+
+        final ArgumentCaptor<ExecutionAsyncResponse> responseCaptor = ArgumentCaptor.forClass(ExecutionAsyncResponse.class);
+        verify(mockExternalMessagingService, timeout(5000)).sendExecutionAsyncResponse(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getRequestId()).isEqualTo("lcmOpOcc1");
+        assertThat(responseCaptor.getValue().getStatus()).isEqualTo(ExecutionStatus.COMPLETE);
+
+        verify(mockDriver, times(3)).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"));
+        verify(mockExternalMessagingService, never()).sendLcmOpOccPollingRequest(any());
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.inflight").gauge().value()).isEqualTo(0);
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.lag").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void testMaxInFlight() throws Exception {
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), any())).thenReturn(createVnfLcmOpOcc(LcmOperationStateType.PROCESSING));
+
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1"));
+        final LcmOpOccPollingRequest deferredRequest = new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc2");
+        lcmOpOccPollingService.startPolling(deferredRequest);
+
+        // The second request should be handed back to Kafka after the polling delay
+        verify(mockExternalMessagingService, timeout(5000)).sendLcmOpOccPollingRequest(deferredRequest);
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.deferred").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.inflight").gauge().value()).isEqualTo(1);
+
+        // The in-flight request should be handed back on shutdown
+        lcmOpOccPollingService.close();
+        verify(mockExternalMessagingService, times(2)).sendLcmOpOccPollingRequest(any());
+        verify(mockDriver, never()).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc2"));
+    }
+
+    @Test
+    public void testMaxInFlightWithConcurrentRequests() throws Exception {
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), any())).thenReturn(createVnfLcmOpOcc(LcmOperationStateType.PROCESSING));
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final LcmOpOccPollingRequest request = new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc" + i);
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    lcmOpOccPollingService.startPolling(request);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Only one of the requests can be polled, the rest are deferred
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.inflight").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.deferred").counter().count()).isEqualTo(7);
+    }
+
+    @Test
+    public void testPollRetriedAfterFailure() throws Exception {
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"))).thenThrow(new SOL003ResponseException("Connection refused"))
+                                                                                  .thenReturn(createVnfLcmOpOcc(LcmOperationStateType.COMPLETED));
+
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1"));
+
+        final ArgumentCaptor<ExecutionAsyncResponse> responseCaptor = ArgumentCaptor.forClass(ExecutionAsyncResponse.class);
+        verify(mockExternalMessagingService, timeout(5000)).sendExecutionAsyncResponse(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getStatus()).isEqualTo(ExecutionStatus.COMPLETE);
+        verify(mockDriver, times(2)).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"));
+        verify(mockExternalMessagingService, never()).sendLcmOpOccPollingRequest(any());
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.failures").counter().count()).isEqualTo(1);
+
+        // The in-flight slot is released once polling has completed
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc2"));
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.deferred").counter().count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPollingRequestHandedBackAfterRepeatedFailures() throws Exception {
+        properties.getLcmOpOccPolling().setMaxPollFailures(3);
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"))).thenThrow(new SOL003ResponseException("Connection refused"));
+
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1"));
+
+        final ArgumentCaptor<LcmOpOccPollingRequest> requestCaptor = ArgumentCaptor.forClass(LcmOpOccPollingRequest.class);
+        verify(mockExternalMessagingService, timeout(5000)).sendLcmOpOccPollingRequest(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getVnfLcmOpOccId()).isEqualTo("lcmOpOcc1");
+        assertThat(requestCaptor.getValue().getFailedHandbacks()).isEqualTo(1);
+        verify(mockDriver, times(3)).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"));
+        verify(mockExternalMessagingService, never()).sendExecutionAsyncResponse(any());
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.inflight").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExecutionFailedOnceHandbacksExhausted() throws Exception {
+        properties.getLcmOpOccPolling().setMaxPollFailures(2);
+        properties.getLcmOpOccPolling().setMaxFailedHandbacks(3);
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"))).thenThrow(new SOL003ResponseException("Not Found"));
+
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1", 3));
+
+        final ArgumentCaptor<ExecutionAsyncResponse> responseCaptor = ArgumentCaptor.forClass(ExecutionAsyncResponse.class);
+        verify(mockExternalMessagingService, timeout(5000)).sendExecutionAsyncResponse(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getRequestId()).isEqualTo("lcmOpOcc1");
+        assertThat(responseCaptor.getValue().getStatus()).isEqualTo(ExecutionStatus.FAILED);
+        assertThat(responseCaptor.getValue().getFailureDetails().getDescription()).contains("Not Found");
+        verify(mockDriver, times(2)).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"));
+        verify(mockExternalMessagingService, never()).sendLcmOpOccPollingRequest(any());
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.inflight").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPollingRequestSerialization() throws Exception {
+        // as configured by Spring Boot
+        final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        final LcmOpOccPollingRequest request = objectMapper.readValue(objectMapper.writeValueAsString(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1", 2)),
+                                                                      LcmOpOccPollingRequest.class);
+        assertThat(request.getVnfLcmOpOccId()).isEqualTo("lcmOpOcc1");
+        assertThat(request.getFailedHandbacks()).isEqualTo(2);
+        assertThat(request.getDeploymentLocation().getName()).isEqualTo(TEST_DL_NO_AUTH.getName());
+
+        // Requests published before handbacks were counted
+        assertThat(objectMapper.readValue("{\"vnfLcmOpOccId\":\"lcmOpOcc1\"}", LcmOpOccPollingRequest.class).getFailedHandbacks()).isZero();
+    }
+
+    @Test
+    public void testBatchPolling() throws Exception {
+        lcmOpOccPollingService.close();
+        properties.getLcmOpOccPolling().setMaxInFlight(10);
+        properties.getLcmOpOccPolling().setBatchEnabled(true);
+        properties.getLcmOpOccPolling().setBatchWindow(Duration.ofSeconds(1));
+        lcmOpOccPollingService = new LcmOpOccPollingService(mockDriver, mockExternalMessagingService, new ObjectMapper(), new LifecycleCompletionTracker(properties, meterRegistry),
+                                                            properties, meterRegistry);
+
+        // lcmOpOcc3 is not returned by the batch query, so should be polled individually
+        when(mockDriver.queryLifecycleOperationOccurrences(any(), any())).thenReturn(Arrays.asList(createVnfLcmOpOcc("lcmOpOcc1", LcmOperationStateType.COMPLETED),
+                                                                                                   createVnfLcmOpOcc("lcmOpOcc2", LcmOperationStateType.FAILED)));
+        when(mockDriver.queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc3"))).thenReturn(createVnfLcmOpOcc("lcmOpOcc3", LcmOperationStateType.COMPLETED));
+
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc1"));
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc2"));
+        lcmOpOccPollingService.startPolling(new LcmOpOccPollingRequest(TEST_DL_NO_AUTH, "lcmOpOcc3"));
+
+        final ArgumentCaptor<ExecutionAsyncResponse> responseCaptor = ArgumentCaptor.forClass(ExecutionAsyncResponse.class);
+        verify(mockExternalMessagingService, timeout(5000).times(3)).sendExecutionAsyncResponse(responseCaptor.capture());
+        assertThat(responseCaptor.getAllValues()).extracting(ExecutionAsyncResponse::getRequestId).containsExactlyInAnyOrder("lcmOpOcc1", "lcmOpOcc2", "lcmOpOcc3");
+
+        verify(mockDriver, times(1)).queryLifecycleOperationOccurrences(any(), any());
+        verify(mockDriver, never()).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc1"));
+        verify(mockDriver, never()).queryLifecycleOperationOccurrence(any(), eq("lcmOpOcc2"));
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.queries").tag("type", "batch").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.lcmopocc.polling.queries").tag("type", "individual").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBackoff() {
+        properties.getLcmOpOccPolling().setMaxDelay(Duration.ofMillis(50));
+        properties.getLcmOpOccPolling().getOperationDelays().put(LcmOperationType.INSTANTIATE, Duration.ofMillis(20));
+
+        assertThat(lcmOpOccPollingService.getNextDelay(null, 1)).isEqualTo(Duration.ofMillis(10));
+        assertThat(lcmOpOccPollingService.getNextDelay(LcmOperationType.TERMINATE, 2)).isEqualTo(Duration.ofMillis(15));
+        assertThat(lcmOpOccPollingService.getNextDelay(LcmOperationType.INSTANTIATE, 1)).isEqualTo(Duration.ofMillis(20));
+        assertThat(lcmOpOccPollingService.getNextDelay(LcmOperationType.INSTANTIATE, 2)).isEqualTo(Duration.ofMillis(30));
+        assertThat(lcmOpOccPollingService.getNextDelay(LcmOperationType.INSTANTIATE, 10)).isEqualTo(Duration.ofMillis(50));
+    }
+
+    private VnfLcmOpOcc createVnfLcmOpOcc(final LcmOperationStateType operationState) {
+        return createVnfLcmOpOcc("lcmOpOcc1", operationState);
+    }
+
+    private VnfLcmOpOcc createVnfLcmOpOcc(final String id, final LcmOperationStateType operationState) {
+        final VnfLcmOpOcc vnfLcmOpOcc = new VnfLcmOpOcc();
+        vnfLcmOpOcc.setId(id);
+        vnfLcmOpOcc.setOperation(LcmOperationType.INSTANTIATE);
+        vnfLcmOpOcc.setOperationState(operationState);
+        if (operationState == LcmOperationStateType.FAILED) {
+            vnfLcmOpOcc.setError(new ProblemDetails(500, "Failed to instantiate VNF"));
+        }
+        return vnfLcmOpOcc;
+    }
+
+}
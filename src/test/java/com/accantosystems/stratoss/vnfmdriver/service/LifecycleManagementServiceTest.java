@@ -7,15 +7,23 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
+import java.util.Optional;
+
 import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFLifecycleManagementDriver;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAcceptedResponse;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionStatus;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.GenericExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.KeyExecutionRequestPropertyValue;
 import com.accantosystems.stratoss.vnfmdriver.service.impl.JavascriptMessageConversionServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 public class LifecycleManagementServiceTest {
 
     @Test
@@ -24,10 +32,14 @@ public class LifecycleManagementServiceTest {
         final ExternalMessagingService mockExternalMessagingService = mock(ExternalMessagingService.class);
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.findAndRegisterModules();
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
-        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(mockDriver, messageConversionService, mockExternalMessagingService, new VNFMDriverProperties());
+        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper, new DriverFilesService(new VNFMDriverProperties(), new SimpleMeterRegistry()), new VNFMDriverProperties(), new SimpleMeterRegistry());
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(mockDriver, messageConversionService, mockExternalMessagingService,
+                                                                                                     new LifecycleHandlerRegistry(Optional.empty()), null, new VNFMDriverProperties(),
+                                                                                                     meterRegistry);
 
         when(mockDriver.createVnfInstance(any(), any(), any())).thenReturn(loadFileIntoString("examples/VnfInstance.json"));
+        when(mockExternalMessagingService.canAcceptDelayedExecutionAsyncResponse()).thenReturn(true);
 
         final ExecutionRequest executionRequest = new ExecutionRequest();
         executionRequest.setLifecycleName("Create");
@@ -46,11 +58,15 @@ public class LifecycleManagementServiceTest {
         assertThat(executionAcceptedResponse).isNotNull();
 
         verify(mockExternalMessagingService).sendDelayedExecutionAsyncResponse(any(), any());
+        assertThat(meterRegistry.get("vnfmdriver.lifecycle.conversion").tag("lifecycle", "Create").tag("location", "test-location").tag("messageType", "CreateVnfRequest")
+                                .tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.lifecycle.conversion").tag("messageType", "VnfInstance").timer().count()).isEqualTo(1);
     }
 
     @Test
     public void testExecuteLifecycleInvalidLifecycleName() {
-        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(null, null, null, null);
+        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(null, null, null, new LifecycleHandlerRegistry(Optional.empty()), null, null,
+                                                                                                     new SimpleMeterRegistry());
 
         final ExecutionRequest executionRequest = new ExecutionRequest();
         executionRequest.setLifecycleName("Integrity");
@@ -61,4 +77,81 @@ public class LifecycleManagementServiceTest {
                 .hasMessage("Requested transition [Integrity] is not supported by this lifecycle driver");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testExecuteLifecycleRejectedWhenResponsesCannotBeDelayed() {
+        final VNFLifecycleManagementDriver mockDriver = mock(VNFLifecycleManagementDriver.class);
+        final ExternalMessagingService mockExternalMessagingService = mock(ExternalMessagingService.class);
+        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(mockDriver, null, mockExternalMessagingService,
+                                                                                                     new LifecycleHandlerRegistry(Optional.empty()), null, new VNFMDriverProperties(),
+                                                                                                     new SimpleMeterRegistry());
+
+        when(mockExternalMessagingService.canAcceptDelayedExecutionAsyncResponse()).thenReturn(false);
+
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Delete");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+        executionRequest.getResourceProperties().put("vnfInstanceId", new GenericExecutionRequestPropertyValue("vnfInstanceId"));
+
+        // Rejected before anything is sent to the VNFM, so it is safe to retry
+        assertThatThrownBy(() -> lifecycleManagementService.executeLifecycle(executionRequest)).isInstanceOf(ExecutionCapacityExceededException.class);
+        verifyNoInteractions(mockDriver);
+        verify(mockExternalMessagingService, never()).sendDelayedExecutionAsyncResponse(any(), any());
+    }
+
+    @Test
+    public void testExecuteLifecycleChangeVnfFlavour() throws Exception {
+        final VNFLifecycleManagementDriver mockDriver = mock(VNFLifecycleManagementDriver.class);
+        final MessageConversionService mockMessageConversionService = mock(MessageConversionService.class);
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final LifecycleCompletionTracker lifecycleCompletionTracker = new LifecycleCompletionTracker(new VNFMDriverProperties(), meterRegistry);
+        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(mockDriver, mockMessageConversionService, null,
+                                                                                                     new LifecycleHandlerRegistry(Optional.empty()), lifecycleCompletionTracker,
+                                                                                                     new VNFMDriverProperties(), meterRegistry);
+
+        when(mockMessageConversionService.generateMessageFromRequest(eq("ChangeVnfFlavourRequest"), any())).thenReturn("{\"newFlavourId\": \"large\"}");
+        when(mockDriver.changeVnfFlavour(any(), eq("vnfInstanceId"), eq("{\"newFlavourId\": \"large\"}"))).thenReturn("vnfLcmOpOccId");
+
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        // Lifecycle names are matched ignoring case and separators
+        executionRequest.setLifecycleName("change-vnf-flavour");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+        executionRequest.getResourceProperties().put("vnfInstanceId", new GenericExecutionRequestPropertyValue("vnfInstanceId"));
+
+        assertThat(lifecycleManagementService.executeLifecycle(executionRequest).getRequestId()).isEqualTo("vnfLcmOpOccId");
+        assertThat(meterRegistry.get("vnfmdriver.lifecycle.execution").tag("lifecycle", "ChangeVnfFlavour").tag("location", "test-location").tag("outcome", "success")
+                                .timer().count()).isEqualTo(1);
+
+        // The time taken to complete is recorded once, when the first result is received
+        lifecycleCompletionTracker.completed("vnfLcmOpOccId", ExecutionStatus.COMPLETE);
+        lifecycleCompletionTracker.completed("vnfLcmOpOccId", ExecutionStatus.COMPLETE);
+        assertThat(meterRegistry.get("vnfmdriver.lifecycle.completion").tag("lifecycle", "ChangeVnfFlavour").tag("location", "test-location").tag("outcome", "success")
+                                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExecuteLifecycleWithAdditionalHandler() throws Exception {
+        final LifecycleHandler upgradeHandler = LifecycleHandler.vnfLcmOperation("Upgrade", null, (driver, executionRequest, vnfInstanceId, message) -> "upgrade-" + vnfInstanceId);
+        final LifecycleHandler integrityHandler = LifecycleHandler.vnfLcmOperation("Integrity", null, (driver, executionRequest, vnfInstanceId, message) -> "integrity-" + vnfInstanceId);
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final LifecycleManagementService lifecycleManagementService = new LifecycleManagementService(null, null, null,
+                                                                                                     new LifecycleHandlerRegistry(Optional.of(List.of(upgradeHandler, integrityHandler))),
+                                                                                                     new LifecycleCompletionTracker(new VNFMDriverProperties(), meterRegistry),
+                                                                                                     new VNFMDriverProperties(), meterRegistry);
+
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+        executionRequest.getResourceProperties().put("vnfInstanceId", new GenericExecutionRequestPropertyValue("vnfInstanceId"));
+
+        executionRequest.setLifecycleName("Integrity");
+        assertThat(lifecycleManagementService.executeLifecycle(executionRequest).getRequestId()).isEqualTo("integrity-vnfInstanceId");
+        executionRequest.setLifecycleName("upgrade");
+        assertThat(lifecycleManagementService.executeLifecycle(executionRequest).getRequestId()).isEqualTo("upgrade-vnfInstanceId");
+
+        // Failures are timed separately
+        executionRequest.getResourceProperties().put("vnfInstanceId", new KeyExecutionRequestPropertyValue("keyName", "privateKey"));
+        assertThatThrownBy(() -> lifecycleManagementService.executeLifecycle(executionRequest)).isInstanceOf(MessageConversionException.class);
+        assertThat(meterRegistry.get("vnfmdriver.lifecycle.execution").tag("lifecycle", "Upgrade").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.lifecycle.execution").tag("lifecycle", "Upgrade").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+}
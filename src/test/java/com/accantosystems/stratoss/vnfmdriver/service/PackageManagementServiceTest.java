@@ -5,24 +5,36 @@ import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.loadFile
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 import org.etsi.sol003.packagemanagement.*;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageNotFoundException;
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageRepositoryDriver;
+import com.accantosystems.stratoss.vnfmdriver.model.web.PagedResults;
 import com.accantosystems.stratoss.vnfmdriver.test.TestConstants;
+import com.accantosystems.stratoss.vnfmdriver.web.etsi.BadRequestException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.io.ByteStreams;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -44,6 +56,14 @@ public class PackageManagementServiceTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private VNFMDriverProperties properties;
+
+    @AfterEach
+    public void tearDown() {
+        properties.getPackageManagement().setPageSize(0);
+    }
+
     @Test
     public void testGetAllVnfPackageInfos() throws Exception {
         final VnfPkgInfo exampleVnfPkgInfo = objectMapper.readValue(loadFileIntoString("/examples/vnfPackageId.pkgInfo"), VnfPkgInfo.class);
@@ -53,6 +73,47 @@ public class PackageManagementServiceTest {
         assertThat(vnfPackageInfoList).hasSize(1);
     }
 
+    @Test
+    public void testQueryVnfPackageInfos() throws Exception {
+        final List<VnfPkgInfo> vnfPkgInfos = new ArrayList<>();
+        for (int i = 149; i >= 0; i--) {
+            final VnfPkgInfo vnfPkgInfo = objectMapper.readValue(loadFileIntoString("/examples/vnfPackageId.pkgInfo"), VnfPkgInfo.class);
+            vnfPkgInfo.setId(String.format("vnfPackageId-%03d", i));
+            vnfPkgInfo.setVnfProvider(i % 2 == 0 ? "Acme" : "Other");
+            vnfPkgInfos.add(vnfPkgInfo);
+        }
+        when(vnfPackageDriver.queryAllVnfPkgInfos(isNull())).thenReturn(vnfPkgInfos);
+
+        // Not paged by default
+        final PagedResults<ObjectNode> allRecords = packageManagementService.queryVnfPackageInfos(null, AttributeFilter.parse(null), null);
+        assertThat(allRecords.getItems()).hasSize(150);
+        assertThat(allRecords.getItems().get(0).get("id").asText()).isEqualTo("vnfPackageId-000");
+        assertThat(allRecords.getNextPageOpaqueMarker()).isNull();
+
+        // Records should be returned in order of id, a page at a time
+        properties.getPackageManagement().setPageSize(100);
+        final PagedResults<ObjectNode> firstPage = packageManagementService.queryVnfPackageInfos(null, AttributeFilter.parse(null), null);
+        assertThat(firstPage.getItems()).hasSize(100);
+        assertThat(firstPage.getItems().get(0).get("id").asText()).isEqualTo("vnfPackageId-000");
+        assertThat(firstPage.getNextPageOpaqueMarker()).isNotNull();
+        final PagedResults<ObjectNode> secondPage = packageManagementService.queryVnfPackageInfos(null, AttributeFilter.parse(null), firstPage.getNextPageOpaqueMarker());
+        assertThat(secondPage.getItems()).hasSize(50);
+        assertThat(secondPage.getItems().get(0).get("id").asText()).isEqualTo("vnfPackageId-100");
+        assertThat(secondPage.getNextPageOpaqueMarker()).isNull();
+
+        final PagedResults<ObjectNode> filteredPage = packageManagementService.queryVnfPackageInfos(null, AttributeFilter.parse("(neq,vnfProvider,Other);(cont,id,-01)"), null);
+        assertThat(filteredPage.getItems()).extracting(vnfPkgInfo -> vnfPkgInfo.get("id").asText())
+                                           .containsExactly("vnfPackageId-010", "vnfPackageId-012", "vnfPackageId-014", "vnfPackageId-016", "vnfPackageId-018");
+
+        // An equality condition on the provider should be passed to the driver
+        when(vnfPackageDriver.queryVnfPkgInfos(isNull(), eq("Acme"), isNull())).thenReturn(vnfPkgInfos.subList(1, 2));
+        assertThat(packageManagementService.queryVnfPackageInfos(null, AttributeFilter.parse("(eq,vnfProvider,Acme)"), null).getItems()).hasSize(1);
+
+        assertThatThrownBy(() -> packageManagementService.queryVnfPackageInfos(null, AttributeFilter.parse(null), "not*base64"))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Invalid nextpage_opaque_marker [not*base64]");
+    }
+
     @Test
     public void testGetVnfPackageInfo() throws Exception {
         final VnfPkgInfo exampleVnfPkgInfo = objectMapper.readValue(loadFileIntoString("/examples/vnfPackageId.pkgInfo"), VnfPkgInfo.class);
@@ -159,6 +220,24 @@ public class PackageManagementServiceTest {
         assertThat(zipContents).containsExactlyInAnyOrder("Definitions/MRF.yaml", "TOSCA-Metadata/TOSCA.meta");
     }
 
+    @Test
+    public void testGetVnfPackageZipDescriptorCached() throws Exception {
+
+        final VnfPkgInfo vnfPkgInfo = new VnfPkgInfo();
+        vnfPkgInfo.setChecksum(new Checksum());
+        vnfPkgInfo.getChecksum().setAlgorithm("SHA-256");
+        vnfPkgInfo.getChecksum().setHash(UUID.randomUUID().toString().replace("-", ""));
+        when(vnfPackageDriver.getVnfPkgInfo(eq(VNF_PACKAGE_ID))).thenReturn(vnfPkgInfo);
+        when(vnfPackageDriver.getVnfPackage(eq(VNF_PACKAGE_ID))).thenReturn(new ByteArrayResource(loadFileIntoByteArray(VNF_PACKAGE_FILENAME)));
+
+        Resource vnfdPackage = packageManagementService.getVnfdAsZip(VNF_PACKAGE_ID);
+        assertThat(TestConstants.listZipContents(vnfdPackage.getInputStream())).containsExactlyInAnyOrder("Definitions/MRF.yaml", "TOSCA-Metadata/TOSCA.meta");
+
+        // The package should only be fetched once for the same checksum
+        assertThat(packageManagementService.getVnfdAsZip(VNF_PACKAGE_ID)).isSameAs(vnfdPackage);
+        verify(vnfPackageDriver, times(1)).getVnfPackage(eq(VNF_PACKAGE_ID));
+    }
+
     @Test
     public void testGetVnfPackageContent() throws Exception {
 
@@ -166,7 +245,7 @@ public class PackageManagementServiceTest {
         ByteArrayResource vnfPackageAsResource = new ByteArrayResource(vnfPackageAsByteArray);
         when(vnfPackageDriver.getVnfPackage(eq(VNF_PACKAGE_ID))).thenReturn(vnfPackageAsResource);
 
-        Resource vnfPackageResponse = packageManagementService.getVnfPackageContent(VNF_PACKAGE_ID, "");
+        Resource vnfPackageResponse = packageManagementService.getVnfPackageContent(VNF_PACKAGE_ID);
         assertThat(ByteStreams.toByteArray(vnfPackageResponse.getInputStream())).isEqualTo(vnfPackageAsByteArray);
     }
 
@@ -177,10 +256,31 @@ public class PackageManagementServiceTest {
         ByteArrayResource vnfPackageAsResource = new ByteArrayResource(vnfPackageAsByteArray);
         when(vnfPackageDriver.getVnfPackage(eq(VNF_PACKAGE_ID))).thenReturn(vnfPackageAsResource);
 
-        Resource vnfPackageResponse = packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, "Scripts/install.sh", null);
+        Resource vnfPackageResponse = packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, "Scripts/install.sh");
         assertThat(ByteStreams.toByteArray(vnfPackageResponse.getInputStream())).isNotNull();
     }
 
+    @Test
+    public void testGetVnfPackageArtifactFromFile() throws Exception {
+
+        when(vnfPackageDriver.getVnfPackage(eq(VNF_PACKAGE_ID))).thenReturn(new ClassPathResource(VNF_PACKAGE_FILENAME));
+
+        // stored artifacts are read directly from the package file, compressed artifacts are streamed
+        Resource storedArtifact = packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, "Scripts/install.sh");
+        assertThat(storedArtifact).isInstanceOf(FileRegionResource.class);
+        assertThat(new String(ByteStreams.toByteArray(storedArtifact.getInputStream()))).startsWith("#!");
+
+        Resource compressedArtifact = packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, "Definitions/MRF.yaml");
+        assertThat(compressedArtifact.contentLength()).isEqualTo(923);
+        try (InputStream inputStream = compressedArtifact.getInputStream()) {
+            assertThat(ByteStreams.toByteArray(inputStream)).hasSize(923);
+        }
+
+        Resource vnfPackageResponse = packageManagementService.getVnfPackageContent(VNF_PACKAGE_ID);
+        assertThat(vnfPackageResponse).isInstanceOf(FileRegionResource.class);
+        assertThat(ByteStreams.toByteArray(vnfPackageResponse.getInputStream())).isEqualTo(loadFileIntoByteArray(VNF_PACKAGE_FILENAME));
+    }
+
     @Test
     public void testGetVnfPackageInfoListValidArtifacts() throws Exception {
         final VnfPkgInfo exampleVnfPkgInfo = objectMapper.readValue(loadFileIntoString("/examples/vnfPackageId.pkgInfo"), VnfPkgInfo.class);
@@ -196,12 +296,12 @@ public class PackageManagementServiceTest {
 
         // verify that each additional artifact listed can be found in the package
         for (VnfPackageArtifactInfo vnfArtifact : vnfPackageInfo.getAdditionalArtifacts()) {
-            assertThat(packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, vnfArtifact.getArtifactPath(), null)).isNotNull();
+            assertThat(packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, vnfArtifact.getArtifactPath())).isNotNull();
         }
 
         // verify that each software image listed can be found in the package
         for (VnfPackageSoftwareImageInfo softwareImage : vnfPackageInfo.getSoftwareImages()) {
-            assertThat(packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, softwareImage.getImagePath(), null)).isNotNull();
+            assertThat(packageManagementService.getVnfPackageArtifact(VNF_PACKAGE_ID, softwareImage.getImagePath())).isNotNull();
         }
     }
 
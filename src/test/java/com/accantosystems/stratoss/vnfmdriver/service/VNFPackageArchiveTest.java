@@ -0,0 +1,223 @@
+package com.accantosystems.stratoss.vnfmdriver.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+public class VNFPackageArchiveTest {
+
+    private static final String VNF_PACKAGE = "examples/VnfPackage-vMRF.zip";
+
+    @Test
+    public void testReadArtifacts() throws Exception {
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(new ClassPathResource(VNF_PACKAGE))) {
+            assertThat(vnfPackageArchive.listArtifacts(path -> true)).containsExactly("Definitions/MRF.yaml", "Files/ChangeLog.txt", "Files/Images/01-VPC-CF-IMAGE",
+                                                                                      "Files/Licenses/README", "Files/Tests/README", "MRF.mf", "Scripts/install.sh",
+                                                                                      "TOSCA-Metadata/TOSCA.meta");
+            assertThat(vnfPackageArchive.containsArtifact("Definitions/MRF.yaml")).isTrue();
+            assertThat(vnfPackageArchive.getArtifactSize("Definitions/MRF.yaml")).isEqualTo(923);
+            assertThat(vnfPackageArchive.getArtifact("Definitions/MRF.yaml")).hasSize(923);
+            assertThat(vnfPackageArchive.getArtifacts("TOSCA-Metadata/")).containsOnlyKeys("TOSCA-Metadata/TOSCA.meta");
+            assertThat(vnfPackageArchive.getArtifact("Definitions/Missing.yaml")).isNull();
+            assertThat(vnfPackageArchive.getArtifactInputStream("Definitions/Missing.yaml")).isNull();
+        }
+    }
+
+    @Test
+    public void testStoredArtifactRegion() throws Exception {
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(new ClassPathResource(VNF_PACKAGE))) {
+            // Scripts/install.sh is stored, the others are compressed
+            final FileRegionResource storedArtifact = vnfPackageArchive.getStoredArtifactRegion("Scripts/install.sh");
+            assertThat(storedArtifact).isNotNull();
+            assertThat(storedArtifact.contentLength()).isEqualTo(51);
+            assertThat(IOUtils.toByteArray(storedArtifact.getInputStream())).isEqualTo(vnfPackageArchive.getArtifact("Scripts/install.sh"));
+            assertThat(IOUtils.toByteArray(storedArtifact.region(10, 5).getInputStream())).isEqualTo(Arrays.copyOfRange(vnfPackageArchive.getArtifact("Scripts/install.sh"), 10, 15));
+
+            assertThat(vnfPackageArchive.getStoredArtifactRegion("Definitions/MRF.yaml")).isNull();
+            assertThat(vnfPackageArchive.getStoredArtifactRegion("Definitions/Missing.yaml")).isNull();
+        }
+    }
+
+    @Test
+    public void testWriteArtifacts(@TempDir Path tempDir) throws Exception {
+        // ZipOutputStream writes compressed entries with a data descriptor (sizes and CRC after the data), which shouldn't be copied
+        final Path vnfPackage = tempDir.resolve("vnfPackage.zip");
+        final byte[] vnfd = "tosca_definitions_version: tosca_simple_yaml_1_2\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(vnfPackage))) {
+            addEntry(zipOutputStream, "TOSCA-Metadata/TOSCA.meta", "Entry-Definitions: Definitions/vnfd.yaml".getBytes(StandardCharsets.UTF_8));
+            addEntry(zipOutputStream, "Definitions/vnfd.yaml", vnfd);
+            addEntry(zipOutputStream, "Files/image.qcow2", new byte[4096]);
+        }
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(new FileSystemResource(vnfPackage))) {
+            vnfPackageArchive.writeArtifacts(Arrays.asList("Definitions/vnfd.yaml", "TOSCA-Metadata/TOSCA.meta"), outputStream);
+        }
+
+        // should be readable both by streaming through the local headers and through the central directory
+        final Map<String, byte[]> streamedArtifacts = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                assertThat(zipEntry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+                streamedArtifacts.put(zipEntry.getName(), IOUtils.toByteArray(zipInputStream));
+            }
+        }
+        assertThat(streamedArtifacts).containsOnlyKeys("Definitions/vnfd.yaml", "TOSCA-Metadata/TOSCA.meta");
+        assertThat(streamedArtifacts.get("Definitions/vnfd.yaml")).isEqualTo(vnfd);
+
+        final Path vnfdZip = Files.write(tempDir.resolve("vnfd.zip"), outputStream.toByteArray());
+        try (VNFPackageArchive vnfdArchive = VNFPackageArchive.open(new FileSystemResource(vnfdZip))) {
+            assertThat(vnfdArchive.listArtifacts(path -> true)).containsExactly("Definitions/vnfd.yaml", "TOSCA-Metadata/TOSCA.meta");
+            assertThat(vnfdArchive.getArtifact("TOSCA-Metadata/TOSCA.meta")).isEqualTo("Entry-Definitions: Definitions/vnfd.yaml".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testArtifactResource() throws Exception {
+        final byte[] vnfPackage = IOUtils.toByteArray(new ClassPathResource(VNF_PACKAGE).getInputStream());
+        final Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        final Set<Path> existingTemporaryFiles = listTemporaryFiles(tempDirectory);
+
+        final VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(new ByteArrayResource(vnfPackage));
+        // only held in a temporary file, so can't be read from a region of the file
+        assertThat(vnfPackageArchive.getStoredArtifactRegion("Scripts/install.sh")).isNull();
+        final Resource artifact = vnfPackageArchive.toArtifactResource("Definitions/MRF.yaml");
+        final Set<Path> temporaryFiles = listTemporaryFiles(tempDirectory);
+        temporaryFiles.removeAll(existingTemporaryFiles);
+        assertThat(temporaryFiles).hasSize(1);
+
+        assertThat(artifact.contentLength()).isEqualTo(923);
+        try (InputStream inputStream = artifact.getInputStream()) {
+            assertThat(IOUtils.toByteArray(inputStream)).hasSize(923);
+        }
+        // the archive is closed along with the artifact stream
+        assertThat(temporaryFiles).noneMatch(Files::exists);
+    }
+
+    @Test
+    public void testArtifactResourceClosedWithoutBeingRead() throws Exception {
+        final byte[] vnfPackage = IOUtils.toByteArray(new ClassPathResource(VNF_PACKAGE).getInputStream());
+        final Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        final Set<Path> existingTemporaryFiles = listTemporaryFiles(tempDirectory);
+
+        final Resource artifact = VNFPackageArchive.open(new ByteArrayResource(vnfPackage)).toArtifactResource("Definitions/MRF.yaml");
+        final Set<Path> temporaryFiles = listTemporaryFiles(tempDirectory);
+        temporaryFiles.removeAll(existingTemporaryFiles);
+        assertThat(temporaryFiles).hasSize(1);
+
+        // e.g. the request failed before the content was written
+        assertThat(artifact).isInstanceOf(Closeable.class);
+        ((Closeable) artifact).close();
+        assertThat(temporaryFiles).noneMatch(Files::exists);
+    }
+
+    @Test
+    public void testPackageClosedWithArchive() throws Exception {
+        final AtomicInteger closeCount = new AtomicInteger();
+        final Resource vnfPackage = new ClosingFileSystemResource(new ClassPathResource(VNF_PACKAGE).getFile(), closeCount);
+
+        // a stored artifact region is owned by the archive, which owns the package
+        final FileRegionResource storedArtifact = VNFPackageArchive.open(vnfPackage).getStoredArtifactRegion("Scripts/install.sh");
+        assertThat(closeCount.get()).isZero();
+        storedArtifact.region(10, 5).close();
+        storedArtifact.close();
+        assertThat(closeCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPackageClosedOnceCopied() throws Exception {
+        final AtomicInteger closeCount = new AtomicInteger();
+        final byte[] vnfPackage = IOUtils.toByteArray(new ClassPathResource(VNF_PACKAGE).getInputStream());
+        final Resource vnfPackageResource = new ClosingByteArrayResource(vnfPackage, closeCount);
+
+        try (VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(vnfPackageResource)) {
+            // no longer needed once copied to a temporary file
+            assertThat(closeCount.get()).isEqualTo(1);
+            assertThat(vnfPackageArchive.containsArtifact("Scripts/install.sh")).isTrue();
+        }
+        assertThat(closeCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTemporaryFileDeletedOnClose() throws Exception {
+        final byte[] vnfPackage = IOUtils.toByteArray(new ClassPathResource(VNF_PACKAGE).getInputStream());
+        final Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        final Set<Path> existingTemporaryFiles = listTemporaryFiles(tempDirectory);
+
+        final VNFPackageArchive vnfPackageArchive = VNFPackageArchive.open(new ByteArrayResource(vnfPackage));
+        final Set<Path> temporaryFiles = listTemporaryFiles(tempDirectory);
+        temporaryFiles.removeAll(existingTemporaryFiles);
+        assertThat(temporaryFiles).hasSize(1);
+        assertThat(vnfPackageArchive.getArtifact("Scripts/install.sh")).isNotEmpty();
+
+        vnfPackageArchive.close();
+        assertThat(temporaryFiles).noneMatch(Files::exists);
+    }
+
+    private static void addEntry(ZipOutputStream zipOutputStream, String name, byte[] contents) throws Exception {
+        zipOutputStream.putNextEntry(new ZipEntry(name));
+        zipOutputStream.write(contents);
+        zipOutputStream.closeEntry();
+    }
+
+    private static Set<Path> listTemporaryFiles(Path tempDirectory) throws Exception {
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("vnfpackage")).collect(Collectors.toSet());
+        }
+    }
+
+    private static class ClosingFileSystemResource extends FileSystemResource implements Closeable {
+        private final AtomicInteger closeCount;
+
+        private ClosingFileSystemResource(File file, AtomicInteger closeCount) {
+            super(file);
+            this.closeCount = closeCount;
+        }
+
+        @Override
+        public void close() {
+            closeCount.incrementAndGet();
+        }
+    }
+
+    private static class ClosingByteArrayResource extends ByteArrayResource implements Closeable {
+        private final AtomicInteger closeCount;
+
+        private ClosingByteArrayResource(byte[] byteArray, AtomicInteger closeCount) {
+            super(byteArray);
+            this.closeCount = closeCount;
+        }
+
+        @Override
+        public void close() {
+            closeCount.incrementAndGet();
+        }
+    }
+
+}
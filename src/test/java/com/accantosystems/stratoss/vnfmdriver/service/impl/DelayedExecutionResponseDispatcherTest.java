@@ -0,0 +1,100 @@
+package com.accantosystems.stratoss.vnfmdriver.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.DelayedExecutionAsyncResponse;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DelayedExecutionResponseDispatcherTest {
+
+    private final List<String> publishedRequestIds = new CopyOnWriteArrayList<>();
+    private final List<DelayedExecutionAsyncResponse> returnedResponses = new CopyOnWriteArrayList<>();
+    private final CountDownLatch publishedLatch = new CountDownLatch(2);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VNFMDriverProperties.DelayedResponses properties = new VNFMDriverProperties.DelayedResponses();
+    private DelayedExecutionResponseDispatcher dispatcher;
+
+    @BeforeEach
+    public void setUp() {
+        properties.setMaxPending(2);
+        dispatcher = new DelayedExecutionResponseDispatcher(response -> {
+            publishedRequestIds.add(response.getRequestId());
+            publishedLatch.countDown();
+        }, returnedResponses::add, properties, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        dispatcher.close();
+    }
+
+    @Test
+    public void testResponsesPublishedInDueOrder() throws Exception {
+        dispatcher.dispatch(createExecutionAsyncResponse("request1"), Duration.ofMillis(300));
+        dispatcher.dispatch(createExecutionAsyncResponse("request2"), Duration.ofMillis(100));
+        assertThat(dispatcher.getPendingCount()).isEqualTo(2);
+        assertThat(publishedRequestIds).isEmpty();
+
+        assertThat(publishedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(publishedRequestIds).containsExactly("request2", "request1");
+        assertThat(meterRegistry.get("vnfmdriver.execution.response.pending").gauge().value()).isEqualTo(0);
+        assertThat(meterRegistry.get("vnfmdriver.execution.response.delay.accuracy").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testOverflowStillDelayed() {
+        assertThat(dispatcher.hasCapacity()).isTrue();
+        dispatcher.dispatch(createExecutionAsyncResponse("request1"), Duration.ofSeconds(30));
+        dispatcher.dispatch(createExecutionAsyncResponse("request2"), Duration.ofSeconds(30));
+        assertThat(dispatcher.hasCapacity()).isFalse();
+
+        // Responses are never published before their delay, even when over the maximum
+        dispatcher.dispatch(createExecutionAsyncResponse("request3"), Duration.ofSeconds(30));
+        assertThat(publishedRequestIds).isEmpty();
+        assertThat(dispatcher.getPendingCount()).isEqualTo(3);
+        assertThat(meterRegistry.get("vnfmdriver.execution.response.overflow").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPendingResponsesHandedBackOnClose() throws Exception {
+        dispatcher.dispatch(createExecutionAsyncResponse("request1"), Duration.ofMillis(10));
+        final long dueTime = System.currentTimeMillis() + 30000;
+        dispatcher.dispatch(createExecutionAsyncResponse("request2"), Duration.ofSeconds(30));
+        Thread.sleep(100);
+
+        dispatcher.close();
+        assertThat(publishedRequestIds).containsExactly("request1");
+        assertThat(returnedResponses).hasSize(1);
+        assertThat(returnedResponses.get(0).getResponse().getRequestId()).isEqualTo("request2");
+        assertThat(returnedResponses.get(0).getDueTime()).isCloseTo(dueTime, within(1000L));
+        assertThat(dispatcher.getPendingCount()).isEqualTo(0);
+        assertThat(dispatcher.hasCapacity()).isFalse();
+
+        // Anything dispatched after shutdown is also handed back, rather than published early
+        dispatcher.dispatch(createExecutionAsyncResponse("request3"), Duration.ofSeconds(30));
+        assertThat(publishedRequestIds).doesNotContain("request3");
+        assertThat(returnedResponses).extracting(response -> response.getResponse().getRequestId()).containsExactly("request2", "request3");
+    }
+
+    private ExecutionAsyncResponse createExecutionAsyncResponse(final String requestId) {
+        return new ExecutionAsyncResponse(requestId, ExecutionStatus.COMPLETE, null, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.accantosystems.stratoss.vnfmdriver.service.impl;
+
+import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.DriverFiles;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.GenericExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.KeyExecutionRequestPropertyValue;
+import com.accantosystems.stratoss.vnfmdriver.service.DriverFilesService;
+import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Checks that the Java message generators produce exactly the same output as the default scripts
+ */
+public class JavaMessageConversionServiceImplTest {
+
+    private static final List<String> MESSAGE_TYPES_2_4_1 = Arrays.asList("CreateVnfRequest", "InstantiateVnfRequest", "ChangeVnfFlavourRequest", "ChangeExtVnfConnectivityRequest",
+                                                                          "HealVnfRequest", "OperateVnfRequest-Start", "OperateVnfRequest-Stop", "ScaleVnfRequest",
+                                                                          "ScaleVnfToLevelRequest", "TerminateVnfRequest");
+    private static final List<String> MESSAGE_TYPES_3_5_1 = new ArrayList<>(MESSAGE_TYPES_2_4_1);
+    private static final List<String> INTERFACE_VERSIONS = Arrays.asList("2.4.1", "3.5.1");
+    private static final List<String> PREFIXES = Arrays.asList("additionalParams", "extVirtualLinks", "extManagedVirtualLinks", "vimConnectionInfo", "extensions",
+                                                               "vnfConfigurableProperties", "metadata", "scaleInfo");
+
+    static {
+        MESSAGE_TYPES_3_5_1.add("ChangeCurrentVnfPkgRequest");
+    }
+
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+
+    private JavascriptMessageConversionServiceImpl javascriptMessageConversionService;
+    private JavascriptMessageConversionServiceImpl spiedJavascriptMessageConversionService;
+    private MessageConversionService javaMessageConversionService;
+
+    @BeforeAll
+    public static void setUpClass() {
+        objectMapper.findAndRegisterModules();
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        final DriverFilesService driverFilesService = new DriverFilesService(properties, new SimpleMeterRegistry());
+        javascriptMessageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper, driverFilesService, properties, new SimpleMeterRegistry());
+        spiedJavascriptMessageConversionService = spy(new JavascriptMessageConversionServiceImpl(objectMapper, driverFilesService, properties, new SimpleMeterRegistry()));
+        javaMessageConversionService = new JavaMessageConversionServiceImpl(spiedJavascriptMessageConversionService, driverFilesService, properties);
+    }
+
+    @Test
+    public void testParityWithNoProperties() throws Exception {
+        assertParityWithoutScripts(new HashMap<>());
+    }
+
+    @Test
+    public void testParityWithTypicalProperties() throws Exception {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("vnfdId", "fa2343af-2a81-4e84-a667-e40662e5ed93");
+        properties.put("vnfInstanceName", "HelloWorld1");
+        properties.put("vnfInstanceDescription", "A \"quoted\" description\nover two lines \\ with a tab\t, a \u001f control character, a / and some unicode é ");
+        properties.put("flavourId", "Chocolate");
+        properties.put("instantiationLevelId", "1");
+        properties.put("localizationLanguage", "en");
+        properties.put("cause", "Broken");
+        properties.put("scaleType", "SCALE_OUT");
+        properties.put("scaleAspectId", "aspect1");
+        properties.put("numberOfSteps", 2);
+        properties.put("additionalParams.vnfPkgId", "316aa140-c99a-4a08-b8f5-8e2cb73c83e8");
+        properties.put("additionalParams.enabled", true);
+        properties.put("additionalParams.ratio", 2.5);
+        properties.put("additionalParams.count", 3.0);
+        properties.put("additionalParams.big", 9007199254740992L);
+        properties.put("additionalParams.created", OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.UTC));
+        properties.put("additionalParams.nested.value", "nested");
+        properties.put("additionalParams.list.0", "first");
+        properties.put("additionalParams.list.1", "second");
+        properties.put("extVirtualLinks.0.id", "45672c22-7c12-49ed-8a4f-e4532b3026fb");
+        properties.put("extVirtualLinks.0.extCps.0.cpdId", "SERVICES_ExtCp");
+        properties.put("extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.ipOverEthernet.ipAddresses.0.fixedAddresses.0", "131.160.162.32");
+        properties.put("extVirtualLinks.0.extCps.0.cpConfig.0.cpProtocolData.0.ipOverEthernet.ipAddresses.0.numDynamicAddresses", "1");
+        properties.put("extVirtualLinks.1.id", "second-link");
+        properties.put("extManagedVirtualLinks.2.id", "sparse");
+        properties.put("vimConnectionInfo.0.vimId", "vim1");
+        properties.put("vimConnectionInfo.1.vimId", "vim1");
+        properties.put("vimConnectionInfo.10.vimId", "vim10");
+        properties.put("vimConnectionInfo.1.accessInfo.credentials.username", "dummy");
+        properties.put("extensions.ext1", "value1");
+        properties.put("vnfConfigurableProperties.isAutoscaleEnabled", "true");
+        properties.put("metadata.owner", "ops");
+        properties.put("scaleInfo.0.aspectId", "aspect1");
+        properties.put("scaleInfo.0.scaleLevel", 3);
+        properties.put("unrelated.property", "ignored");
+
+        for (String interfaceVersion : INTERFACE_VERSIONS) {
+            for (String messageType : messageTypes(interfaceVersion)) {
+                final ExecutionRequest executionRequest = createExecutionRequest(interfaceVersion, properties);
+                executionRequest.getResourceProperties().put("additionalParams.secret", new KeyExecutionRequestPropertyValue("keyName", "privateKey", "publicKey"));
+                assertParity(messageType, executionRequest);
+            }
+        }
+        verify(spiedJavascriptMessageConversionService, never()).generateMessageFromRequest(anyString(), any());
+    }
+
+    @Test
+    public void testParityWithOverlappingProperties() throws Exception {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("additionalParams.a", "value");
+        properties.put("additionalParams.a.b", "nested value");
+        properties.put("additionalParams.b.c", "nested value");
+        properties.put("additionalParams.b", "value");
+        properties.put("extVirtualLinks.0", "value");
+        properties.put("extVirtualLinks.0.id", "nested value");
+        properties.put("extVirtualLinks.length.id", "nested value");
+        properties.put("extVirtualLinks.name", "value");
+        properties.put("vimConnectionInfo..empty", "value");
+        properties.put("vimConnectionInfo.0x1f.0", "value");
+        properties.put("vimConnectionInfo.1e3.x", "value");
+        assertParityWithoutScripts(properties);
+    }
+
+    @Test
+    public void testParityWithUnsupportedValues() throws Exception {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("flavourId", OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.UTC));
+        properties.put("scaleType", Collections.singletonMap("key", "value"));
+        properties.put("additionalParams.map", Collections.singletonMap("key", "value"));
+        properties.put("additionalParams.list", Arrays.asList("a", "b"));
+        properties.put("additionalParams.large", 1e22);
+        properties.put("additionalParams.small", 1e-7);
+        properties.put("additionalParams.float", 0.1f);
+        properties.put("additionalParams.big", 9007199254740993L);
+        properties.put("additionalParams.min", Long.MIN_VALUE);
+        assertParityWithoutScripts(properties);
+    }
+
+    @Test
+    public void testParityWithRandomProperties() throws Exception {
+        final Random random = new Random(20200102L);
+        final List<String> segments = Arrays.asList("0", "1", "2", "3", "a", "b", "id", "01", "", " ", "1.5");
+        final List<Object> values = Arrays.asList("value", "", 1, -1, 0, 2.5, true, false, 12345678901L);
+
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Object> properties = new HashMap<>();
+            final int propertyCount = random.nextInt(12);
+            for (int j = 0; j < propertyCount; j++) {
+                final StringBuilder key = new StringBuilder(PREFIXES.get(random.nextInt(PREFIXES.size())));
+                final int depth = 1 + random.nextInt(4);
+                for (int k = 0; k < depth; k++) {
+                    key.append('.').append(segments.get(random.nextInt(segments.size())));
+                }
+                properties.put(key.toString(), values.get(random.nextInt(values.size())));
+            }
+            assertParityWithoutScripts(properties);
+        }
+    }
+
+    @Test
+    public void testScriptInDriverFilesTakesPrecedence() throws Exception {
+        final ExecutionRequest executionRequest = createExecutionRequest("3.5.1", Collections.singletonMap("description", "testing testing 123"));
+        executionRequest.setLifecycleName("Configure");
+        executionRequest.setDriverFiles(DriverFiles.fromBase64(loadZipIntoBase64String("examples/lifecyclescripts.zip")));
+
+        final String message = javaMessageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
+
+        assertThat(message).isEqualTo("{\"vnfdId\":\"123-123-123-123\",\"vnfInstanceName\":\"Configure\",\"vnfInstanceDescription\":\"testing testing 123\"}");
+        verify(spiedJavascriptMessageConversionService).generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
+    }
+
+    @Test
+    public void testOtherInterfaceVersionsUseScripts() throws Exception {
+        final ExecutionRequest executionRequest = createExecutionRequest("2.5.1", Collections.singletonMap("description", "testing testing 123"));
+        executionRequest.setLifecycleName("Configure");
+
+        final String message = javaMessageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
+
+        assertThat(message).isEqualTo("{\"vnfdId\":\"xxx-xxx-xxx-xxx\",\"vnfInstanceName\":\"Configure\",\"vnfInstanceDescription\":\"testing testing 123\"}");
+        verify(spiedJavascriptMessageConversionService).generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
+    }
+
+    @Test
+    public void testLongsBeyondJavascriptPrecisionLeftToScripts() throws Exception {
+        final MessageTemplate messageTemplate = new MessageTemplate("Test").copy("big", "big");
+        assertThat(messageTemplate.generate(Collections.singletonMap("big", 9007199254740992L))).isEqualTo("{\"big\":9007199254740992}");
+        assertThat(messageTemplate.generate(Collections.singletonMap("big", -9007199254740992L))).isEqualTo("{\"big\":-9007199254740992}");
+        assertThatThrownBy(() -> messageTemplate.generate(Collections.singletonMap("big", 9007199254740993L))).isInstanceOf(MessageTemplate.UnsupportedMessageException.class);
+        assertThatThrownBy(() -> messageTemplate.generate(Collections.singletonMap("big", Long.MIN_VALUE))).isInstanceOf(MessageTemplate.UnsupportedMessageException.class);
+    }
+
+    @Test
+    public void testIsNumeric() {
+        assertThat(MessageTemplate.isNumeric("0")).isTrue();
+        assertThat(MessageTemplate.isNumeric("12")).isTrue();
+        assertThat(MessageTemplate.isNumeric("")).isTrue();
+        assertThat(MessageTemplate.isNumeric(" 1 ")).isTrue();
+        assertThat(MessageTemplate.isNumeric("1.5")).isTrue();
+        assertThat(MessageTemplate.isNumeric("-1e3")).isTrue();
+        assertThat(MessageTemplate.isNumeric("0x1f")).isTrue();
+        assertThat(MessageTemplate.isNumeric("Infinity")).isTrue();
+        assertThat(MessageTemplate.isNumeric("id")).isFalse();
+        assertThat(MessageTemplate.isNumeric("1d")).isFalse();
+        assertThat(MessageTemplate.isNumeric("NaN")).isFalse();
+    }
+
+    private void assertParityWithoutScripts(final Map<String, Object> properties) throws Exception {
+        for (String interfaceVersion : INTERFACE_VERSIONS) {
+            for (String messageType : messageTypes(interfaceVersion)) {
+                assertParity(messageType, createExecutionRequest(interfaceVersion, properties));
+            }
+        }
+    }
+
+    private void assertParity(final String messageType, final ExecutionRequest executionRequest) {
+        final Object expected = generateMessage(javascriptMessageConversionService, messageType, executionRequest);
+        final Object actual = generateMessage(javaMessageConversionService, messageType, executionRequest);
+        assertThat(actual).as("Message [%s] generated from properties %s", messageType, executionRequest.getProperties()).isEqualTo(expected);
+    }
+
+    /**
+     * Some combinations of properties cause the scripts to fail, in which case we expect the same failure
+     */
+    private static Object generateMessage(final MessageConversionService messageConversionService, final String messageType, final ExecutionRequest executionRequest) {
+        try {
+            return messageConversionService.generateMessageFromRequest(messageType, executionRequest);
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage() + " caused by " + e.getCause();
+        }
+    }
+
+    private static List<String> messageTypes(final String interfaceVersion) {
+        return "2.4.1".equals(interfaceVersion) ? MESSAGE_TYPES_2_4_1 : MESSAGE_TYPES_3_5_1;
+    }
+
+    private static ExecutionRequest createExecutionRequest(final String interfaceVersion, final Map<String, Object> properties) {
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+        executionRequest.getResourceProperties().put("interfaceVersion", new GenericExecutionRequestPropertyValue(interfaceVersion));
+        properties.forEach((key, value) -> executionRequest.getResourceProperties().put(key, new GenericExecutionRequestPropertyValue(value)));
+        return executionRequest;
+    }
+
+}
@@ -4,20 +4,32 @@ import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.json.JsonContent;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.DriverFiles;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.GenericExecutionRequestPropertyValue;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.PropertyType;
+import com.accantosystems.stratoss.vnfmdriver.service.DriverFilesService;
 import com.accantosystems.stratoss.vnfmdriver.service.MessageConversionService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 public class JavascriptMessageConversionServiceImplTest {
 
     private final static ObjectMapper objectMapper = new ObjectMapper();
@@ -29,15 +41,20 @@ public class JavascriptMessageConversionServiceImplTest {
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     }
 
+    private static MessageConversionService createMessageConversionService(final MeterRegistry meterRegistry) {
+        final VNFMDriverProperties properties = new VNFMDriverProperties();
+        return new JavascriptMessageConversionServiceImpl(objectMapper, new DriverFilesService(properties, meterRegistry), properties, meterRegistry);
+    }
+
     @Test
     public void testGenerateMessageFromRequestUsingProvidedScript() throws Exception {
         final ExecutionRequest executionRequest = new ExecutionRequest();
         executionRequest.setLifecycleName("Configure");
         executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
         executionRequest.getResourceProperties().put("description", new GenericExecutionRequestPropertyValue("testing testing 123"));
-        executionRequest.setDriverFiles(loadZipIntoBase64String("examples/lifecyclescripts.zip"));
+        executionRequest.setDriverFiles(DriverFiles.fromBase64(loadZipIntoBase64String("examples/lifecyclescripts.zip")));
 
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
         final String message = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
 
         assertThat(message).isEqualTo("{\"vnfdId\":\"123-123-123-123\",\"vnfInstanceName\":\"Configure\",\"vnfInstanceDescription\":\"testing testing 123\"}");
@@ -51,7 +68,7 @@ public class JavascriptMessageConversionServiceImplTest {
         executionRequest.getResourceProperties().put("description", new GenericExecutionRequestPropertyValue("testing testing 123"));
         executionRequest.getResourceProperties().put("interfaceVersion", new GenericExecutionRequestPropertyValue("2.5.1"));
 
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
         final String message = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
 
         assertThat(message).isEqualTo("{\"vnfdId\":\"xxx-xxx-xxx-xxx\",\"vnfInstanceName\":\"Configure\",\"vnfInstanceDescription\":\"testing testing 123\"}");
@@ -66,16 +83,65 @@ public class JavascriptMessageConversionServiceImplTest {
         executionRequest.getResourceProperties().put("vnfInstanceName", new GenericExecutionRequestPropertyValue("Install"));
         executionRequest.getResourceProperties().put("vnfInstanceDescription", new GenericExecutionRequestPropertyValue("testing testing 123"));
 
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
         final String message = messageConversionService.generateMessageFromRequest("CreateVnfRequest", executionRequest);
 
         assertThat(message).isEqualTo("{\"additionalParams\":{},\"metadata\":{},\"vnfdId\":\"xyz-xyz-xyz-xyz\",\"vnfInstanceName\":\"Install\",\"vnfInstanceDescription\":\"testing testing 123\"}");
     }
 
+    @Test
+    public void testCompiledScriptIsCached() throws Exception {
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Configure");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+        executionRequest.getResourceProperties().put("description", new GenericExecutionRequestPropertyValue("testing testing 123"));
+        executionRequest.setDriverFiles(DriverFiles.fromBase64(loadZipIntoBase64String("examples/lifecyclescripts.zip")));
+
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final MessageConversionService messageConversionService = createMessageConversionService(meterRegistry);
+        final String firstMessage = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
+        final String secondMessage = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
+
+        assertThat(secondMessage).isEqualTo(firstMessage);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vnfmdriver.scripts.compiled").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vnfmdriver.scripts.compiled").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.scripts.compile").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testParsedVnfdIsCached() throws Exception {
+        final Map<String, String> driverFiles = new HashMap<>();
+        driverFiles.put("vnfd.yaml", "{\"vnfdId\": \"vnfd-123\", \"vnfProvider\": \"ACME\"}");
+        driverFiles.put("scripts/VnfdRequest.js", "JSON.stringify({ vnfdId: vnfd.vnfdId, vnfProvider: vnfd.vnfProvider });");
+
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setDriverFiles(DriverFiles.fromBase64(createBase64Zip(driverFiles)));
+
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final MessageConversionService messageConversionService = createMessageConversionService(meterRegistry);
+        assertThat(messageConversionService.generateMessageFromRequest("VnfdRequest", executionRequest)).isEqualTo("{\"vnfdId\":\"vnfd-123\",\"vnfProvider\":\"ACME\"}");
+        assertThat(messageConversionService.generateMessageFromRequest("VnfdRequest", executionRequest)).isEqualTo("{\"vnfdId\":\"vnfd-123\",\"vnfProvider\":\"ACME\"}");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vnfmdriver.vnfd.parsed").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vnfmdriver.vnfd.parsed").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    private static String createBase64Zip(final Map<String, String> files) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zos.putNextEntry(new ZipEntry(file.getKey()));
+                zos.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    }
+
     @Test
     public void testNoScriptFound() {
         final ExecutionRequest executionRequest = new ExecutionRequest();
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
         assertThatThrownBy(() -> messageConversionService.generateMessageFromRequest("UnknownMessageType", executionRequest))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Unable to find a script called [UnknownMessageType.js]");
@@ -128,7 +194,7 @@ public class JavascriptMessageConversionServiceImplTest {
         executionRequest.getResourceProperties().put("vimConnectionInfo.0.accessInfo.credentials.username", new GenericExecutionRequestPropertyValue("dummy"));
         executionRequest.getResourceProperties().put("vimConnectionInfo.0.accessInfo.credentials.password", new GenericExecutionRequestPropertyValue("RXJpY3Nzb24uLjYyNA=="));
 
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
         final String message = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
 
         assertThat(new JsonContent<>(JavascriptMessageConversionServiceImplTest.class, null, message)).isEqualToJson("{\n"
@@ -235,7 +301,7 @@ public class JavascriptMessageConversionServiceImplTest {
         propertyMap.put("key3", Arrays.asList("listVal", 12345, 0.12345, true));
         executionRequest.getResourceProperties().put("vimConnectionInfo.0.mapProperty", new GenericExecutionRequestPropertyValue(propertyMap, PropertyType.MAP.getValue()));
 
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
         final String message = messageConversionService.generateMessageFromRequest("InstantiateVnfRequest", executionRequest);
 
         assertThat(new JsonContent<>(JavascriptMessageConversionServiceImplTest.class, null, message)).isEqualToJson("{\n"
@@ -258,7 +324,7 @@ public class JavascriptMessageConversionServiceImplTest {
     @Test
     public void testGenerateInstantiateResponseMessageWithComplexProperties() throws Exception {
         final ExecutionRequest executionRequest = new ExecutionRequest();
-        final MessageConversionService messageConversionService = new JavascriptMessageConversionServiceImpl(objectMapper);
+        final MessageConversionService messageConversionService = createMessageConversionService(new SimpleMeterRegistry());
 
         String vnfInstance = loadFileIntoString("examples/VnfInstance.json");
         Map<String, Object> vnfInstanceAsMap = objectMapper.readValue(vnfInstance, new TypeReference<Map<String, Object>>() {
@@ -0,0 +1,76 @@
+package com.accantosystems.stratoss.vnfmdriver.service.impl;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.model.DelayedExecutionAsyncResponse;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAsyncResponse;
+import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class KafkaExternalMessagingServiceImplTest {
+
+    private static final String LIFECYCLE_RESPONSES_TOPIC = "lifecycle_responses";
+    private static final String DELAYED_EXECUTION_RESPONSES_TOPIC = "delayed_execution_responses";
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> mockKafkaTemplate = mock(KafkaTemplate.class);
+    private final VNFMDriverProperties properties = new VNFMDriverProperties();
+    private KafkaExternalMessagingServiceImpl externalMessagingService;
+
+    @BeforeEach
+    public void setUp() {
+        properties.getTopics().setLifecycleResponsesTopic(LIFECYCLE_RESPONSES_TOPIC);
+        properties.getTopics().setDelayedExecutionResponsesTopic(DELAYED_EXECUTION_RESPONSES_TOPIC);
+        when(mockKafkaTemplate.send(anyString(), anyString())).thenReturn(new SettableListenableFuture<>());
+        externalMessagingService = new KafkaExternalMessagingServiceImpl(properties, mockKafkaTemplate, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testSendDelayedExecutionAsyncResponse() throws Exception {
+        externalMessagingService.sendDelayedExecutionAsyncResponse(createExecutionAsyncResponse(), Duration.ofMillis(200));
+
+        // Should not be sent until the delay has passed (and without blocking the caller)
+        verify(mockKafkaTemplate, after(50).never()).send(anyString(), anyString());
+        verify(mockKafkaTemplate, timeout(5000)).send(eq(LIFECYCLE_RESPONSES_TOPIC), anyString());
+
+        externalMessagingService.close();
+    }
+
+    @Test
+    public void testDelayedExecutionAsyncResponsesHandedBackOnClose() throws Exception {
+        externalMessagingService.sendDelayedExecutionAsyncResponse(createExecutionAsyncResponse(), Duration.ofSeconds(30));
+
+        externalMessagingService.close();
+        verify(mockKafkaTemplate).send(eq(DELAYED_EXECUTION_RESPONSES_TOPIC), anyString());
+        verify(mockKafkaTemplate, never()).send(eq(LIFECYCLE_RESPONSES_TOPIC), anyString());
+    }
+
+    @Test
+    public void testHandedBackResponsesSentOnceDue() throws Exception {
+        final DelayedExecutionAsyncResponse delayedResponse = new DelayedExecutionAsyncResponse(createExecutionAsyncResponse(), System.currentTimeMillis() + 1000);
+        externalMessagingService.listenForDelayedExecutionAsyncResponseMessages(new ObjectMapper().writeValueAsString(delayedResponse));
+
+        verify(mockKafkaTemplate, after(50).never()).send(anyString(), anyString());
+        verify(mockKafkaTemplate, timeout(5000)).send(eq(LIFECYCLE_RESPONSES_TOPIC), anyString());
+
+        externalMessagingService.close();
+    }
+
+    private ExecutionAsyncResponse createExecutionAsyncResponse() {
+        return new ExecutionAsyncResponse("requestId", ExecutionStatus.COMPLETE, null, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.accantosystems.stratoss.vnfmdriver.utils;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DynamicSslCertificateHttpRequestFactoryTest {
+
+    private WireMockServer wireMockServer;
+
+    @BeforeEach
+    public void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort().dynamicHttpsPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlEqualTo("/vnflcm/v1/vnf_instances")).willReturn(aResponse().withStatus(200).withBody("[]")));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws Exception {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final DynamicSslCertificateHttpRequestFactory requestFactory = new DynamicSslCertificateHttpRequestFactory(new VNFMDriverProperties().getRestConnectionPool(), meterRegistry,
+                                                                                                                   "test-location");
+        final RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        // The self-signed certificate presented by the server should be accepted
+        for (int i = 0; i < 3; i++) {
+            assertThat(restTemplate.getForObject("https://localhost:" + wireMockServer.httpsPort() + "/vnflcm/v1/vnf_instances", String.class)).isEqualTo("[]");
+        }
+
+        assertThat(meterRegistry.get("vnfmdriver.http.pool.lease").tag("pool", "test-location").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("vnfmdriver.http.pool.connections.created").tag("pool", "test-location").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vnfmdriver.http.pool.connections").tag("pool", "test-location").tag("state", "available").gauge().value()).isEqualTo(1);
+
+        requestFactory.destroy();
+        assertThat(meterRegistry.find("vnfmdriver.http.pool.lease").tag("pool", "test-location").timer()).isNull();
+    }
+
+}
@@ -4,11 +4,16 @@ import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.TEST_DL_
 import static com.accantosystems.stratoss.vnfmdriver.test.TestConstants.TEST_EXCEPTION_MESSAGE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.etsi.sol003.common.ProblemDetails;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -19,7 +24,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
+import com.accantosystems.stratoss.vnfmdriver.config.WebMvcConfiguration;
 import com.accantosystems.stratoss.vnfmdriver.driver.SOL003ResponseException;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionAcceptedResponse;
 import com.accantosystems.stratoss.vnfmdriver.model.alm.ExecutionRequest;
@@ -36,9 +44,22 @@ public class LifecycleControllerTest {
     @Autowired
     private TestRestTemplate testRestTemplate;
 
+    @Autowired
+    private VNFMDriverProperties properties;
+
     @MockBean
     private LifecycleManagementService lifecycleManagementService;
 
+    @Autowired
+    private RequestMappingHandlerAdapter requestMappingHandlerAdapter;
+
+    @AfterEach
+    public void tearDown() {
+        properties.getExecution().setAsync(false);
+        properties.getExecution().setQueueTimeout(Duration.ofSeconds(30));
+        requestMappingHandlerAdapter.setAsyncRequestTimeout(WebMvcConfiguration.getAsyncRequestTimeout(properties).toMillis());
+    }
+
     @Test
     public void testExecuteLifecycle() throws Exception {
         final ExecutionRequest executionRequest = new ExecutionRequest();
@@ -76,6 +97,94 @@ public class LifecycleControllerTest {
         assertThat(responseEntity.getBody().getDetails().get("vnfmDetail")).isEqualTo(TEST_EXCEPTION_MESSAGE);
     }
 
+    @Test
+    public void testExecuteLifecycleAsync() throws Exception {
+        properties.getExecution().setAsync(true);
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Install");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+
+        final AtomicReference<String> executingThread = new AtomicReference<>();
+        when(lifecycleManagementService.executeLifecycle(any())).thenAnswer(invocation -> {
+            executingThread.set(Thread.currentThread().getName());
+            return new ExecutionAcceptedResponse(UUID.randomUUID().toString());
+        });
+
+        final ResponseEntity<ExecutionAcceptedResponse> responseEntity = testRestTemplate.postForEntity("/api/driver/lifecycle/execute", executionRequest, ExecutionAcceptedResponse.class);
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(responseEntity.getBody()).isNotNull();
+        assertThat(responseEntity.getBody().getRequestId()).isNotEmpty();
+        assertThat(executingThread.get()).startsWith("lifecycleExecutor");
+    }
+
+    @Test
+    public void testExecuteLifecycleAsyncReturnsErrorInfo() throws Exception {
+        properties.getExecution().setAsync(true);
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Install");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+
+        when(lifecycleManagementService.executeLifecycle(any()))
+                .thenThrow(new SOL003ResponseException("Received SOL003-compliant error when communicating with VNFM: " + TEST_EXCEPTION_MESSAGE, new ProblemDetails(404, TEST_EXCEPTION_MESSAGE)));
+
+        final ResponseEntity<ErrorInfo> responseEntity = testRestTemplate.postForEntity("/api/driver/lifecycle/execute", executionRequest, ErrorInfo.class);
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(responseEntity.getBody()).isNotNull();
+        assertThat(responseEntity.getBody().getLocalizedMessage()).isEqualTo("Received SOL003-compliant error when communicating with VNFM: TestExceptionMessage");
+        assertThat(responseEntity.getBody().getDetails().get("vnfmStatus")).isEqualTo(404);
+    }
+
+    @Test
+    public void testExecuteLifecycleAsyncTimeout() throws Exception {
+        properties.getExecution().setAsync(true);
+        requestMappingHandlerAdapter.setAsyncRequestTimeout(200);
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Install");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+
+        when(lifecycleManagementService.executeLifecycle(any())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return new ExecutionAcceptedResponse(UUID.randomUUID().toString());
+        });
+
+        // The lifecycle may still be in progress, so this isn't reported as something the ALM can retry
+        final ResponseEntity<ErrorInfo> responseEntity = testRestTemplate.postForEntity("/api/driver/lifecycle/execute", executionRequest, ErrorInfo.class);
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        assertThat(responseEntity.getBody()).isNotNull();
+        assertThat(responseEntity.getBody().getLocalizedMessage()).contains("may still be in progress");
+    }
+
+    @Test
+    public void testExecuteLifecycleAsyncQueueTimeout() throws Exception {
+        properties.getExecution().setAsync(true);
+        properties.getExecution().setQueueTimeout(Duration.ZERO);
+        final ExecutionRequest executionRequest = new ExecutionRequest();
+        executionRequest.setLifecycleName("Install");
+        executionRequest.setDeploymentLocation(TEST_DL_NO_AUTH);
+
+        // Rejected without calling the VNFM, so the ALM can safely retry
+        final ResponseEntity<ErrorInfo> responseEntity = testRestTemplate.postForEntity("/api/driver/lifecycle/execute", executionRequest, ErrorInfo.class);
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(lifecycleManagementService, never()).executeLifecycle(any());
+    }
+
+    @Test
+    public void testAsyncRequestTimeoutCoversRestTimeouts() {
+        final VNFMDriverProperties defaultProperties = new VNFMDriverProperties();
+        // Covers an OAuth2 token request and the VNFM request, each of which may wait for a pooled connection
+        final Duration vnfmRequestTimeout = defaultProperties.getRestConnectionPool().getLeaseTimeout()
+                                                             .plus(defaultProperties.getRestConnectTimeout())
+                                                             .plus(defaultProperties.getRestReadTimeout());
+        assertThat(WebMvcConfiguration.getAsyncRequestTimeout(defaultProperties)).isGreaterThan(defaultProperties.getExecution().getQueueTimeout().plus(vnfmRequestTimeout.multipliedBy(2)));
+
+        defaultProperties.getExecution().setRequestTimeout(Duration.ofMinutes(5));
+        assertThat(WebMvcConfiguration.getAsyncRequestTimeout(defaultProperties)).isEqualTo(Duration.ofMinutes(5));
+    }
+
     @Test
     public void testFindReferences() throws Exception {
         final FindReferenceRequest findReferenceRequest = new FindReferenceRequest();
@@ -7,7 +7,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.etsi.sol003.common.ProblemDetails;
 import org.etsi.sol003.granting.Grant;
@@ -21,7 +24,9 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
+import com.accantosystems.stratoss.vnfmdriver.config.VNFMDriverProperties;
 import com.accantosystems.stratoss.vnfmdriver.model.GrantCreationResponse;
 import com.accantosystems.stratoss.vnfmdriver.service.GrantRejectedException;
 import com.accantosystems.stratoss.vnfmdriver.service.GrantService;
@@ -38,6 +43,9 @@ public class GrantControllerTest {
     @MockBean
     private GrantService grantService;
 
+    @Autowired
+    private VNFMDriverProperties vnfmDriverProperties;
+
     @BeforeEach
     public void setUp() throws Exception {
 
@@ -139,6 +147,94 @@ public class GrantControllerTest {
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
     }
 
+    @Test
+    public void testGetGrantLongPoll() throws Exception {
+
+        // grantService has no decision when the grant is read, but makes one shortly afterwards
+        vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ofSeconds(5));
+        Grant grant = new Grant();
+        String grantId = UUID.randomUUID().toString();
+        grant.setId(grantId);
+        CompletableFuture<Grant> decision = new CompletableFuture<>();
+        when(grantService.getGrant(eq(grantId))).thenReturn(null);
+        when(grantService.awaitGrant(eq(grantId))).thenReturn(decision);
+        CompletableFuture.runAsync(() -> decision.complete(grant), CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+
+        try {
+            final ResponseEntity<Grant> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                    .getForEntity(GRANTS_ENDPOINT + "/" + grantId, Grant.class);
+
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(responseEntity.getBody()).isNotNull();
+            assertThat(responseEntity.getBody().getId()).isEqualTo(grantId);
+        } finally {
+            vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ZERO);
+        }
+    }
+
+    @Test
+    public void testGetGrantLongPollTimeout() throws Exception {
+
+        vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ofMillis(100));
+        String grantId = UUID.randomUUID().toString();
+        when(grantService.getGrant(eq(grantId))).thenReturn(null);
+        when(grantService.awaitGrant(eq(grantId))).thenReturn(new CompletableFuture<>());
+
+        try {
+            final ResponseEntity<Grant> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                    .getForEntity(GRANTS_ENDPOINT + "/" + grantId, Grant.class);
+
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+            assertThat(responseEntity.getBody()).isNull();
+        } finally {
+            vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ZERO);
+        }
+    }
+
+    @Test
+    public void testGetGrantLongPollCappedByAsyncRequestTimeout() throws Exception {
+
+        // The long poll timeout is longer than the async request timeout, so is capped just below it
+        vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ofHours(1));
+        vnfmDriverProperties.getExecution().setRequestTimeout(Duration.ofMillis(200));
+        String grantId = UUID.randomUUID().toString();
+        when(grantService.getGrant(eq(grantId))).thenReturn(null);
+        when(grantService.awaitGrant(eq(grantId))).thenReturn(new CompletableFuture<>());
+
+        try {
+            final ResponseEntity<Grant> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                    .getForEntity(GRANTS_ENDPOINT + "/" + grantId, Grant.class);
+
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+            assertThat(responseEntity.getBody()).isNull();
+        } finally {
+            vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ZERO);
+            vnfmDriverProperties.getExecution().setRequestTimeout(null);
+        }
+    }
+
+    @Test
+    public void testGetGrantAsyncRequestTimeout() throws Exception {
+
+        // Should the async request still time out, the VNFM is told the decision is pending rather than sent an error
+        vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ofSeconds(5));
+        String grantId = UUID.randomUUID().toString();
+        CompletableFuture<Grant> decision = new CompletableFuture<>();
+        decision.completeExceptionally(new AsyncRequestTimeoutException());
+        when(grantService.getGrant(eq(grantId))).thenReturn(null);
+        when(grantService.awaitGrant(eq(grantId))).thenReturn(decision);
+
+        try {
+            final ResponseEntity<Grant> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                    .getForEntity(GRANTS_ENDPOINT + "/" + grantId, Grant.class);
+
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+            assertThat(responseEntity.getBody()).isNull();
+        } finally {
+            vnfmDriverProperties.getGrant().getPolling().setLongPollTimeout(Duration.ZERO);
+        }
+    }
+
     @Test
     public void testGetGrantRejected() throws Exception {
 
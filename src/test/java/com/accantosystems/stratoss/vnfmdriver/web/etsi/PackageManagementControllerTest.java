@@ -6,14 +6,21 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.etsi.sol003.common.ProblemDetails;
 import org.etsi.sol003.packagemanagement.VnfPkgInfo;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -25,12 +32,14 @@ import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.accantosystems.stratoss.vnfmdriver.driver.VNFPackageNotFoundException;
-import com.accantosystems.stratoss.vnfmdriver.service.ContentRangeNotSatisfiableException;
+import com.accantosystems.stratoss.vnfmdriver.model.web.PagedResults;
+import com.accantosystems.stratoss.vnfmdriver.service.FileRegionResource;
 import com.accantosystems.stratoss.vnfmdriver.service.PackageManagementService;
 import com.accantosystems.stratoss.vnfmdriver.service.PackageStateConflictException;
 import com.accantosystems.stratoss.vnfmdriver.service.UnexpectedPackageContentsException;
 import com.accantosystems.stratoss.vnfmdriver.test.TestConstants;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.io.ByteStreams;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -57,7 +66,9 @@ public class PackageManagementControllerTest {
     @Test
     public void testQueryPackageInfoEmptyList() throws Exception {
         VnfPkgInfo vnfPkgInfo = objectMapper.readValue(loadFileIntoString("examples/vnfPackageId.pkgInfo"), VnfPkgInfo.class);
-        when(packageManagementService.getAllVnfPackageInfos(isNull())).thenReturn(Collections.singletonList(vnfPkgInfo));
+        final PagedResults<ObjectNode> vnfPkgInfos = new PagedResults<>();
+        vnfPkgInfos.getItems().add(objectMapper.valueToTree(vnfPkgInfo));
+        when(packageManagementService.queryVnfPackageInfos(isNull(), any(), isNull())).thenReturn(vnfPkgInfos);
 
         final ResponseEntity<List<VnfPkgInfo>> responseEntity = testRestTemplate.withBasicAuth("user", "password")
                                                                                 .exchange(PACKAGE_MANAGEMENT_BASE_ENDPOINT, HttpMethod.GET, new HttpEntity<>(new HttpHeaders()),
@@ -65,6 +76,41 @@ public class PackageManagementControllerTest {
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(responseEntity.getBody()).hasSize(1);
+        assertThat(responseEntity.getBody().get(0).getSoftwareImages()).isNotEmpty();
+        assertThat(responseEntity.getHeaders().get(HttpHeaders.LINK)).isNull();
+    }
+
+    @Test
+    public void testQueryPackageInfoWithFieldSelectionAndPaging() throws Exception {
+        VnfPkgInfo vnfPkgInfo = objectMapper.readValue(loadFileIntoString("examples/vnfPackageId.pkgInfo"), VnfPkgInfo.class);
+        final PagedResults<ObjectNode> vnfPkgInfos = new PagedResults<>();
+        vnfPkgInfos.getItems().add(objectMapper.valueToTree(vnfPkgInfo));
+        vnfPkgInfos.setNextPageOpaqueMarker("bmV4dA");
+        when(packageManagementService.queryVnfPackageInfos(isNull(), any(), eq("Zmlyc3Q"))).thenReturn(vnfPkgInfos);
+
+        final ResponseEntity<List<VnfPkgInfo>> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                                .exchange(PACKAGE_MANAGEMENT_BASE_ENDPOINT + "?fields=softwareImages&nextpage_opaque_marker=Zmlyc3Q",
+                                                                                          HttpMethod.GET, new HttpEntity<>(new HttpHeaders()),
+                                                                                          new ParameterizedTypeReference<List<VnfPkgInfo>>() {});
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).hasSize(1);
+        // Other attributes excluded by default should have been removed
+        assertThat(responseEntity.getBody().get(0).getSoftwareImages()).isNotEmpty();
+        assertThat(responseEntity.getBody().get(0).getAdditionalArtifacts()).isNull();
+        assertThat(responseEntity.getBody().get(0).getChecksum()).isNull();
+        assertThat(responseEntity.getBody().get(0).getVnfProductName()).isEqualTo("vMRF");
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.LINK)).endsWith(PACKAGE_MANAGEMENT_BASE_ENDPOINT + "?fields=softwareImages&nextpage_opaque_marker=bmV4dA>; rel=\"next\"");
+    }
+
+    @Test
+    public void testQueryPackageInfoInvalidFilter() {
+        final ResponseEntity<ProblemDetails> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                              .getForEntity(PACKAGE_MANAGEMENT_BASE_ENDPOINT + "?filter={filter}", ProblemDetails.class,
+                                                                                            "(eq,vnfProvider,Acme");
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(responseEntity.getBody().getDetail()).isEqualTo("Invalid filter [(eq,vnfProvider,Acme]: expected ')' at position 20");
     }
 
     @Test
@@ -245,7 +291,7 @@ public class PackageManagementControllerTest {
 
         String vnfPkgId = UUID.randomUUID().toString();
 
-        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId), nullable(String.class))).thenReturn(vnfPackageAsResource);
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenReturn(vnfPackageAsResource);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip")));
@@ -267,29 +313,29 @@ public class PackageManagementControllerTest {
         ByteArrayResource vnfPackageAsResource = new ByteArrayResource(vnfPackageAsByteArray);
 
         String vnfPkgId = UUID.randomUUID().toString();
-        String contentRange = "1000-2000";
 
-        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId), eq(contentRange))).thenReturn(vnfPackageAsResource);
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenReturn(vnfPackageAsResource);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip")));
-        headers.set(HttpHeaders.CONTENT_RANGE, contentRange);
+        headers.set(HttpHeaders.RANGE, "bytes=1000-2000");
         HttpEntity<String> httpEntity = new HttpEntity<>(headers);
         final ResponseEntity<Resource> responseEntity = testRestTemplate.withBasicAuth("user", "password")
                                                                         .exchange(PACKAGE_MANAGEMENT_PACKAGE_CONTENT_ENDPOINT, HttpMethod.GET, httpEntity, Resource.class, vnfPkgId);
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
         assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/zip"));
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 1000-2000/" + vnfPackageAsByteArray.length);
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getBody()).isNotNull();
-        assertThat(ByteStreams.toByteArray(responseEntity.getBody().getInputStream())).isEqualTo(vnfPackageAsByteArray);
+        assertThat(ByteStreams.toByteArray(responseEntity.getBody().getInputStream())).isEqualTo(Arrays.copyOfRange(vnfPackageAsByteArray, 1000, 2001));
     }
 
     @Test
     public void testRequestVNFPackageContentPackageNotFound() throws Exception {
 
         String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
-        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId), nullable(String.class))).thenThrow(new VNFPackageNotFoundException("Unable to find VNF Package"));
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenThrow(new VNFPackageNotFoundException("Unable to find VNF Package"));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip"), MediaType.APPLICATION_JSON));
@@ -307,7 +353,7 @@ public class PackageManagementControllerTest {
     public void testRequestVNFPackageContentPackageConflict() throws Exception {
 
         String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
-        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId), nullable(String.class))).thenThrow(new PackageStateConflictException("Invalid state"));
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenThrow(new PackageStateConflictException("Invalid state"));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip"), MediaType.APPLICATION_JSON));
@@ -325,18 +371,78 @@ public class PackageManagementControllerTest {
     public void testRequestVNFPackageContentRangeNotSatisfiable() throws Exception {
 
         String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
-        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId), nullable(String.class))).thenThrow(new ContentRangeNotSatisfiableException("Invalid state"));
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenReturn(new ByteArrayResource(loadFileIntoByteArray(VNF_PACKAGE_FILENAME)));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip"), MediaType.APPLICATION_JSON));
+        headers.set(HttpHeaders.RANGE, "bytes=5000-");
         HttpEntity<String> httpEntity = new HttpEntity<>(headers);
         final ResponseEntity<ProblemDetails> responseEntity = testRestTemplate.withBasicAuth("user", "password")
                                                                               .exchange(PACKAGE_MANAGEMENT_PACKAGE_CONTENT_ENDPOINT, HttpMethod.GET, httpEntity, ProblemDetails.class, vnfPkgId);
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */3187");
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getBody()).isNotNull();
-        assertThat(responseEntity.getBody().getDetail()).isEqualTo("Invalid state");
+        assertThat(responseEntity.getBody().getDetail()).isEqualTo("Range [bytes=5000-] is not satisfiable for content of length [3187]");
+    }
+
+    @Test
+    public void testRequestVNFPackageContentInvalidRangeIgnored() throws Exception {
+
+        byte[] vnfPackageAsByteArray = loadFileIntoByteArray(VNF_PACKAGE_FILENAME);
+        String vnfPkgId = UUID.randomUUID().toString();
+
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenReturn(new ByteArrayResource(vnfPackageAsByteArray));
+
+        // Multiple ranges and syntactically invalid ranges are ignored, returning the whole content
+        for (String range : Arrays.asList("bytes=0-99,200-299", "bytes=abc", "bytes=100-50", "items=0-99")) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip")));
+            headers.set(HttpHeaders.RANGE, range);
+            HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+            final ResponseEntity<Resource> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                            .exchange(PACKAGE_MANAGEMENT_PACKAGE_CONTENT_ENDPOINT, HttpMethod.GET, httpEntity, Resource.class, vnfPkgId);
+
+            assertThat(responseEntity.getStatusCode()).as("Range [%s]", range).isEqualTo(HttpStatus.OK);
+            assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).as("Range [%s]", range).isNull();
+            assertThat(responseEntity.getBody()).isNotNull();
+            assertThat(ByteStreams.toByteArray(responseEntity.getBody().getInputStream())).as("Range [%s]", range).isEqualTo(vnfPackageAsByteArray);
+        }
+    }
+
+    @Test
+    public void testRequestVNFPackageContentFromFile(@TempDir Path tempDir) throws Exception {
+
+        // large enough to be sent by the container using sendfile
+        byte[] vnfPackageAsByteArray = new byte[256 * 1024];
+        new Random().nextBytes(vnfPackageAsByteArray);
+        Path vnfPackageFile = Files.write(tempDir.resolve("vnfPackage.zip"), vnfPackageAsByteArray);
+
+        String vnfPkgId = UUID.randomUUID().toString();
+
+        when(packageManagementService.getVnfPackageContent(eq(vnfPkgId))).thenReturn(new FileRegionResource(vnfPackageFile.toFile(), 0, vnfPackageAsByteArray.length));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/zip")));
+        HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+        ResponseEntity<byte[]> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                .exchange(PACKAGE_MANAGEMENT_PACKAGE_CONTENT_ENDPOINT, HttpMethod.GET, httpEntity, byte[].class, vnfPkgId);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getContentLength()).isEqualTo(vnfPackageAsByteArray.length);
+        assertThat(responseEntity.getBody()).isEqualTo(vnfPackageAsByteArray);
+
+        // resume a partial download
+        headers.set(HttpHeaders.RANGE, "bytes=100000-");
+        httpEntity = new HttpEntity<>(headers);
+        responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                         .exchange(PACKAGE_MANAGEMENT_PACKAGE_CONTENT_ENDPOINT, HttpMethod.GET, httpEntity, byte[].class, vnfPkgId);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo(String.format("bytes 100000-%s/%s", vnfPackageAsByteArray.length - 1,
+                                                                                                            vnfPackageAsByteArray.length));
+        assertThat(responseEntity.getBody()).isEqualTo(Arrays.copyOfRange(vnfPackageAsByteArray, 100000, vnfPackageAsByteArray.length));
     }
 
     @Test
@@ -348,7 +454,7 @@ public class PackageManagementControllerTest {
         String vnfPkgId = UUID.randomUUID().toString();
         String artifactPath = "Definitions/Vnfd.yaml";
 
-        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath), nullable(String.class))).thenReturn(vnfPackageArtifactAsResource);
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenReturn(vnfPackageArtifactAsResource);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
@@ -372,23 +478,29 @@ public class PackageManagementControllerTest {
 
         String vnfPkgId = UUID.randomUUID().toString();
         String artifactPath = "Definitions/Vnfd.yaml";
-        String contentRange = "1000-2000";
 
-        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath), eq(contentRange))).thenReturn(vnfPackageArtifactAsResource);
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenReturn(vnfPackageArtifactAsResource);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
-        headers.set(HttpHeaders.CONTENT_RANGE, contentRange);
+        // the last 100 bytes
+        headers.set(HttpHeaders.RANGE, "bytes=-100");
         HttpEntity<String> httpEntity = new HttpEntity<>(headers);
         // don't allow rest template to expand the artifactPath variable into the uri or it will end up encoded and the uri rejected
         final ResponseEntity<Resource> responseEntity = testRestTemplate.withBasicAuth("user", "password")
                                                                         .exchange(PACKAGE_MANAGEMENT_PACKAGE_ARTIFACT_ENDPOINT + artifactPath, HttpMethod.GET, httpEntity, Resource.class, vnfPkgId);
 
+        byte[] vnfPackageArtifactAsByteArray = vnfPackageArtifact.getBytes();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
         assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_OCTET_STREAM);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo(String.format("bytes %s-%s/%s", vnfPackageArtifactAsByteArray.length - 100,
+                                                                                                            vnfPackageArtifactAsByteArray.length - 1,
+                                                                                                            vnfPackageArtifactAsByteArray.length));
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getBody()).isNotNull();
-        assertThat(ByteStreams.toByteArray(responseEntity.getBody().getInputStream())).isEqualTo(vnfPackageArtifact.getBytes());
+        assertThat(ByteStreams.toByteArray(responseEntity.getBody().getInputStream())).isEqualTo(Arrays.copyOfRange(vnfPackageArtifactAsByteArray,
+                                                                                                                   vnfPackageArtifactAsByteArray.length - 100,
+                                                                                                                   vnfPackageArtifactAsByteArray.length));
     }
 
     @Test
@@ -396,7 +508,7 @@ public class PackageManagementControllerTest {
 
         String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
         String artifactPath = "Definitions/Vnfd.yaml";
-        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath), nullable(String.class))).thenThrow(new VNFPackageNotFoundException("Unable to find VNF Package"));
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenThrow(new VNFPackageNotFoundException("Unable to find VNF Package"));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
@@ -417,7 +529,7 @@ public class PackageManagementControllerTest {
 
         String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
         String artifactPath = "Definitions/Vnfd.yaml";
-        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath), nullable(String.class))).thenThrow(new PackageStateConflictException("Invalid state"));
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenThrow(new PackageStateConflictException("Invalid state"));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
@@ -438,10 +550,13 @@ public class PackageManagementControllerTest {
 
         String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
         String artifactPath = "Definitions/Vnfd.yaml";
-        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath), nullable(String.class))).thenThrow(new ContentRangeNotSatisfiableException("Invalid state"));
+        byte[] vnfPackageArtifactAsByteArray = loadFileIntoString("examples/Vnfd.yaml").getBytes();
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenReturn(new ByteArrayResource(vnfPackageArtifactAsByteArray));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
+        // starts beyond the end of the artifact
+        headers.set(HttpHeaders.RANGE, String.format("bytes=%s-", vnfPackageArtifactAsByteArray.length));
         HttpEntity<String> httpEntity = new HttpEntity<>(headers);
         // don't allow rest template to expand the artifactPath variable into the uri or it will end up encoded and the uri rejected
         final ResponseEntity<ProblemDetails> responseEntity = testRestTemplate.withBasicAuth("user", "password")
@@ -449,9 +564,94 @@ public class PackageManagementControllerTest {
                                                                                         vnfPkgId);
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + vnfPackageArtifactAsByteArray.length);
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getBody()).isNotNull();
-        assertThat(responseEntity.getBody().getDetail()).isEqualTo("Invalid state");
+    }
+
+    @Test
+    public void testRequestVNFPackageArtifactMultipleRangesIgnored() throws Exception {
+
+        String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
+        String artifactPath = "Definitions/Vnfd.yaml";
+        byte[] vnfPackageArtifactAsByteArray = loadFileIntoString("examples/Vnfd.yaml").getBytes();
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenReturn(new ByteArrayResource(vnfPackageArtifactAsByteArray));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
+        // multiple ranges aren't supported, so the whole artifact is returned
+        headers.set(HttpHeaders.RANGE, "bytes=0-9,20-29");
+        HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+        // don't allow rest template to expand the artifactPath variable into the uri or it will end up encoded and the uri rejected
+        final ResponseEntity<Resource> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                        .exchange(PACKAGE_MANAGEMENT_PACKAGE_ARTIFACT_ENDPOINT + artifactPath, HttpMethod.GET, httpEntity, Resource.class, vnfPkgId);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_OCTET_STREAM);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(responseEntity.getBody()).isNotNull();
+        assertThat(ByteStreams.toByteArray(responseEntity.getBody().getInputStream())).isEqualTo(vnfPackageArtifactAsByteArray);
+    }
+
+    @Test
+    public void testRequestVNFPackageArtifactReleasedWhenNotRead() throws Exception {
+
+        String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
+        String artifactPath = "Definitions/Vnfd.yaml";
+        CloseableResource vnfPackageArtifact = new CloseableResource(loadFileIntoString("examples/Vnfd.yaml").getBytes());
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenReturn(vnfPackageArtifact);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
+        // only known to be unsatisfiable once the artifact has been found, so the response body is never read
+        headers.set(HttpHeaders.RANGE, "bytes=100000-");
+        HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+        final ResponseEntity<ProblemDetails> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                              .exchange(PACKAGE_MANAGEMENT_PACKAGE_ARTIFACT_ENDPOINT + artifactPath, HttpMethod.GET, httpEntity, ProblemDetails.class,
+                                                                                        vnfPkgId);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(vnfPackageArtifact.awaitClosed()).isTrue();
+    }
+
+    @Test
+    public void testRequestVNFPackageArtifactReleasedOnceSent() throws Exception {
+
+        String vnfPkgId = TestConstants.TEST_VNF_PKG_ID;
+        String artifactPath = "Definitions/Vnfd.yaml";
+        byte[] vnfPackageArtifactAsByteArray = loadFileIntoString("examples/Vnfd.yaml").getBytes();
+        CloseableResource vnfPackageArtifact = new CloseableResource(vnfPackageArtifactAsByteArray);
+        when(packageManagementService.getVnfPackageArtifact(eq(vnfPkgId), eq(artifactPath))).thenReturn(vnfPackageArtifact);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
+        HttpEntity<String> httpEntity = new HttpEntity<>(headers);
+        final ResponseEntity<byte[]> responseEntity = testRestTemplate.withBasicAuth("user", "password")
+                                                                      .exchange(PACKAGE_MANAGEMENT_PACKAGE_ARTIFACT_ENDPOINT + artifactPath, HttpMethod.GET, httpEntity, byte[].class, vnfPkgId);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).isEqualTo(vnfPackageArtifactAsByteArray);
+        assertThat(vnfPackageArtifact.awaitClosed()).isTrue();
+    }
+
+    private static class CloseableResource extends ByteArrayResource implements Closeable {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private CloseableResource(byte[] byteArray) {
+            super(byteArray);
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        // The request completes on the server after the response has been received
+        private boolean awaitClosed() throws InterruptedException {
+            return closed.await(5, TimeUnit.SECONDS);
+        }
+
     }
 
 }